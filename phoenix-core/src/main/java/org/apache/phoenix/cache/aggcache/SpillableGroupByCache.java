@@ -49,7 +49,7 @@ import org.apache.phoenix.expression.aggregator.Aggregator;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.memory.InsufficientMemoryException;
-import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.memory.MemoryManager.RevocableMemoryChunk;
 import org.apache.phoenix.util.Closeables;
 import org.apache.phoenix.util.KeyValueUtil;
 import org.slf4j.Logger;
@@ -105,7 +105,12 @@ public class SpillableGroupByCache implements GroupByCache {
     private long totalNumElements;
     private final ServerAggregators aggregators;
     private final RegionCoprocessorEnvironment env;
-    private final MemoryChunk chunk;
+    private final RevocableMemoryChunk chunk;
+    private final int estValueSize;
+    private final int minCacheSize;
+    private final int numSpillFiles;
+    private boolean spill = false;
+    private int cacheSize;
 
     /*
      * inner class that makes cache queryable for other classes that should not get the full instance. Queryable view of
@@ -131,13 +136,13 @@ public class SpillableGroupByCache implements GroupByCache {
         this.aggregators = aggs;
         this.env = env;
 
-        final int estValueSize = aggregators.getEstimatedByteSize();
+        this.estValueSize = aggregators.getEstimatedByteSize();
         final TenantCache tenantCache = GlobalCache.getTenantCache(env, tenantId);
 
         // Compute Map initial map
         final Configuration conf = env.getConfiguration();
         final long maxCacheSizeConf = conf.getLong(GROUPBY_MAX_CACHE_SIZE_ATTRIB, DEFAULT_GROUPBY_MAX_CACHE_MAX);
-        final int numSpillFilesConf = conf.getInt(GROUPBY_SPILL_FILES_ATTRIB, DEFAULT_GROUPBY_SPILL_FILES);
+        this.numSpillFiles = conf.getInt(GROUPBY_SPILL_FILES_ATTRIB, DEFAULT_GROUPBY_SPILL_FILES);
 
         final int maxSizeNum = (int)(maxCacheSizeConf / estValueSize);
         final int minSizeNum = (SPGBY_CACHE_MIN_SIZE / estValueSize);
@@ -145,13 +150,19 @@ public class SpillableGroupByCache implements GroupByCache {
         // use upper and lower bounds for the cache size
         final int maxCacheSize = Math.max(minSizeNum, Math.min(maxSizeNum, estSizeNum));
         final long estSize = GroupedAggregateRegionObserver.sizeOfUnorderedGroupByMap(maxCacheSize, estValueSize);
+        this.minCacheSize = Math.max(1, minSizeNum);
+        final long minSize = GroupedAggregateRegionObserver.sizeOfUnorderedGroupByMap(minCacheSize, estValueSize);
         try {
-            this.chunk = tenantCache.getMemoryManager().allocate(estSize);
+            // Memory may be revoked while other queries are waiting, as we're able to spill. Only
+            // wait for the minimum, and spill past what we're given if the pool is busy.
+            this.chunk = tenantCache.getMemoryManager().allocateRevocable(Math.min(minSize, estSize), estSize);
         } catch (InsufficientMemoryException ime) {
             logger.error("Requested Map size exceeds memory limit, please decrease max size via config paramter: "
                     + GROUPBY_MAX_CACHE_SIZE_ATTRIB);
             throw ime;
         }
+        this.cacheSize = chunk.getSize() >= estSize ? maxCacheSize
+                : Math.max(minCacheSize, (int)(maxCacheSize * ((double)chunk.getSize() / estSize)));
 
         if (logger.isDebugEnabled()) {
             logger.debug("Instantiating LRU groupby cache of element size: " + maxCacheSize);
@@ -159,9 +170,6 @@ public class SpillableGroupByCache implements GroupByCache {
 
         // LRU cache implemented as LinkedHashMap with access order
         cache = new LinkedHashMap<ImmutableBytesWritable, Aggregator[]>(maxCacheSize, 0.75f, true) {
-            boolean spill = false;
-            int cacheSize = maxCacheSize;
-
             @Override
             protected boolean removeEldestEntry(Map.Entry<ImmutableBytesWritable, Aggregator[]> eldest) {
                 if (!spill && size() > cacheSize) { // increase allocation
@@ -176,25 +184,7 @@ public class SpillableGroupByCache implements GroupByCache {
                 }
 
                 if (spill) {
-                    try {
-                        if (spillManager == null) {
-                            // Lazy instantiation of spillable data
-                            // structures
-                            //
-                            // Only create spill data structs if LRU
-                            // cache is too small
-                            spillManager = new SpillManager(numSpillFilesConf, aggregators, env.getConfiguration(),
-                                    new QueryCache());
-                        }
-                        spillManager.spill(eldest.getKey(), eldest.getValue());
-                    } catch (IOException ioe) {
-                        // Ensure that we always close and delete the temp files
-                        try {
-                            throw new RuntimeException(ioe);
-                        } finally {
-                            Closeables.closeQuietly(SpillableGroupByCache.this);
-                        }
-                    }
+                    spill(eldest);
                     return true;
                 }
 
@@ -203,6 +193,48 @@ public class SpillableGroupByCache implements GroupByCache {
         };
     }
 
+    private void spill(Map.Entry<ImmutableBytesWritable, Aggregator[]> entry) {
+        try {
+            if (spillManager == null) {
+                // Lazy instantiation of spillable data
+                // structures
+                //
+                // Only create spill data structs if LRU
+                // cache is too small
+                spillManager = new SpillManager(numSpillFiles, aggregators, env.getConfiguration(),
+                        new QueryCache());
+            }
+            spillManager.spill(entry.getKey(), entry.getValue());
+        } catch (IOException ioe) {
+            // Ensure that we always close and delete the temp files
+            try {
+                throw new RuntimeException(ioe);
+            } finally {
+                Closeables.closeQuietly(SpillableGroupByCache.this);
+            }
+        }
+    }
+
+    /**
+     * Give memory back to other queries waiting for it by spilling the least recently used
+     * half of the cached elements and keeping the cache at the remaining size.
+     */
+    private void revokeMemory() {
+        int targetSize = Math.max(minCacheSize, cache.size() / 2);
+        Iterator<Map.Entry<ImmutableBytesWritable, Aggregator[]>> iterator = cache.entrySet().iterator();
+        while (cache.size() > targetSize && iterator.hasNext()) {
+            spill(iterator.next());
+            iterator.remove();
+        }
+        spill = true;
+        cacheSize = targetSize;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Memory revoked, spilling LRU groupby cache down to element size: " + cacheSize);
+        }
+        chunk.resize(Math.min(chunk.getSize(),
+                GroupedAggregateRegionObserver.sizeOfUnorderedGroupByMap(cacheSize, estValueSize)));
+    }
+
     /**
      * Size function returns the current number of cached elements
      */
@@ -217,6 +249,9 @@ public class SpillableGroupByCache implements GroupByCache {
      */
     @Override
     public Aggregator[] cache(ImmutableBytesPtr cacheKey) {
+        if (chunk.isRevokeRequested()) {
+            revokeMemory();
+        }
         ImmutableBytesPtr key = new ImmutableBytesPtr(cacheKey);
         Aggregator[] rowAggregators = cache.get(key);
         if (rowAggregators == null) {
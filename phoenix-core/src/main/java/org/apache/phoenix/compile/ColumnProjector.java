@@ -63,6 +63,17 @@ public interface ColumnProjector {
      * @throws SQLException
      */
     Object getValue(Tuple tuple, PDataType type, ImmutableBytesWritable ptr) throws SQLException;
+
+    /**
+     * Evaluate the column without creating an object for its value, for it to be
+     * decoded directly from its binary representation
+     * @param tuple the row containing the column
+     * @param ptr set to the binary value of the column, in the type and sort order
+     *  of the expression
+     * @return true if the column has a value and false if it is null
+     * @throws SQLException
+     */
+    boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
     
     boolean isCaseSensitive();
 }
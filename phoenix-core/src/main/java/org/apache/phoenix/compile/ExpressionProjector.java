@@ -83,6 +83,20 @@ public class ExpressionProjector implements ColumnProjector {
         }
     }
 
+    @Override
+    public final boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            return getExpression().evaluate(tuple, ptr) && ptr.getLength() != 0;
+        } catch (RuntimeException e) {
+            // FIXME: Expression.evaluate does not throw SQLException
+            // so this will unwrap throws from that.
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     @Override
     public boolean isCaseSensitive() {
         return isCaseSensitive;
@@ -20,7 +20,9 @@ package org.apache.phoenix.compile;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +46,7 @@ import org.apache.phoenix.execute.SortMergeJoinPlan;
 import org.apache.phoenix.execute.TupleProjectionPlan;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.execute.UnionPlan;
+import org.apache.phoenix.execute.visitor.RowCountVisitor;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.LiteralExpression;
 import org.apache.phoenix.expression.RowValueConstructorExpression;
@@ -200,7 +203,9 @@ public class QueryCompiler {
      *      1) If option COST_BASED_OPTIMIZER_ENABLED is on and stats are available, return the
      *         join plan with the best cost. Note that the "best" plan is only locally optimal,
      *         and might or might not be globally optimal.
-     *      2) Otherwise, return the join plan compiled with the default strategy.
+     *      2) Otherwise, return the join plan compiled with the default strategy, unless stats
+     *         show its hash tables would exceed the server cache size, in which case the next
+     *         applicable strategy is tried.
      * @see JoinCompiler.JoinTable#getApplicableJoinStrategies()
      */
     protected QueryPlan compileJoinQuery(StatementContext context, List<Object> binds, JoinTable joinTable, boolean asSubquery, boolean projectPKColumns, List<OrderByNode> orderBy) throws SQLException {
@@ -224,10 +229,26 @@ public class QueryCompiler {
 
         List<JoinCompiler.Strategy> strategies = joinTable.getApplicableJoinStrategies();
         assert strategies.size() > 0;
-        if (!costBased || strategies.size() == 1) {
+        if (strategies.size() == 1) {
             return compileJoinQuery(
                     strategies.get(0), context, binds, joinTable, asSubquery, projectPKColumns, orderBy);
         }
+        if (!costBased) {
+            // Each candidate starts from the caller's scan, which carries the statement hints
+            QueryPlan plan = null;
+            for (JoinCompiler.Strategy strategy : strategies) {
+                StatementContext newContext = new StatementContext(context.getStatement(), context.getResolver(),
+                        ScanUtil.newScan(context.getScan()), context.getSequenceManager());
+                plan = compileJoinQuery(
+                        strategy, newContext, binds, joinTable, asSubquery, projectPKColumns, orderBy);
+                if (!exceedsServerCacheLimit(plan)) {
+                    break;
+                }
+            }
+            context.setResolver(plan.getContext().getResolver());
+            context.setCurrentTable(plan.getContext().getCurrentTable());
+            return plan;
+        }
 
         QueryPlan bestPlan = null;
         Cost bestCost = null;
@@ -247,6 +268,63 @@ public class QueryCompiler {
         return bestPlan;
     }
 
+    private static boolean exceedsServerCacheLimit(QueryPlan plan) {
+        if (!(plan instanceof HashJoinPlan)) {
+            return false;
+        }
+        HashJoinPlan hashJoinPlan = (HashJoinPlan) plan;
+        Double bytes = hashJoinPlan.getEstimatedHashCacheBytes();
+        return bytes != null && bytes > hashJoinPlan.getServerCacheLimit();
+    }
+
+    /**
+     * Order the joins of a star join so that those most likely to eliminate rows are evaluated
+     * first: inner, semi and anti joins ahead of left joins, each by increasing estimated
+     * number of rows on their build side. Joins of a star only depend on the base table, so they
+     * commute, but the order of the joined columns does change, so statements with wildcards
+     * keep their written order.
+     * @return the join positions in evaluation order, or null to keep the written order
+     */
+    private int[] getStarJoinOrder(JoinTable joinTable, boolean[] starJoinVector, QueryPlan[] subPlans) {
+        if (joinTable.getStatement().hasWildcard()) {
+            return null;
+        }
+        for (boolean star : starJoinVector) {
+            if (!star) {
+                return null;
+            }
+        }
+        final List<JoinSpec> joinSpecs = joinTable.getJoinSpecs();
+        final double[] rows = new double[subPlans.length];
+        Integer[] order = new Integer[subPlans.length];
+        for (int i = 0; i < subPlans.length; i++) {
+            Double r = subPlans[i].accept(new RowCountVisitor());
+            if (r == null) {
+                return null;
+            }
+            rows[i] = r;
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                boolean isLeft1 = joinSpecs.get(i1).getType() == JoinType.Left;
+                boolean isLeft2 = joinSpecs.get(i2).getType() == JoinType.Left;
+                if (isLeft1 != isLeft2) {
+                    return isLeft1 ? 1 : -1;
+                }
+                return Double.compare(rows[i1], rows[i2]);
+            }
+        });
+        int[] result = new int[order.length];
+        boolean reordered = false;
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+            reordered |= result[i] != i;
+        }
+        return reordered ? result : null;
+    }
+
     protected QueryPlan compileJoinQuery(JoinCompiler.Strategy strategy, StatementContext context, List<Object> binds, JoinTable joinTable, boolean asSubquery, boolean projectPKColumns, List<OrderByNode> orderBy) throws SQLException {
         byte[] emptyByteArray = new byte[0];
         List<JoinSpec> joinSpecs = joinTable.getJoinSpecs();
@@ -291,6 +369,23 @@ public class QueryCompiler {
                     Scan subScan = ScanUtil.newScan(originalScan);
                     subContexts[i] = new StatementContext(statement, context.getResolver(), subScan, new SequenceManager(statement));
                     subPlans[i] = compileJoinQuery(subContexts[i], binds, joinSpec.getJoinTable(), true, true, null);
+                }
+                int[] joinOrder = costBased && count > 1 ? getStarJoinOrder(joinTable, starJoinVector, subPlans) : null;
+                if (joinOrder != null) {
+                    List<JoinSpec> orderedJoinSpecs = Lists.newArrayListWithExpectedSize(count);
+                    StatementContext[] orderedSubContexts = new StatementContext[count];
+                    QueryPlan[] orderedSubPlans = new QueryPlan[count];
+                    for (int i = 0; i < count; i++) {
+                        orderedJoinSpecs.add(joinSpecs.get(joinOrder[i]));
+                        orderedSubContexts[i] = subContexts[joinOrder[i]];
+                        orderedSubPlans[i] = subPlans[joinOrder[i]];
+                    }
+                    joinSpecs = orderedJoinSpecs;
+                    subContexts = orderedSubContexts;
+                    subPlans = orderedSubPlans;
+                }
+                for (int i = 0; i < count; i++) {
+                    JoinSpec joinSpec = joinSpecs.get(i);
                     boolean hasPostReference = joinSpec.getJoinTable().hasPostReference();
                     if (hasPostReference) {
                         tables[i] = subContexts[i].getResolver().getTables().get(0).getTable();
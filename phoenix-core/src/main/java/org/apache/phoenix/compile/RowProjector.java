@@ -21,10 +21,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
-import org.apache.phoenix.expression.visitor.CloneNonDeterministicExpressionVisitor;
+import org.apache.phoenix.expression.visitor.CloneCommonSubexpressionVisitor;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.schema.ColumnNotFoundException;
 import org.apache.phoenix.util.SchemaUtil;
 
@@ -53,6 +55,7 @@ public class RowProjector {
     private final boolean isProjectEmptyKeyValue;
     private final boolean cloneRequired;
     private final boolean hasUDFs;
+    private final Set<ImmutableBytesPtr> commonSubexpressions;
     
     public RowProjector(RowProjector projector, boolean isProjectEmptyKeyValue) {
         this(projector.getColumnProjectors(), projector.getEstimatedRowByteSize(), isProjectEmptyKeyValue, projector.hasUDFs, projector.isProjectAll);
@@ -98,16 +101,18 @@ public class RowProjector {
         this.isProjectAll = isProjectAll;
         this.hasUDFs = hasUDFs;
         boolean hasPerInvocationExpression = false;
-        if (!hasUDFs) {
-            for (int i = 0; i < this.columnProjectors.size(); i++) {
-                Expression expression = this.columnProjectors.get(i).getExpression();
-                if (expression.getDeterminism() == Determinism.PER_INVOCATION) {
-                    hasPerInvocationExpression = true;
-                    break;
-                }
+        List<Expression> expressions = new ArrayList<Expression>(this.columnProjectors.size());
+        for (int i = 0; i < this.columnProjectors.size(); i++) {
+            Expression expression = this.columnProjectors.get(i).getExpression();
+            if (expression.getDeterminism() == Determinism.PER_INVOCATION) {
+                hasPerInvocationExpression = true;
             }
+            expressions.add(expression);
         }
-        this.cloneRequired = hasPerInvocationExpression || hasUDFs;
+        // Subexpressions shared by the projected expressions get evaluated once per row
+        // by the clones, which hold the value of the current row
+        this.commonSubexpressions = CloneCommonSubexpressionVisitor.findCommonSubexpressions(expressions);
+        this.cloneRequired = hasPerInvocationExpression || hasUDFs || !commonSubexpressions.isEmpty();
     }
 
     public RowProjector cloneIfNecessary() {
@@ -115,12 +120,12 @@ public class RowProjector {
             return this;
         }
         List<ColumnProjector> clonedColProjectors = new ArrayList<ColumnProjector>(columnProjectors.size());
+        CloneCommonSubexpressionVisitor visitor = new CloneCommonSubexpressionVisitor(commonSubexpressions);
         for (int i = 0; i < this.columnProjectors.size(); i++) {
             ColumnProjector colProjector = columnProjectors.get(i);
             Expression expression = colProjector.getExpression();
-            if (expression.getDeterminism() == Determinism.PER_INVOCATION) {
-                CloneNonDeterministicExpressionVisitor visitor = new CloneNonDeterministicExpressionVisitor();
-                Expression clonedExpression = expression.accept(visitor);
+            if (expression.getDeterminism() == Determinism.PER_INVOCATION || !commonSubexpressions.isEmpty()) {
+                Expression clonedExpression = visitor.memoize(expression, expression.accept(visitor));
                 clonedColProjectors.add(new ExpressionProjector(colProjector.getName(),
                         colProjector.getTableName(), 
                         clonedExpression,
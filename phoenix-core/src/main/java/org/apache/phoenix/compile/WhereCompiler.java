@@ -43,6 +43,7 @@ import org.apache.phoenix.filter.MultiEncodedCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.RowKeyComparisonFilter;
 import org.apache.phoenix.filter.SingleCFCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.SingleCQKeyValueComparisonFilter;
+import org.apache.phoenix.filter.SkipScanFilter;
 import org.apache.phoenix.parse.ColumnParseNode;
 import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.ParseNode;
@@ -251,6 +252,7 @@ public class WhereCompiler {
      */
     private static void setScanFilter(StatementContext context, FilterableStatement statement, Expression whereClause, boolean disambiguateWithFamily) {
         Scan scan = context.getScan();
+        boolean isNullRejectingKeyValueFilter = false;
 
         if (LiteralExpression.isBooleanFalseOrNull(whereClause)) {
             context.setScanRanges(ScanRanges.NOTHING);
@@ -312,11 +314,20 @@ public class WhereCompiler {
                 break;
             }
             scan.setFilter(filter);
+            isNullRejectingKeyValueFilter = count != Counter.Count.NONE && !whereClause.requiresFinalEvaluation();
         }
 
         ScanRanges scanRanges = context.getScanRanges();
         if (scanRanges.useSkipScanFilter()) {
-            ScanUtil.andFilterAtBeginning(scan, scanRanges.getSkipScanFilter());
+            SkipScanFilter skipScanFilter = scanRanges.getSkipScanFilter();
+            if (isNullRejectingKeyValueFilter) {
+                // The key value filter declares the column families of its columns as essential, and
+                // rejects the rows having none of them. Only those families are then read for every
+                // row, and the others for the rows passing the filters.
+                skipScanFilter = new SkipScanFilter(skipScanFilter, false);
+                skipScanFilter.setFamilyEssential(false);
+            }
+            ScanUtil.andFilterAtBeginning(scan, skipScanFilter);
         }
     }
     
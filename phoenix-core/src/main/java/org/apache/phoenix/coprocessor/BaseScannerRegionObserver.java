@@ -63,6 +63,7 @@ abstract public class BaseScannerRegionObserver extends BaseRegionObserver {
     public static final String ESTIMATED_DISTINCT_VALUES = "_EstDistinctValues";
     public static final String NON_AGGREGATE_QUERY = "_NonAggregateQuery";
     public static final String TOPN = "_TopN";
+    public static final String TOPN_THRESHOLD = "_TopNThreshold";
     public static final String UNGROUPED_AGG = "_UngroupedAgg";
     public static final String DELETE_AGG = "_DeleteAgg";
     public static final String UPSERT_SELECT_TABLE = "_UpsertSelectTable";
@@ -91,6 +92,8 @@ abstract public class BaseScannerRegionObserver extends BaseRegionObserver {
     public static final String TX_STATE = "_TxState";
     public static final String GUIDEPOST_WIDTH_BYTES = "_GUIDEPOST_WIDTH_BYTES";
     public static final String GUIDEPOST_PER_REGION = "_GUIDEPOST_PER_REGION";
+    // Set on the region server before the scanner collecting stats is opened
+    public static final String ZONE_MAP_CUTOFF = "_ZONE_MAP_CUTOFF";
     public static final String UPGRADE_DESC_ROW_KEY = "_UPGRADE_DESC_ROW_KEY";
     public static final String SCAN_REGION_SERVER = "_SCAN_REGION_SERVER";
     public static final String RUN_UPDATE_STATS_ASYNC_ATTRIB = "_RunUpdateStatsAsync";
@@ -418,9 +418,11 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
             try {
                 region.startRegionOperation();
                 acquiredLock = true;
+                // The tuple only references the cells of the current row, so the list is reused
+                List<Cell> results = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
                 synchronized (scanner) {
                     do {
-                        List<Cell> results = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
+                        results.clear();
                         // Results are potentially returned even when the return
                         // value of s.next is false
                         // since this is an indication of whether or not there are
@@ -476,6 +478,8 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
         return new BaseRegionScanner(scanner) {
             private long rowCount = 0;
             private ImmutableBytesPtr currentKey = null;
+            // The tuple only references the cells of the current row, so the list is reused
+            private final List<Cell> kvs = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
 
             @Override
             public boolean next(List<Cell> results) throws IOException {
@@ -495,7 +499,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver {
                     acquiredLock = true;
                     synchronized (scanner) {
                         do {
-                            List<Cell> kvs = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
+                            kvs.clear();
                             // Results are potentially returned even when the return
                             // value of s.next is false
                             // since this is an indication of whether or not there
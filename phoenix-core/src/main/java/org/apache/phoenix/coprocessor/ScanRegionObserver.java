@@ -25,6 +25,7 @@ import java.util.List;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.io.WritableUtils;
@@ -68,6 +69,35 @@ public class ScanRegionObserver extends BaseScannerRegionObserver {
         }
     }
 
+    /**
+     * Serialize the sort keys of a row that at least the limit of rows of the TopN sort before or
+     * at, so that the rows sorting after it can be skipped
+     */
+    public static void serializeTopNThresholdIntoScan(Scan scan, ImmutableBytesWritable[] sortKeys) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVInt(output, sortKeys.length);
+            for (ImmutableBytesWritable sortKey : sortKeys) {
+                if (sortKey == null) {
+                    WritableUtils.writeVInt(output, -1);
+                } else {
+                    WritableUtils.writeVInt(output, sortKey.getLength());
+                    output.write(sortKey.get(), sortKey.getOffset(), sortKey.getLength());
+                }
+            }
+            scan.setAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD, stream.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     @Override
     protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws Throwable {
         NonAggregateRegionScannerFactory nonAggregateROUtil = new NonAggregateRegionScannerFactory(c.getEnvironment());
@@ -332,6 +332,10 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             scan.setStartRow(HConstants.EMPTY_START_ROW);
             scan.setStopRow(HConstants.EMPTY_END_ROW);
             scan.setFilter(null);
+            // Cells written from now on may be missed by the scan, whatever the time range it
+            // reads, so zone maps only describe the cells older than this
+            long zoneMapCutoff = Math.min(EnvironmentEdgeManager.currentTimeMillis(), scan.getTimeRange().getMax());
+            scan.setAttribute(BaseScannerRegionObserver.ZONE_MAP_CUTOFF, Bytes.toBytes(zoneMapCutoff));
         }
         return s;
     }
@@ -377,10 +381,12 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                     scan.getAttribute(BaseScannerRegionObserver.GUIDEPOST_WIDTH_BYTES);
             byte[] gp_per_region_bytes =
                     scan.getAttribute(BaseScannerRegionObserver.GUIDEPOST_PER_REGION);
+            byte[] zoneMapCutoff = scan.getAttribute(BaseScannerRegionObserver.ZONE_MAP_CUTOFF);
             // Let this throw, as this scan is being done for the sole purpose of collecting stats
             StatisticsCollector statsCollector = StatisticsCollectorFactory.createStatisticsCollector(
                     env, region.getRegionInfo().getTable().getNameAsString(), ts,
-                    gp_width_bytes, gp_per_region_bytes);
+                    gp_width_bytes, gp_per_region_bytes,
+                    zoneMapCutoff == null ? StatisticsCollector.NO_TIMESTAMP : Bytes.toLong(zoneMapCutoff));
             return collectStats(s, statsCollector, region, scan, env.getConfiguration());
         } else if (ScanUtil.isIndexRebuild(scan)) {
             return rebuildIndices(s, region, scan, env.getConfiguration());
@@ -548,9 +554,11 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             }
             region.startRegionOperation();
             acquiredLock = true;
+            // The tuple only references the cells of the current row, so the list is reused
+            List<Cell> results = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
             synchronized (innerScanner) {
                 do {
-                    List<Cell> results = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
+                    results.clear();
                     // Results are potentially returned even when the return value of s.next is false
                     // since this is an indication of whether or not there are more values after the
                     // ones returned
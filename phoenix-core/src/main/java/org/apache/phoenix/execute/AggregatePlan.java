@@ -24,11 +24,13 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.GroupByCompiler.GroupBy;
 import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.compile.ScanRanges;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.coprocessor.GroupedAggregateRegionObserver;
@@ -39,8 +41,14 @@ import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
 import org.apache.phoenix.execute.visitor.RowCountVisitor;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
 import org.apache.phoenix.expression.RowKeyExpression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
 import org.apache.phoenix.expression.aggregator.Aggregators;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.iterate.AggregatingResultIterator;
 import org.apache.phoenix.iterate.BaseResultIterators;
@@ -49,6 +57,7 @@ import org.apache.phoenix.iterate.DistinctAggregatingResultIterator;
 import org.apache.phoenix.iterate.FilterAggregatingResultIterator;
 import org.apache.phoenix.iterate.GroupedAggregatingResultIterator;
 import org.apache.phoenix.iterate.LimitingResultIterator;
+import org.apache.phoenix.iterate.MaterializedResultIterator;
 import org.apache.phoenix.iterate.MergeSortRowKeyResultIterator;
 import org.apache.phoenix.iterate.OffsetResultIterator;
 import org.apache.phoenix.iterate.OrderedAggregatingResultIterator;
@@ -62,17 +71,28 @@ import org.apache.phoenix.iterate.RowKeyOrderedAggregateResultIterator;
 import org.apache.phoenix.iterate.SequenceResultIterator;
 import org.apache.phoenix.iterate.SerialIterators;
 import org.apache.phoenix.iterate.SpoolingResultIterator;
+import org.apache.phoenix.iterate.StreamingResultIterator;
 import org.apache.phoenix.iterate.UngroupedAggregatingResultIterator;
+import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.HintNode;
 import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.PTable.IndexType;
+import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TableRef;
+import org.apache.phoenix.schema.stats.StatisticsUtil;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.util.CostUtil;
+import org.apache.phoenix.util.KeyValueUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -219,6 +239,9 @@ public class AggregatePlan extends BaseQueryPlan {
         if (groupBy.isEmpty() || groupBy.isOrderPreserving()) {
             if (ScanUtil.isPacingScannersPossible(context)) {
                 innerFactory = ParallelIteratorFactory.NOOP_FACTORY;
+            } else if (services.getProps().getBoolean(QueryServices.STREAMING_MERGE_ENABLED_ATTRIB,
+                    QueryServicesOptions.DEFAULT_STREAMING_MERGE_ENABLED)) {
+                innerFactory = new StreamingResultIterator.StreamingResultIteratorFactory(services);
             } else {
                 innerFactory = new SpoolingResultIterator.SpoolingResultIteratorFactory(services);
             }
@@ -232,10 +255,112 @@ public class AggregatePlan extends BaseQueryPlan {
         return new WrappingResultIteratorFactory(innerFactory, parallelIteratorFactory);
     }
     
+    /**
+     * The MIN and MAX of the leading row key column of the scan are found in the first or the
+     * last row passing the filters, as the rows are in row key order within each parallel scan.
+     * Nulls sort first, so only the last row may be used for a nullable column.
+     *
+     * @return null if the rows of each parallel scan can't be limited to a single row, or
+     *         whether the scans must be reversed to start from the last row otherwise
+     */
+    private Boolean isReverseScanForMinMax(Scan scan) {
+        PTable table = tableRef.getTable();
+        if (!groupBy.isEmpty() || dataPlan != null || table.getBucketNum() != null
+                || table.getIndexType() == IndexType.LOCAL || HashJoinInfo.deserializeHashJoinFromScan(scan) != null) {
+            return null;
+        }
+        ScanRanges scanRanges = context.getScanRanges();
+        Boolean isReverse = null;
+        for (SingleAggregateFunction function : aggregators.getFunctions()) {
+            if (!(function instanceof MinAggregateFunction)) {
+                return null;
+            }
+            Expression expression = function.getAggregatorExpression();
+            if (!(expression instanceof RowKeyColumnExpression)) {
+                return null;
+            }
+            int position = ((RowKeyColumnExpression)expression).getPosition();
+            for (int i = 0; i < position; i++) {
+                if (!scanRanges.hasEqualityConstraint(i)) {
+                    return null;
+                }
+            }
+            boolean isMax = function instanceof MaxAggregateFunction;
+            boolean reverse = isMax == (expression.getSortOrder() == SortOrder.ASC);
+            if ((isReverse != null && isReverse != reverse) || (!reverse && expression.isNullable())) {
+                return null;
+            }
+            isReverse = reverse;
+        }
+        // Reverse the scan under the same conditions as an ORDER BY in reverse row key order,
+        // as the skip scan only seeks forward, and otherwise scan all the rows
+        if (Boolean.TRUE.equals(isReverse)
+                && (!context.getConnection().getQueryServices().getProps().getBoolean(QueryServices.USE_REVERSE_SCAN_ATTRIB, QueryServicesOptions.DEFAULT_USE_REVERSE_SCAN)
+                        || scanRanges.useSkipScanFilter()
+                        || context.getCurrentTable().getTable().getType() == PTableType.PROJECTED
+                        || context.getCurrentTable().getTable().getType() == PTableType.SUBQUERY
+                        || statement.getHint().hasHint(HintNode.Hint.FORWARD_SCAN))) {
+            return null;
+        }
+        return isReverse;
+    }
+
+    /**
+     * @return true if the COUNT(*) of the rows in the scan ranges may be approximated by the
+     *         row counts of the guideposts, as requested by the APPROXIMATE_COUNT hint
+     */
+    private boolean isCountApproximatedByStats(Scan scan) {
+        if (!statement.getHint().hasHint(HintNode.Hint.APPROXIMATE_COUNT) || !groupBy.isEmpty()
+                || dataPlan != null || tableRef.getTable().getIndexType() == IndexType.LOCAL
+                || scan.getFilter() != null || context.getScanRanges() == ScanRanges.NOTHING
+                || context.getConnection().getSCN() != null || statement.getTableSamplingRate() != null
+                || HashJoinInfo.deserializeHashJoinFromScan(scan) != null) {
+            return false;
+        }
+        for (SingleAggregateFunction function : aggregators.getFunctions()) {
+            if (!(function instanceof CountAggregateFunction)
+                    || !((CountAggregateFunction)function).isConstantExpression()) {
+                return false;
+            }
+        }
+        return aggregators.getFunctions().length > 0;
+    }
+
+    /**
+     * @return an iterator over the row the region servers would return for the COUNT(*) of the
+     *         given number of rows
+     */
+    private PeekingResultIterator newCountResultIterator(long rowCount) {
+        Aggregator[] countAggregators = aggregators.newAggregators();
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(PLong.INSTANCE.toBytes(rowCount));
+        for (Aggregator countAggregator : countAggregators) {
+            countAggregator.aggregate(null, ptr);
+        }
+        Tuple tuple = new SingleKeyValueTuple(KeyValueUtil.newKeyValue(QueryConstants.UNGROUPED_AGG_ROW_KEY,
+                QueryConstants.SINGLE_COLUMN_FAMILY, QueryConstants.SINGLE_COLUMN, QueryConstants.AGG_TIMESTAMP,
+                aggregators.toBytes(countAggregators)));
+        final String tableName = tableRef.getTable().getPhysicalName().getString();
+        return new MaterializedResultIterator(Collections.singletonList(tuple)) {
+            @Override
+            public void explain(List<String> planSteps) {
+                planSteps.add("CLIENT APPROXIMATE ROW COUNT FROM STATISTICS OVER " + tableName);
+            }
+        };
+    }
+
     @Override
     protected ResultIterator newIterator(ParallelScanGrouper scanGrouper, Scan scan, Map<ImmutableBytesPtr,ServerCache> caches) throws SQLException {
+        Integer perScanLimit = null;
+        boolean isCountApproximatedByStats = isCountApproximatedByStats(scan);
         if (groupBy.isEmpty()) {
             UngroupedAggregateRegionObserver.serializeIntoScan(scan);
+            Boolean isReverse = isReverseScanForMinMax(scan);
+            if (isReverse != null) {
+                perScanLimit = 1;
+                if (isReverse) {
+                    ScanUtil.setReversed(scan);
+                }
+            }
         } else {
             // Set attribute with serialized expressions for coprocessor
             GroupedAggregateRegionObserver.serializeIntoScan(scan, groupBy.getScanAttribName(), groupBy.getKeyExpressions());
@@ -269,8 +394,8 @@ public class AggregatePlan extends BaseQueryPlan {
             }
         }
         BaseResultIterators iterators = isSerial
-                ? new SerialIterators(this, null, null, wrapParallelIteratorFactory(), scanGrouper, scan, caches, dataPlan)
-                : new ParallelIterators(this, null, wrapParallelIteratorFactory(), scan, false, caches, dataPlan);
+                ? new SerialIterators(this, perScanLimit, null, wrapParallelIteratorFactory(), scanGrouper, scan, caches, dataPlan)
+                : new ParallelIterators(this, perScanLimit, wrapParallelIteratorFactory(), scan, false, caches, dataPlan);
         estimatedRows = iterators.getEstimatedRowCount();
         estimatedSize = iterators.getEstimatedByteCount();
         estimateInfoTimestamp = iterators.getEstimateInfoTimestamp();
@@ -278,8 +403,12 @@ public class AggregatePlan extends BaseQueryPlan {
         scans = iterators.getScans();
 
         AggregatingResultIterator aggResultIterator;
+        // Answer from the statistics without running the scans when they were collected
+        if (isCountApproximatedByStats && estimatedRows != null && estimateInfoTimestamp != null
+                && estimateInfoTimestamp != StatisticsUtil.NOT_STATS_BASED_TS) {
+            aggResultIterator = new UngroupedAggregatingResultIterator(newCountResultIterator(estimatedRows), aggregators);
         // No need to merge sort for ungrouped aggregation
-        if (groupBy.isEmpty() || groupBy.isUngroupedAggregate()) {
+        } else if (groupBy.isEmpty() || groupBy.isUngroupedAggregate()) {
             aggResultIterator = new UngroupedAggregatingResultIterator(new ConcatResultIterator(iterators), aggregators);
         // If salted or local index we still need a merge sort as we'll potentially have multiple group by keys that aren't contiguous.
         } else if (groupBy.isOrderPreserving() && !(this.getTableRef().getTable().getBucketNum() != null || this.getTableRef().getTable().getIndexType() == IndexType.LOCAL)) {
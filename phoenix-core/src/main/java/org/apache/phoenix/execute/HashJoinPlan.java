@@ -258,6 +258,10 @@ public class HashJoinPlan extends DelegateQueryPlan {
 
     @Override
     public ExplainPlan getExplainPlan() throws SQLException {
+        if (joinInfo != null) {
+            // Explain the scan as it's run, since the delegate plans the scan of a join differently
+            HashJoinInfo.serializeHashJoinIntoScan(delegate.getContext().getScan(), joinInfo);
+        }
         List<String> planSteps = Lists.newArrayList(delegate.getExplainPlan().getPlanSteps());
         int count = subPlans.length;
         for (int i = 0; i < count; i++) {
@@ -310,7 +314,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
             double rows = RowCountVisitor.filter(
                     r.doubleValue(),
                     RowCountVisitor.stripSkipScanFilter(
-                            delegate.getContext().getScan().getFilter()));
+                            delegate.getContext().getScan().getFilter()),
+                    delegate.getContext());
             double bytes = rowWidth * rows;
             Cost cost = Cost.ZERO;
             double rhsByteSum = 0.0;
@@ -369,6 +374,30 @@ public class HashJoinPlan extends DelegateQueryPlan {
         return Cost.UNKNOWN;
     }
 
+    /**
+     * Estimate the total size of the hash tables that will be sent to the region servers.
+     * @return the number of bytes, or null if it can't be estimated
+     */
+    public Double getEstimatedHashCacheBytes() {
+        double bytes = 0;
+        for (SubPlan subPlan : subPlans) {
+            if (!(subPlan instanceof HashSubPlan)) {
+                continue;
+            }
+            Double rows = subPlan.getInnerPlan().accept(new RowCountVisitor());
+            Double width = subPlan.getInnerPlan().accept(new AvgRowWidthVisitor());
+            if (rows == null || width == null) {
+                return null;
+            }
+            bytes += rows * width;
+        }
+        return bytes;
+    }
+
+    public long getServerCacheLimit() {
+        return serverCacheLimit;
+    }
+
     public interface SubPlan {
         public ServerCache execute(HashJoinPlan parent) throws SQLException;
         public void postProcess(ServerCache result, HashJoinPlan parent) throws SQLException;
@@ -56,6 +56,8 @@ import org.apache.phoenix.iterate.RoundRobinResultIterator;
 import org.apache.phoenix.iterate.SequenceResultIterator;
 import org.apache.phoenix.iterate.SerialIterators;
 import org.apache.phoenix.iterate.SpoolingResultIterator;
+import org.apache.phoenix.iterate.StreamingResultIterator;
+import org.apache.phoenix.iterate.TopNThreshold;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.HintNode;
@@ -185,10 +187,15 @@ public class ScanPlan extends BaseQueryPlan {
                 new SpoolingResultIterator.SpoolingResultIteratorFactory(
                         context.getConnection().getQueryServices());
 
-        // If we're doing an order by then we need the full result before we can do anything,
-        // so we don't bother chunking it. If we're just doing a simple scan then we chunk
-        // the scan to have a quicker initial response.
+        // If we're doing an order by then the results of each scan are merge sorted, so we
+        // buffer them while they stream in and only spool if the merge falls behind. If we're
+        // just doing a simple scan then we chunk the scan to have a quicker initial response.
         if (!orderBy.getOrderByExpressions().isEmpty()) {
+            if (context.getConnection().getQueryServices().getProps().getBoolean(
+                    QueryServices.STREAMING_MERGE_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_STREAMING_MERGE_ENABLED)) {
+                return new StreamingResultIterator.StreamingResultIteratorFactory(
+                        context.getConnection().getQueryServices());
+            }
             return spoolingResultIteratorFactory;
         } else {
             return new ChunkedResultIterator.ChunkedResultIteratorFactory(
@@ -265,13 +272,30 @@ public class ScanPlan extends BaseQueryPlan {
         boolean initFirstScanOnly =
                 (orderBy == OrderBy.FWD_ROW_KEY_ORDER_BY || orderBy == OrderBy.REV_ROW_KEY_ORDER_BY)
                         && isDataToScanWithinThreshold; 
+        boolean isRowKeyOrderMerged = (isSalted || table.getIndexType() == IndexType.LOCAL)
+                && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context);
+        /*
+         * If the results of the scans are concatenated up to a limit, the scans are launched
+         * progressively so that the ones past the limit are never run.
+         */
+        boolean launchScansProgressively = isLimitLaunchingScansProgressively() && !isRowKeyOrderMerged;
         BaseResultIterators iterators;
         if (isOffsetOnServer) {
             iterators = new SerialIterators(this, perScanLimit, offset, parallelIteratorFactory, scanGrouper, scan, caches, dataPlan);
         } else if (isSerial) {
             iterators = new SerialIterators(this, perScanLimit, null, parallelIteratorFactory, scanGrouper, scan, caches, dataPlan);
         } else {
-            iterators = new ParallelIterators(this, perScanLimit, parallelIteratorFactory, scanGrouper, scan, initFirstScanOnly, caches, dataPlan);
+            ParallelIteratorFactory iteratorFactory = parallelIteratorFactory;
+            if (isOrdered && limit != null && context.getConnection().getQueryServices().getProps().getBoolean(
+                    QueryServices.TOPN_THRESHOLD_PUSHDOWN_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_TOPN_THRESHOLD_PUSHDOWN_ENABLED)) {
+                /*
+                 * Let the region scans opened once others returned their top rows skip the rows
+                 * that can't make it into the results.
+                 */
+                iteratorFactory = new TopNThreshold.TopNThresholdIteratorFactory(parallelIteratorFactory,
+                        orderBy.getOrderByExpressions(), QueryUtil.getOffsetLimit(limit, offset));
+            }
+            iterators = new ParallelIterators(this, perScanLimit, iteratorFactory, scanGrouper, scan, initFirstScanOnly, launchScansProgressively, caches, dataPlan);
         }
         estimatedRows = iterators.getEstimatedRowCount();
         estimatedSize = iterators.getEstimatedByteCount();
@@ -286,7 +310,7 @@ public class ScanPlan extends BaseQueryPlan {
         } else if (isOrdered) {
             scanner = new MergeSortTopNResultIterator(iterators, limit, offset, orderBy.getOrderByExpressions());
         } else {
-            if ((isSalted || table.getIndexType() == IndexType.LOCAL) && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context)) {
+            if (isRowKeyOrderMerged) {
                 /*
                  * For salted tables or local index, a merge sort is needed if: 
                  * 1) The config phoenix.query.force.rowkeyorder is set to true 
@@ -317,9 +341,19 @@ public class ScanPlan extends BaseQueryPlan {
         return scanner;
     }
     
+    /**
+     * Whether the scans of an unordered query with a limit are launched progressively, in which
+     * case their results are concatenated rather than fetched round robin from all of them.
+     */
+    private boolean isLimitLaunchingScansProgressively() {
+        return limit != null && allowPageFilter && orderBy.getOrderByExpressions().isEmpty()
+                && context.getConnection().getQueryServices().getProps().getInt(
+                        QueryServices.LIMIT_INITIAL_SCAN_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_LIMIT_INITIAL_SCAN_COUNT) > 0;
+    }
+
     @Override
     public boolean useRoundRobinIterator() throws SQLException {
-        return ScanUtil.isRoundRobinPossible(orderBy, context);
+        return ScanUtil.isRoundRobinPossible(orderBy, context) && !isLimitLaunchingScansProgressively();
     }
 
     @Override
@@ -22,6 +22,7 @@ import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.phoenix.compile.GroupByCompiler;
 import org.apache.phoenix.compile.ListJarsQueryPlan;
 import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.compile.TraceQueryPlan;
 import org.apache.phoenix.execute.AggregatePlan;
 import org.apache.phoenix.execute.ClientAggregatePlan;
@@ -37,6 +38,7 @@ import org.apache.phoenix.execute.UnionPlan;
 import org.apache.phoenix.execute.UnnestArrayPlan;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.filter.BooleanExpressionFilter;
+import org.apache.phoenix.optimize.SelectivityEstimator;
 import org.apache.phoenix.parse.JoinTableNode;
 
 import java.sql.SQLException;
@@ -73,7 +75,8 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
                                         filter(
                                                 b.doubleValue(),
                                                 stripSkipScanFilter(
-                                                        plan.getContext().getScan().getFilter())),
+                                                        plan.getContext().getScan().getFilter()),
+                                                plan.getContext()),
                                         plan.getGroupBy()),
                                 plan.getHaving()),
                         plan.getLimit());
@@ -92,7 +95,8 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
                 return limit(
                         filter(
                                 b.doubleValue(),
-                                stripSkipScanFilter(plan.getContext().getScan().getFilter())),
+                                stripSkipScanFilter(plan.getContext().getScan().getFilter()),
+                                plan.getContext()),
                         plan.getLimit());
             }
         } catch (SQLException e) {
@@ -152,7 +156,8 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
             }
 
             Double rows = filter(b.doubleValue(),
-                    stripSkipScanFilter(lhsPlan.getContext().getScan().getFilter()));
+                    stripSkipScanFilter(lhsPlan.getContext().getScan().getFilter()),
+                    lhsPlan.getContext());
             JoinTableNode.JoinType[] joinTypes = plan.getJoinInfo().getJoinTypes();
             HashJoinPlan.SubPlan[] subPlans = plan.getSubPlans();
             for (int i = 0; i < joinTypes.length; i++) {
@@ -254,10 +259,22 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
 
     /*
      * The below methods provide estimation of row count based on the input row count as well as
-     * the operator. They should be replaced by more accurate calculation based on histogram and
-     * a logical operator layer is expect to facilitate this.
+     * the operator. Scan filters are estimated from column statistics where they were collected,
+     * the other estimates should be replaced by more accurate calculation and a logical operator
+     * layer is expect to facilitate this.
      */
 
+    public static double filter(double inputRows, Filter filter, StatementContext context) {
+        if (filter == null) {
+            return inputRows;
+        }
+        Double selectivity = new SelectivityEstimator(context).estimate(filter);
+        if (selectivity == null) {
+            return filter(inputRows, filter);
+        }
+        return selectivity * inputRows;
+    }
+
     public static double filter(double inputRows, Filter filter) {
         if (filter == null) {
             return inputRows;
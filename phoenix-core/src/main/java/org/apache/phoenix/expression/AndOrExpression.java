@@ -87,5 +87,15 @@ public abstract class AndOrExpression extends BaseCompoundExpression {
         return true;
     }
 
+    boolean isEvaluated(int index) {
+        return partialEvalState != null && partialEvalState.get(index);
+    }
+
+    void setEvaluated(int index) {
+        if (partialEvalState != null) {
+            partialEvalState.set(index);
+        }
+    }
+
     protected abstract boolean isStopValue(Boolean value);
 }
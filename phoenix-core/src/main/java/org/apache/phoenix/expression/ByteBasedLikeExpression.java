@@ -21,7 +21,7 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
-import org.apache.phoenix.expression.util.regex.JONIPattern;
+import org.apache.phoenix.expression.util.regex.PatternCache;
 import org.apache.phoenix.parse.LikeParseNode.LikeType;
 import org.joni.Option;
 
@@ -36,7 +36,7 @@ public class ByteBasedLikeExpression extends LikeExpression {
 
     @Override
     protected AbstractBasePattern compilePatternSpec(String value) {
-        return new JONIPattern(value, Option.MULTILINE);
+        return PatternCache.getJONIPattern(value, Option.MULTILINE);
     }
 
     public static LikeExpression create(List<Expression> children, LikeType likeType) {
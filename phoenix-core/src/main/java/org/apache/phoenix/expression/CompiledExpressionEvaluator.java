@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.StringUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ *
+ * Evaluates an expression tree through a {@link MethodHandle} composed for its shape instead
+ * of walking the tree node by node. AND, OR, comparison, key value column and literal nodes
+ * are composed into the handle, with constants such as literal values, column names, data
+ * types and sort orders bound into it. Any other node is evaluated, together with its
+ * children, by interpretation through its own evaluate method.
+ *
+ * The composed handle only depends on the serialized form of the expression, so
+ * {@link #getEvaluator(Expression)} caches it by those bytes and every filter deserialized
+ * with the same expression on a region server shares it. The nodes themselves hold per scan
+ * state, such as the partial evaluation state of AND and OR, so each evaluator binds the
+ * handle to the nodes of its own expression tree.
+ *
+ *
+ * @since 4.14
+ */
+public class CompiledExpressionEvaluator {
+    private static final int MAX_CACHED_EVALUATORS = 1000;
+    private static final Cache<ImmutableBytesPtr, Template> TEMPLATES =
+            CacheBuilder.newBuilder().maximumSize(MAX_CACHED_EVALUATORS).build();
+
+    private static final MethodHandle EVALUATE_NODE;
+    private static final MethodHandle EVALUATE_LITERAL;
+    private static final MethodHandle EVALUATE_KEY_VALUE_COLUMN;
+    private static final MethodHandle EVALUATE_COMPARISON;
+    private static final MethodHandle EVALUATE_AND_OR;
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?> clazz = CompiledExpressionEvaluator.class;
+        try {
+            EVALUATE_NODE = lookup.findStatic(clazz, "evaluateNode",
+                    evaluateType(int.class));
+            EVALUATE_LITERAL = lookup.findStatic(clazz, "evaluateLiteral",
+                    evaluateType(byte[].class));
+            EVALUATE_KEY_VALUE_COLUMN = lookup.findStatic(clazz, "evaluateKeyValueColumn",
+                    evaluateType(byte[].class, byte[].class));
+            EVALUATE_COMPARISON = lookup.findStatic(clazz, "evaluateComparison",
+                    evaluateType(MethodHandle.class, MethodHandle.class, PDataType.class, SortOrder.class,
+                            PDataType.class, SortOrder.class, CompareOp.class, byte[].class));
+            EVALUATE_AND_OR = lookup.findStatic(clazz, "evaluateAndOr",
+                    evaluateType(MethodHandle[].class, PDataType[].class, int.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The type of every composed node: the bound constants, followed by the nodes of the
+     * expression tree in pre-order and the arguments of {@link Expression#evaluate(Tuple, ImmutableBytesWritable)}.
+     */
+    private static MethodType evaluateType(Class<?>... constants) {
+        return MethodType.methodType(boolean.class, constants)
+                .appendParameterTypes(Expression[].class, Tuple.class, ImmutableBytesWritable.class);
+    }
+
+    private static class Template {
+        // Null when the root itself is interpreted, so there is nothing to gain
+        private final MethodHandle handle;
+
+        private Template(MethodHandle handle) {
+            this.handle = handle;
+        }
+    }
+
+    private final Expression expression;
+    private final MethodHandle handle;
+
+    private CompiledExpressionEvaluator(Expression expression, MethodHandle template) {
+        this.expression = expression;
+        this.handle = template.bindTo(getNodes(expression));
+    }
+
+    /**
+     * Compiles an evaluator for the given expression, sharing the composed handle with
+     * any expression of the same serialized form.
+     * @return the evaluator or null if no node of the root could be compiled, in which case
+     * the expression should be interpreted directly.
+     */
+    public static CompiledExpressionEvaluator getEvaluator(Expression expression) {
+        ImmutableBytesPtr key = getKey(expression);
+        if (key == null) {
+            return compile(expression);
+        }
+        Template template = TEMPLATES.getIfPresent(key);
+        if (template == null) {
+            template = new Template(compile(expression, new int[1]));
+            TEMPLATES.put(key, template);
+        }
+        return template.handle == null ? null : new CompiledExpressionEvaluator(expression, template.handle);
+    }
+
+    /**
+     * Compiles an evaluator for the given expression without going through the cache.
+     * @return the evaluator or null if no node of the root could be compiled.
+     */
+    public static CompiledExpressionEvaluator compile(Expression expression) {
+        MethodHandle template = compile(expression, new int[1]);
+        return template == null ? null : new CompiledExpressionEvaluator(expression, template);
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Evaluates the compiled expression with the same contract as
+     * {@link Expression#evaluate(Tuple, ImmutableBytesWritable)}.
+     */
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        try {
+            return (boolean)handle.invokeExact(tuple, ptr);
+        } catch (Throwable t) {
+            throw Throwables.propagate(t);
+        }
+    }
+
+    private static ImmutableBytesPtr getKey(Expression expression) {
+        ExpressionType type = ExpressionType.valueOfOrNull(expression);
+        if (type == null) {
+            return null;
+        }
+        TrustedByteArrayOutputStream bytes = new TrustedByteArrayOutputStream(64);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            WritableUtils.writeVInt(output, type.ordinal());
+            expression.write(output);
+        } catch (IllegalArgumentException e) {
+            // Has a subexpression that can't be serialized
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new ImmutableBytesPtr(bytes.getBuffer(), 0, bytes.size());
+    }
+
+    private static Expression[] getNodes(Expression expression) {
+        Expression[] nodes = new Expression[getNodeCount(expression)];
+        addNodes(expression, nodes, 0);
+        return nodes;
+    }
+
+    private static int addNodes(Expression expression, Expression[] nodes, int index) {
+        nodes[index++] = expression;
+        for (Expression child : expression.getChildren()) {
+            index = addNodes(child, nodes, index);
+        }
+        return index;
+    }
+
+    private static int getNodeCount(Expression expression) {
+        int count = 1;
+        for (Expression child : expression.getChildren()) {
+            count += getNodeCount(child);
+        }
+        return count;
+    }
+
+    /**
+     * Composes the handle of the node at the given pre-order position, advancing the
+     * position past its subtree.
+     * @return the composed handle or null if the node is interpreted
+     */
+    private static MethodHandle compile(Expression expression, int[] position) {
+        int index = position[0]++;
+        Class<? extends Expression> clazz = expression.getClass();
+        List<Expression> children = expression.getChildren();
+        if (clazz == LiteralExpression.class) {
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            expression.evaluate(null, ptr);
+            return MethodHandles.insertArguments(EVALUATE_LITERAL, 0, (Object)ptr.copyBytes());
+        }
+        if (clazz == KeyValueColumnExpression.class) {
+            KeyValueColumnExpression column = (KeyValueColumnExpression)expression;
+            return MethodHandles.insertArguments(EVALUATE_KEY_VALUE_COLUMN, 0,
+                    column.getColumnFamily(), column.getColumnQualifier());
+        }
+        if (clazz == ComparisonExpression.class) {
+            MethodHandle lhs = compileChild(children.get(0), position);
+            MethodHandle rhs = compileChild(children.get(1), position);
+            return MethodHandles.insertArguments(EVALUATE_COMPARISON, 0, lhs, rhs,
+                    children.get(0).getDataType(), children.get(0).getSortOrder(),
+                    children.get(1).getDataType(), children.get(1).getSortOrder(),
+                    ((ComparisonExpression)expression).getFilterOp(), getConstant(children.get(0), children.get(1)));
+        }
+        if (clazz == AndExpression.class || clazz == OrExpression.class) {
+            MethodHandle[] childHandles = new MethodHandle[children.size()];
+            PDataType[] childTypes = new PDataType[children.size()];
+            for (int i = 0; i < childHandles.length; i++) {
+                childHandles[i] = compileChild(children.get(i), position);
+                childTypes[i] = children.get(i).getDataType();
+            }
+            return MethodHandles.insertArguments(EVALUATE_AND_OR, 0, childHandles, childTypes, index);
+        }
+        position[0] += getNodeCount(expression) - 1;
+        return null;
+    }
+
+    private static MethodHandle compileChild(Expression child, int[] position) {
+        int index = position[0];
+        MethodHandle handle = compile(child, position);
+        return handle == null ? MethodHandles.insertArguments(EVALUATE_NODE, 0, index) : handle;
+    }
+
+    /**
+     * Resolves a literal right hand side of the same bytes comparable type as the left hand side,
+     * so that the comparison is a single byte comparison per row.
+     * @return the unpadded bytes of the literal or null if the comparison takes the general path
+     */
+    private static byte[] getConstant(Expression lhs, Expression rhs) {
+        PDataType dataType = lhs.getDataType();
+        if (!(rhs instanceof LiteralExpression) || dataType == null || rhs.getDataType() != dataType
+                || dataType.isArrayType() || !dataType.isBytesComparableWith(dataType)) {
+            return null;
+        }
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        if (!rhs.evaluate(null, ptr) || ptr.getLength() == 0) {
+            return null;
+        }
+        int length = ptr.getLength();
+        if (dataType == PChar.INSTANCE) {
+            length = StringUtil.getUnpaddedCharLength(ptr.get(), ptr.getOffset(), length, rhs.getSortOrder());
+        }
+        ImmutableBytesWritable constant = new ImmutableBytesWritable(ptr.get(), ptr.getOffset(), length);
+        return constant.copyBytes();
+    }
+
+    private static boolean evaluateNode(int index, Expression[] nodes, Tuple tuple, ImmutableBytesWritable ptr) {
+        return nodes[index].evaluate(tuple, ptr);
+    }
+
+    private static boolean evaluateLiteral(byte[] value, Expression[] nodes, Tuple tuple, ImmutableBytesWritable ptr) {
+        // Literal always evaluates, even when it returns null
+        ptr.set(value);
+        return true;
+    }
+
+    private static boolean evaluateKeyValueColumn(byte[] cf, byte[] cq, Expression[] nodes, Tuple tuple,
+            ImmutableBytesWritable ptr) {
+        return tuple.getValue(cf, cq, ptr);
+    }
+
+    /**
+     * Same as {@link ComparisonExpression#evaluate(Tuple, ImmutableBytesWritable)}, comparing against
+     * the pre-resolved right hand side when there is one.
+     */
+    private static boolean evaluateComparison(MethodHandle lhs, MethodHandle rhs, PDataType lhsDataType,
+            SortOrder lhsSortOrder, PDataType rhsDataType, SortOrder rhsSortOrder, CompareOp op, byte[] rhsConstant,
+            Expression[] nodes, Tuple tuple, ImmutableBytesWritable ptr) throws Throwable {
+        if (!(boolean)lhs.invokeExact(nodes, tuple, ptr)) {
+            return false;
+        }
+        if (ptr.getLength() == 0) { // null comparison evals to null
+            return true;
+        }
+        byte[] lhsBytes = ptr.get();
+        int lhsOffset = ptr.getOffset();
+        int lhsLength = ptr.getLength();
+        if (lhsDataType == PChar.INSTANCE) {
+            lhsLength = StringUtil.getUnpaddedCharLength(lhsBytes, lhsOffset, lhsLength, lhsSortOrder);
+        }
+        // Fixed width values of different lengths are compared ignoring trailing zero bytes below
+        if (rhsConstant != null && (!lhsDataType.isFixedWidth() || lhsLength == rhsConstant.length)) {
+            int comparisonResult = lhsDataType.compareTo(lhsBytes, lhsOffset, lhsLength, lhsSortOrder,
+                    rhsConstant, 0, rhsConstant.length, rhsSortOrder);
+            ptr.set(ByteUtil.compare(op, comparisonResult) ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+            return true;
+        }
+
+        if (!(boolean)rhs.invokeExact(nodes, tuple, ptr)) {
+            return false;
+        }
+        if (ptr.getLength() == 0) { // null comparison evals to null
+            return true;
+        }
+        byte[] rhsBytes = ptr.get();
+        int rhsOffset = ptr.getOffset();
+        int rhsLength = ptr.getLength();
+        if (rhsDataType == PChar.INSTANCE) {
+            rhsLength = StringUtil.getUnpaddedCharLength(rhsBytes, rhsOffset, rhsLength, rhsSortOrder);
+        }
+        int comparisonResult = lhsDataType.compareTo(lhsBytes, lhsOffset, lhsLength, lhsSortOrder,
+                rhsBytes, rhsOffset, rhsLength, rhsSortOrder, rhsDataType);
+        ptr.set(ByteUtil.compare(op, comparisonResult) ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+        return true;
+    }
+
+    /**
+     * Same as {@link AndOrExpression#evaluate(Tuple, ImmutableBytesWritable)}, sharing the partial
+     * evaluation state of the node at the given index.
+     */
+    private static boolean evaluateAndOr(MethodHandle[] children, PDataType[] childTypes, int index,
+            Expression[] nodes, Tuple tuple, ImmutableBytesWritable ptr) throws Throwable {
+        AndOrExpression expression = (AndOrExpression)nodes[index];
+        boolean isNull = false;
+        for (int i = 0; i < children.length; i++) {
+            // If partial state is available, then use that to know we've already evaluated this
+            // child expression and do not need to do so again.
+            if (!expression.isEvaluated(i)) {
+                if ((boolean)children[i].invokeExact(nodes, tuple, ptr)) {
+                    // Short circuit if we see our stop value
+                    if (expression.isStopValue((Boolean) PBoolean.INSTANCE.toObject(ptr, childTypes[i]))) {
+                        return true;
+                    }
+                    expression.setEvaluated(i);
+                } else {
+                    isNull = true;
+                }
+            }
+        }
+        return !isNull;
+    }
+}
@@ -51,7 +51,18 @@ import com.google.common.collect.Sets;
  *
  */
 public class InListExpression extends BaseSingleExpression {
+    // Largest range of fixed width values, in bits per value, probed through a bitmap
+    private static final int MAX_BITMAP_BITS_PER_VALUE = 64;
+    private static final int MIN_BITMAP_BITS = 4096;
+
+    // Null if the values are only held by sortedValues, until needed
     private Set<ImmutableBytesPtr> values;
+    private int valuesCount;
+    // Fixed width values concatenated in sorted order, probed through a binary search
+    private byte[] sortedValues;
+    // Bits set for the fixed width values of a dense range starting at bitmapMin, if any
+    private long[] bitmap;
+    private long bitmapMin;
     private ImmutableBytesPtr minValue;
     private ImmutableBytesPtr maxValue;
     private int valuesByteLength;
@@ -152,6 +163,90 @@ public class InListExpression extends BaseSingleExpression {
             // minValue and maxValue but can infer them based on the first and last position.
             this.values = new LinkedHashSet<ImmutableBytesPtr>(Arrays.asList(valuesArray));
         }
+        this.valuesCount = valuesArray.length;
+        if (this.fixedWidth != -1) {
+            byte[] sortedValues = new byte[valuesByteLength];
+            for (int i = 0; i < valuesArray.length; i++) {
+                System.arraycopy(valuesArray[i].get(), valuesArray[i].getOffset(), sortedValues, i * fixedWidth, fixedWidth);
+            }
+            initFixedWidthValues(sortedValues);
+        }
+    }
+
+    /**
+     * Probe fixed width values through their concatenation in sorted order instead of a hash set,
+     * through a bitmap if they are integral values of a dense enough range
+     */
+    private void initFixedWidthValues(byte[] sortedValues) {
+        this.sortedValues = sortedValues;
+        this.bitmap = null;
+        if (fixedWidth > Bytes.SIZEOF_LONG || valuesCount == 0) {
+            return;
+        }
+        long min = toUnsignedLong(sortedValues, 0);
+        long span = toUnsignedLong(sortedValues, (valuesCount - 1) * fixedWidth) - min + 1;
+        long maxBits = Math.max((long)valuesCount * MAX_BITMAP_BITS_PER_VALUE, MIN_BITMAP_BITS);
+        // Compared unsigned, as the span of eight byte values may not fit in a signed long
+        if (span == 0 || (span ^ Long.MIN_VALUE) > (maxBits ^ Long.MIN_VALUE)) {
+            return;
+        }
+        long[] bitmap = new long[(int)((span + Long.SIZE - 1) / Long.SIZE)];
+        for (int i = 0; i < valuesCount; i++) {
+            long index = toUnsignedLong(sortedValues, i * fixedWidth) - min;
+            bitmap[(int)(index >>> 6)] |= 1L << index;
+        }
+        this.bitmap = bitmap;
+        this.bitmapMin = min;
+    }
+
+    private long toUnsignedLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + fixedWidth; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    private boolean contains(ImmutableBytesWritable ptr) {
+        if (sortedValues == null) {
+            return values.contains(ptr);
+        }
+        if (ptr.getLength() != fixedWidth) {
+            return false;
+        }
+        byte[] bytes = ptr.get();
+        int offset = ptr.getOffset();
+        if (bitmap != null) {
+            long index = toUnsignedLong(bytes, offset) - bitmapMin;
+            // Also rejects values below the minimum, as their index wraps around
+            return (index ^ Long.MIN_VALUE) < (((long)bitmap.length * Long.SIZE) ^ Long.MIN_VALUE)
+                    && (bitmap[(int)(index >>> 6)] & (1L << index)) != 0;
+        }
+        int low = 0;
+        int high = valuesCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = Bytes.compareTo(sortedValues, mid * fixedWidth, fixedWidth, bytes, offset, fixedWidth);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<ImmutableBytesPtr> getValues() {
+        if (values == null) {
+            Set<ImmutableBytesPtr> values = Sets.newLinkedHashSetWithExpectedSize(valuesCount);
+            for (int i = 0; i < valuesCount; i++) {
+                values.add(new ImmutableBytesPtr(sortedValues, i * fixedWidth, fixedWidth));
+            }
+            this.values = values;
+        }
+        return values;
     }
 
     @Override
@@ -163,7 +258,7 @@ public class InListExpression extends BaseSingleExpression {
             ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
             return true;
         }
-        if (values.contains(ptr)) {
+        if (contains(ptr)) {
             ptr.set(PDataType.TRUE_BYTES);
             return true;
         }
@@ -175,7 +270,7 @@ public class InListExpression extends BaseSingleExpression {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + children.hashCode() + values.hashCode();
+        result = prime * result + children.hashCode() + getValues().hashCode();
         return result;
     }
 
@@ -185,7 +280,7 @@ public class InListExpression extends BaseSingleExpression {
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
         InListExpression other = (InListExpression)obj;
-        if (!children.equals(other.children) || !values.equals(other.values)) return false;
+        if (!children.equals(other.children) || !getValues().equals(other.getValues())) return false;
         return true;
     }
 
@@ -196,7 +291,8 @@ public class InListExpression extends BaseSingleExpression {
 
     private int readValue(DataInput input, byte[] valuesBytes, int offset, ImmutableBytesPtr ptr) throws IOException {
         int valueLen = fixedWidth == -1 ? WritableUtils.readVInt(input) : fixedWidth;
-        values.add(new ImmutableBytesPtr(valuesBytes,offset,valueLen));
+        ptr.set(valuesBytes, offset, valueLen);
+        values.add(ptr);
         return offset + valueLen;
     }
     
@@ -208,6 +304,21 @@ public class InListExpression extends BaseSingleExpression {
         byte[] valuesBytes = Bytes.readByteArray(input);
         valuesByteLength = valuesBytes.length;
         int len = fixedWidth == -1 ? WritableUtils.readVInt(input) : valuesByteLength / fixedWidth;
+        valuesCount = len;
+        sortedValues = null;
+        bitmap = null;
+        // Fixed width values are written in sorted order, so they're probed in place
+        if (fixedWidth != -1 && isSorted(valuesBytes, len)) {
+            values = null;
+            if (len > 0) {
+                minValue = new ImmutableBytesPtr(valuesBytes, 0, fixedWidth);
+                maxValue = new ImmutableBytesPtr(valuesBytes, (len - 1) * fixedWidth, fixedWidth);
+            } else {
+                minValue = maxValue = new ImmutableBytesPtr(ByteUtil.EMPTY_BYTE_ARRAY);
+            }
+            initFixedWidthValues(valuesBytes);
+            return;
+        }
         // TODO: consider using a regular HashSet as we never serialize from the server-side
         values = Sets.newLinkedHashSetWithExpectedSize(len);
         int offset = 0;
@@ -227,14 +338,27 @@ public class InListExpression extends BaseSingleExpression {
         }
     }
 
+    private boolean isSorted(byte[] valuesBytes, int len) {
+        for (int i = 1; i < len; i++) {
+            if (Bytes.compareTo(valuesBytes, (i - 1) * fixedWidth, fixedWidth, valuesBytes, i * fixedWidth, fixedWidth) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void write(DataOutput output) throws IOException {
         super.write(output);
         output.writeBoolean(false); // Unused, but left for b/w compat. TODO: remove in next major release
         WritableUtils.writeVInt(output, fixedWidth);
         WritableUtils.writeVInt(output, valuesByteLength);
-        for (ImmutableBytesPtr ptr : values) {
-            output.write(ptr.get(), ptr.getOffset(), ptr.getLength());
+        if (sortedValues != null) {
+            output.write(sortedValues, 0, valuesCount * fixedWidth);
+        } else {
+            for (ImmutableBytesPtr ptr : values) {
+                output.write(ptr.get(), ptr.getOffset(), ptr.getLength());
+            }
         }
         if (fixedWidth == -1) {
             WritableUtils.writeVInt(output, values.size());
@@ -272,7 +396,8 @@ public class InListExpression extends BaseSingleExpression {
         Expression firstChild = children.get(0);
         PDataType type = firstChild.getDataType();
         StringBuilder buf = new StringBuilder(firstChild + " IN (");
-        for (ImmutableBytesPtr value : values) {
+        for (ImmutableBytesPtr value : getValues()) {
+            value = new ImmutableBytesPtr(value);
             if (firstChild.getSortOrder() != null) {
                 type.coerceBytes(value, type, firstChild.getSortOrder(), SortOrder.getDefault());
             }
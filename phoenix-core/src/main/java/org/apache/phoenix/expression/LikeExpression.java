@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
+import org.apache.phoenix.expression.util.regex.LiteralLikePattern;
 import org.apache.phoenix.expression.visitor.ExpressionVisitor;
 import org.apache.phoenix.parse.LikeParseNode.LikeType;
 import org.apache.phoenix.schema.SortOrder;
@@ -246,9 +247,76 @@ public abstract class LikeExpression extends BaseCompoundExpression {
 
     protected abstract AbstractBasePattern compilePatternSpec(String value);
 
+    /**
+     * @return the unescaped literal between the given positions of a LIKE pattern, or null if
+     * there's a wildcard in between
+     */
+    private static String getLiteral(String s, int start, int end) {
+        StringBuilder literal = new StringBuilder(end - start);
+        boolean wasSlash = false;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (wasSlash) {
+                literal.append(c);
+                wasSlash = false;
+            } else if (c == StringUtil.SINGLE_CHAR_LIKE || c == StringUtil.MULTI_CHAR_LIKE) {
+                return null;
+            } else if (c == '\\') {
+                wasSlash = true;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    private static int getLeadingWildcardCount(String s) {
+        int count = 0;
+        while (count < s.length() && s.charAt(count) == StringUtil.MULTI_CHAR_LIKE) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the unescaped literal of a LIKE pattern made of a literal preceded by '%', such as
+     * '%abc', or null if the pattern isn't of that form
+     */
+    public static String getEndsWithSuffix(String s) {
+        int start = getLeadingWildcardCount(s);
+        if (start == 0 || start == s.length()) {
+            return null;
+        }
+        return getLiteral(s, start, s.length());
+    }
+
+    /**
+     * @return the pattern matching the literal of a LIKE pattern with no wildcards other than
+     * leading and trailing '%', or null if the LIKE pattern has any other wildcard
+     */
+    private static AbstractBasePattern compileLiteralPattern(String s, String pattern) {
+        int start = getLeadingWildcardCount(s);
+        int end = s.length();
+        while (end > start && s.charAt(end - 1) == StringUtil.MULTI_CHAR_LIKE) {
+            int slashCount = 0;
+            while (end - 2 - slashCount >= start && s.charAt(end - 2 - slashCount) == '\\') {
+                slashCount++;
+            }
+            if (slashCount % 2 == 1) {
+                // Escaped, so part of the literal
+                break;
+            }
+            end--;
+        }
+        String literal = getLiteral(s, start, end);
+        return literal == null ? null : new LiteralLikePattern(pattern, literal, start == 0, end == s.length());
+    }
+
     protected AbstractBasePattern compilePattern(String value) {
         if (likeType == LikeType.CASE_SENSITIVE) {
-            return compilePatternSpec(toPattern(value));
+            String pattern = toPattern(value);
+            AbstractBasePattern literalPattern = compileLiteralPattern(value, pattern);
+            return literalPattern != null ? literalPattern : compilePatternSpec(pattern);
         } else {
             return compilePatternSpec("(?i)" + toPattern(value));
         }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.ByteUtil;
+
+
+/**
+ *
+ * Expression standing for a subexpression shared by several projected expressions,
+ * evaluating it once per row and returning the same value until {@link #reset()} is
+ * called for the next row. Only used on the client side and never serialized.
+ *
+ *
+ * @since 4.14
+ */
+public class MemoizedExpression extends BaseSingleExpression {
+    private byte[] value = ByteUtil.EMPTY_BYTE_ARRAY;
+    private int length;
+    private boolean isEvaluated;
+    private boolean isNotNull;
+
+    public MemoizedExpression(Expression expression) {
+        super(expression);
+    }
+
+    @Override
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        if (isEvaluated) {
+            if (isNotNull) {
+                ptr.set(value, 0, length);
+            }
+            return isNotNull;
+        }
+        if (!getChild().evaluate(tuple, ptr)) {
+            // Until the row is complete, false means the value isn't known yet
+            isEvaluated = tuple != null && tuple.isImmutable();
+            isNotNull = false;
+            return false;
+        }
+        length = ptr.getLength();
+        if (value.length < length) {
+            value = new byte[length];
+        }
+        System.arraycopy(ptr.get(), ptr.getOffset(), value, 0, length);
+        isEvaluated = true;
+        isNotNull = true;
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        isEvaluated = false;
+        super.reset();
+    }
+
+    @Override
+    public PDataType getDataType() {
+        return getChild().getDataType();
+    }
+
+    @Override
+    public SortOrder getSortOrder() {
+        return getChild().getSortOrder();
+    }
+
+    @Override
+    public Integer getMaxLength() {
+        return getChild().getMaxLength();
+    }
+
+    @Override
+    public Integer getScale() {
+        return getChild().getScale();
+    }
+
+    @Override
+    public boolean isStateless() {
+        return getChild().isStateless();
+    }
+
+    @Override
+    public String toString() {
+        return getChild().toString();
+    }
+}
@@ -21,7 +21,7 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
-import org.apache.phoenix.expression.util.regex.JavaPattern;
+import org.apache.phoenix.expression.util.regex.PatternCache;
 import org.apache.phoenix.parse.LikeParseNode.LikeType;
 
 public class StringBasedLikeExpression extends LikeExpression {
@@ -35,7 +35,7 @@ public class StringBasedLikeExpression extends LikeExpression {
 
     @Override
     protected AbstractBasePattern compilePatternSpec(String value) {
-        return new JavaPattern(value, Pattern.DOTALL);
+        return PatternCache.getJavaPattern(value, Pattern.DOTALL);
     }
 
     public static LikeExpression create(List<Expression> children, LikeType likeType) {
@@ -21,7 +21,7 @@ import java.util.List;
 
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
-import org.apache.phoenix.expression.util.regex.JONIPattern;
+import org.apache.phoenix.expression.util.regex.PatternCache;
 import org.joni.Option;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.parse.FunctionParseNode.BuiltInFunction;
@@ -46,7 +46,7 @@ public class ByteBasedRegexpReplaceFunction extends RegexpReplaceFunction {
 
     @Override
     protected AbstractBasePattern compilePatternSpec(String value) {
-        return new JONIPattern(value, Option.MULTILINE);
+        return PatternCache.getJONIPattern(value, Option.MULTILINE);
     }
 
 }
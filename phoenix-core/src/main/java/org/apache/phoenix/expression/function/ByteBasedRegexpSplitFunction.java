@@ -21,7 +21,7 @@ import java.util.List;
 
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.util.regex.AbstractBaseSplitter;
-import org.apache.phoenix.expression.util.regex.JONIPattern;
+import org.apache.phoenix.expression.util.regex.PatternCache;
 import org.joni.Option;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.parse.FunctionParseNode.BuiltInFunction;
@@ -44,6 +44,6 @@ public class ByteBasedRegexpSplitFunction extends RegexpSplitFunction {
 
     @Override
     protected AbstractBaseSplitter compilePatternSpec(String value) {
-        return new JONIPattern(value, Option.MULTILINE);
+        return PatternCache.getJONIPattern(value, Option.MULTILINE);
     }
 }
@@ -22,7 +22,7 @@ import java.util.regex.Pattern;
 
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
-import org.apache.phoenix.expression.util.regex.JavaPattern;
+import org.apache.phoenix.expression.util.regex.PatternCache;
 
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.parse.FunctionParseNode.BuiltInFunction;
@@ -47,7 +47,7 @@ public class StringBasedRegexpReplaceFunction extends RegexpReplaceFunction {
 
     @Override
     protected AbstractBasePattern compilePatternSpec(String value) {
-        return new JavaPattern(value, Pattern.DOTALL);
+        return PatternCache.getJavaPattern(value, Pattern.DOTALL);
     }
 
 }
@@ -21,7 +21,7 @@ import java.util.List;
 
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.util.regex.AbstractBaseSplitter;
-import org.apache.phoenix.expression.util.regex.GuavaSplitter;
+import org.apache.phoenix.expression.util.regex.PatternCache;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.parse.FunctionParseNode.BuiltInFunction;
 import org.apache.phoenix.parse.FunctionParseNode.Argument;
@@ -43,6 +43,6 @@ public class StringBasedRegexpSplitFunction extends RegexpSplitFunction {
 
     @Override
     protected AbstractBaseSplitter compilePatternSpec(String value) {
-        return new GuavaSplitter(value);
+        return PatternCache.getGuavaSplitter(value);
     }
 }
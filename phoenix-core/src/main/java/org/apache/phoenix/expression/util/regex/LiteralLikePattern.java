@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.util.regex;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.ByteUtil;
+
+import com.google.common.base.Preconditions;
+
+/**
+ *
+ * Case sensitive LIKE pattern made of a literal with optional '%' wildcards before and after
+ * it, such as 'abc%', '%abc' or '%abc%'. As UTF-8 is self synchronizing, the pattern matches
+ * the UTF-8 bytes of a string containing the UTF-8 bytes of the literal at the same place,
+ * so the string doesn't need to be decoded. The literal is looked for through the automaton
+ * of the Knuth-Morris-Pratt algorithm, reading each byte of the string once.
+ *
+ *
+ * @since 4.14
+ */
+public class LiteralLikePattern extends AbstractBasePattern {
+    private final String patternString;
+    private final String literalString;
+    private final byte[] literal;
+    private final boolean isStartAnchored;
+    private final boolean isEndAnchored;
+    // Length of the longest proper prefix of literal[0..i] that is also a suffix of it
+    private final int[] fallback;
+
+    /**
+     * @param patternString the regular expression equivalent to the pattern
+     */
+    public LiteralLikePattern(String patternString, String literal, boolean isStartAnchored, boolean isEndAnchored) {
+        this.patternString = patternString;
+        this.literalString = literal;
+        this.literal = PVarchar.INSTANCE.toBytes(literal);
+        this.isStartAnchored = isStartAnchored;
+        this.isEndAnchored = isEndAnchored;
+        this.fallback = isStartAnchored || isEndAnchored ? null : computeFallback(this.literal);
+    }
+
+    private static int[] computeFallback(byte[] literal) {
+        int[] fallback = new int[literal.length];
+        int length = 0;
+        for (int i = 1; i < literal.length; i++) {
+            while (length > 0 && literal[i] != literal[length]) {
+                length = fallback[length - 1];
+            }
+            if (literal[i] == literal[length]) {
+                length++;
+            }
+            fallback[i] = length;
+        }
+        return fallback;
+    }
+
+    @Override
+    public void matches(ImmutableBytesWritable srcPtr) {
+        Preconditions.checkNotNull(srcPtr);
+        boolean ret = matches(srcPtr.get(), srcPtr.getOffset(), srcPtr.getLength());
+        srcPtr.set(ret ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+    }
+
+    private boolean matches(byte[] bytes, int offset, int len) {
+        int literalLength = literal.length;
+        if (len < literalLength) {
+            return false;
+        }
+        if (isStartAnchored) {
+            if (isEndAnchored && len != literalLength) {
+                return false;
+            }
+            return Bytes.equals(literal, 0, literalLength, bytes, offset, literalLength);
+        }
+        if (isEndAnchored) {
+            return Bytes.equals(literal, 0, literalLength, bytes, offset + len - literalLength, literalLength);
+        }
+        if (literalLength == 0) {
+            return true;
+        }
+        int state = 0;
+        for (int i = offset, end = offset + len; i < end; i++) {
+            byte b = bytes[i];
+            while (state > 0 && b != literal[state]) {
+                state = fallback[state - 1];
+            }
+            if (b == literal[state] && ++state == literalLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace the matches of the pattern as a regular expression would, where '%' stands for
+     * {@code .*} matching any characters.
+     */
+    @Override
+    public void replaceAll(ImmutableBytesWritable srcPtr, byte[] rStrBytes, int rStrOffset, int rStrLen) {
+        Preconditions.checkNotNull(srcPtr);
+        Preconditions.checkNotNull(rStrBytes);
+        String sourceStr = (String) PVarchar.INSTANCE.toObject(srcPtr);
+        String replaceStr = (String) PVarchar.INSTANCE.toObject(rStrBytes, rStrOffset, rStrLen);
+        if (sourceStr == null) sourceStr = "";
+        if (replaceStr == null) replaceStr = "";
+        if (isStartAnchored && isEndAnchored) {
+            srcPtr.set(PVarchar.INSTANCE.toBytes(sourceStr.replace(literalString, replaceStr)));
+            return;
+        }
+        // Any wildcard makes the first match extend as far as possible, so there's only one
+        int start, end;
+        if (isStartAnchored) {
+            start = sourceStr.indexOf(literalString);
+            end = sourceStr.length();
+        } else if (isEndAnchored) {
+            start = 0;
+            end = sourceStr.lastIndexOf(literalString);
+            end = end < 0 ? -1 : end + literalString.length();
+        } else {
+            start = sourceStr.contains(literalString) ? 0 : -1;
+            end = sourceStr.length();
+        }
+        if (start < 0 || end < 0) {
+            return;
+        }
+        StringBuilder replacedStr = new StringBuilder(sourceStr.length() + replaceStr.length());
+        replacedStr.append(sourceStr, 0, start).append(replaceStr).append(sourceStr, end, sourceStr.length());
+        if (literalString.isEmpty() && end > start && end == sourceStr.length()) {
+            // A wildcard alone also matches the empty string left at the end
+            replacedStr.append(replaceStr);
+        }
+        srcPtr.set(PVarchar.INSTANCE.toBytes(replacedStr.toString()));
+    }
+
+    /**
+     * Find the first match of the pattern as a regular expression would, starting from the
+     * given character offset, where '%' stands for {@code .*} matching any characters.
+     */
+    @Override
+    public void substr(ImmutableBytesWritable srcPtr, int offsetInStr) {
+        Preconditions.checkNotNull(srcPtr);
+        String sourceStr = (String) PVarchar.INSTANCE.toObject(srcPtr);
+        if (sourceStr == null) {
+            srcPtr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return;
+        }
+        if (offsetInStr < 0) offsetInStr += sourceStr.length();
+        if (offsetInStr < 0 || offsetInStr >= sourceStr.length()) {
+            srcPtr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return;
+        }
+        int start, end;
+        if (isEndAnchored && !isStartAnchored) {
+            start = offsetInStr;
+            end = sourceStr.lastIndexOf(literalString);
+            end = end < offsetInStr ? -1 : end + literalString.length();
+        } else {
+            start = sourceStr.indexOf(literalString, offsetInStr);
+            end = isStartAnchored && isEndAnchored ? start + literalString.length() : sourceStr.length();
+            if (!isStartAnchored) {
+                start = start < 0 ? -1 : offsetInStr;
+            }
+        }
+        if (start < 0 || end < 0) {
+            srcPtr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return;
+        }
+        srcPtr.set(PVarchar.INSTANCE.toBytes(sourceStr.substring(start, end)));
+    }
+
+    @Override
+    public String pattern() {
+        return patternString;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.util.regex;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ *
+ * Bounded cache of the compiled patterns shared by the expressions of the JVM, so that
+ * the same pattern isn't compiled again for each region scan deserializing the expression,
+ * nor for each row when the pattern isn't a constant. The compiled patterns are immutable,
+ * each match creating its own matcher, so they may be used by concurrent scans.
+ *
+ *
+ * @since 4.14
+ */
+public class PatternCache {
+    private static final int MAX_CACHED_PATTERNS = 1000;
+
+    private static final Cache<Key, Object> PATTERNS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PATTERNS)
+            .build();
+
+    private enum Kind {JONI, JAVA, GUAVA_SPLITTER};
+
+    private static class Key {
+        private final Kind kind;
+        private final String patternString;
+        private final int flags;
+
+        private Key(Kind kind, String patternString, int flags) {
+            this.kind = kind;
+            this.patternString = patternString;
+            this.flags = flags;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + kind.hashCode();
+            result = prime * result + patternString.hashCode();
+            result = prime * result + flags;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            Key other = (Key)obj;
+            return kind == other.kind && flags == other.flags && patternString.equals(other.patternString);
+        }
+    }
+
+    private PatternCache() {
+    }
+
+    public static JONIPattern getJONIPattern(String patternString, int flags) {
+        if (patternString == null) {
+            return new JONIPattern(patternString, flags);
+        }
+        Key key = new Key(Kind.JONI, patternString, flags);
+        JONIPattern pattern = (JONIPattern)PATTERNS.getIfPresent(key);
+        if (pattern == null) {
+            pattern = new JONIPattern(patternString, flags);
+            PATTERNS.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    public static JavaPattern getJavaPattern(String patternString, int flags) {
+        if (patternString == null) {
+            return new JavaPattern(patternString, flags);
+        }
+        Key key = new Key(Kind.JAVA, patternString, flags);
+        JavaPattern pattern = (JavaPattern)PATTERNS.getIfPresent(key);
+        if (pattern == null) {
+            pattern = new JavaPattern(patternString, flags);
+            PATTERNS.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    public static GuavaSplitter getGuavaSplitter(String patternString) {
+        if (patternString == null) {
+            return new GuavaSplitter(patternString);
+        }
+        Key key = new Key(Kind.GUAVA_SPLITTER, patternString, 0);
+        GuavaSplitter splitter = (GuavaSplitter)PATTERNS.getIfPresent(key);
+        if (splitter == null) {
+            splitter = new GuavaSplitter(patternString);
+            PATTERNS.put(key, splitter);
+        }
+        return splitter;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.visitor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.Determinism;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.expression.MemoizedExpression;
+import org.apache.phoenix.expression.ProjectedColumnExpression;
+import org.apache.phoenix.expression.function.AggregateFunction;
+import org.apache.phoenix.expression.function.UDFExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ *
+ * Visitor cloning the non deterministic expressions of a tree like
+ * {@link CloneNonDeterministicExpressionVisitor}, while replacing each of the given
+ * common subexpressions by a single {@link MemoizedExpression} shared by all the
+ * trees visited, so that it's evaluated once per row.
+ *
+ * Subexpressions are identified by their serialized form rather than by equals, which
+ * for many expressions only compares the children and not state such as whether an
+ * IS NULL is negated.
+ *
+ *
+ * @since 4.14
+ */
+public class CloneCommonSubexpressionVisitor extends CloneNonDeterministicExpressionVisitor {
+    private final Set<ImmutableBytesPtr> commonSubexpressions;
+    private final Map<ImmutableBytesPtr, Expression> memoizedExpressions = Maps.newHashMap();
+
+    public CloneCommonSubexpressionVisitor(Set<ImmutableBytesPtr> commonSubexpressions) {
+        this.commonSubexpressions = commonSubexpressions;
+    }
+
+    /**
+     * @return the serialized form of the expression, including its type, or null if it can't
+     * be serialized
+     */
+    private static ImmutableBytesPtr getKey(Expression expression) {
+        ExpressionType type = ExpressionType.valueOfOrNull(expression);
+        if (type == null) {
+            return null;
+        }
+        TrustedByteArrayOutputStream bytes = new TrustedByteArrayOutputStream(64);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            WritableUtils.writeVInt(output, type.ordinal());
+            expression.write(output);
+        } catch (IllegalArgumentException e) {
+            // Has a subexpression that can't be serialized
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new ImmutableBytesPtr(bytes.getBuffer(), 0, bytes.size());
+    }
+
+    /**
+     * Find the subexpressions occurring more than once across the given expressions that
+     * are worth evaluating once per row: neither terminal nor aggregate expressions, and
+     * with the same value for each invocation within a row.
+     * @return the serialized forms of the common subexpressions
+     */
+    public static Set<ImmutableBytesPtr> findCommonSubexpressions(List<Expression> expressions) {
+        Set<ImmutableBytesPtr> seen = Sets.newHashSet();
+        Set<ImmutableBytesPtr> common = Sets.newHashSet();
+        for (Expression expression : expressions) {
+            findCommonSubexpressions(expression, seen, common);
+        }
+        return common.isEmpty() ? Collections.<ImmutableBytesPtr>emptySet() : common;
+    }
+
+    /**
+     * @return true if the expression has a single value per row
+     */
+    private static boolean findCommonSubexpressions(Expression expression, Set<ImmutableBytesPtr> seen, Set<ImmutableBytesPtr> common) {
+        if (expression instanceof ProjectedColumnExpression) {
+            // Cloned for its state, but still a column of the row
+            return true;
+        }
+        if (expression instanceof AggregateFunction || expression instanceof MemoizedExpression) {
+            return true;
+        }
+        List<Expression> children = expression.getChildren();
+        if (children == null || children.isEmpty()) {
+            return Determinism.PER_INVOCATION.compareTo(expression.getDeterminism()) > 0;
+        }
+        ImmutableBytesPtr key = getKey(expression);
+        if (key != null && seen.contains(key)) {
+            // Its subexpressions were already counted by its first occurrence
+            common.add(key);
+            return true;
+        }
+        boolean isPerRow = !(expression instanceof UDFExpression);
+        boolean hasPerInvocationChild = false;
+        for (Expression child : children) {
+            isPerRow &= findCommonSubexpressions(child, seen, common);
+            hasPerInvocationChild |= Determinism.PER_INVOCATION.compareTo(child.getDeterminism()) <= 0;
+        }
+        if (!hasPerInvocationChild && Determinism.PER_INVOCATION.compareTo(expression.getDeterminism()) <= 0) {
+            // Such as RAND() without a seed
+            isPerRow = false;
+        }
+        if (isPerRow && key != null) {
+            seen.add(key);
+        }
+        return isPerRow;
+    }
+
+    /**
+     * @param expression an expression of the trees the common subexpressions were found in
+     * @param clone the clone of the expression built by this visitor
+     * @return the expression shared by all the occurrences of the given expression if it's a
+     * common subexpression and its clone otherwise
+     */
+    public Expression memoize(Expression expression, Expression clone) {
+        if (commonSubexpressions.isEmpty() || expression.getChildren().isEmpty()) {
+            return clone;
+        }
+        ImmutableBytesPtr key = getKey(expression);
+        if (key == null || !commonSubexpressions.contains(key)) {
+            return clone;
+        }
+        Expression memoizedExpression = memoizedExpressions.get(key);
+        if (memoizedExpression == null) {
+            memoizedExpression = new MemoizedExpression(clone);
+            memoizedExpressions.put(key, memoizedExpression);
+        }
+        return memoizedExpression;
+    }
+
+    @Override
+    public boolean isCloneNode(Expression node, List<Expression> children) {
+        boolean isCloneNode = super.isCloneNode(node, children);
+        // The children are the clones of the node's children, built for this call, so the
+        // node is rebuilt if any of them is memoized or has memoized subexpressions
+        for (int i = 0; i < children.size(); i++) {
+            Expression child = memoize(node.getChildren().get(i), children.get(i));
+            children.set(i, child);
+            isCloneNode |= child != node.getChildren().get(i);
+        }
+        return isCloneNode;
+    }
+}
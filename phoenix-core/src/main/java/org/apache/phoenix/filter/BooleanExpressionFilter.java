@@ -26,6 +26,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Writables;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.CompiledExpressionEvaluator;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.schema.IllegalDataException;
@@ -44,6 +45,8 @@ import org.apache.phoenix.util.ServerUtil;
 abstract public class BooleanExpressionFilter extends FilterBase implements Writable {
 
     protected Expression expression;
+    // Compiled form of the expression on the region server, or null to interpret it
+    private CompiledExpressionEvaluator evaluator;
     private ImmutableBytesWritable tempPtr = new ImmutableBytesWritable();
     
     public BooleanExpressionFilter() {
@@ -90,7 +93,8 @@ abstract public class BooleanExpressionFilter extends FilterBase implements Writ
             justification="Returns null by design.")
     protected Boolean evaluate(Tuple input) {
         try {
-            if (!expression.evaluate(input, tempPtr)) {
+            boolean evaluated = evaluator == null ? expression.evaluate(input, tempPtr) : evaluator.evaluate(input, tempPtr);
+            if (!evaluated) {
                 return null;
             }
         } catch (IllegalDataException e) {
@@ -105,6 +109,7 @@ abstract public class BooleanExpressionFilter extends FilterBase implements Writ
             expression = ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
             expression.readFields(input);
             expression.reset(); // Initializes expression tree for partial evaluation
+            evaluator = CompiledExpressionEvaluator.getEvaluator(expression);
         } catch (Throwable t) { // Catches incompatibilities during reading/writing and doesn't retry
             ServerUtil.throwIOException("BooleanExpressionFilter failed during reading", t);
         }
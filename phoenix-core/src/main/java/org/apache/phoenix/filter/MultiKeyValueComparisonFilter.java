@@ -21,7 +21,12 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 
@@ -64,53 +69,79 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
         init();
     }
 
-    private static final class CellRef {
-        public Cell cell;
-        
-        @Override
-        public String toString() {
-            if(cell != null) {
-                return cell.toString() + " value = " + Bytes.toStringBinary(
-                		cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
-            } else {
-                return super.toString();
-            }
-        }
-    }
-    
     protected abstract Object setColumnKey(byte[] cf, int cfOffset, int cfLength, byte[] cq, int cqOffset, int cqLength);
     protected abstract Object newColumnKey(byte[] cf, int cfOffset, int cfLength, byte[] cq, int cqOffset, int cqLength);
     
+    /**
+     * Tuple of the cells found so far for the columns referenced by the expression. Each column
+     * is assigned a slot of an array, in the order its cells are sorted in a row, so that a row
+     * is tracked and reset without allocating anything and, when the columns all belong to the
+     * same family, the cells of the row are matched to them by walking the slots in step.
+     */
     private final class IncrementalResultTuple extends BaseTuple {
         private int refCount;
         private final ImmutableBytesWritable keyPtr = new ImmutableBytesWritable(UNITIALIZED_KEY_BUFFER);
-        private final Map<Object,CellRef> foundColumns = new HashMap<Object,CellRef>(5);
+        private final List<byte[][]> columns = new ArrayList<byte[][]>(5);
+        private final Map<Object,Integer> columnSlots = new HashMap<Object,Integer>(5);
+        // Family and qualifier of the column of each slot, the same arrays as the expression's
+        private byte[][] slotFamilies;
+        private byte[][] slotQualifiers;
+        private Cell[] cells;
+        // Family of all the columns if they belong to a single one, or null
+        private byte[] slotFamily;
+        // Slot of the next column expected in the row
+        private int nextSlot;
         
         public void reset() {
             refCount = 0;
+            nextSlot = 0;
             keyPtr.set(UNITIALIZED_KEY_BUFFER);
-            for (CellRef ref : foundColumns.values()) {
-                ref.cell = null;
-            }
+            Arrays.fill(cells, null);
         }
         
         @Override
         public boolean isImmutable() {
-            return refCount == foundColumns.size();
+            return refCount == cells.length;
         }
         
         public void setImmutable() {
-            refCount = foundColumns.size();
+            refCount = cells.length;
+        }
+        
+        /**
+         * Find the slot of the column of a cell, or -1 if it's not referenced by the expression
+         */
+        private int findSlot(Cell value) {
+            byte[] cq = value.getQualifierArray();
+            int cqOffset = value.getQualifierOffset();
+            int cqLength = value.getQualifierLength();
+            if (slotFamily != null && Bytes.equals(slotFamily, 0, slotFamily.length,
+                    value.getFamilyArray(), value.getFamilyOffset(), value.getFamilyLength())) {
+                int c = 1;
+                while (nextSlot < slotQualifiers.length && (c = Bytes.compareTo(slotQualifiers[nextSlot], 0,
+                        slotQualifiers[nextSlot].length, cq, cqOffset, cqLength)) < 0) {
+                    nextSlot++;
+                }
+                if (c == 0 && nextSlot < slotQualifiers.length) {
+                    return nextSlot;
+                }
+                // Sorts between two consecutive columns, so it's not one of them
+                if (nextSlot == 0 || Bytes.compareTo(slotQualifiers[nextSlot - 1], 0,
+                        slotQualifiers[nextSlot - 1].length, cq, cqOffset, cqLength) < 0) {
+                    return -1;
+                }
+            }
+            Integer slot = columnSlots.get(setColumnKey(value.getFamilyArray(), value.getFamilyOffset(),
+                    value.getFamilyLength(), cq, cqOffset, cqLength));
+            return slot == null ? -1 : slot;
         }
         
         private ReturnCode resolveColumn(Cell value) {
             // Always set key, in case we never find a key value column of interest,
             // and our expression uses row key columns.
             setKey(value);
-            Object ptr = setColumnKey(value.getFamilyArray(), value.getFamilyOffset(), value.getFamilyLength(), 
-            		value.getQualifierArray(), value.getQualifierOffset(), value.getQualifierLength());
-            CellRef ref = foundColumns.get(ptr);
-            if (ref == null) {
+            int slot = findSlot(value);
+            if (slot < 0) {
                 // Return INCLUDE_AND_NEXT_COL here. Although this filter doesn't need this KV
                 // it should still be projected into the Result
                 return ReturnCode.INCLUDE_AND_NEXT_COL;
@@ -120,19 +151,54 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
             // TODO: test with older versions to confirm this doesn't get tripped
             // This shouldn't be necessary, because a scan only looks at the latest
             // version
-            if (ref.cell != null) {
+            if (cells[slot] != null) {
                 // Can't do NEXT_ROW, because then we don't match the other columns
                 // SKIP, INCLUDE, and NEXT_COL seem to all act the same
                 return ReturnCode.NEXT_COL;
             }
-            ref.cell = value;
+            cells[slot] = value;
             refCount++;
             return null;
         }
         
         public void addColumn(byte[] cf, byte[] cq) {
-            Object ptr = MultiKeyValueComparisonFilter.this.newColumnKey(cf, 0, cf.length, cq, 0, cq.length);
-            foundColumns.put(ptr, new CellRef());
+            columns.add(new byte[][] {cf, cq});
+        }
+        
+        /**
+         * Assign the slots of the columns added, once all of them are known
+         */
+        public void initSlots() {
+            Collections.sort(columns, new Comparator<byte[][]>() {
+                @Override
+                public int compare(byte[][] column1, byte[][] column2) {
+                    int c = Bytes.compareTo(column1[0], column2[0]);
+                    return c != 0 ? c : Bytes.compareTo(column1[1], column2[1]);
+                }
+            });
+            columnSlots.clear();
+            List<byte[][]> slotColumns = new ArrayList<byte[][]>(columns.size());
+            for (byte[][] column : columns) {
+                Object ptr = MultiKeyValueComparisonFilter.this.newColumnKey(column[0], 0, column[0].length,
+                        column[1], 0, column[1].length);
+                if (!columnSlots.containsKey(ptr)) {
+                    columnSlots.put(ptr, slotColumns.size());
+                    slotColumns.add(column);
+                }
+            }
+            columns.clear();
+            int size = slotColumns.size();
+            slotFamilies = new byte[size][];
+            slotQualifiers = new byte[size][];
+            cells = new Cell[size];
+            slotFamily = size == 0 ? null : slotColumns.get(0)[0];
+            for (int i = 0; i < size; i++) {
+                slotFamilies[i] = slotColumns.get(i)[0];
+                slotQualifiers[i] = slotColumns.get(i)[1];
+                if (!Bytes.equals(slotFamilies[i], slotFamily)) {
+                    slotFamily = null;
+                }
+            }
         }
         
         public void setKey(Cell value) {
@@ -146,14 +212,31 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
         
         @Override
         public Cell getValue(byte[] cf, byte[] cq) {
-            Object ptr = setColumnKey(cf, 0, cf.length, cq, 0, cq.length);
-            CellRef ref = foundColumns.get(ptr);
-            return ref == null ? null : ref.cell;
+            // The expression passes the same arrays it referenced the column with
+            for (int i = 0; i < slotQualifiers.length; i++) {
+                if (slotQualifiers[i] == cq && slotFamilies[i] == cf) {
+                    return cells[i];
+                }
+            }
+            Integer slot = columnSlots.get(setColumnKey(cf, 0, cf.length, cq, 0, cq.length));
+            return slot == null ? null : cells[slot];
         }
         
         @Override
         public String toString() {
-            return foundColumns.toString();
+            StringBuilder buf = new StringBuilder("{");
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) {
+                    buf.append(", ");
+                }
+                buf.append(Bytes.toStringBinary(slotFamilies[i])).append(':')
+                        .append(Bytes.toStringBinary(slotQualifiers[i])).append('=');
+                if (cells[i] != null) {
+                    buf.append(cells[i]).append(" value = ").append(Bytes.toStringBinary(
+                            cells[i].getValueArray(), cells[i].getValueOffset(), cells[i].getValueLength()));
+                }
+            }
+            return buf.append('}').toString();
         }
 
         @Override
@@ -163,14 +246,12 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
 
         @Override
         public Cell getValue(int index) {
-            // This won't perform very well, but it's not
-            // currently used anyway
-            for (CellRef ref : foundColumns.values()) {
-                if (ref.cell == null) {
+            for (Cell cell : cells) {
+                if (cell == null) {
                     continue;
                 }
                 if (index == 0) {
-                    return ref.cell;
+                    return cell;
                 }
                 index--;
             }
@@ -198,6 +279,7 @@ public abstract class MultiKeyValueComparisonFilter extends BooleanExpressionFil
             }
         };
         expression.accept(visitor);
+        inputTuple.initSlots();
     }
     
     @Override
@@ -19,6 +19,7 @@ package org.apache.phoenix.filter;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -69,6 +70,9 @@ public class SkipScanFilter extends FilterBase implements Writable {
     // schema of the row key
     private RowKeySchema schema;
     private boolean includeMultipleVersions;
+    // False when the other filters of the scan tell which column families the row is filtered on,
+    // so that the others are only loaded for the rows passing the filters
+    private boolean isFamilyEssential = true;
     // current position for each slot
     private int[] position;
     // buffer used for skip hint
@@ -93,6 +97,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
 
     public SkipScanFilter(SkipScanFilter filter, boolean includeMultipleVersions) {
         this(filter.slots, filter.slotSpan, filter.schema, includeMultipleVersions);
+        this.isFamilyEssential = filter.isFamilyEssential;
     }
 
     public SkipScanFilter(List<List<KeyRange>> slots, RowKeySchema schema) {
@@ -111,6 +116,20 @@ public class SkipScanFilter extends FilterBase implements Writable {
         this.offset = offset;
     }
 
+    /**
+     * Set whether the column families of the scan are essential to this filter. As only the
+     * row key is filtered on, none is, but false may only be set when another filter of the
+     * scan declares the column families it needs, as otherwise no family would be scanned.
+     */
+    public void setFamilyEssential(boolean isFamilyEssential) {
+        this.isFamilyEssential = isFamilyEssential;
+    }
+
+    @Override
+    public boolean isFamilyEssential(byte[] name) {
+        return isFamilyEssential;
+    }
+
     private void init(List<List<KeyRange>> slots, int[] slotSpan, RowKeySchema schema, boolean includeMultipleVersions) {
         for (List<KeyRange> ranges : slots) {
             if (ranges.isEmpty()) {
@@ -189,7 +208,9 @@ public class SkipScanFilter extends FilterBase implements Writable {
     public SkipScanFilter intersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
         List<List<KeyRange>> newSlots = Lists.newArrayListWithCapacity(slots.size());
         if (intersect(lowerInclusiveKey, upperExclusiveKey, newSlots)) {
-            return new SkipScanFilter(newSlots, slotSpan, schema);
+            SkipScanFilter filter = new SkipScanFilter(newSlots, slotSpan, schema);
+            filter.setFamilyEssential(isFamilyEssential);
+            return filter;
         }
         return null;
     }
@@ -614,6 +635,10 @@ public class SkipScanFilter extends FilterBase implements Writable {
             }
         }
         this.init(slots, slotSpan, schema, includeMultipleVersions);
+        try {
+            this.isFamilyEssential = in.readBoolean();
+        } catch (EOFException e) { // Ignore as this will occur when a 4.13 client is used
+        }
     }
 
     @Override
@@ -631,6 +656,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
                 range.write(out);
             }
         }
+        out.writeBoolean(isFamilyEssential);
     }
     
     @Override
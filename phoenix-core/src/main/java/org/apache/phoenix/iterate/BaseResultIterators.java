@@ -565,7 +565,11 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         if (!useStats() || !StatisticsUtil.isStatsEnabled(TableName.valueOf(physicalTableName))) {
             return GuidePostsInfo.NO_GUIDEPOST;
         }
+        GuidePostsKey key = new GuidePostsKey(physicalTableName, getGuidePostsColumnFamily());
+        return context.getConnection().getQueryServices().getTableStats(key);
+    }
 
+    private byte[] getGuidePostsColumnFamily() {
         TreeSet<byte[]> whereConditions = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
         for(Pair<byte[], byte[]> where : context.getWhereConditionColumns()) {
             byte[] cf = where.getFirst();
@@ -591,8 +595,22 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         if (cf == null) {
             cf = defaultCF;
         }
-        GuidePostsKey key = new GuidePostsKey(physicalTableName, cf);
-        return context.getConnection().getQueryServices().getTableStats(key);
+        return cf;
+    }
+
+    /**
+     * @return the pruner of the guidepost chunks of the scan, or null if their zone maps can't
+     *         be used
+     */
+    private ZoneMapPruner getZoneMapPruner(GuidePostsInfo gps) {
+        PTable table = getTable();
+        // Rows updated since the stats were collected would otherwise be partially scanned
+        if (gps.getGuidePostsCount() == 0 || !useStatsForParallelization || !ZoneMapPruner.canPrune(table)
+                || !context.getConnection().getQueryServices().getProps().getBoolean(
+                        QueryServices.USE_STATS_ZONE_MAPS_ATTRIB, QueryServicesOptions.DEFAULT_USE_STATS_ZONE_MAPS)) {
+            return null;
+        }
+        return ZoneMapPruner.newPruner(scan, getGuidePostsColumnFamily());
     }
 
     private static void updateEstimates(GuidePostsInfo gps, int guideIndex, GuidePostEstimate estimate) {
@@ -953,6 +971,7 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         DataInput input = null;
         PrefixByteDecoder decoder = null;
         int guideIndex = 0;
+        ZoneMapPruner zoneMapPruner = getZoneMapPruner(gps);
         GuidePostEstimate estimates = new GuidePostEstimate();
         boolean gpsForFirstRegion = false;
         boolean intersectWithGuidePosts = true;
@@ -1042,6 +1061,9 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
                         ScanUtil.setLocalIndexAttributes(newScan, keyOffset,
                             regionInfo.getStartKey(), regionInfo.getEndKey(),
                             newScan.getStartRow(), newScan.getStopRow());
+                        if (zoneMapPruner != null) {
+                            zoneMapPruner.prune(newScan, gps.getZoneMap(guideIndex));
+                        }
                         // If we've delaying adding estimates, add the previous
                         // gp estimates now that we know they are in range.
                         if (delayAddingEst) {
@@ -114,7 +114,7 @@ public abstract class ExplainTable {
         if (hint.hasHint(Hint.SMALL)) {
             buf.append(Hint.SMALL).append(" ");
         }
-        if (OrderBy.REV_ROW_KEY_ORDER_BY.equals(orderBy)) {
+        if (OrderBy.REV_ROW_KEY_ORDER_BY.equals(orderBy) || ScanUtil.isReversed(scan)) {
             buf.append("REVERSE ");
         }
         if (scanRanges.isEverything()) {
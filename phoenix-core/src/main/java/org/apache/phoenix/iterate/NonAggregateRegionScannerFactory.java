@@ -168,6 +168,25 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
     return getTopNScanner(env, innerScanner, iterator, tenantId);
   }
 
+  private static ImmutableBytesWritable[] deserializeTopNThresholdFromScan(Scan scan) throws IOException {
+    byte[] threshold = scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD);
+    if (threshold == null) {
+      return null;
+    }
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(threshold));
+    int size = WritableUtils.readVInt(input);
+    ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[size];
+    for (int i = 0; i < size; i++) {
+      int length = WritableUtils.readVInt(input);
+      if (length >= 0) {
+        byte[] sortKey = new byte[length];
+        input.readFully(sortKey);
+        sortKeys[i] = new ImmutableBytesWritable(sortKey);
+      }
+    }
+    return sortKeys;
+  }
+
   private static OrderedResultIterator deserializeFromScan(Scan scan, RegionScanner s) {
     byte[] topN = scan.getAttribute(BaseScannerRegionObserver.TOPN);
     if (topN == null) {
@@ -189,7 +208,7 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
       PTable.QualifierEncodingScheme encodingScheme = EncodedColumnsUtil.getQualifierEncodingScheme(scan);
       ResultIterator inner = new RegionScannerResultIterator(s, EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan), encodingScheme);
       return new OrderedResultIterator(inner, orderByExpressions, thresholdBytes, limit >= 0 ? limit : null, null,
-          estimatedRowSize);
+          estimatedRowSize, deserializeTopNThresholdFromScan(scan));
     } catch (IOException e) {
       throw new RuntimeException(e);
     } finally {
@@ -97,6 +97,8 @@ public class OrderedResultIterator implements PeekingResultIterator {
     private final ResultIterator delegate;
     private final List<OrderByExpression> orderByExpressions;
     private final long estimatedByteSize;
+    // Sort keys of a row that at least limit rows sort before or at, if known
+    private final ImmutableBytesWritable[] thresholdSortKeys;
     
     private PeekingResultIterator resultIterator;
     private long byteSize;
@@ -117,7 +119,19 @@ public class OrderedResultIterator implements PeekingResultIterator {
 
     public OrderedResultIterator(ResultIterator delegate, List<OrderByExpression> orderByExpressions, 
             int thresholdBytes, Integer limit, Integer offset,int estimatedRowSize) {
+        this(delegate, orderByExpressions, thresholdBytes, limit, offset, estimatedRowSize, null);
+    }
+
+    /**
+     * @param thresholdSortKeys the sort keys of a row known to be sorted after at least limit rows
+     * of the whole query, so that the rows sorting after it can be skipped, or null if not known
+     */
+    public OrderedResultIterator(ResultIterator delegate, List<OrderByExpression> orderByExpressions,
+            int thresholdBytes, Integer limit, Integer offset, int estimatedRowSize,
+            ImmutableBytesWritable[] thresholdSortKeys) {
         checkArgument(!orderByExpressions.isEmpty());
+        checkArgument(thresholdSortKeys == null || thresholdSortKeys.length == orderByExpressions.size());
+        this.thresholdSortKeys = thresholdSortKeys;
         this.delegate = delegate;
         this.orderByExpressions = orderByExpressions;
         this.thresholdBytes = thresholdBytes;
@@ -159,7 +173,7 @@ public class OrderedResultIterator implements PeekingResultIterator {
      */
     // ImmutableBytesWritable.Comparator doesn't implement generics
     @SuppressWarnings("unchecked")
-    private static Comparator<ResultEntry> buildComparator(List<OrderByExpression> orderByExpressions) {
+    static Comparator<ResultEntry> buildComparator(List<OrderByExpression> orderByExpressions) {
         Ordering<ResultEntry> ordering = null;
         int pos = 0;
         for (OrderByExpression col : orderByExpressions) {
@@ -194,6 +208,20 @@ public class OrderedResultIterator implements PeekingResultIterator {
         };
     }
     
+    /**
+     * Evaluates the sort keys of a row, a sort key that failed to get evaluated being null
+     */
+    static ImmutableBytesWritable[] evaluateSortKeys(List<Expression> expressions, Tuple result) {
+        int pos = 0;
+        ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[expressions.size()];
+        for (Expression expression : expressions) {
+            final ImmutableBytesWritable sortKey = new ImmutableBytesWritable();
+            boolean evaluated = expression.evaluate(result, sortKey);
+            sortKeys[pos++] = evaluated && sortKey.getLength() > 0 ? sortKey : null;
+        }
+        return sortKeys;
+    }
+
     @Override
     public Tuple next() throws SQLException {
         return getResultIterator().next();
@@ -204,7 +232,6 @@ public class OrderedResultIterator implements PeekingResultIterator {
             return resultIterator;
         }
         
-        final int numSortKeys = orderByExpressions.size();
         List<Expression> expressions = Lists.newArrayList(Collections2.transform(orderByExpressions, TO_EXPRESSION));
         final Comparator<ResultEntry> comparator = buildComparator(orderByExpressions);
         try{
@@ -252,16 +279,14 @@ public class OrderedResultIterator implements PeekingResultIterator {
                     queueEntries.close();
                 }
             };
+            ResultEntry threshold = thresholdSortKeys == null ? null : new ResultEntry(thresholdSortKeys, null);
             for (Tuple result = delegate.next(); result != null; result = delegate.next()) {
-                int pos = 0;
-                ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[numSortKeys];
-                for (Expression expression : expressions) {
-                    final ImmutableBytesWritable sortKey = new ImmutableBytesWritable();
-                    boolean evaluated = expression.evaluate(result, sortKey);
-                    // set the sort key that failed to get evaluated with null
-                    sortKeys[pos++] = evaluated && sortKey.getLength() > 0 ? sortKey : null;
+                ResultEntry entry = new ResultEntry(evaluateSortKeys(expressions, result), result);
+                // Enough rows of the query sort before it, so it can't be returned
+                if (threshold != null && comparator.compare(entry, threshold) > 0) {
+                    continue;
                 }
-                queueEntries.add(new ResultEntry(sortKeys, result));
+                queueEntries.add(entry);
             }
             this.byteSize = queueEntries.getByteSize();
         } catch (IOException e) {
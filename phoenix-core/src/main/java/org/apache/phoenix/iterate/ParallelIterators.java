@@ -17,32 +17,46 @@
  */
 package org.apache.phoenix.iterate;
 
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_FAILED_QUERY_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_NUM_PARALLEL_SCANS;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_QUERY_TIMEOUT_COUNTER;
 
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.job.JobManager.JobCallable;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.trace.util.Tracing;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.LogUtil;
 import org.apache.phoenix.util.ScanUtil;
+import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 /**
  *
  * Class that parallelizes the scan over a table using the ExecutorService provided.  Each region of the table will be scanned in parallel with
@@ -56,12 +70,23 @@ public class ParallelIterators extends BaseResultIterators {
 	private static final String NAME = "PARALLEL";
     private final ParallelIteratorFactory iteratorFactory;
     private final boolean initFirstScanOnly;
+    private final boolean launchScansProgressively;
     
     public ParallelIterators(QueryPlan plan, Integer perScanLimit, ParallelIteratorFactory iteratorFactory, ParallelScanGrouper scanGrouper, Scan scan, boolean initFirstScanOnly, Map<ImmutableBytesPtr,ServerCache> caches, QueryPlan dataPlan)
             throws SQLException {
+        this(plan, perScanLimit, iteratorFactory, scanGrouper, scan, initFirstScanOnly, false, caches, dataPlan);
+    }   
+    
+    /**
+     * @param launchScansProgressively whether the results of the scans are concatenated up to
+     * a limit, so that only the first few scans need to be launched up front
+     */
+    public ParallelIterators(QueryPlan plan, Integer perScanLimit, ParallelIteratorFactory iteratorFactory, ParallelScanGrouper scanGrouper, Scan scan, boolean initFirstScanOnly, boolean launchScansProgressively, Map<ImmutableBytesPtr,ServerCache> caches, QueryPlan dataPlan)
+            throws SQLException {
         super(plan, perScanLimit, null, scanGrouper, scan,caches, dataPlan);
         this.iteratorFactory = iteratorFactory;
         this.initFirstScanOnly = initFirstScanOnly;
+        this.launchScansProgressively = launchScansProgressively;
     }   
     
     public ParallelIterators(QueryPlan plan, Integer perScanLimit, ParallelIteratorFactory iteratorFactory, Scan scan, boolean initOneScanPerRegion, Map<ImmutableBytesPtr,ServerCache> caches, QueryPlan dataPlan)
@@ -98,64 +123,261 @@ public class ParallelIterators extends BaseResultIterators {
                 futures.add(null); // placeholder
             }
         }
+        int initialScanCount = context.getConnection().getQueryServices().getProps().getInt(
+                QueryServices.LIMIT_INITIAL_SCAN_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_LIMIT_INITIAL_SCAN_COUNT);
+        if (launchScansProgressively && initialScanCount > 0 && initialScanCount < scanLocations.size()) {
+            // Launch the scans in the order their results are consumed, so that the later ones
+            // are only launched if the earlier ones don't satisfy the limit
+            if (isReverse) {
+                Collections.reverse(scanLocations);
+            }
+            ProgressiveScanLauncher launcher = new ProgressiveScanLauncher(executor, scanLocations, allIterators, isReverse, scanGrouper, initialScanCount);
+            for (int i = 0; i < scanLocations.size(); i++) {
+                ScanLocator scanLocation = scanLocations.get(i);
+                Future<PeekingResultIterator> future = i < initialScanCount ? launcher.getFuture(i)
+                        : Futures.<PeekingResultIterator>immediateFuture(new DeferredResultIterator(launcher, i));
+                nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(), new Pair<Scan,Future<PeekingResultIterator>>(scanLocation.getScan(),future));
+            }
+            return;
+        }
         // Shuffle so that we start execution across many machines
         // before we fill up the thread pool
         Collections.shuffle(scanLocations);
-        ReadMetricQueue readMetrics = context.getReadMetricsQueue();
-        final String physicalTableName = tableRef.getTable().getPhysicalName().getString();
-        int numScans = scanLocations.size();
+        updateNumParallelScans(scanLocations.size());
+        for (final ScanLocator scanLocation : scanLocations) {
+            Future<PeekingResultIterator> future = executor.submit(newScanTask(scanLocation, allIterators, isReverse, scanGrouper));
+            // Add our future in the right place so that we can concatenate the
+            // results of the inner futures versus merge sorting across all of them.
+            nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(), new Pair<Scan,Future<PeekingResultIterator>>(scanLocation.getScan(),future));
+        }
+    }
+
+    private void updateNumParallelScans(int numScans) {
         context.getOverallQueryMetrics().updateNumParallelScans(numScans);
         GLOBAL_NUM_PARALLEL_SCANS.update(numScans);
+    }
+
+    private Callable<PeekingResultIterator> newScanTask(final ScanLocator scanLocation, final Queue<PeekingResultIterator> allIterators,
+            final boolean isReverse, ParallelScanGrouper scanGrouper) throws SQLException {
+        ReadMetricQueue readMetrics = context.getReadMetricsQueue();
+        final String physicalTableName = tableRef.getTable().getPhysicalName().getString();
         final long renewLeaseThreshold = context.getConnection().getQueryServices().getRenewLeaseThresholdMilliSeconds();
-        for (final ScanLocator scanLocation : scanLocations) {
-            final Scan scan = scanLocation.getScan();
-            final ScanMetricsHolder scanMetricsHolder = ScanMetricsHolder.getInstance(readMetrics, physicalTableName,
-                scan, context.getConnection().getLogLevel());
-            final TaskExecutionMetricsHolder taskMetrics = new TaskExecutionMetricsHolder(readMetrics, physicalTableName);
-            final TableResultIterator tableResultItr =
-                    context.getConnection().getTableResultIteratorFactory().newIterator(
-                        mutationState, tableRef, scan, scanMetricsHolder, renewLeaseThreshold, plan,
-                        scanGrouper, caches);
-            context.getConnection().addIteratorForLeaseRenewal(tableResultItr);
-            Future<PeekingResultIterator> future = executor.submit(Tracing.wrap(new JobCallable<PeekingResultIterator>() {
-                
-                @Override
-                public PeekingResultIterator call() throws Exception {
-                    long startTime = System.currentTimeMillis();
-                    if (logger.isDebugEnabled()) {
-                        logger.debug(LogUtil.addCustomAnnotations("Id: " + scanId + ", Time: " + (System.currentTimeMillis() - startTime) + "ms, Scan: " + scan, ScanUtil.getCustomAnnotations(scan)));
-                    }
-                    PeekingResultIterator iterator = iteratorFactory.newIterator(context, tableResultItr, scan, physicalTableName, ParallelIterators.this.plan);
-                    if (initFirstScanOnly) {
-                        if ((!isReverse && scanLocation.isFirstScan()) || (isReverse && scanLocation.isLastScan())) {
-                            // Fill the scanner's cache. This helps reduce latency since we are parallelizing the I/O needed.
-                            iterator.peek();
-                        }
-                    } else {
+        final Scan scan = scanLocation.getScan();
+        final ScanMetricsHolder scanMetricsHolder = ScanMetricsHolder.getInstance(readMetrics, physicalTableName,
+            scan, context.getConnection().getLogLevel());
+        final TaskExecutionMetricsHolder taskMetrics = new TaskExecutionMetricsHolder(readMetrics, physicalTableName);
+        final TableResultIterator tableResultItr =
+                context.getConnection().getTableResultIteratorFactory().newIterator(
+                    mutationState, tableRef, scan, scanMetricsHolder, renewLeaseThreshold, plan,
+                    scanGrouper, caches);
+        context.getConnection().addIteratorForLeaseRenewal(tableResultItr);
+        return Tracing.wrap(new JobCallable<PeekingResultIterator>() {
+
+            @Override
+            public PeekingResultIterator call() throws Exception {
+                long startTime = System.currentTimeMillis();
+                if (logger.isDebugEnabled()) {
+                    logger.debug(LogUtil.addCustomAnnotations("Id: " + scanId + ", Time: " + (System.currentTimeMillis() - startTime) + "ms, Scan: " + scan, ScanUtil.getCustomAnnotations(scan)));
+                }
+                PeekingResultIterator iterator = iteratorFactory.newIterator(context, tableResultItr, scan, physicalTableName, ParallelIterators.this.plan);
+                if (initFirstScanOnly) {
+                    if ((!isReverse && scanLocation.isFirstScan()) || (isReverse && scanLocation.isLastScan())) {
+                        // Fill the scanner's cache. This helps reduce latency since we are parallelizing the I/O needed.
                         iterator.peek();
                     }
-                    allIterators.add(iterator);
-                    return iterator;
+                } else {
+                    iterator.peek();
                 }
+                allIterators.add(iterator);
+                return iterator;
+            }
+
+            /**
+             * Defines the grouping for round robin behavior.  All threads spawned to process
+             * this scan will be grouped together and time sliced with other simultaneously
+             * executing parallel scans.
+             */
+            @Override
+            public Object getJobId() {
+                return ParallelIterators.this;
+            }
+
+            @Override
+            public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                return taskMetrics;
+            }
+        }, "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString());
+    }
+
+    /**
+     * Launches the scans of a query with a limit in the order their results are consumed, a few
+     * at first and then twice as many each time the results of a scan not yet launched are needed.
+     */
+    private class ProgressiveScanLauncher {
+        private final ExecutorService executor;
+        private final List<ScanLocator> scanLocations;
+        private final Queue<PeekingResultIterator> allIterators;
+        private final boolean isReverse;
+        private final ParallelScanGrouper scanGrouper;
+        private final List<Future<PeekingResultIterator>> futures;
+        private final long maxQueryEndTime;
+        private int launchCount;
+
+        private ProgressiveScanLauncher(ExecutorService executor, List<ScanLocator> scanLocations,
+                Queue<PeekingResultIterator> allIterators, boolean isReverse, ParallelScanGrouper scanGrouper,
+                int initialScanCount) throws SQLException {
+            this.executor = executor;
+            this.scanLocations = scanLocations;
+            this.allIterators = allIterators;
+            this.isReverse = isReverse;
+            this.scanGrouper = scanGrouper;
+            this.futures = Lists.newArrayListWithExpectedSize(scanLocations.size());
+            this.maxQueryEndTime = EnvironmentEdgeManager.currentTimeMillis() + context.getStatement().getQueryTimeoutInMillis();
+            this.launchCount = initialScanCount;
+            launchUpTo(initialScanCount);
+        }
+
+        private synchronized void launchUpTo(int count) throws SQLException {
+            int start = futures.size();
+            count = Math.min(count, scanLocations.size());
+            for (int i = start; i < count; i++) {
+                futures.add(executor.submit(newScanTask(scanLocations.get(i), allIterators, isReverse, scanGrouper)));
+            }
+            if (count > start) {
+                updateNumParallelScans(count - start);
+            }
+        }
+
+        private synchronized Future<PeekingResultIterator> getFuture(int index) {
+            return futures.get(index);
+        }
 
-                /**
-                 * Defines the grouping for round robin behavior.  All threads spawned to process
-                 * this scan will be grouped together and time sliced with other simultaneously
-                 * executing parallel scans.
-                 */
-                @Override
-                public Object getJobId() {
-                    return ParallelIterators.this;
+        /**
+         * Get the future of the given scan, launching it along with the next ones if it wasn't yet
+         */
+        private synchronized Future<PeekingResultIterator> launch(int index) throws SQLException {
+            if (index >= futures.size()) {
+                launchCount *= 2;
+                launchUpTo(index + launchCount);
+            }
+            return futures.get(index);
+        }
+
+        /**
+         * Get the results of the given scan, launching it first if it wasn't yet. Like the scans
+         * launched up front, waits no longer than the query timeout, and otherwise fails the
+         * query and cancels all of its scans.
+         */
+        private PeekingResultIterator getIterator(int index) throws SQLException {
+            Future<PeekingResultIterator> future = launch(index);
+            int queryTimeOut = context.getStatement().getQueryTimeoutInMillis();
+            SQLException toThrow;
+            try {
+                long timeOutForScan = maxQueryEndTime - EnvironmentEdgeManager.currentTimeMillis();
+                if (timeOutForScan < 0) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.OPERATION_TIMED_OUT).setMessage(". Query couldn't be completed in the alloted time: " + queryTimeOut + " ms").build().buildException();
                 }
+                return future.get(timeOutForScan, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                context.getOverallQueryMetrics().queryTimedOut();
+                GLOBAL_QUERY_TIMEOUT_COUNTER.increment();
+                toThrow = new SQLExceptionInfo.Builder(SQLExceptionCode.OPERATION_TIMED_OUT)
+                        .setMessage(". Query couldn't be completed in the alloted time: " + queryTimeOut + " ms")
+                        .setRootCause(e).build().buildException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                toThrow = new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                        .setRootCause(e).build().buildException();
+            } catch (ExecutionException e) {
+                toThrow = ServerUtil.parseServerException(e);
+            } catch (SQLException e) {
+                toThrow = e;
+            }
+            try {
+                ParallelIterators.this.close();
+            } catch (Exception e) {
+                toThrow.setNextException(ServerUtil.parseServerException(e));
+            }
+            GLOBAL_FAILED_QUERY_COUNTER.increment();
+            context.getOverallQueryMetrics().queryFailed();
+            throw toThrow;
+        }
 
-                @Override
-                public TaskExecutionMetricsHolder getTaskExecutionMetric() {
-                    return taskMetrics;
+        /**
+         * Close the given scan if it was launched, without launching it otherwise
+         */
+        private void close(int index) throws SQLException {
+            Future<PeekingResultIterator> future;
+            synchronized (this) {
+                if (index >= futures.size()) {
+                    return;
                 }
-            }, "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString()));
-            // Add our future in the right place so that we can concatenate the
-            // results of the inner futures versus merge sorting across all of them.
-            nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(), new Pair<Scan,Future<PeekingResultIterator>>(scan,future));
+                future = futures.get(index);
+            }
+            if (future.cancel(false)) {
+                return;
+            }
+            try {
+                future.get().close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                        .setRootCause(e).build().buildException();
+            } catch (ExecutionException e) {
+                logger.info("Failed to execute task during cancel", e);
+            }
+        }
+    }
+
+    /**
+     * Iterator through the results of a scan that is only launched once they are needed
+     */
+    private static class DeferredResultIterator implements PeekingResultIterator {
+        private final ProgressiveScanLauncher launcher;
+        private final int index;
+        private PeekingResultIterator delegate;
+        private boolean isClosed;
+
+        private DeferredResultIterator(ProgressiveScanLauncher launcher, int index) {
+            this.launcher = launcher;
+            this.index = index;
+        }
+
+        private PeekingResultIterator getDelegate() throws SQLException {
+            if (isClosed) {
+                return EMPTY_ITERATOR;
+            }
+            if (delegate == null) {
+                delegate = launcher.getIterator(index);
+            }
+            return delegate;
+        }
+
+        @Override
+        public Tuple peek() throws SQLException {
+            return getDelegate().peek();
+        }
+
+        @Override
+        public Tuple next() throws SQLException {
+            return getDelegate().next();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            if (delegate != null) {
+                delegate.close();
+            } else {
+                launcher.close(index);
+            }
+        }
+
+        @Override
+        public void explain(List<String> planSteps) {
         }
     }
 
@@ -29,28 +29,68 @@ import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_HBASE_COU
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_HBASE_COUNT_RPC_RETRIES;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_HBASE_COUNT_SCANNED_REGIONS;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SCAN_BYTES;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SCAN_PREFETCH_STALL_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SCAN_PREFETCH_STALL_TIME;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.monitoring.CombinableMetric;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.schema.tuple.ResultTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.ServerUtil;
 
+/**
+ *
+ * Iterates through the rows of a scanner. If given an executor, the rows are read in batches
+ * of about a target number of bytes, and the next batch is fetched in the background while
+ * the current one is processed. Every time the next batch isn't ready yet when needed, the
+ * wait is counted as a prefetch stall in the scan metrics.
+ *
+ */
 public class ScanningResultIterator implements ResultIterator {
+    // Upper bound on the number of rows asked for per RPC when sizing it by bytes
+    private static final int MAX_ROWS_PER_RPC = 10000;
+
     private final ResultScanner scanner;
     private final Scan scan;
     private final ScanMetricsHolder scanMetricsHolder;
     boolean scanMetricsUpdated;
     boolean scanMetricsEnabled;
 
+    private final ExecutorService prefetchExecutor;
+    private final long targetBatchBytes;
+    // Held while the scanner is used, as batches may be fetched by another thread
+    private final Lock scannerLock = new ReentrantLock();
+    private List<Result> batch = Collections.emptyList();
+    private int batchIndex;
+    private FutureTask<List<Result>> nextBatch;
+    // Whether the batch taken last is the final one
+    private boolean exhausted;
+    // Whether the batch fetched last is the final one, which may still be in flight
+    private boolean scannerExhausted;
+    private boolean closed;
+    private long rowCount;
+    private long rowBytes;
+
     // These metric names are how HBase refers them
     // Since HBase stores these strings as static final, we are using the same here
     static final String RPC_CALLS_METRIC_NAME = "RPC_CALLS";
@@ -67,17 +107,86 @@ public class ScanningResultIterator implements ResultIterator {
     static final String GLOBAL_BYTES_IN_RESULTS_METRIC_NAME = "BYTES_IN_RESULTS";
 
     public ScanningResultIterator(ResultScanner scanner, Scan scan, ScanMetricsHolder scanMetricsHolder) {
+        this(scanner, scan, scanMetricsHolder, null, 0);
+    }
+
+    /**
+     * @param prefetchExecutor executor to fetch the next batch of rows with, or null to read
+     * rows from the scanner as they are needed
+     * @param targetBatchBytes number of bytes after which a batch of rows is complete
+     */
+    public ScanningResultIterator(ResultScanner scanner, Scan scan, ScanMetricsHolder scanMetricsHolder,
+            ExecutorService prefetchExecutor, long targetBatchBytes) {
         this.scanner = scanner;
         this.scan = scan;
         this.scanMetricsHolder = scanMetricsHolder;
         scanMetricsUpdated = false;
         scanMetricsEnabled = scan.isScanMetricsEnabled();
+        this.prefetchExecutor = targetBatchBytes > 0 ? prefetchExecutor : null;
+        this.targetBatchBytes = targetBatchBytes;
+    }
+
+    /**
+     * Size the RPCs of a scan by a byte budget: region servers return at most targetBytes per
+     * RPC, and the number of rows asked for is raised for rows small enough to fit more of them.
+     * Small and reversed scans are left alone.
+     * @param avgRowBytes observed or estimated size of a row, or 0 if unknown
+     * @param isCachingSet true if the number of rows per RPC was set on the statement or
+     *        configured, in which case it is kept
+     */
+    public static void sizeScan(Scan scan, long targetBytes, long avgRowBytes, boolean isCachingSet) {
+        if (targetBytes <= 0 || scan.isSmall() || scan.isReversed()) {
+            return;
+        }
+        if (scan.getMaxResultSize() <= 0) {
+            scan.setMaxResultSize(targetBytes);
+        }
+        if (avgRowBytes > 0 && !isCachingSet) {
+            int rows = (int) Math.min(MAX_ROWS_PER_RPC, Math.max(1, targetBytes / avgRowBytes));
+            if (rows > scan.getCaching()) {
+                scan.setCaching(rows);
+            }
+        }
     }
 
     @Override
     public void close() throws SQLException {
         getScanMetrics();
-        scanner.close();
+        FutureTask<List<Result>> task = nextBatch;
+        if (task != null) {
+            nextBatch = null;
+            task.cancel(false);
+        }
+        // Wait for a batch being fetched before closing the scanner underneath it
+        scannerLock.lock();
+        try {
+            closed = true;
+            scanner.close();
+        } finally {
+            scannerLock.unlock();
+        }
+    }
+
+    /**
+     * Get the average number of bytes of the rows read so far, or 0 if none were read
+     */
+    public long getAverageRowBytes() {
+        return rowCount == 0 ? 0 : rowBytes / rowCount;
+    }
+
+    /**
+     * Renew the lease of the scanner, unless a batch is being fetched, which renews it anyway
+     * @return false if the lease couldn't be renewed
+     */
+    public boolean renewLease() {
+        if (!scannerLock.tryLock()) {
+            return true;
+        }
+        try {
+            return scanner.renewLease();
+        } finally {
+            scannerLock.unlock();
+        }
     }
 
     private static void changeMetric(CombinableMetric metric, Long value) {
@@ -138,12 +247,17 @@ public class ScanningResultIterator implements ResultIterator {
 
     @Override
     public Tuple next() throws SQLException {
+        if (prefetchExecutor != null) {
+            return nextPrefetched();
+        }
         try {
             Result result = scanner.next();
             if (result == null) {
                 close(); // Free up resources early
                 return null;
             }
+            rowCount++;
+            rowBytes += Result.getTotalSizeOfCells(result);
             // TODO: use ResultTuple.setResult(result)?
             // Need to create a new one if holding on to it (i.e. OrderedResultIterator)
             return new ResultTuple(result);
@@ -152,6 +266,97 @@ public class ScanningResultIterator implements ResultIterator {
         }
     }
 
+    private Tuple nextPrefetched() throws SQLException {
+        while (batchIndex == batch.size()) {
+            if (exhausted) {
+                close(); // Free up resources early
+                return null;
+            }
+            batch = takeBatch();
+            batchIndex = 0;
+        }
+        Result result = batch.get(batchIndex);
+        batch.set(batchIndex++, null);
+        return new ResultTuple(result);
+    }
+
+    private List<Result> takeBatch() throws SQLException {
+        List<Result> results;
+        FutureTask<List<Result>> task = nextBatch;
+        nextBatch = null;
+        try {
+            if (task == null) {
+                results = fetchBatch();
+            } else {
+                if (!task.isDone()) {
+                    long startTime = EnvironmentEdgeManager.currentTimeMillis();
+                    // Fetch the batch in this thread if the executor hasn't got to it yet
+                    task.run();
+                    results = task.get();
+                    long stallTime = EnvironmentEdgeManager.currentTimeMillis() - startTime;
+                    scanMetricsHolder.getCountOfPrefetchStalls().increment();
+                    scanMetricsHolder.getSumOfMillisSecPrefetchStalled().change(stallTime);
+                    GLOBAL_SCAN_PREFETCH_STALL_COUNTER.increment();
+                    GLOBAL_SCAN_PREFETCH_STALL_TIME.update(stallTime);
+                } else {
+                    results = task.get();
+                }
+            }
+        } catch (IOException e) {
+            throw ServerUtil.parseServerException(e);
+        } catch (ExecutionException e) {
+            throw ServerUtil.parseServerException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                    .setRootCause(e).build().buildException();
+        }
+        exhausted = scannerExhausted;
+        if (!exhausted) {
+            task = new FutureTask<List<Result>>(new Callable<List<Result>>() {
+                @Override
+                public List<Result> call() throws IOException {
+                    return fetchBatch();
+                }
+            });
+            try {
+                // Submitted rather than executed, so that the executor can wrap it in its own task type
+                prefetchExecutor.submit(task);
+            } catch (RejectedExecutionException e) {
+                // The batch will be fetched when it's needed
+            }
+            nextBatch = task;
+        }
+        return results;
+    }
+
+    private List<Result> fetchBatch() throws IOException {
+        List<Result> results = new ArrayList<Result>();
+        scannerLock.lock();
+        try {
+            if (closed) {
+                scannerExhausted = true;
+                return results;
+            }
+            int maxRows = scan.getCaching() > 0 ? scan.getCaching() : Integer.MAX_VALUE;
+            long bytes = 0;
+            while (bytes < targetBatchBytes && results.size() < maxRows) {
+                Result result = scanner.next();
+                if (result == null) {
+                    scannerExhausted = true;
+                    break;
+                }
+                results.add(result);
+                bytes += Result.getTotalSizeOfCells(result);
+            }
+            rowCount += results.size();
+            rowBytes += bytes;
+        } finally {
+            scannerLock.unlock();
+        }
+        return results;
+    }
+
     @Override
     public void explain(List<String> planSteps) {
     }
@@ -20,21 +20,25 @@ package org.apache.phoenix.iterate;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MEMORY_CHUNK_BYTES;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MEMORY_WAIT_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SPOOL_FILE_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SPOOL_FILE_DELETED_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SPOOL_FILE_SIZE;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
+import java.io.Closeable;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.sql.SQLException;
 import java.util.List;
 
-import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.StatementContext;
@@ -50,7 +54,9 @@ import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ResultUtil;
 import org.apache.phoenix.util.ServerUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
 import org.apache.phoenix.util.TupleUtil;
+import org.iq80.snappy.Snappy;
 
 /**
  *
@@ -68,6 +74,12 @@ import org.apache.phoenix.util.TupleUtil;
 @Deprecated
 public class SpoolingResultIterator implements PeekingResultIterator {
     
+    // Size of the blocks spool files are written in, each of them read back into a single array
+    private static final int SPOOL_BLOCK_SIZE = 64 * 1024;
+    private static final int BLOCK_HEADER_SIZE = 2 * Bytes.SIZEOF_INT;
+    // Max size of the region of a spool file mapped at a time
+    private static final long MAX_MAPPED_SIZE = 64 * 1024 * 1024;
+
     private final PeekingResultIterator spoolFrom;
     private final SpoolingMetricsHolder spoolMetrics;
     private final MemoryMetricsHolder memoryMetrics;
@@ -97,7 +109,12 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         this (spoolMetrics, memoryMetrics, scanner, services.getMemoryManager(),
                 services.getProps().getInt(QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_THRESHOLD_BYTES),
                 services.getProps().getLong(QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES),
-                services.getProps().get(QueryServices.SPOOL_DIRECTORY, QueryServicesOptions.DEFAULT_SPOOL_DIRECTORY));
+                services.getProps().get(QueryServices.SPOOL_DIRECTORY, QueryServicesOptions.DEFAULT_SPOOL_DIRECTORY),
+                services.getProps().getBoolean(QueryServices.SPOOL_COMPRESSION_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_COMPRESSION_ENABLED));
+    }
+
+    SpoolingResultIterator(SpoolingMetricsHolder sMetrics, MemoryMetricsHolder mMetrics, ResultIterator scanner, MemoryManager mm, final int thresholdBytes, final long maxSpoolToDisk, final String spoolDirectory) throws SQLException {
+        this(sMetrics, mMetrics, scanner, mm, thresholdBytes, maxSpoolToDisk, spoolDirectory, false);
     }
 
     /**
@@ -107,9 +124,10 @@ public class SpoolingResultIterator implements PeekingResultIterator {
     * @param mm memory manager tracking memory usage across threads.
     * @param thresholdBytes the requested threshold.  Will be dialed down if memory usage (as determined by
     *  the memory manager) is exceeded.
+    * @param compressSpool whether to Snappy compress the blocks of the spool file
     * @throws SQLException
     */
-    SpoolingResultIterator(SpoolingMetricsHolder sMetrics, MemoryMetricsHolder mMetrics, ResultIterator scanner, MemoryManager mm, final int thresholdBytes, final long maxSpoolToDisk, final String spoolDirectory) throws SQLException {
+    SpoolingResultIterator(SpoolingMetricsHolder sMetrics, MemoryMetricsHolder mMetrics, ResultIterator scanner, MemoryManager mm, final int thresholdBytes, final long maxSpoolToDisk, final String spoolDirectory, boolean compressSpool) throws SQLException {
         this.spoolMetrics = sMetrics;
         this.memoryMetrics = mMetrics;
         boolean success = false;
@@ -118,21 +136,13 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         long waitTime = System.currentTimeMillis() - startTime;
         GLOBAL_MEMORY_WAIT_TIME.update(waitTime);
         memoryMetrics.getMemoryWaitTimeMetric().change(waitTime);
-        DeferredFileOutputStream spoolTo = null;
+        File spoolFile = null;
+        SpoolFileWriter spoolTo = null;
         try {
             // Can't be bigger than int, since it's the max of the above allocation
             int size = (int)chunk.getSize();
-            spoolTo = new DeferredFileOutputStream(size, "ResultSpooler",".bin", new File(spoolDirectory)) {
-                @Override
-                protected void thresholdReached() throws IOException {
-                    try {
-                        super.thresholdReached();
-                    } finally {
-                        chunk.close();
-                    }
-                }
-            };
-            DataOutputStream out = new DataOutputStream(spoolTo);
+            TrustedByteArrayOutputStream memory = new TrustedByteArrayOutputStream(Math.min(size, SPOOL_BLOCK_SIZE));
+            DataOutputStream out = new DataOutputStream(memory);
             final long maxBytesAllowed = maxSpoolToDisk == -1 ?
             		Long.MAX_VALUE : thresholdBytes + maxSpoolToDisk;
             long bytesWritten = 0L;
@@ -142,23 +152,34 @@ public class SpoolingResultIterator implements PeekingResultIterator {
                 if(bytesWritten > maxBytesAllowed){
                 		throw new SpoolTooBigToDiskException("result too big, max allowed(bytes): " + maxBytesAllowed);
                 }
+                if (spoolTo != null) {
+                    spoolTo.endResult();
+                } else if (memory.size() > size) {
+                    spoolFile = File.createTempFile("ResultSpooler", ".bin", new File(spoolDirectory));
+                    spoolTo = new SpoolFileWriter(spoolFile, compressSpool);
+                    spoolTo.writeResults(memory.getBuffer(), memory.size());
+                    out = spoolTo.getOutput();
+                    memory = null;
+                    chunk.close();
+                }
             }
-            if (spoolTo.isInMemory()) {
-                byte[] data = spoolTo.getData();
-                chunk.resize(data.length);
-                spoolFrom = new InMemoryResultIterator(data, chunk);
+            if (spoolTo == null) {
+                chunk.resize(memory.size());
+                // Copied to its exact size, so that the memory used is what's charged for the chunk
+                byte[] data = memory.toByteArray();
+                memory = null;
+                spoolFrom = new InMemoryResultIterator(data, data.length, chunk);
                 GLOBAL_MEMORY_CHUNK_BYTES.update(data.length);
                 memoryMetrics.getMemoryChunkSizeMetric().change(data.length);
             } else {
-                long sizeOfSpoolFile = spoolTo.getFile().length();
+                spoolTo.finish();
+                long sizeOfSpoolFile = spoolTo.getSize();
                 GLOBAL_SPOOL_FILE_SIZE.update(sizeOfSpoolFile);
                 GLOBAL_SPOOL_FILE_COUNTER.increment();
                 spoolMetrics.getNumSpoolFileMetric().increment();
                 spoolMetrics.getSpoolFileSizeMetric().change(sizeOfSpoolFile);
-                spoolFrom = new OnDiskResultIterator(spoolTo.getFile());
-                if (spoolTo.getFile() != null) {
-                    spoolTo.getFile().deleteOnExit();
-                }
+                spoolFrom = new MappedResultIterator(spoolFile, spoolMetrics);
+                spoolFile.deleteOnExit();
             }
             success = true;
         } catch (IOException e) {
@@ -169,15 +190,15 @@ public class SpoolingResultIterator implements PeekingResultIterator {
             } finally {
                 try {
                     if (spoolTo != null) {
-                        if(!success && spoolTo.getFile() != null){
-                            spoolTo.getFile().delete();
-                        }
                         spoolTo.close();
                     }
                 } catch (IOException ignored) {
                   // ignore close error
                 } finally {
                     if (!success) {
+                        if (spoolFile != null) {
+                            deleteSpoolFile(spoolFile, spoolMetrics);
+                        }
                         chunk.close();
                     }
                 }
@@ -185,6 +206,13 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         }
     }
 
+    private static void deleteSpoolFile(File file, SpoolingMetricsHolder spoolMetrics) {
+        if (file.delete()) {
+            GLOBAL_SPOOL_FILE_DELETED_COUNTER.increment();
+            spoolMetrics.getNumSpoolFileDeletedMetric().increment();
+        }
+    }
+
     @Override
     public Tuple peek() throws SQLException {
         return spoolFrom.peek();
@@ -210,17 +238,19 @@ public class SpoolingResultIterator implements PeekingResultIterator {
     private static class InMemoryResultIterator implements PeekingResultIterator {
         private final MemoryChunk memoryChunk;
         private final byte[] bytes;
+        private final int length;
         private Tuple next;
         private int offset;
 
-        private InMemoryResultIterator(byte[] bytes, MemoryChunk memoryChunk) throws SQLException {
+        private InMemoryResultIterator(byte[] bytes, int length, MemoryChunk memoryChunk) throws SQLException {
             this.bytes = bytes;
+            this.length = length;
             this.memoryChunk = memoryChunk;
             advance();
         }
 
         private Tuple advance() throws SQLException {
-            if (offset >= bytes.length) {
+            if (offset >= length) {
                 return next = null;
             }
             int resultSize = ByteUtil.vintFromBytes(bytes, offset);
@@ -255,24 +285,128 @@ public class SpoolingResultIterator implements PeekingResultIterator {
 
     /**
      *
-     * Backing result iterator if results were spooled to disk
+     * Writes spooled results to a file through a {@link FileChannel}, in blocks of whole results
+     * that are optionally Snappy compressed. Each block is preceded by its uncompressed and
+     * stored lengths, which are equal if the block isn't compressed.
+     *
+     */
+    private static class SpoolFileWriter implements Closeable {
+        private final FileChannel channel;
+        private final boolean compress;
+        private final TrustedByteArrayOutputStream block = new TrustedByteArrayOutputStream(SPOOL_BLOCK_SIZE);
+        private final DataOutputStream out = new DataOutputStream(block);
+        private final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        private byte[] compressed;
+        private long size;
+
+        private SpoolFileWriter(File file, boolean compress) throws IOException {
+            this.channel = new FileOutputStream(file).getChannel();
+            this.compress = compress;
+        }
+
+        private DataOutputStream getOutput() {
+            return out;
+        }
+
+        /**
+         * Write the results serialized in the given bytes, as by {@link TupleUtil#write(Tuple, java.io.DataOutput)}
+         */
+        private void writeResults(byte[] bytes, int length) throws IOException {
+            int offset = 0;
+            while (offset < length) {
+                int resultSize = ByteUtil.vintFromBytes(bytes, offset);
+                int resultLength = WritableUtils.getVIntSize(resultSize) + resultSize;
+                out.write(bytes, offset, resultLength);
+                offset += resultLength;
+                endResult();
+            }
+        }
+
+        /**
+         * Called once a result was written to the output, to write out the block once it's full
+         */
+        private void endResult() throws IOException {
+            if (block.size() >= SPOOL_BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            int rawLength = block.size();
+            if (rawLength == 0) {
+                return;
+            }
+            byte[] data = block.getBuffer();
+            int storedLength = rawLength;
+            if (compress) {
+                int maxLength = Snappy.maxCompressedLength(rawLength);
+                if (compressed == null || compressed.length < maxLength) {
+                    compressed = new byte[maxLength];
+                }
+                int compressedLength = Snappy.compress(data, 0, rawLength, compressed, 0);
+                // Only worth storing compressed if it's smaller
+                if (compressedLength < rawLength) {
+                    data = compressed;
+                    storedLength = compressedLength;
+                }
+            }
+            header.clear();
+            header.putInt(rawLength).putInt(storedLength).flip();
+            ByteBuffer[] buffers = new ByteBuffer[] {header, ByteBuffer.wrap(data, 0, storedLength)};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            size += BLOCK_HEADER_SIZE + storedLength;
+            block.reset();
+        }
+
+        private void finish() throws IOException {
+            writeBlock();
+        }
+
+        private long getSize() {
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     *
+     * Backing result iterator if results were spooled to disk. The spool file is memory mapped
+     * and read a block at a time, with the results of a block backed by a single copy of it.
      *
      *
      * @since 0.1
      */
-    private static class OnDiskResultIterator implements PeekingResultIterator {
+    private static class MappedResultIterator implements PeekingResultIterator {
         private final File file;
-        private DataInputStream spoolFrom;
+        private final SpoolingMetricsHolder spoolMetrics;
+        private FileChannel channel;
+        private long fileSize;
+        private MappedByteBuffer mapped;
+        // Position in the file of the mapped region and of the next block
+        private long mappedPosition;
+        private long position;
+        private byte[] block;
+        private int blockLength;
+        private int offset;
+        private byte[] compressed;
         private Tuple next;
         private boolean isClosed;
 
-        private OnDiskResultIterator (File file) {
+        private MappedResultIterator(File file, SpoolingMetricsHolder spoolMetrics) {
             this.file = file;
+            this.spoolMetrics = spoolMetrics;
         }
 
         private synchronized void init() throws IOException {
-            if (spoolFrom == null) {
-                spoolFrom = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (channel == null && !isClosed) {
+                channel = new FileInputStream(file).getChannel();
+                fileSize = channel.size();
                 advance();
             }
         }
@@ -280,39 +414,68 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         private synchronized void reachedEnd() throws IOException {
             next = null;
             isClosed = true;
+            mapped = null;
+            block = null;
             try {
-                if (spoolFrom != null) {
-                    spoolFrom.close();
+                if (channel != null) {
+                    channel.close();
                 }
             } finally {
-                file.delete();
+                deleteSpoolFile(file, spoolMetrics);
             }
         }
 
+        /**
+         * Get the mapped region positioned at the next block, remapping it unless it holds the
+         * given number of bytes from there
+         */
+        private ByteBuffer map(int length) throws IOException {
+            if (mapped == null || position + length > mappedPosition + mapped.limit()) {
+                long size = Math.min(fileSize - position, Math.max(length, MAX_MAPPED_SIZE));
+                mapped = channel.map(MapMode.READ_ONLY, position, size);
+                mappedPosition = position;
+            }
+            mapped.position((int)(position - mappedPosition));
+            return mapped;
+        }
+
+        private boolean readBlock() throws IOException {
+            if (position >= fileSize) {
+                return false;
+            }
+            ByteBuffer buffer = map(BLOCK_HEADER_SIZE);
+            int rawLength = buffer.getInt();
+            int storedLength = buffer.getInt();
+            position += BLOCK_HEADER_SIZE;
+            buffer = map(storedLength);
+            block = new byte[rawLength];
+            if (storedLength == rawLength) {
+                buffer.get(block);
+            } else {
+                if (compressed == null || compressed.length < storedLength) {
+                    compressed = new byte[storedLength];
+                }
+                buffer.get(compressed, 0, storedLength);
+                Snappy.uncompress(compressed, 0, storedLength, block, 0);
+            }
+            position += storedLength;
+            blockLength = rawLength;
+            offset = 0;
+            return true;
+        }
+
         private synchronized Tuple advance() throws IOException {
             if (isClosed) {
                 return next;
             }
-            int length;
-            try {
-                length = WritableUtils.readVInt(spoolFrom);
-            } catch (EOFException e) {
+            if (offset >= blockLength && !readBlock()) {
                 reachedEnd();
                 return next;
             }
-            int totalBytesRead = 0;
-            int offset = 0;
-            byte[] buffer = new byte[length];
-            while(totalBytesRead < length) {
-                int bytesRead = spoolFrom.read(buffer, offset, length);
-                if (bytesRead == -1) {
-                    reachedEnd();
-                    return next;
-                }
-                offset += bytesRead;
-                totalBytesRead += bytesRead;
-            }
-            next = new ResultTuple(ResultUtil.toResult(new ImmutableBytesWritable(buffer,0,length)));
+            int resultSize = ByteUtil.vintFromBytes(block, offset);
+            offset += WritableUtils.getVIntSize(resultSize);
+            next = new ResultTuple(ResultUtil.toResult(new ImmutableBytesWritable(block, offset, resultSize)));
+            offset += resultSize;
             return next;
         }
 
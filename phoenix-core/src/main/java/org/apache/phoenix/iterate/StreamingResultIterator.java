@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MEMORY_WAIT_TIME;
+
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.monitoring.MemoryMetricsHolder;
+import org.apache.phoenix.monitoring.ReadMetricQueue;
+import org.apache.phoenix.monitoring.SpoolingMetricsHolder;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ServerUtil;
+
+/**
+ *
+ * Result iterator that reads the results of a scan in the background into a bounded in-memory
+ * buffer, so that they can be consumed, for example merge sorted with the results of other
+ * scans, as soon as the first of them arrive. The results are only spooled to disk if the buffer
+ * fills up because the consumer falls behind, in which case the rest of the scan is drained to a
+ * spool file so that the scanner doesn't time out.
+ *
+ * If no thread has picked up the reading of the scan yet when a result is needed, the result is
+ * read by the consumer itself instead of waiting for one.
+ *
+ * @since 4.14
+ */
+@SuppressWarnings("deprecation")
+public class StreamingResultIterator implements PeekingResultIterator {
+
+    public static class StreamingResultIteratorFactory implements ParallelIteratorFactory {
+        private final QueryServices services;
+
+        public StreamingResultIteratorFactory(QueryServices services) {
+            this.services = services;
+        }
+
+        @Override
+        public PeekingResultIterator newIterator(StatementContext context, ResultIterator scanner, Scan scan, String physicalTableName, QueryPlan plan) throws SQLException {
+            ReadMetricQueue readRequestMetric = context.getReadMetricsQueue();
+            SpoolingMetricsHolder spoolMetrics = new SpoolingMetricsHolder(readRequestMetric, physicalTableName);
+            MemoryMetricsHolder memoryMetrics = new MemoryMetricsHolder(readRequestMetric, physicalTableName);
+            return new StreamingResultIterator(spoolMetrics, memoryMetrics, scanner, services.getExecutor(),
+                    services.getMemoryManager(),
+                    services.getProps().getInt(QueryServices.SPOOL_THRESHOLD_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_THRESHOLD_BYTES),
+                    services.getProps().getLong(QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES),
+                    services.getProps().get(QueryServices.SPOOL_DIRECTORY, QueryServicesOptions.DEFAULT_SPOOL_DIRECTORY),
+                    services.getProps().getBoolean(QueryServices.SPOOL_COMPRESSION_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_COMPRESSION_ENABLED));
+        }
+    }
+
+    private final SpoolingMetricsHolder spoolMetrics;
+    private final MemoryMetricsHolder memoryMetrics;
+    private final ResultIterator scanner;
+    private final ExecutorService executor;
+    private final MemoryManager memoryManager;
+    private final MemoryChunk chunk;
+    private final long maxSpoolToDisk;
+    private final String spoolDirectory;
+    private final boolean compressSpool;
+
+    // Guarded by this
+    private final LinkedList<Tuple> buffer = new LinkedList<Tuple>();
+    private long bufferedBytes;
+    // Whether the reader submitted to the executor didn't run yet. At most one is outstanding.
+    private boolean readerQueued;
+    // Whether the executor refused the reader, in which case the consumer reads all results
+    private boolean readerRejected;
+    private boolean reading;
+    private boolean done;
+    private Throwable error;
+    private boolean closed;
+    private boolean scannerClosed;
+    // Rest of the results, once the buffer filled up
+    private PeekingResultIterator overflow;
+
+    /**
+     * @param scanner the results of a table scan, closed once read
+     * @param thresholdBytes the requested size of the buffer, dialed down if memory usage (as
+     * determined by the memory manager) is exceeded
+     */
+    StreamingResultIterator(SpoolingMetricsHolder spoolMetrics, MemoryMetricsHolder memoryMetrics,
+            ResultIterator scanner, ExecutorService executor, MemoryManager mm, int thresholdBytes,
+            long maxSpoolToDisk, String spoolDirectory, boolean compressSpool) throws SQLException {
+        this.spoolMetrics = spoolMetrics;
+        this.memoryMetrics = memoryMetrics;
+        this.scanner = scanner;
+        this.executor = executor;
+        this.memoryManager = mm;
+        this.maxSpoolToDisk = maxSpoolToDisk;
+        this.spoolDirectory = spoolDirectory;
+        this.compressSpool = compressSpool;
+        long startTime = System.currentTimeMillis();
+        this.chunk = mm.allocate(0, thresholdBytes);
+        long waitTime = System.currentTimeMillis() - startTime;
+        GLOBAL_MEMORY_WAIT_TIME.update(waitTime);
+        memoryMetrics.getMemoryWaitTimeMetric().change(waitTime);
+        synchronized (this) {
+            submitReader();
+        }
+    }
+
+    private void submitReader() {
+        Runnable reader = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (StreamingResultIterator.this) {
+                    readerQueued = false;
+                    if (reading) {
+                        // The consumer is reading, and submits the reader again once done
+                        return;
+                    }
+                }
+                read(false);
+            }
+        };
+        readerQueued = true;
+        try {
+            executor.submit(reader);
+        } catch (RejectedExecutionException e) {
+            // The results will be read by the consumer
+            readerQueued = false;
+            readerRejected = true;
+        }
+    }
+
+    private static long sizeOf(Tuple tuple) {
+        long size = 0;
+        for (int i = 0; i < tuple.size(); i++) {
+            size += KeyValueUtil.length(tuple.getValue(i));
+        }
+        return size;
+    }
+
+    /**
+     * Read results into the buffer until the scan is exhausted, or the buffer is full and the rest
+     * of the scan was spooled. Only one thread reads at a time.
+     * @param untilFirst whether to return as soon as a result was buffered
+     */
+    private void read(boolean untilFirst) {
+        synchronized (this) {
+            if (closed || done) {
+                return;
+            }
+            reading = true;
+        }
+        PeekingResultIterator spooled = null;
+        Throwable readError = null;
+        boolean exhausted = false;
+        try {
+            Tuple tuple;
+            while ((tuple = scanner.next()) != null) {
+                long size = sizeOf(tuple);
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    if (bufferedBytes + size <= chunk.getSize()) {
+                        buffer.add(tuple);
+                        bufferedBytes += size;
+                        notifyAll();
+                        if (untilFirst) {
+                            return;
+                        }
+                        continue;
+                    }
+                }
+                // The consumer is falling behind, so drain the rest of the scan to disk
+                spooled = new SpoolingResultIterator(spoolMetrics, memoryMetrics,
+                        new PrefixedResultIterator(tuple, scanner), memoryManager, 0, maxSpoolToDisk, spoolDirectory, compressSpool);
+                break;
+            }
+            exhausted = true;
+        } catch (Throwable t) {
+            readError = t;
+        } finally {
+            synchronized (this) {
+                reading = false;
+                if (exhausted || readError != null) {
+                    done = true;
+                    error = readError;
+                    overflow = spooled;
+                    // The spooling iterator closes the scanner once it drained it
+                    scannerClosed |= spooled != null;
+                }
+                notifyAll();
+            }
+            if (exhausted && spooled == null) {
+                closeScanner();
+            }
+        }
+    }
+
+    private void closeScanner() {
+        synchronized (this) {
+            if (scannerClosed) {
+                return;
+            }
+            scannerClosed = true;
+        }
+        try {
+            scanner.close();
+        } catch (SQLException e) {
+            synchronized (this) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until a result is buffered or the scan was read in full
+     */
+    private synchronized void awaitResult() throws SQLException {
+        while (buffer.isEmpty() && !done) {
+            if (!reading) {
+                // Not picked up by any thread yet, so read the next result in this one. The queued
+                // reader carries on from there once it runs, so it's only submitted again if it
+                // already ran while this thread was reading.
+                read(true);
+                if (!done && !closed && !readerQueued && !readerRejected) {
+                    submitReader();
+                }
+            } else {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                            .setRootCause(e).build().buildException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized Tuple peek() throws SQLException {
+        awaitResult();
+        if (!buffer.isEmpty()) {
+            return buffer.getFirst();
+        }
+        if (error != null) {
+            throw ServerUtil.parseServerException(error);
+        }
+        return overflow == null ? null : overflow.peek();
+    }
+
+    @Override
+    public synchronized Tuple next() throws SQLException {
+        awaitResult();
+        if (!buffer.isEmpty()) {
+            Tuple tuple = buffer.removeFirst();
+            bufferedBytes -= sizeOf(tuple);
+            return tuple;
+        }
+        if (error != null) {
+            throw ServerUtil.parseServerException(error);
+        }
+        return overflow == null ? null : overflow.next();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        PeekingResultIterator overflow;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Let a thread reading stop before closing the scanner underneath it
+            while (reading) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            buffer.clear();
+            bufferedBytes = 0;
+            overflow = this.overflow;
+        }
+        try {
+            closeScanner();
+            if (overflow != null) {
+                overflow.close();
+            }
+        } finally {
+            chunk.close();
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+    }
+
+    /**
+     * Iterator through a result already read from a scanner, followed by the rest of the scanner
+     */
+    private static class PrefixedResultIterator implements ResultIterator {
+        private final ResultIterator scanner;
+        private Tuple first;
+
+        private PrefixedResultIterator(Tuple first, ResultIterator scanner) {
+            this.first = first;
+            this.scanner = scanner;
+        }
+
+        @Override
+        public Tuple next() throws SQLException {
+            if (first != null) {
+                Tuple tuple = first;
+                first = null;
+                return tuple;
+            }
+            return scanner.next();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            scanner.close();
+        }
+
+        @Override
+        public void explain(List<String> planSteps) {
+            scanner.explain(planSteps);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -50,12 +51,16 @@ import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.StaleRegionBoundaryCacheException;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.Closeables;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
@@ -97,9 +102,18 @@ public class TableResultIterator implements ResultIterator {
     private int retry;
     private Map<ImmutableBytesPtr,ServerCache> caches;
     private HashCacheClient hashCacheClient;
+    private final ExecutorService prefetchExecutor;
+    private final long targetResultBytes;
+    private long avgRowBytes;
+    private final boolean isScanSizingEnabled;
+    private final boolean isCachingSet;
 
     @VisibleForTesting // Exposed for testing. DON'T USE ANYWHERE ELSE!
     TableResultIterator() {
+        this.prefetchExecutor = null;
+        this.targetResultBytes = 0;
+        this.isScanSizingEnabled = false;
+        this.isCachingSet = false;
         this.scanMetricsHolder = null;
         this.renewLeaseThreshold = 0;
         this.htable = null;
@@ -131,8 +145,37 @@ public class TableResultIterator implements ResultIterator {
         this.scanGrouper = scanGrouper;
         this.hashCacheClient = new HashCacheClient(plan.getContext().getConnection());
         this.caches = caches;
-        this.retry=plan.getContext().getConnection().getQueryServices().getProps()
-                .getInt(QueryConstants.HASH_JOIN_CACHE_RETRIES, QueryConstants.DEFAULT_HASH_JOIN_CACHE_RETRIES);
+        ReadOnlyProps props = plan.getContext().getConnection().getQueryServices().getProps();
+        this.retry=props.getInt(QueryConstants.HASH_JOIN_CACHE_RETRIES, QueryConstants.DEFAULT_HASH_JOIN_CACHE_RETRIES);
+        this.targetResultBytes = props.getLong(QueryServices.SCAN_TARGET_RESULT_BYTES_ATTRIB,
+                QueryServicesOptions.DEFAULT_SCAN_TARGET_RESULT_BYTES);
+        // A small scan returns all of its rows in a single RPC, so there is nothing to prefetch
+        this.prefetchExecutor = props.getBoolean(QueryServices.SCAN_PREFETCH_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_SCAN_PREFETCH_ENABLED) && !scan.isSmall()
+                ? plan.getContext().getConnection().getQueryServices().getExecutor() : null;
+        // Estimated from the schema until rows have been read
+        this.avgRowBytes = SchemaUtil.estimateRowSize(table);
+        // Sizing scans by bytes overrides the configured number of rows per RPC, so it is opt-in
+        this.isScanSizingEnabled = props.getBoolean(QueryServices.SCAN_SIZING_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_SCAN_SIZING_ENABLED);
+        // The number of rows per RPC is kept if it was set on the statement or configured
+        this.isCachingSet = plan.getContext().getStatement().isFetchSizeSet()
+                || props.getInt(QueryServices.SCAN_CACHE_SIZE_ATTRIB,
+                        QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE) != QueryServicesOptions.DEFAULT_SCAN_CACHE_SIZE;
+    }
+
+    private ScanningResultIterator newScanningResultIterator(Scan scan) throws IOException {
+        if (scanIterator instanceof ScanningResultIterator) {
+            long observedRowBytes = ((ScanningResultIterator)scanIterator).getAverageRowBytes();
+            if (observedRowBytes > 0) {
+                avgRowBytes = observedRowBytes;
+            }
+        }
+        if (isScanSizingEnabled) {
+            ScanningResultIterator.sizeScan(scan, targetResultBytes, avgRowBytes, isCachingSet);
+        }
+        return new ScanningResultIterator(htable.getScanner(scan), scan, scanMetricsHolder, prefetchExecutor,
+                targetResultBytes);
     }
 
     @Override
@@ -216,8 +259,7 @@ public class TableResultIterator implements ResultIterator {
                                     if(ScanUtil.isLocalIndex(newScan)) {
                                         throw e;
                                     }
-                                    this.scanIterator =
-                                            new ScanningResultIterator(htable.getScanner(newScan), newScan, scanMetricsHolder);
+                                    this.scanIterator = newScanningResultIterator(newScan);
                                 } else {
                                     this.scanIterator = plan.iterator(scanGrouper, newScan);
                                 }
@@ -246,8 +288,7 @@ public class TableResultIterator implements ResultIterator {
             ResultIterator delegate = this.scanIterator;
             if (delegate == UNINITIALIZED_SCANNER) {
                 try {
-                    this.scanIterator =
-                            new ScanningResultIterator(htable.getScanner(scan), scan, scanMetricsHolder);
+                    this.scanIterator = newScanningResultIterator(scan);
                 } catch (IOException e) {
                     Closeables.closeQuietly(htable);
                     throw ServerUtil.parseServerException(e);
@@ -280,8 +321,7 @@ public class TableResultIterator implements ResultIterator {
                 }
                 if (scanIterator instanceof ScanningResultIterator
                         && ((ScanningResultIterator)scanIterator).getScanner() instanceof AbstractClientScanner) {
-                    // Need this explicit cast because HBase's ResultScanner doesn't have this method exposed.
-                    boolean leaseRenewed = ((AbstractClientScanner)((ScanningResultIterator)scanIterator).getScanner()).renewLease();
+                    boolean leaseRenewed = ((ScanningResultIterator)scanIterator).renewLease();
                     if (leaseRenewed) {
                         renewLeaseTime = now();
                         return RENEWED;
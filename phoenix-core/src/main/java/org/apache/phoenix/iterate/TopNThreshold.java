@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.coprocessor.ScanRegionObserver;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import org.apache.phoenix.schema.tuple.Tuple;
+
+import com.google.common.collect.Lists;
+
+/**
+ *
+ * Threshold shared by the region scans of a query with an ORDER BY and a LIMIT. Each region
+ * returns its own top rows, so once a region returned as many rows as the limit, any row sorting
+ * after the last of them can't be part of the query results. The smallest such sort key seen so
+ * far is passed to the region scans opened afterwards, letting them skip those rows instead of
+ * sorting and returning them.
+ *
+ * An open HBase scanner can't be updated, so the scans already running when the threshold is
+ * found still return their top rows in full.
+ *
+ * @since 4.14
+ */
+public class TopNThreshold {
+
+    public static class TopNThresholdIteratorFactory implements ParallelIteratorFactory {
+        private final ParallelIteratorFactory delegate;
+        private final TopNThreshold threshold;
+
+        /**
+         * @param limit the number of rows returned by each region, including any offset
+         */
+        public TopNThresholdIteratorFactory(ParallelIteratorFactory delegate,
+                List<OrderByExpression> orderByExpressions, int limit) {
+            this.delegate = delegate;
+            this.threshold = new TopNThreshold(orderByExpressions, limit);
+        }
+
+        @Override
+        public PeekingResultIterator newIterator(StatementContext context, ResultIterator scanner, Scan scan, String physicalTableName, QueryPlan plan) throws SQLException {
+            return delegate.newIterator(context, threshold.new ThresholdResultIterator(scanner, scan), scan,
+                    physicalTableName, plan);
+        }
+    }
+
+    private final List<Expression> expressions;
+    private final Comparator<ResultEntry> comparator;
+    private final int limit;
+
+    // Guarded by this
+    private ResultEntry threshold;
+
+    TopNThreshold(List<OrderByExpression> orderByExpressions, int limit) {
+        this.expressions = Lists.newArrayListWithExpectedSize(orderByExpressions.size());
+        for (OrderByExpression orderByExpression : orderByExpressions) {
+            expressions.add(orderByExpression.getExpression());
+        }
+        this.comparator = OrderedResultIterator.buildComparator(orderByExpressions);
+        this.limit = limit;
+    }
+
+    /**
+     * Offer the last row returned by a region, lowering the threshold if it sorts before it
+     */
+    synchronized void offer(Tuple result) {
+        // Evaluated under the lock as the expressions are shared by the scans
+        ImmutableBytesWritable[] sortKeys = OrderedResultIterator.evaluateSortKeys(expressions, result);
+        for (int i = 0; i < sortKeys.length; i++) {
+            if (sortKeys[i] != null) {
+                // Don't hold on to the row the sort key points into
+                sortKeys[i] = new ImmutableBytesWritable(sortKeys[i].copyBytes());
+            }
+        }
+        ResultEntry entry = new ResultEntry(sortKeys, null);
+        if (threshold == null || comparator.compare(entry, threshold) < 0) {
+            threshold = entry;
+        }
+    }
+
+    /**
+     * Pass the threshold, if known, to a region scan about to be opened
+     */
+    void applyTo(Scan scan) {
+        ResultEntry threshold;
+        synchronized (this) {
+            threshold = this.threshold;
+        }
+        if (threshold != null) {
+            ScanRegionObserver.serializeTopNThresholdIntoScan(scan, threshold.sortKeys);
+        }
+    }
+
+    /**
+     * Iterator through the results of a region scan, applying the threshold when the scan is
+     * opened and offering its last row if the region returned as many rows as the limit
+     */
+    private class ThresholdResultIterator implements ResultIterator {
+        private final ResultIterator scanner;
+        private final Scan scan;
+        private int count;
+
+        private ThresholdResultIterator(ResultIterator scanner, Scan scan) {
+            this.scanner = scanner;
+            this.scan = scan;
+        }
+
+        @Override
+        public Tuple next() throws SQLException {
+            if (count == 0) {
+                // The scanner is opened by its first next
+                applyTo(scan);
+            }
+            Tuple result = scanner.next();
+            if (result != null && ++count == limit) {
+                offer(result);
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            scanner.close();
+        }
+
+        @Override
+        public void explain(List<String> planSteps) {
+            scanner.explain(planSteps);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.InListExpression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.OrExpression;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.filter.BooleanExpressionFilter;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
+import org.apache.phoenix.schema.PTable.IndexType;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.stats.ZoneMap;
+import org.apache.phoenix.schema.types.PBinary;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.ScanUtil;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Decides from the zone maps collected with the guideposts whether a guidepost chunk may hold
+ * rows satisfying the filter of a scan. Only comparisons of key value columns of the column
+ * family of the guideposts against constants and IN lists are checked, and conjunctions and
+ * disjunctions of those. The chunks of a table with immutable rows whose rows can't match
+ * only need their cells from the cutoff timestamp of their zone map on to be scanned.
+ *
+ * This assumes that every cell written after the cutoff was taken on the region server has a
+ * later timestamp, and that a row has all its cells written at once. Rows written through a
+ * CurrentSCN connection, bulk loaded HFiles and partial upserts break that assumption, and
+ * their older cells are not returned, so the pruning is off unless
+ * {@link QueryServices#USE_STATS_ZONE_MAPS_ATTRIB} is set.
+ *
+ * @since 4.14
+ */
+public class ZoneMapPruner {
+    private final List<Expression> conjuncts;
+    private final byte[] columnFamily;
+
+    private ZoneMapPruner(List<Expression> conjuncts, byte[] columnFamily) {
+        this.conjuncts = conjuncts;
+        this.columnFamily = columnFamily;
+    }
+
+    /**
+     * @return whether the chunks of the given table may be pruned. Tables with a ROW_TIMESTAMP
+     *         column are written with timestamps of the past, and columns packed into a single
+     *         cell have no zone maps.
+     */
+    public static boolean canPrune(PTable table) {
+        return table.isImmutableRows() && !table.isTransactional() && table.getIndexType() != IndexType.LOCAL
+                && table.getRowTimestampColPos() == -1
+                && table.getImmutableStorageScheme() != ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS;
+    }
+
+    /**
+     * @return the pruner for the filter of the given scan, or null if the filter has no
+     *         expression to evaluate against zone maps
+     */
+    public static ZoneMapPruner newPruner(Scan scan, byte[] columnFamily) {
+        List<Expression> conjuncts = Lists.newArrayListWithExpectedSize(1);
+        addConjuncts(scan.getFilter(), conjuncts);
+        return conjuncts.isEmpty() ? null : new ZoneMapPruner(conjuncts, columnFamily);
+    }
+
+    private static void addConjuncts(Filter filter, List<Expression> conjuncts) {
+        if (filter instanceof BooleanExpressionFilter) {
+            conjuncts.add(((BooleanExpressionFilter) filter).getExpression());
+        } else if (filter instanceof FilterList
+                && ((FilterList) filter).getOperator() == FilterList.Operator.MUST_PASS_ALL) {
+            for (Filter f : ((FilterList) filter).getFilters()) {
+                addConjuncts(f, conjuncts);
+            }
+        }
+    }
+
+    /**
+     * Restrict the scan of a chunk to the cells from the cutoff timestamp of its zone map on if
+     * none of the rows the zone map covers can satisfy the filter. Rows written later are still
+     * returned, as a table with immutable rows has all the cells of a row written at once.
+     *
+     * @param chunkScan the scan of the chunk
+     * @param zoneMap the zone map of the chunk ending at the guidepost, or null if none
+     * @return true if the scan was restricted
+     */
+    public boolean prune(Scan chunkScan, ZoneMap zoneMap) {
+        if (zoneMap == null || Bytes.compareTo(chunkScan.getStartRow(), zoneMap.getStartRow()) < 0) {
+            // The chunk may hold rows that were tracked by the zone map of another chunk
+            return false;
+        }
+        long cutoffTimestamp = zoneMap.getCutoffTimestamp();
+        TimeRange timeRange = chunkScan.getTimeRange();
+        // Rows deleted since the stats were collected may be visible at an earlier time
+        if (timeRange.getMax() <= cutoffTimestamp || timeRange.getMin() >= cutoffTimestamp) {
+            return false;
+        }
+        for (Expression conjunct : conjuncts) {
+            if (!mayMatch(conjunct, zoneMap)) {
+                ScanUtil.setTimeRange(chunkScan, cutoffTimestamp, timeRange.getMax());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if no row whose values are within the zone map satisfies the expression
+     */
+    private boolean mayMatch(Expression expression, ZoneMap zoneMap) {
+        if (expression instanceof AndExpression) {
+            for (Expression child : expression.getChildren()) {
+                if (!mayMatch(child, zoneMap)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (expression instanceof OrExpression) {
+            for (Expression child : expression.getChildren()) {
+                if (mayMatch(child, zoneMap)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (expression instanceof InListExpression) {
+            Expression column = expression.getChildren().get(0);
+            KeyRange range = getColumnRange(column, zoneMap);
+            if (range == null) {
+                return true;
+            }
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            for (Expression value : ((InListExpression) expression).getKeyExpressions()) {
+                if (!isComparable(column, value, ptr) || mayMatch(range, CompareOp.EQUAL, ptr)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (expression instanceof ComparisonExpression) {
+            Expression column = expression.getChildren().get(0);
+            KeyRange range = getColumnRange(column, zoneMap);
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            return range == null || !isComparable(column, expression.getChildren().get(1), ptr)
+                    || mayMatch(range, ((ComparisonExpression) expression).getFilterOp(), ptr);
+        }
+        return true;
+    }
+
+    private KeyRange getColumnRange(Expression expression, ZoneMap zoneMap) {
+        // Values are only tracked for columns stored in their own cell
+        if (!(expression instanceof KeyValueColumnExpression)
+                || expression instanceof SingleCellColumnExpression) {
+            return null;
+        }
+        KeyValueColumnExpression column = (KeyValueColumnExpression) expression;
+        PDataType type = column.getDataType();
+        // Padded values and arrays aren't compared by their bytes alone
+        if (type.isArrayType() || type == PChar.INSTANCE || type == PBinary.INSTANCE
+                || !Bytes.equals(column.getColumnFamily(), columnFamily)) {
+            return null;
+        }
+        return zoneMap.getColumnRange(column.getColumnQualifier());
+    }
+
+    /**
+     * @return true if the value is a non null constant compared with the column by its bytes,
+     *         which are then set in the given pointer
+     */
+    private static boolean isComparable(Expression column, Expression value, ImmutableBytesWritable ptr) {
+        return value instanceof LiteralExpression && value.getDataType() == column.getDataType()
+                && value.getSortOrder() == SortOrder.ASC && value.evaluate(null, ptr) && ptr.getLength() != 0;
+    }
+
+    private static boolean mayMatch(KeyRange range, CompareOp op, ImmutableBytesWritable ptr) {
+        byte[] min = range.getLowerRange();
+        byte[] max = range.getUpperRange();
+        int minComparedToValue = Bytes.compareTo(min, 0, min.length, ptr.get(), ptr.getOffset(), ptr.getLength());
+        int maxComparedToValue = Bytes.compareTo(max, 0, max.length, ptr.get(), ptr.getOffset(), ptr.getLength());
+        switch (op) {
+        case EQUAL:
+            return minComparedToValue <= 0 && maxComparedToValue >= 0;
+        case NOT_EQUAL:
+            return minComparedToValue != 0 || maxComparedToValue != 0;
+        case LESS:
+            return minComparedToValue < 0;
+        case LESS_OR_EQUAL:
+            return minComparedToValue <= 0;
+        case GREATER:
+            return maxComparedToValue > 0;
+        case GREATER_OR_EQUAL:
+            return maxComparedToValue >= 0;
+        default:
+            return true;
+        }
+    }
+}
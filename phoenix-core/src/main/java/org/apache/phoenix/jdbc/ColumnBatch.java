@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.compile.ColumnProjector;
+import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBinary;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDataType.PDataCodec;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
+import org.apache.phoenix.schema.types.PVarbinary;
+import org.apache.phoenix.schema.types.PVarchar;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ *
+ * Rows of a result set read in bulk through {@link PhoenixResultSet#nextBatch(int)}, stored
+ * by column. Integral and floating point columns are decoded into primitive arrays, and
+ * variable length character and binary columns are copied into a single buffer, without
+ * going through the per cell JDBC getters. Other columns are kept as objects.
+ *
+ * The buffers follow the Arrow columnar layout: the validity of each row is a bit, least
+ * significant bit first, set when the row has a value, and the values of a variable length
+ * column are addressed by start offsets, with one more offset than rows. Connectors can
+ * hand them to Arrow vectors without Phoenix depending on Arrow.
+ *
+ *
+ * @since 4.14
+ */
+public class ColumnBatch {
+    private static final Set<PDataType> INTEGRAL_TYPES = ImmutableSet.<PDataType>of(
+            PLong.INSTANCE, PUnsignedLong.INSTANCE, PInteger.INSTANCE, PUnsignedInt.INSTANCE,
+            PSmallint.INSTANCE, PUnsignedSmallint.INSTANCE, PTinyint.INSTANCE, PUnsignedTinyint.INSTANCE);
+    private static final Set<PDataType> FLOATING_POINT_TYPES = ImmutableSet.<PDataType>of(
+            PDouble.INSTANCE, PUnsignedDouble.INSTANCE, PFloat.INSTANCE, PUnsignedFloat.INSTANCE);
+    private static final Set<PDataType> VARIABLE_LENGTH_TYPES = ImmutableSet.<PDataType>of(
+            PVarchar.INSTANCE, PVarbinary.INSTANCE, PBinary.INSTANCE);
+
+    private final ColumnVector[] columns;
+    private int rowCount;
+
+    ColumnBatch(RowProjector rowProjector, int capacity) {
+        this.columns = new ColumnVector[rowProjector.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = newColumnVector(rowProjector.getColumnProjector(i), capacity);
+        }
+    }
+
+    private static ColumnVector newColumnVector(ColumnProjector projector, int capacity) {
+        PDataType type = projector.getExpression().getDataType();
+        if (INTEGRAL_TYPES.contains(type)) {
+            return new LongColumnVector(projector, capacity);
+        }
+        if (FLOATING_POINT_TYPES.contains(type)) {
+            return new DoubleColumnVector(projector, capacity);
+        }
+        if (VARIABLE_LENGTH_TYPES.contains(type)) {
+            return new BytesColumnVector(projector, capacity);
+        }
+        return new ObjectColumnVector(projector, capacity);
+    }
+
+    void add(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        for (ColumnVector column : columns) {
+            column.add(rowCount, tuple, ptr);
+        }
+        rowCount++;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Get the values of a column
+     * @param columnIndex the first column is 1, the second is 2, ...
+     */
+    public ColumnVector getColumn(int columnIndex) {
+        return columns[columnIndex - 1];
+    }
+
+    /**
+     *
+     * Values of a column for the rows of a batch.
+     *
+     *
+     * @since 4.14
+     */
+    public static abstract class ColumnVector {
+        protected final ColumnProjector projector;
+        private final byte[] validity;
+        private int nullCount;
+
+        private ColumnVector(ColumnProjector projector, int capacity) {
+            this.projector = projector;
+            this.validity = new byte[(capacity + 7) / 8];
+        }
+
+        public String getName() {
+            return projector.getName();
+        }
+
+        public PDataType getDataType() {
+            return projector.getExpression().getDataType();
+        }
+
+        public boolean isNull(int row) {
+            return (validity[row >>> 3] & (1 << (row & 7))) == 0;
+        }
+
+        public int getNullCount() {
+            return nullCount;
+        }
+
+        /**
+         * Get the validity bitmap, in which the bit of a row is set if it isn't null
+         */
+        public byte[] getValidityBuffer() {
+            return validity;
+        }
+
+        private void add(int row, Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+            if (addValue(row, tuple, ptr)) {
+                validity[row >>> 3] |= 1 << (row & 7);
+            } else {
+                nullCount++;
+            }
+        }
+
+        /**
+         * Add the value of the column for a row
+         * @return false if the value is null
+         */
+        abstract boolean addValue(int row, Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    }
+
+    /**
+     *
+     * Values of an integral column, widened to longs.
+     *
+     *
+     * @since 4.14
+     */
+    public static class LongColumnVector extends ColumnVector {
+        private final long[] values;
+        private final PDataCodec codec;
+        private final SortOrder sortOrder;
+
+        private LongColumnVector(ColumnProjector projector, int capacity) {
+            super(projector, capacity);
+            this.values = new long[capacity];
+            this.codec = getDataType().getCodec();
+            this.sortOrder = projector.getExpression().getSortOrder();
+        }
+
+        @Override
+        boolean addValue(int row, Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+            if (!projector.evaluate(tuple, ptr)) {
+                return false;
+            }
+            values[row] = codec.decodeLong(ptr, sortOrder);
+            return true;
+        }
+
+        /**
+         * Get the value of a row, or zero if it is null
+         */
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        public long[] getValues() {
+            return values;
+        }
+    }
+
+    /**
+     *
+     * Values of a floating point column, widened to doubles.
+     *
+     *
+     * @since 4.14
+     */
+    public static class DoubleColumnVector extends ColumnVector {
+        private final double[] values;
+        private final PDataCodec codec;
+        private final SortOrder sortOrder;
+
+        private DoubleColumnVector(ColumnProjector projector, int capacity) {
+            super(projector, capacity);
+            this.values = new double[capacity];
+            this.codec = getDataType().getCodec();
+            this.sortOrder = projector.getExpression().getSortOrder();
+        }
+
+        @Override
+        boolean addValue(int row, Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+            if (!projector.evaluate(tuple, ptr)) {
+                return false;
+            }
+            values[row] = codec.decodeDouble(ptr, sortOrder);
+            return true;
+        }
+
+        /**
+         * Get the value of a row, or zero if it is null
+         */
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+    }
+
+    /**
+     *
+     * Values of a variable length character or binary column, copied back to back into a
+     * single buffer. Characters are encoded in UTF-8.
+     *
+     *
+     * @since 4.14
+     */
+    public static class BytesColumnVector extends ColumnVector {
+        private static final int INITIAL_BYTES_PER_VALUE = 16;
+        private final int[] offsets;
+        private final boolean isDescending;
+        private byte[] data;
+
+        private BytesColumnVector(ColumnProjector projector, int capacity) {
+            super(projector, capacity);
+            this.offsets = new int[capacity + 1];
+            this.isDescending = projector.getExpression().getSortOrder() == SortOrder.DESC;
+            this.data = new byte[Math.min(capacity, 1024) * INITIAL_BYTES_PER_VALUE];
+        }
+
+        @Override
+        boolean addValue(int row, Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+            int offset = offsets[row];
+            if (!projector.evaluate(tuple, ptr)) {
+                offsets[row + 1] = offset;
+                return false;
+            }
+            int length = ptr.getLength();
+            if (offset + length > data.length) {
+                data = Arrays.copyOf(data, Math.max(offset + length, data.length * 2));
+            }
+            if (isDescending) {
+                SortOrder.invert(ptr.get(), ptr.getOffset(), data, offset, length);
+            } else {
+                System.arraycopy(ptr.get(), ptr.getOffset(), data, offset, length);
+            }
+            offsets[row + 1] = offset + length;
+            return true;
+        }
+
+        /**
+         * Point ptr to the value of a row, left empty if it is null
+         */
+        public void getBytes(int row, ImmutableBytesWritable ptr) {
+            ptr.set(data, offsets[row], offsets[row + 1] - offsets[row]);
+        }
+
+        /**
+         * Get the start offsets of the values within {@link #getDataBuffer()}, followed by
+         * the end offset of the last value
+         */
+        public int[] getOffsetBuffer() {
+            return offsets;
+        }
+
+        public byte[] getDataBuffer() {
+            return data;
+        }
+    }
+
+    /**
+     *
+     * Values of a column of any other type, as returned by {@link PhoenixResultSet#getObject(int)}.
+     *
+     *
+     * @since 4.14
+     */
+    public static class ObjectColumnVector extends ColumnVector {
+        private final Object[] values;
+
+        private ObjectColumnVector(ColumnProjector projector, int capacity) {
+            super(projector, capacity);
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        boolean addValue(int row, Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+            Object value = projector.getValue(tuple, getDataType(), ptr);
+            values[row] = value;
+            return value != null;
+        }
+
+        public Object getObject(int row) {
+            return values[row];
+        }
+    }
+}
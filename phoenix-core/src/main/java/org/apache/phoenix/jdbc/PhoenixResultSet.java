@@ -40,6 +40,7 @@ import java.sql.Timestamp;
 import java.text.Format;
 import java.util.Calendar;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -60,6 +61,7 @@ import org.apache.phoenix.schema.tuple.ResultTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDataType.PDataCodec;
 import org.apache.phoenix.schema.types.PDate;
 import org.apache.phoenix.schema.types.PDecimal;
 import org.apache.phoenix.schema.types.PDouble;
@@ -70,12 +72,19 @@ import org.apache.phoenix.schema.types.PSmallint;
 import org.apache.phoenix.schema.types.PTime;
 import org.apache.phoenix.schema.types.PTimestamp;
 import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
 import org.apache.phoenix.schema.types.PVarbinary;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.util.SQLCloseable;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
 
 
 
@@ -113,6 +122,11 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     private final static BigDecimal BIG_DECIMAL_FALSE = BigDecimal.valueOf(0);
     private final static Integer INTEGER_FALSE = Integer.valueOf(0);
     private final static Tuple BEFORE_FIRST = ResultTuple.EMPTY_TUPLE;
+    // Fixed width numeric types whose codec converts between any of them without boxing
+    private final static Set<PDataType> PRIMITIVE_TYPES = ImmutableSet.<PDataType>of(
+            PLong.INSTANCE, PUnsignedLong.INSTANCE, PInteger.INSTANCE, PUnsignedInt.INSTANCE,
+            PSmallint.INSTANCE, PUnsignedSmallint.INSTANCE, PTinyint.INSTANCE, PUnsignedTinyint.INSTANCE,
+            PDouble.INSTANCE, PUnsignedDouble.INSTANCE, PFloat.INSTANCE, PUnsignedFloat.INSTANCE);
 
     private final ResultIterator scanner;
     private final RowProjector rowProjector;
@@ -177,6 +191,7 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
         } finally {
             isClosed = true;
             statement.getResultSets().remove(this);
+            overAllQueryMetrics.updateNumRowsReturned(count);
             overAllQueryMetrics.endQuery();
             overAllQueryMetrics.stopResultSetWatch();
             if (!queryLogger.isSynced()) {
@@ -347,7 +362,19 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     public byte getByte(int columnIndex) throws SQLException {
 //        throw new SQLFeatureNotSupportedException();
         checkCursorState();
-        Byte value = (Byte)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow,
+        ColumnProjector projector = rowProjector.getColumnProjector(columnIndex-1);
+        PDataCodec codec = evaluatePrimitive(projector);
+        if (codec != null) {
+            try {
+                return wasNull ? 0 : codec.decodeByte(ptr, projector.getExpression().getSortOrder());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        Byte value = (Byte)projector.getValue(currentRow,
             PTinyint.INSTANCE, ptr);
         wasNull = (value == null);
         if (value == null) {
@@ -429,7 +456,19 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public double getDouble(int columnIndex) throws SQLException {
         checkCursorState();
-        Double value = (Double)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow,
+        ColumnProjector projector = rowProjector.getColumnProjector(columnIndex-1);
+        PDataCodec codec = evaluatePrimitive(projector);
+        if (codec != null) {
+            try {
+                return wasNull ? 0 : codec.decodeDouble(ptr, projector.getExpression().getSortOrder());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        Double value = (Double)projector.getValue(currentRow,
             PDouble.INSTANCE, ptr);
         wasNull = (value == null);
         if (value == null) {
@@ -456,7 +495,19 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public float getFloat(int columnIndex) throws SQLException {
         checkCursorState();
-        Float value = (Float)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow,
+        ColumnProjector projector = rowProjector.getColumnProjector(columnIndex-1);
+        PDataCodec codec = evaluatePrimitive(projector);
+        if (codec != null) {
+            try {
+                return wasNull ? 0 : codec.decodeFloat(ptr, projector.getExpression().getSortOrder());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        Float value = (Float)projector.getValue(currentRow,
             PFloat.INSTANCE, ptr);
         wasNull = (value == null);
         if (value == null) {
@@ -478,7 +529,19 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public int getInt(int columnIndex) throws SQLException {
         checkCursorState();
-        Integer value = (Integer)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow,
+        ColumnProjector projector = rowProjector.getColumnProjector(columnIndex-1);
+        PDataCodec codec = evaluatePrimitive(projector);
+        if (codec != null) {
+            try {
+                return wasNull ? 0 : codec.decodeInt(ptr, projector.getExpression().getSortOrder());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        Integer value = (Integer)projector.getValue(currentRow,
             PInteger.INSTANCE, ptr);
         wasNull = (value == null);
         if (value == null) {
@@ -495,7 +558,19 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public long getLong(int columnIndex) throws SQLException {
         checkCursorState();
-        Long value = (Long)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow,
+        ColumnProjector projector = rowProjector.getColumnProjector(columnIndex-1);
+        PDataCodec codec = evaluatePrimitive(projector);
+        if (codec != null) {
+            try {
+                return wasNull ? 0 : codec.decodeLong(ptr, projector.getExpression().getSortOrder());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        Long value = (Long)projector.getValue(currentRow,
             PLong.INSTANCE, ptr);
         wasNull = (value == null);
         if (value == null) {
@@ -607,7 +682,19 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public short getShort(int columnIndex) throws SQLException {
         checkCursorState();
-        Short value = (Short)rowProjector.getColumnProjector(columnIndex-1).getValue(currentRow, PSmallint.INSTANCE, ptr);
+        ColumnProjector projector = rowProjector.getColumnProjector(columnIndex-1);
+        PDataCodec codec = evaluatePrimitive(projector);
+        if (codec != null) {
+            try {
+                return wasNull ? 0 : codec.decodeShort(ptr, projector.getExpression().getSortOrder());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        Short value = (Short)projector.getValue(currentRow, PSmallint.INSTANCE, ptr);
         wasNull = (value == null);
         if (value == null) {
             return 0;
@@ -790,10 +877,51 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
         throw new SQLFeatureNotSupportedException();
     }
 
+    /**
+     * Evaluate the column into ptr if it is of a fixed width numeric type, so that the typed
+     * getters can decode its value without boxing it, and set wasNull accordingly.
+     * @return the codec to decode the value with, or null if the value has to be read through
+     *         {@link ColumnProjector#getValue(Tuple, PDataType, ImmutableBytesWritable)}
+     */
+    private PDataCodec evaluatePrimitive(ColumnProjector projector) throws SQLException {
+        PDataType type = projector.getExpression().getDataType();
+        if (!PRIMITIVE_TYPES.contains(type)) {
+            return null;
+        }
+        wasNull = !projector.evaluate(currentRow, ptr);
+        return type.getCodec();
+    }
+
     public Tuple getCurrentRow() {
         return currentRow;
     }
 
+    /**
+     * Read up to maxRows rows into column vectors, decoding the projected values directly
+     * instead of through the per cell getters. Afterwards the result set is positioned on the
+     * last row read.
+     * @param maxRows maximum number of rows to read
+     * @return the rows read, none once the result set is exhausted
+     * @throws SQLException
+     */
+    public ColumnBatch nextBatch(int maxRows) throws SQLException {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("Maximum number of rows (" + maxRows + ") must be greater than zero");
+        }
+        ColumnBatch batch = new ColumnBatch(rowProjector, maxRows);
+        while (batch.getRowCount() < maxRows && next()) {
+            try {
+                batch.add(currentRow, ptr);
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return batch;
+    }
+
     @Override
     public boolean next() throws SQLException {
         checkOpen();
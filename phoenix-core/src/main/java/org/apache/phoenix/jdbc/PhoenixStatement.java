@@ -321,7 +321,7 @@ public class PhoenixStatement implements Statement, SQLCloseable {
                             queryLogger.log(QueryLogInfo.GLOBAL_SCAN_DETAILS_I, context.getScan()!=null?context.getScan().toString():null);
                         }
                         context.getOverallQueryMetrics().startQuery();
-                        PhoenixResultSet rs = newResultSet(resultIterator, plan.getProjector(), plan.getContext());
+                        PhoenixResultSet rs = newResultSet(resultIterator, plan.getProjector().cloneIfNecessary(), plan.getContext());
                         resultSets.add(rs);
                         setLastQueryPlan(plan);
                         setLastResultSet(rs);
@@ -1984,6 +1984,14 @@ public class PhoenixStatement implements Statement, SQLCloseable {
         this.fetchSize = fetchSize;
     }
 
+    /**
+     * @return true if the fetch size was set on this statement rather than taken from
+     *         the configured scan cache size
+     */
+    public boolean isFetchSizeSet() {
+        return fetchSize > 0;
+    }
+
     @Override
     public void setMaxFieldSize(int max) throws SQLException {
         throw new SQLFeatureNotSupportedException();
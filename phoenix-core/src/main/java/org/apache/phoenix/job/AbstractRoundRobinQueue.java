@@ -20,12 +20,18 @@ package org.apache.phoenix.job;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  *
  * An bounded blocking queue implementation that keeps a virtual queue of elements on per-producer
  * basis and iterates through each producer queue in round robin fashion.
  *
+ * Producers with few queued elements are considered small: they are served ahead of the others,
+ * and may still add elements to a reserved amount of space beyond the maximum size, so that a
+ * producer queueing many elements can neither delay nor crowd them out.
+ *
  */
 public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         implements BlockingQueue<E>{
@@ -43,16 +49,27 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
      * @param newProducerToFront If true, new producers go to the front of the round-robin list, if false, they go to the end.
      */
     public AbstractRoundRobinQueue(int maxSize, boolean newProducerToFront) {
+        this(maxSize, newProducerToFront, 0, 0);
+    }
+    /**
+     * @param reservedSize number of elements beyond maxSize that only small producers may add
+     * @param smallProducerSize number of queued elements below which a producer is small
+     */
+    public AbstractRoundRobinQueue(int maxSize, boolean newProducerToFront, int reservedSize, int smallProducerSize) {
         this.producerMap = new HashMap<Object,ProducerList<E>>();
         this.producerLists = new LinkedList<ProducerList<E>>();
-        this.lock = new Object();
+        this.lock = new ReentrantLock();
+        this.changed = lock.newCondition();
         this.newProducerToFront = newProducerToFront;
         this.maxSize = maxSize;
+        this.reservedSize = reservedSize;
+        this.smallProducerSize = smallProducerSize;
     }
 
     @Override
     public Iterator<E> iterator() {
-        synchronized(lock) {
+        lock.lock();
+        try {
             ArrayList<E> allElements = new ArrayList<E>(this.size);
             ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
             while(iter.hasNext()) {
@@ -60,6 +77,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
                 allElements.addAll(tList.list);
             }
             return allElements.iterator();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -67,12 +86,15 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
     public boolean offer(E o, long timeout, TimeUnit unit) throws InterruptedException {
         boolean taken = false;
         long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
-        synchronized(lock) {
+        lock.lock();
+        try {
             long waitTime = endAt - System.currentTimeMillis();
             while (!(taken = offer(o)) && waitTime > 0) {
-                this.lock.wait(waitTime);
+                this.changed.await(waitTime, TimeUnit.MILLISECONDS);
                 waitTime = endAt - System.currentTimeMillis();
             }
+        } finally {
+            lock.unlock();
         }
         return taken;
     }
@@ -85,11 +107,15 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         final Object producerKey = extractProducer(o);
 
         ProducerList<E> producerList = null;
-        synchronized(lock) {
-            if (this.size == this.maxSize) {
-                return false;
-            }
+        lock.lock();
+        try {
             producerList = this.producerMap.get(producerKey);
+            if (this.size >= this.maxSize) {
+                if (this.size >= this.maxSize + this.reservedSize
+                        || (producerList != null && !isSmall(producerList))) {
+                    return false;
+                }
+            }
             if (producerList == null) {
                 producerList = new ProducerList<E>(producerKey);
                 this.producerMap.put(producerKey, producerList);
@@ -100,7 +126,9 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
             }
             producerList.list.add(o);
             this.size++;
-            lock.notifyAll();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
         }
         return true;
     }
@@ -117,32 +145,94 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
 
     @Override
     public E take() throws InterruptedException {
-        synchronized(lock) {
+        lock.lock();
+        try {
             while (this.size == 0) {
-                this.lock.wait();
+                this.changed.await();
             }
             E element = poll();
             assert element != null;
             return element;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public E poll(long timeout, TimeUnit unit) throws InterruptedException {
         long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
-        synchronized(lock) {
+        lock.lock();
+        try {
             long waitTime = endAt - System.currentTimeMillis();
             while (this.size == 0 && waitTime > 0) {
-                this.lock.wait(waitTime);
+                this.changed.await(waitTime, TimeUnit.MILLISECONDS);
                 waitTime = endAt - System.currentTimeMillis();
             }
             return poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isSmall(ProducerList<E> producerList) {
+        return producerList.list.size() < this.smallProducerSize;
+    }
+
+    /**
+     * Moves the current producer pointer to the next small producer in round robin order, if any.
+     */
+    private void skipToSmallProducer() {
+        int numProducers = this.producerLists.size();
+        if (this.smallProducerSize <= 0 || numProducers <= 1) {
+            return;
+        }
+        ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
+        for (int i = 0; i < numProducers; i++) {
+            if (!iter.hasNext()) {
+                iter = this.producerLists.listIterator();
+            }
+            ProducerList<E> tList = iter.next();
+            if (!tList.list.isEmpty() && isSmall(tList)) {
+                this.currentProducer = (this.currentProducer + i) % numProducers;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            @SuppressWarnings("unchecked")
+            ProducerList<E> tList = this.producerMap.get(extractProducer((E)o));
+            if (tList == null || !tList.list.remove(o)) {
+                return false;
+            }
+            this.size--;
+            if (tList.list.isEmpty()) {
+                int index = this.producerLists.indexOf(tList);
+                this.producerLists.remove(index);
+                this.producerMap.remove(tList.producer);
+                if (index < this.currentProducer) {
+                    this.currentProducer--;
+                }
+                adjustCurrentProducerPointer();
+            }
+            changed.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public E poll() {
-        synchronized(lock) {
+        lock.lock();
+        try {
+            skipToSmallProducer();
             ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
             while (iter.hasNext()) {
                 ProducerList<E> tList = iter.next();
@@ -163,11 +253,13 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
                     } else {
                         incrementCurrentProducerPointer();
                     }
-                    lock.notifyAll();
+                    changed.signalAll();
                     return element;
                 }
             }
             assert this.size == 0;
+        } finally {
+            lock.unlock();
         }
         return null;
     }
@@ -176,7 +268,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
      * Polls using the given producer key.
      */
     protected E pollProducer(Object producer) {
-        synchronized(lock) {
+        lock.lock();
+        try {
             ProducerList<E> tList = this.producerMap.get(producer);
             if (tList != null && !tList.list.isEmpty()) {
                 E element = tList.list.removeFirst();
@@ -187,19 +280,22 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
                     // we need to adjust the current thread pointer in case it pointed to this thread list, which is now removed
                     adjustCurrentProducerPointer();
                 }
-                lock.notifyAll();
+                changed.signalAll();
                 assert element != null;
                 // Since this is only processing the current thread's work, we'll leave the
                 // round-robin part alone and just return the work
                 return element;
             }
+        } finally {
+            lock.unlock();
         }
         return null;
     }
 
     @Override
     public E peek() {
-        synchronized(lock) {
+        lock.lock();
+        try {
             ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
             while (iter.hasNext()) {
                 ProducerList<E> tList = iter.next();
@@ -214,6 +310,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
                 }
             }
             assert this.size == 0;
+        } finally {
+            lock.unlock();
         }
         return null;
     }
@@ -225,7 +323,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         if (c == this)
             throw new IllegalArgumentException();
 
-        synchronized(this.lock) {
+        lock.lock();
+        try {
             int originalSize = this.size;
             int drained = drainTo(c, this.size);
             assert drained == originalSize;
@@ -233,6 +332,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
             assert this.producerLists.isEmpty();
             assert this.producerMap.isEmpty();
             return drained;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -243,7 +344,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         if (c == this)
             throw new IllegalArgumentException();
 
-        synchronized(this.lock) {
+        lock.lock();
+        try {
             int i = 0;
             while(i < maxElements) {
                 E element = poll();
@@ -255,6 +357,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
                 }
             }
             return i;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -265,18 +369,24 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
 
     @Override
     public int size() {
-        synchronized(this.lock) {
+        lock.lock();
+        try {
             return this.size;
+        } finally {
+            lock.unlock();
         }
     }
     
     private void incrementCurrentProducerPointer() {
-        synchronized(lock) {
+        lock.lock();
+        try {
             if (this.producerLists.size() == 0) {
                 this.currentProducer = 0;
             } else {
                 this.currentProducer = (this.currentProducer+1)%this.producerLists.size();
             }
+        } finally {
+            lock.unlock();
         }
     }
     
@@ -284,12 +394,15 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
      * Adjusts the current pointer to a decrease in size.
      */
     private void adjustCurrentProducerPointer() {
-        synchronized(lock) {
+        lock.lock();
+        try {
             if (this.producerLists.size() == 0) {
                 this.currentProducer = 0;
             } else {
                 this.currentProducer = (this.currentProducer)%this.producerLists.size();
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -304,9 +417,13 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
 
     private final Map<Object,ProducerList<E>> producerMap;
     private final LinkedList<ProducerList<E>> producerLists;
-    private final Object lock;
+    // Not a monitor, so that virtual threads waiting for elements don't pin their carrier thread
+    private final ReentrantLock lock;
+    private final Condition changed;
     private final boolean newProducerToFront;
     private int currentProducer;
     private int size;
     private int maxSize;
+    private final int reservedSize;
+    private final int smallProducerSize;
 }
@@ -21,6 +21,7 @@ import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_REJECTED_
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_END_TO_END_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTED_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTION_TIME;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_QUEUE_DEPTH;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME;
 
 import java.util.concurrent.BlockingQueue;
@@ -39,6 +40,8 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 /**
@@ -51,10 +54,58 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 @SuppressWarnings("rawtypes")
 public class JobManager<T> extends AbstractRoundRobinQueue<T> {
 	
+    private static final Logger logger = LoggerFactory.getLogger(JobManager.class);
     private static final AtomicLong PHOENIX_POOL_INDEX = new AtomicLong(1);
+    @Nullable
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = newVirtualThreadFactory();
 	
     public JobManager(int maxSize) {
-        super(maxSize, true); // true -> new producers move to front of queue; this reduces latency.
+        this(maxSize, 0, 0);
+    }
+
+    /**
+     * @param reservedSize number of tasks beyond maxSize that may only be queued by jobs with
+     * fewer than smallJobSize queued tasks
+     * @param smallJobSize number of queued tasks below which the tasks of a job are run first
+     */
+    public JobManager(int maxSize, int reservedSize, int smallJobSize) {
+        super(maxSize, true, reservedSize, smallJobSize); // true -> new producers move to front of queue; this reduces latency.
+    }
+
+    @Override
+    public boolean offer(T o) {
+        boolean added = super.offer(o);
+        if (added) {
+            GLOBAL_TASK_QUEUE_DEPTH.increment();
+        }
+        return added;
+    }
+
+    @Override
+    public T poll() {
+        T element = super.poll();
+        if (element != null) {
+            GLOBAL_TASK_QUEUE_DEPTH.decrement();
+        }
+        return element;
+    }
+
+    @Override
+    protected T pollProducer(Object producer) {
+        T element = super.pollProducer(producer);
+        if (element != null) {
+            GLOBAL_TASK_QUEUE_DEPTH.decrement();
+        }
+        return element;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean removed = super.remove(o);
+        if (removed) {
+            GLOBAL_TASK_QUEUE_DEPTH.decrement();
+        }
+        return removed;
     }
 
 	@Override
@@ -70,19 +121,54 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         public TaskExecutionMetricsHolder getTaskExecutionMetric();
     }
 
+    /**
+     * Get a factory of virtual threads, or null if the runtime doesn't support them. They are
+     * looked up through reflection as they only exist from Java 21 on.
+     */
+    private static ThreadFactory newVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory)Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
     public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize, boolean useInstrumentedThreadPool) {
+        return createThreadPoolExec(keepAliveMs, size, queueSize, 0, 0, false, useInstrumentedThreadPool);
+    }
+
+    /**
+     * @param reservedQueueSize number of tasks beyond queueSize that may only be queued by jobs
+     * with fewer than smallJobSize queued tasks, which are also run ahead of the tasks of other jobs
+     * @param useVirtualThreads whether to run tasks on virtual threads, in which case size only
+     * limits how many tasks run at once and may be much larger than for platform threads. Platform
+     * threads are used if the runtime doesn't support virtual threads.
+     */
+    public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize,
+            int reservedQueueSize, int smallJobSize, boolean useVirtualThreads, boolean useInstrumentedThreadPool) {
+        if (useVirtualThreads && !isVirtualThreadSupported()) {
+            logger.warn("Virtual threads are not supported by this runtime, using platform threads instead");
+            useVirtualThreads = false;
+        }
         BlockingQueue<Runnable> queue;
         if (queueSize == 0) {
             queue = new SynchronousQueue<Runnable>(); // Specialized for 0 length.
         } else {
-            queue = new JobManager<Runnable>(queueSize);
+            queue = new JobManager<Runnable>(queueSize, reservedQueueSize, smallJobSize);
         }
         String name = "phoenix-" + PHOENIX_POOL_INDEX.getAndIncrement();
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat(name + "-thread-%s")
+                .setNameFormat(name + (useVirtualThreads ? "-vthread-%s" : "-thread-%s"))
                 .setDaemon(true)
                 .setThreadFactory(
-                        new ContextClassLoaderThreadFactory(JobManager.class.getClassLoader()))
+                        new ContextClassLoaderThreadFactory(
+                                useVirtualThreads ? VIRTUAL_THREAD_FACTORY : Executors.defaultThreadFactory(),
+                                JobManager.class.getClassLoader()))
                 .build();
         ThreadPoolExecutor exec;
         if (useInstrumentedThreadPool) {
@@ -90,12 +176,12 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
             exec = new InstrumentedThreadPoolExecutor(name, size, size, keepAliveMs, TimeUnit.MILLISECONDS, queue, threadFactory) {
                 @Override
                 protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
-                    return new InstrumentedJobFutureTask<T>(call);
+                    return new InstrumentedJobFutureTask<T>(call, this);
                 }
         
                 @Override
                 protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
-                    return new InstrumentedJobFutureTask<T>(runnable, value);
+                    return new InstrumentedJobFutureTask<T>(runnable, value, this);
                 }
             };
         } else {
@@ -104,12 +190,12 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
                 @Override
                 protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
                     // Override this so we can create a JobFutureTask so we can extract out the parentJobId (otherwise, in the default FutureTask, it is private). 
-                    return new JobFutureTask<T>(call);
+                    return new JobFutureTask<T>(call, this);
                 }
         
                 @Override
                 protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
-                    return new JobFutureTask<T>(runnable, value);
+                    return new JobFutureTask<T>(runnable, value, this);
                 }
             };
         }
@@ -124,9 +210,16 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         private final Object jobId;
         @Nullable
         private final TaskExecutionMetricsHolder taskMetric;
+        @Nullable
+        private final ThreadPoolExecutor executor;
         
         public JobFutureTask(Runnable r, T t) {
+            this(r, t, null);
+        }
+
+        public JobFutureTask(Runnable r, T t, ThreadPoolExecutor executor) {
             super(r, t);
+            this.executor = executor;
             if(r instanceof JobRunnable){
               	this.jobId = ((JobRunnable)r).getJobId();
               	this.taskMetric = ((JobRunnable)r).getTaskExecutionMetric();
@@ -137,7 +230,12 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         }
         
         public JobFutureTask(Callable<T> c) {
+            this(c, null);
+        }
+
+        public JobFutureTask(Callable<T> c, ThreadPoolExecutor executor) {
             super(c);
+            this.executor = executor;
             // FIXME: this fails when executor used by hbase
             if (c instanceof JobCallable) {
                 this.jobId = ((JobCallable<T>) c).getJobId();
@@ -151,6 +249,16 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         public Object getJobId() {
             return jobId;
         }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && executor != null) {
+                // Free up the slot in the queue right away instead of when the task is polled
+                executor.remove(this);
+            }
+            return cancelled;
+        }
     }
     
     /**
@@ -167,13 +275,13 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         // Time at which the task is about to be executed. 
         private long taskExecutionStartTime;
 
-        public InstrumentedJobFutureTask(Runnable r, T t) {
-            super(r, t);
+        public InstrumentedJobFutureTask(Runnable r, T t, ThreadPoolExecutor executor) {
+            super(r, t, executor);
             this.taskSubmissionTime = System.currentTimeMillis();
         }
 
-        public InstrumentedJobFutureTask(Callable<T> c) {
-            super(c);
+        public InstrumentedJobFutureTask(Callable<T> c, ThreadPoolExecutor executor) {
+            super(c, executor);
             this.taskSubmissionTime = System.currentTimeMillis();
         }
         
@@ -215,7 +323,11 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         private final ClassLoader contextClassLoader;
 
         public ContextClassLoaderThreadFactory(ClassLoader contextClassLoader) {
-            baseFactory = Executors.defaultThreadFactory();
+            this(Executors.defaultThreadFactory(), contextClassLoader);
+        }
+
+        public ContextClassLoaderThreadFactory(ThreadFactory baseFactory, ClassLoader contextClassLoader) {
+            this.baseFactory = baseFactory;
             this.contextClassLoader = contextClassLoader;
         }
 
@@ -27,7 +27,8 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
  * Child memory manager that delegates through to global memory manager,
  * but enforces that at most a threshold percentage is used by this
  * memory manager.  No blocking is done if the threshold is exceeded,
- * but the standard blocking will be done by the global memory manager.
+ * but the standard blocking will be done by the global memory manager,
+ * without holding the lock of this memory manager.
  *
  * 
  * @since 0.1
@@ -64,41 +65,88 @@ public class ChildMemoryManager extends DelegatingMemoryManager {
         // Revise reqBytes down to available memory if necessary
         return Math.min(reqBytes,availBytes);
     }
-    
-    @Override
-    public MemoryChunk allocate(long minBytes, long nBytes) {
+
+    /**
+     * Reserve the bytes in this memory manager before going to the global one, so that
+     * no lock is held while waiting there for memory.
+     */
+    private long reserve(long minBytes, long reqBytes) {
         synchronized (sync) {
-            nBytes = adjustAllocation(minBytes, nBytes);
-            final MemoryChunk chunk = super.allocate(minBytes, nBytes);
-            allocatedBytes += chunk.getSize();
-            // Instantiate delegate chunk to track allocatedBytes correctly
-            return new MemoryChunk() {
-                @Override
-                public void close() {
-                    synchronized (sync) {
-                        allocatedBytes -= chunk.getSize();
-                        chunk.close();
-                    }
-                }
-    
-                @Override
-                public long getSize() {
-                    return chunk.getSize();
-                }
+            long nBytes = adjustAllocation(minBytes, reqBytes);
+            allocatedBytes += nBytes;
+            return nBytes;
+        }
+    }
+
+    private void release(long nBytes) {
+        synchronized (sync) {
+            allocatedBytes -= nBytes;
+        }
+    }
+
+    private ChildMemoryChunk allocate(long minBytes, long reqBytes, boolean revocable) {
+        long nBytes = reserve(minBytes, reqBytes);
+        MemoryChunk chunk = null;
+        try {
+            chunk = revocable ? super.allocateRevocable(minBytes, nBytes) : super.allocate(minBytes, nBytes);
+        } finally {
+            release(chunk == null ? nBytes : nBytes - chunk.getSize());
+        }
+        // Instantiate delegate chunk to track allocatedBytes correctly
+        return new ChildMemoryChunk(chunk);
+    }
     
-                @Override
-                public void resize(long nBytes) {
-                    synchronized (sync) {
-                        long size = getSize();
-                        long deltaBytes = nBytes - size;
-                        if (deltaBytes > 0) {
-                            adjustAllocation(deltaBytes,deltaBytes); // Throw if too much memory
-                        }
-                        chunk.resize(nBytes);
-                        allocatedBytes += deltaBytes;
+    @Override
+    public MemoryChunk allocate(long minBytes, long reqBytes) {
+        return allocate(minBytes, reqBytes, false);
+    }
+
+    @Override
+    public RevocableMemoryChunk allocateRevocable(long minBytes, long reqBytes) {
+        return allocate(minBytes, reqBytes, true);
+    }
+
+    private class ChildMemoryChunk implements RevocableMemoryChunk {
+        private final MemoryChunk chunk;
+
+        private ChildMemoryChunk(MemoryChunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void close() {
+            release(chunk.getSize());
+            chunk.close();
+        }
+
+        @Override
+        public long getSize() {
+            return chunk.getSize();
+        }
+
+        @Override
+        public void resize(long nBytes) {
+            long deltaBytes = nBytes - getSize();
+            if (deltaBytes > 0) {
+                reserve(deltaBytes, deltaBytes); // Throw if too much memory
+                boolean success = false;
+                try {
+                    chunk.resize(nBytes);
+                    success = true;
+                } finally {
+                    if (!success) {
+                        release(deltaBytes);
                     }
                 }
-            };
+            } else {
+                chunk.resize(nBytes);
+                release(-deltaBytes);
+            }
+        }
+
+        @Override
+        public boolean isRevokeRequested() {
+            return chunk instanceof RevocableMemoryChunk && ((RevocableMemoryChunk) chunk).isRevokeRequested();
         }
     }
 
@@ -52,6 +52,11 @@ public class DelegatingMemoryManager implements MemoryManager {
         return allocate(nBytes, nBytes);
     }
 
+    @Override
+    public RevocableMemoryChunk allocateRevocable(long minBytes, long reqBytes) {
+        return parent.allocateRevocable(minBytes, reqBytes);
+    }
+
     public MemoryManager getParent() {
         return parent;
     }
@@ -17,6 +17,15 @@
  */
 package org.apache.phoenix.memory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.http.annotation.GuardedBy;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
@@ -25,23 +34,51 @@ import org.slf4j.LoggerFactory;
 /**
  *
  * Global memory manager to track course grained memory usage across all requests.
+ * Requests that can't be satisfied wait up to a configurable amount of time and
+ * are served in arrival order, so that a big request isn't starved by a stream of
+ * smaller ones. When a request can't be satisfied, whether it waits or fails,
+ * owners of revocable chunks are asked to spill and give their memory back.
  *
  *
  * @since 0.1
  */
 public class GlobalMemoryManager implements MemoryManager {
     private static final Logger logger = LoggerFactory.getLogger(GlobalMemoryManager.class);
+    private static final Comparator<GlobalMemoryChunk> LARGEST_FIRST = new Comparator<GlobalMemoryChunk>() {
+        @Override
+        public int compare(GlobalMemoryChunk c1, GlobalMemoryChunk c2) {
+            return Long.compare(c2.size, c1.size);
+        }
+    };
 
     private final Object sync = new Object();
     private final long maxMemoryBytes;
+    private final int maxWaitMs;
     @GuardedBy("sync")
     private volatile long usedMemoryBytes;
+    // Tickets of the requests waiting for memory, in arrival order
+    @GuardedBy("sync")
+    private final LinkedList<Object> waiters = new LinkedList<Object>();
+    @GuardedBy("sync")
+    private final Set<GlobalMemoryChunk> revocableChunks =
+            Collections.newSetFromMap(new IdentityHashMap<GlobalMemoryChunk, Boolean>());
+    private final AtomicLong waitTimeMs = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+
     public GlobalMemoryManager(long maxBytes) {
+        this(maxBytes, 0);
+    }
+
+    public GlobalMemoryManager(long maxBytes, int maxWaitMs) {
         if (maxBytes <= 0) {
             throw new IllegalStateException(
                     "Total number of available bytes (" + maxBytes + ") must be greater than zero");
         }
+        if (maxWaitMs < 0) {
+            throw new IllegalStateException("Maximum wait time (" + maxWaitMs + ") must be greater than or equal to zero");
+        }
         this.maxMemoryBytes = maxBytes;
+        this.maxWaitMs = maxWaitMs;
         this.usedMemoryBytes = 0;
     }
 
@@ -57,8 +94,43 @@ public class GlobalMemoryManager implements MemoryManager {
         return maxMemoryBytes;
     }
 
-    // TODO: Work on fairness: One big memory request can cause all others to fail here.
-    private long allocateBytes(long minBytes, long reqBytes) {
+    public int getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    /**
+     * Get the number of requests currently waiting for memory.
+     */
+    public int getWaitingRequestCount() {
+        synchronized(sync) {
+            return waiters.size();
+        }
+    }
+
+    /**
+     * Get the total number of milliseconds requests have waited for memory.
+     */
+    public long getTotalWaitTimeMs() {
+        return waitTimeMs.get();
+    }
+
+    /**
+     * Get the number of requests that had to wait for memory.
+     */
+    public long getTotalWaitCount() {
+        return waitCount.get();
+    }
+
+    private InsufficientMemoryException newInsufficientMemoryException(long minBytes) {
+        return new InsufficientMemoryException(
+                new SQLExceptionInfo.Builder(SQLExceptionCode.INSUFFICIENT_MEMORY)
+                .setMessage("Requested memory of " + minBytes
+                        + " bytes could not be allocated. Using memory of " + usedMemoryBytes
+                        + " bytes from global pool of " + maxMemoryBytes)
+                .build().buildException());
+    }
+
+    private long allocateBytes(long minBytes, long reqBytes, boolean wait) {
         if (minBytes < 0 || reqBytes < 0) {
             throw new IllegalStateException("Minimum requested bytes (" + minBytes
                     + ") and requested bytes (" + reqBytes + ") must be greater than zero");
@@ -72,13 +144,20 @@ public class GlobalMemoryManager implements MemoryManager {
         }
         long nBytes;
         synchronized(sync) {
-            if (usedMemoryBytes + minBytes > maxMemoryBytes) {
-                throw new InsufficientMemoryException(
-                        new SQLExceptionInfo.Builder(SQLExceptionCode.INSUFFICIENT_MEMORY)
-                        .setMessage("Requested memory of " + minBytes
-                                + " bytes could not be allocated. Using memory of " + usedMemoryBytes
-                                + " bytes from global pool of " + maxMemoryBytes)
-                        .build().buildException());
+            // Don't get ahead of requests already waiting for memory
+            if (usedMemoryBytes + minBytes > maxMemoryBytes || !waiters.isEmpty()) {
+                if (minBytes == 0) {
+                    reqBytes = 0;
+                } else if (wait && maxWaitMs > 0) {
+                    waitForMemory(minBytes);
+                } else {
+                    // Growing revocable chunks don't take memory from each other
+                    if (wait) {
+                        // Free memory for the next requests, as this one fails right away
+                        requestRevocation(minBytes);
+                    }
+                    throw newInsufficientMemoryException(minBytes);
+                }
             }
             // Allocate at most reqBytes, but at least minBytes
             nBytes = Math.min(reqBytes, maxMemoryBytes - usedMemoryBytes);
@@ -91,10 +170,71 @@ public class GlobalMemoryManager implements MemoryManager {
         return nBytes;
     }
 
+    @GuardedBy("sync")
+    private void waitForMemory(long minBytes) {
+        Object ticket = new Object();
+        waiters.addLast(ticket);
+        long startTime = System.currentTimeMillis();
+        long remainingWaitTimeMs = maxWaitMs;
+        try {
+            requestRevocation(minBytes);
+            while (waiters.getFirst() != ticket || usedMemoryBytes + minBytes > maxMemoryBytes) {
+                if (remainingWaitTimeMs <= 0) {
+                    throw newInsufficientMemoryException(minBytes);
+                }
+                try {
+                    sync.wait(remainingWaitTimeMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted allocation of " + minBytes + " bytes", ie);
+                }
+                remainingWaitTimeMs = maxWaitMs - (System.currentTimeMillis() - startTime);
+            }
+        } finally {
+            waiters.remove(ticket);
+            // Let the next request in line check for memory
+            sync.notifyAll();
+            long waitTime = System.currentTimeMillis() - startTime;
+            waitTimeMs.addAndGet(waitTime);
+            waitCount.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Waited " + waitTime + " ms for " + minBytes + " bytes with "
+                        + usedMemoryBytes + " of " + maxMemoryBytes + " bytes in use");
+            }
+        }
+    }
+
+    /**
+     * Ask the owners of the largest revocable chunks to give back enough memory for minBytes.
+     */
+    @GuardedBy("sync")
+    private void requestRevocation(long minBytes) {
+        long neededBytes = usedMemoryBytes + minBytes - maxMemoryBytes;
+        for (GlobalMemoryChunk chunk : revocableChunks) {
+            if (chunk.revokeRequested) {
+                neededBytes -= chunk.size;
+            }
+        }
+        if (neededBytes <= 0) {
+            return;
+        }
+        List<GlobalMemoryChunk> chunks = new ArrayList<GlobalMemoryChunk>(revocableChunks);
+        Collections.sort(chunks, LARGEST_FIRST);
+        for (GlobalMemoryChunk chunk : chunks) {
+            if (neededBytes <= 0) {
+                break;
+            }
+            if (!chunk.revokeRequested && chunk.size > 0) {
+                chunk.revokeRequested = true;
+                neededBytes -= chunk.size;
+            }
+        }
+    }
+
     @Override
     public MemoryChunk allocate(long minBytes, long reqBytes) {
-        long nBytes = allocateBytes(minBytes, reqBytes);
-        return newMemoryChunk(nBytes);
+        long nBytes = allocateBytes(minBytes, reqBytes, true);
+        return newMemoryChunk(nBytes, false);
     }
 
     @Override
@@ -102,19 +242,33 @@ public class GlobalMemoryManager implements MemoryManager {
         return allocate(nBytes,nBytes);
     }
 
-    private MemoryChunk newMemoryChunk(long sizeBytes) {
-        return new GlobalMemoryChunk(sizeBytes);
+    @Override
+    public RevocableMemoryChunk allocateRevocable(long minBytes, long reqBytes) {
+        // The new chunk holds no memory yet that the owner could be asked to give back
+        long nBytes = allocateBytes(minBytes, reqBytes, true);
+        GlobalMemoryChunk chunk = newMemoryChunk(nBytes, true);
+        synchronized(sync) {
+            revocableChunks.add(chunk);
+        }
+        return chunk;
+    }
+
+    private GlobalMemoryChunk newMemoryChunk(long sizeBytes, boolean revocable) {
+        return new GlobalMemoryChunk(sizeBytes, revocable);
     }
 
-    private class GlobalMemoryChunk implements MemoryChunk {
+    private class GlobalMemoryChunk implements RevocableMemoryChunk {
+        private final boolean revocable;
         private volatile long size;
+        private volatile boolean revokeRequested;
         //private volatile String stack;
 
-        private GlobalMemoryChunk(long size) {
+        private GlobalMemoryChunk(long size, boolean revocable) {
             if (size < 0) {
                 throw new IllegalStateException("Size of memory chunk must be greater than zero, but instead is " + size);
             }
             this.size = size;
+            this.revocable = revocable;
             // Useful for debugging where a piece of memory was allocated
             // this.stack = ExceptionUtils.getStackTrace(new Throwable());
         }
@@ -124,6 +278,11 @@ public class GlobalMemoryManager implements MemoryManager {
             return size;
         }
 
+        @Override
+        public boolean isRevokeRequested() {
+            return revokeRequested;
+        }
+
         @Override
         public void resize(long nBytes) {
             if (nBytes < 0) {
@@ -131,11 +290,13 @@ public class GlobalMemoryManager implements MemoryManager {
             }
             synchronized(sync) {
                 long nAdditionalBytes = (nBytes - size);
-                if (nAdditionalBytes < 0) {
+                if (nAdditionalBytes <= 0) {
                     usedMemoryBytes += nAdditionalBytes;
                     size = nBytes;
+                    revokeRequested = false;
+                    sync.notifyAll();
                 } else {
-                    allocateBytes(nAdditionalBytes, nAdditionalBytes);
+                    allocateBytes(nAdditionalBytes, nAdditionalBytes, !revocable);
                     size = nBytes;
                     //this.stack = ExceptionUtils.getStackTrace(new Throwable());
                 }
@@ -162,6 +323,10 @@ public class GlobalMemoryManager implements MemoryManager {
             synchronized(sync) {
                 usedMemoryBytes -= size;
                 size = 0;
+                if (revocable) {
+                    revocableChunks.remove(this);
+                }
+                sync.notifyAll();
             }
         }
         
@@ -171,4 +336,3 @@ public class GlobalMemoryManager implements MemoryManager {
         }
     }
 }
-
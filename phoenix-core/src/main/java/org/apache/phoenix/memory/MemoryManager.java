@@ -58,6 +58,22 @@ public interface MemoryManager {
      * minBytes and reqBytes being the same.
      */
     MemoryChunk allocate(long nBytes);
+
+    /**
+     * Allocate up to reqBytes of memory like {@link #allocate(long, long)}, for a
+     * consumer that is able to spill its data. The allocation waits for minBytes
+     * like any other, but growing the chunk never blocks: if the memory isn't
+     * available, or other requests are waiting for it, the resize fails right
+     * away and the owner is expected to spill instead. While other requests wait
+     * for memory, the owner may be asked to give back the memory of the chunk,
+     * see {@link RevocableMemoryChunk#isRevokeRequested()}.
+     * @param minBytes minimum number of bytes required
+     * @param reqBytes requested number of bytes.  Must be greater
+     * than or equal to minBytes
+     * @return RevocableMemoryChunk that was allocated
+     * @throws InsufficientMemoryException if unable to allocate minBytes
+     */
+    RevocableMemoryChunk allocateRevocable(long minBytes, long reqBytes);
     
     /**
      * 
@@ -92,4 +108,20 @@ public interface MemoryManager {
          */
         void resize(long nBytes); 
     }
+
+    /**
+     * 
+     * Chunk of memory held by a consumer that can spill.
+     *
+     * 
+     * @since 4.14
+     */
+    public static interface RevocableMemoryChunk extends MemoryChunk {
+        /**
+         * Check whether other requests are waiting for memory held by this chunk.
+         * The owner is expected to spill and {@link #resize(long)} the chunk down,
+         * which clears the request, the next time it touches its data.
+         */
+        boolean isRevokeRequested();
+    }
 }
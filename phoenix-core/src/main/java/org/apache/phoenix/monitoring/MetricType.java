@@ -39,6 +39,7 @@ public enum MetricType {
     QUERY_TIMEOUT_COUNTER("qo", "Number of times query timed out",LogLevel.DEBUG, PLong.INSTANCE),
     QUERY_FAILED_COUNTER("qf", "Number of times query failed",LogLevel.DEBUG, PLong.INSTANCE),
     NUM_PARALLEL_SCANS("ps", "Number of scans that were executed in parallel",LogLevel.DEBUG, PLong.INSTANCE),
+    NUM_ROWS_RETURNED("nr", "Number of rows returned by the query, to compare with the number of rows scanned",LogLevel.DEBUG, PLong.INSTANCE),
     SCAN_BYTES("sb", "Number of bytes read by scans",LogLevel.OFF, PLong.INSTANCE),
     SELECT_SQL_COUNTER("sc", "Counter for number of sql queries",LogLevel.OFF, PLong.INSTANCE),
     // task metrics
@@ -47,9 +48,11 @@ public enum MetricType {
     TASK_EXECUTION_TIME("tx", "Time in milliseconds tasks took to execute",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_EXECUTED_COUNTER("te", "Counter for number of tasks submitted to the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_REJECTED_COUNTER("tr", "Counter for number of tasks that were rejected by the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
+    TASK_QUEUE_DEPTH("tqd", "Number of tasks waiting in the queue of the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
     // spool metrics
     SPOOL_FILE_SIZE("ss", "Size of spool files created in bytes",LogLevel.DEBUG, PLong.INSTANCE),
     SPOOL_FILE_COUNTER("sn", "Number of spool files created",LogLevel.DEBUG, PLong.INSTANCE),
+    SPOOL_FILE_DELETED_COUNTER("sd", "Number of spool files deleted",LogLevel.DEBUG, PLong.INSTANCE),
     // misc metrics
     MEMORY_CHUNK_BYTES("mc", "Number of bytes allocated by the memory manager",LogLevel.DEBUG, PLong.INSTANCE),
     MEMORY_WAIT_TIME("mw", "Number of milliseconds threads needed to wait for memory to be allocated through memory manager",LogLevel.DEBUG, PLong.INSTANCE),
@@ -73,7 +76,9 @@ public enum MetricType {
     COUNT_RPC_RETRIES("rpr", "Number of RPC retries",LogLevel.DEBUG, PLong.INSTANCE),
     COUNT_REMOTE_RPC_RETRIES("rrr", "Number of remote RPC retries",LogLevel.DEBUG, PLong.INSTANCE),
     COUNT_ROWS_SCANNED("ws", "Number of rows scanned",LogLevel.DEBUG, PLong.INSTANCE),
-    COUNT_ROWS_FILTERED("wf", "Number of rows filtered",LogLevel.DEBUG,PLong.INSTANCE);
+    COUNT_ROWS_FILTERED("wf", "Number of rows filtered",LogLevel.DEBUG,PLong.INSTANCE),
+    SCAN_PREFETCH_STALL_COUNTER("pfs", "Number of times scans had to wait for the next batch of rows to be fetched",LogLevel.DEBUG, PLong.INSTANCE),
+    SCAN_PREFETCH_STALL_TIME("pft", "Time in milliseconds scans spent waiting for the next batch of rows to be fetched",LogLevel.DEBUG, PLong.INSTANCE);
 	
     private final String description;
     private final String shortName;
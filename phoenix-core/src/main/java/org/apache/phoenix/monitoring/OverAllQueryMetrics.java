@@ -19,6 +19,7 @@ package org.apache.phoenix.monitoring;
 
 import static org.apache.phoenix.monitoring.MetricType.CACHE_REFRESH_SPLITS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.NUM_PARALLEL_SCANS;
+import static org.apache.phoenix.monitoring.MetricType.NUM_ROWS_RETURNED;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_FAILED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_TIMEOUT_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.RESULT_SET_TIME_MS;
@@ -36,6 +37,7 @@ public class OverAllQueryMetrics {
     private final MetricsStopWatch queryWatch;
     private final MetricsStopWatch resultSetWatch;
     private final CombinableMetric numParallelScans;
+    private final CombinableMetric numRowsReturned;
     private final CombinableMetric wallClockTimeMS;
     private final CombinableMetric resultSetTimeMS;
     private final CombinableMetric queryTimedOut;
@@ -46,6 +48,7 @@ public class OverAllQueryMetrics {
         queryWatch = new MetricsStopWatch(WALL_CLOCK_TIME_MS.isLoggingEnabled(connectionLogLevel));
         resultSetWatch = new MetricsStopWatch(RESULT_SET_TIME_MS.isLoggingEnabled(connectionLogLevel));
         numParallelScans = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, NUM_PARALLEL_SCANS);
+        numRowsReturned = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, NUM_ROWS_RETURNED);
         wallClockTimeMS = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, WALL_CLOCK_TIME_MS);
         resultSetTimeMS = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, RESULT_SET_TIME_MS);
         queryTimedOut = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, QUERY_TIMEOUT_COUNTER);
@@ -57,6 +60,10 @@ public class OverAllQueryMetrics {
         this.numParallelScans.change(numParallelScans);
     }
 
+    public void updateNumRowsReturned(long numRowsReturned) {
+        this.numRowsReturned.change(numRowsReturned);
+    }
+
     public void queryTimedOut() {
         queryTimedOut.increment();
     }
@@ -90,6 +97,7 @@ public class OverAllQueryMetrics {
     public Map<MetricType, Long> publish() {
         Map<MetricType, Long> metricsForPublish = new HashMap<>();
         metricsForPublish.put(numParallelScans.getMetricType(), numParallelScans.getValue());
+        metricsForPublish.put(numRowsReturned.getMetricType(), numRowsReturned.getValue());
         metricsForPublish.put(wallClockTimeMS.getMetricType(), wallClockTimeMS.getValue());
         metricsForPublish.put(resultSetTimeMS.getMetricType(), resultSetTimeMS.getValue());
         metricsForPublish.put(queryTimedOut.getMetricType(), queryTimedOut.getValue());
@@ -100,6 +108,7 @@ public class OverAllQueryMetrics {
 
     public void reset() {
         numParallelScans.reset();
+        numRowsReturned.reset();
         wallClockTimeMS.reset();
         resultSetTimeMS.reset();
         queryTimedOut.reset();
@@ -114,6 +123,7 @@ public class OverAllQueryMetrics {
         queryFailed.combine(metric.queryFailed);
         queryTimedOut.combine(metric.queryTimedOut);
         numParallelScans.combine(metric.numParallelScans);
+        numRowsReturned.combine(metric.numRowsReturned);
         return this;
     }
 
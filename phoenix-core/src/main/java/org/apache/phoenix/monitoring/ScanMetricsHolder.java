@@ -28,6 +28,8 @@ import static org.apache.phoenix.monitoring.MetricType.COUNT_ROWS_SCANNED;
 import static org.apache.phoenix.monitoring.MetricType.COUNT_RPC_CALLS;
 import static org.apache.phoenix.monitoring.MetricType.COUNT_RPC_RETRIES;
 import static org.apache.phoenix.monitoring.MetricType.COUNT_SCANNED_REGIONS;
+import static org.apache.phoenix.monitoring.MetricType.SCAN_PREFETCH_STALL_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.SCAN_PREFETCH_STALL_TIME;
 
 import java.io.IOException;
 import java.util.Map;
@@ -49,6 +51,8 @@ public class ScanMetricsHolder {
     private final CombinableMetric countOfRemoteRPCRetries;
     private final CombinableMetric countOfRowsScanned;
     private final CombinableMetric countOfRowsFiltered;
+    private final CombinableMetric countOfPrefetchStalls;
+    private final CombinableMetric sumOfMillisSecPrefetchStalled;
     private  Map<String, Long> scanMetricMap;
     private Object scan;
 
@@ -78,6 +82,8 @@ public class ScanMetricsHolder {
         countOfRemoteRPCRetries = readMetrics.allotMetric(COUNT_REMOTE_RPC_RETRIES, tableName);
         countOfRowsScanned = readMetrics.allotMetric(COUNT_ROWS_SCANNED, tableName);
         countOfRowsFiltered = readMetrics.allotMetric(COUNT_ROWS_FILTERED, tableName);
+        countOfPrefetchStalls = readMetrics.allotMetric(SCAN_PREFETCH_STALL_COUNTER, tableName);
+        sumOfMillisSecPrefetchStalled = readMetrics.allotMetric(SCAN_PREFETCH_STALL_TIME, tableName);
     }
 
     public CombinableMetric getCountOfRemoteRPCcalls() {
@@ -124,6 +130,14 @@ public class ScanMetricsHolder {
         return countOfRowsScanned;
     }
 
+    public CombinableMetric getCountOfPrefetchStalls() {
+        return countOfPrefetchStalls;
+    }
+
+    public CombinableMetric getSumOfMillisSecPrefetchStalled() {
+        return sumOfMillisSecPrefetchStalled;
+    }
+
     public Map<String, Long> getScanMetricMap() {
         return scanMetricMap;
     }
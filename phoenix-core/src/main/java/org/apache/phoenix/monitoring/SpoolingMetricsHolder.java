@@ -27,11 +27,13 @@ public class SpoolingMetricsHolder {
 
     private final CombinableMetric spoolFileSizeMetric;
     private final CombinableMetric numSpoolFileMetric;
+    private final CombinableMetric numSpoolFileDeletedMetric;
     public static final SpoolingMetricsHolder NO_OP_INSTANCE = new SpoolingMetricsHolder(new ReadMetricQueue(false,LogLevel.OFF), "");
 
     public SpoolingMetricsHolder(ReadMetricQueue readMetrics, String tableName) {
         this.spoolFileSizeMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_SIZE, tableName);
         this.numSpoolFileMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_COUNTER, tableName);
+        this.numSpoolFileDeletedMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_DELETED_COUNTER, tableName);
     }
 
     public CombinableMetric getSpoolFileSizeMetric() {
@@ -41,4 +43,8 @@ public class SpoolingMetricsHolder {
     public CombinableMetric getNumSpoolFileMetric() {
         return numSpoolFileMetric;
     }
+
+    public CombinableMetric getNumSpoolFileDeletedMetric() {
+        return numSpoolFileDeletedMetric;
+    }
 }
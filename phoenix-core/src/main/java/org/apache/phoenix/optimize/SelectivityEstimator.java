@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.optimize;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.InListExpression;
+import org.apache.phoenix.expression.IsNullExpression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.NotExpression;
+import org.apache.phoenix.expression.OrExpression;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.filter.BooleanExpressionFilter;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.TableRef;
+import org.apache.phoenix.schema.stats.ColumnStatistics;
+import org.apache.phoenix.schema.stats.GuidePostsInfo;
+import org.apache.phoenix.schema.stats.GuidePostsKey;
+
+/**
+ * Estimates the fraction of rows passing a filter from the column statistics collected along
+ * with the guideposts. Only comparisons of key value columns against constants and null checks
+ * are estimated, and conjunctions, disjunctions and negations of those. Terms without statistics
+ * are ignored within a conjunction and make any other combination unknown.
+ */
+public class SelectivityEstimator {
+    private final StatementContext context;
+
+    public SelectivityEstimator(StatementContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @return the estimated fraction of rows passing the filter, or null if no statistics apply
+     */
+    public Double estimate(Filter filter) {
+        if (filter instanceof BooleanExpressionFilter) {
+            return estimate(((BooleanExpressionFilter) filter).getExpression());
+        }
+        if (filter instanceof FilterList
+                && ((FilterList) filter).getOperator() == FilterList.Operator.MUST_PASS_ALL) {
+            Double selectivity = null;
+            for (Filter f : ((FilterList) filter).getFilters()) {
+                selectivity = and(selectivity, estimate(f));
+            }
+            return selectivity;
+        }
+        return null;
+    }
+
+    /**
+     * @return the estimated fraction of rows for which the expression is true, or null if no
+     *         statistics apply
+     */
+    public Double estimate(Expression expression) {
+        if (expression instanceof AndExpression) {
+            Double selectivity = null;
+            for (Expression child : expression.getChildren()) {
+                selectivity = and(selectivity, estimate(child));
+            }
+            return selectivity;
+        }
+        if (expression instanceof OrExpression) {
+            double none = 1;
+            for (Expression child : expression.getChildren()) {
+                Double selectivity = estimate(child);
+                if (selectivity == null) {
+                    return null;
+                }
+                none *= 1 - selectivity;
+            }
+            return 1 - none;
+        }
+        if (expression instanceof NotExpression) {
+            Double selectivity = estimate(expression.getChildren().get(0));
+            return selectivity == null ? null : 1 - selectivity;
+        }
+        if (expression instanceof IsNullExpression) {
+            ColumnStatistics stats = getColumnStatistics(expression.getChildren().get(0));
+            if (stats == null) {
+                return null;
+            }
+            double nullFraction = stats.getNullFraction();
+            return ((IsNullExpression) expression).isNegate() ? 1 - nullFraction : nullFraction;
+        }
+        if (expression instanceof InListExpression) {
+            InListExpression inList = (InListExpression) expression;
+            ColumnStatistics stats = getColumnStatistics(inList.getChild());
+            if (stats == null) {
+                return null;
+            }
+            double selectivity = 0;
+            for (Expression value : inList.getKeyExpressions()) {
+                Double equals = estimate(stats, inList.getChild(), CompareOp.EQUAL, value);
+                if (equals == null) {
+                    return null;
+                }
+                selectivity += equals;
+            }
+            return Math.min(1, selectivity);
+        }
+        if (expression instanceof ComparisonExpression) {
+            List<Expression> children = expression.getChildren();
+            ColumnStatistics stats = getColumnStatistics(children.get(0));
+            return stats == null ? null : estimate(stats, children.get(0),
+                    ((ComparisonExpression) expression).getFilterOp(), children.get(1));
+        }
+        return null;
+    }
+
+    private static Double and(Double selectivity, Double other) {
+        if (selectivity == null) {
+            return other;
+        }
+        return other == null ? selectivity : selectivity * other;
+    }
+
+    private static Double estimate(ColumnStatistics stats, Expression column, CompareOp op, Expression value) {
+        if (!(value instanceof LiteralExpression) || value.getDataType() != column.getDataType()
+                || value.getSortOrder() != SortOrder.ASC) {
+            return null;
+        }
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        if (!value.evaluate(null, ptr) || ptr.getLength() == 0) {
+            // Comparisons with null are never true
+            return 0.0;
+        }
+        byte[] b = ptr.get();
+        int offset = ptr.getOffset();
+        int length = ptr.getLength();
+        double nonNullFraction = 1 - stats.getNullFraction();
+        switch (op) {
+        case EQUAL:
+            return stats.estimateEqualsFraction(b, offset, length);
+        case NOT_EQUAL:
+            return Math.max(0, nonNullFraction - stats.estimateEqualsFraction(b, offset, length));
+        case LESS:
+            return stats.estimateLessThanFraction(b, offset, length, false);
+        case LESS_OR_EQUAL:
+            return stats.estimateLessThanFraction(b, offset, length, true);
+        case GREATER:
+            return Math.max(0, nonNullFraction - stats.estimateLessThanFraction(b, offset, length, true));
+        case GREATER_OR_EQUAL:
+            return Math.max(0, nonNullFraction - stats.estimateLessThanFraction(b, offset, length, false));
+        default:
+            return null;
+        }
+    }
+
+    private ColumnStatistics getColumnStatistics(Expression expression) {
+        // Values are only collected for columns stored in their own cell
+        if (!(expression instanceof KeyValueColumnExpression)
+                || expression instanceof SingleCellColumnExpression) {
+            return null;
+        }
+        KeyValueColumnExpression column = (KeyValueColumnExpression) expression;
+        TableRef tableRef = context.getCurrentTable();
+        if (tableRef == null) {
+            return null;
+        }
+        PTable table = tableRef.getTable();
+        GuidePostsKey key = new GuidePostsKey(table.getPhysicalName().getBytes(), column.getColumnFamily());
+        try {
+            GuidePostsInfo gps = context.getConnection().getQueryServices().getTableStats(key);
+            return gps == null ? null : gps.getColumnStatistics(column.getColumnQualifier());
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
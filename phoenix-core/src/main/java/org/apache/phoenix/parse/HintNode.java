@@ -108,6 +108,12 @@ public class HintNode {
          * Enforces a forward scan.
          */
         FORWARD_SCAN,
+        /**
+         * Answers an ungrouped COUNT(*) without a filter from the row counts of the
+         * guideposts instead of scanning the rows, which is only exact when no row was
+         * written or deleted since the statistics were collected.
+         */
+        APPROXIMATE_COUNT,
     };
 
     private final Map<Hint,String> hints;
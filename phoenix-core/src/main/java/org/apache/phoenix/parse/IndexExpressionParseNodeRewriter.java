@@ -20,12 +20,16 @@ import org.apache.phoenix.compile.FromCompiler;
 import org.apache.phoenix.compile.IndexStatementRewriter;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LikeExpression;
+import org.apache.phoenix.expression.function.ReverseFunction;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.parse.LikeParseNode.LikeType;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.StringUtil;
 
 import com.google.common.collect.Maps;
 
@@ -36,9 +40,12 @@ import com.google.common.collect.Maps;
 public class IndexExpressionParseNodeRewriter extends ParseNodeRewriter {
 
     private final Map<ParseNode, ParseNode> indexedParseNodeToColumnParseNodeMap;
+    // Arguments of the indexed REVERSE expressions, to their column in the index
+    private final Map<ParseNode, ParseNode> reversedParseNodeToColumnParseNodeMap;
     
     public IndexExpressionParseNodeRewriter(PTable index, String alias, PhoenixConnection connection, Map<String, UDFParseNode> udfParseNodes) throws SQLException {
         indexedParseNodeToColumnParseNodeMap = Maps.newHashMapWithExpectedSize(index.getColumns().size());
+        reversedParseNodeToColumnParseNodeMap = Maps.newHashMapWithExpectedSize(1);
         NamedTableNode tableNode = NamedTableNode.create(alias,
                 TableName.create(index.getParentSchemaName().getString(), index.getParentTableName().getString()),
                 Collections.<ColumnDef> emptyList());
@@ -62,13 +69,59 @@ public class IndexExpressionParseNodeRewriter extends ParseNodeRewriter {
                 columnParseNode = NODE_FACTORY.cast(columnParseNode, expressionDataType, null, null);
             }
             indexedParseNodeToColumnParseNodeMap.put(indexedParseNode, columnParseNode);
+            if (indexedParseNode instanceof FunctionParseNode
+                    && ReverseFunction.NAME.equals(((FunctionParseNode)indexedParseNode).getName())
+                    && indexedParseNode.getChildren().size() == 1) {
+                reversedParseNodeToColumnParseNodeMap.put(indexedParseNode.getChildren().get(0), columnParseNode);
+            }
         }
     }
 
+    /**
+     * Rewrite a LIKE matching a suffix of an expression whose REVERSE is indexed, such as
+     * v LIKE '%abc', into a LIKE matching a prefix of the indexed column, REVERSE(v) LIKE 'cba%',
+     * which may then be turned into a range of the index row keys.
+     * @return the rewritten LIKE, or null if it can't be rewritten
+     */
+    private ParseNode rewriteSuffixLike(LikeParseNode node) {
+        if (node.isNegate() || node.getLikeType() != LikeType.CASE_SENSITIVE) {
+            return null;
+        }
+        ParseNode columnParseNode = reversedParseNodeToColumnParseNodeMap.get(node.getLHS());
+        if (columnParseNode == null || !(node.getRHS() instanceof LiteralParseNode)) {
+            return null;
+        }
+        Object pattern = ((LiteralParseNode)node.getRHS()).getValue();
+        String suffix = pattern instanceof String ? LikeExpression.getEndsWithSuffix((String)pattern) : null;
+        if (suffix == null) {
+            return null;
+        }
+        // Reversed by code point like REVERSE, escaping the characters special to LIKE
+        StringBuilder buf = new StringBuilder(suffix.length() + 2);
+        for (int i = suffix.length(); i > 0; ) {
+            int c = suffix.codePointBefore(i);
+            i -= Character.charCount(c);
+            if (c == StringUtil.MULTI_CHAR_LIKE || c == StringUtil.SINGLE_CHAR_LIKE || c == '\\') {
+                buf.append('\\');
+            }
+            buf.appendCodePoint(c);
+        }
+        buf.append(StringUtil.MULTI_CHAR_LIKE);
+        return NODE_FACTORY.like(columnParseNode, NODE_FACTORY.literal(buf.toString()), false, LikeType.CASE_SENSITIVE);
+    }
+
     @Override
     protected ParseNode leaveCompoundNode(CompoundParseNode node, List<ParseNode> children, CompoundNodeFactory factory) {
-        return indexedParseNodeToColumnParseNodeMap.containsKey(node) ? indexedParseNodeToColumnParseNodeMap.get(node)
-                : super.leaveCompoundNode(node, children, factory);
+        if (indexedParseNodeToColumnParseNodeMap.containsKey(node)) {
+            return indexedParseNodeToColumnParseNodeMap.get(node);
+        }
+        if (node instanceof LikeParseNode && !reversedParseNodeToColumnParseNodeMap.isEmpty()) {
+            ParseNode reversedLike = rewriteSuffixLike((LikeParseNode)node);
+            if (reversedLike != null) {
+                return reversedLike;
+            }
+        }
+        return super.leaveCompoundNode(node, children, factory);
     }
 
 }
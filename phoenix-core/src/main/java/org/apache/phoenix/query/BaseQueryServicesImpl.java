@@ -41,13 +41,19 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
     private final QueryOptimizer queryOptimizer;
     
     public BaseQueryServicesImpl(ReadOnlyProps defaultProps, QueryServicesOptions options) {
+        // Virtual threads are cheap enough to keep many more tasks waiting on RPCs at once
+        boolean useVirtualThreads = options.isVirtualThreadsEnabled() && JobManager.isVirtualThreadSupported();
         this.executor =  JobManager.createThreadPoolExec(
                 options.getKeepAliveMs(), 
-                options.getThreadPoolSize(), 
+                useVirtualThreads ? options.getVirtualThreadPoolSize() : options.getThreadPoolSize(), 
                 options.getQueueSize(),
+                options.getReservedQueueSize(),
+                options.getSmallQueryTaskThreshold(),
+                useVirtualThreads,
                 options.isGlobalMetricsEnabled());
         this.memoryManager = new GlobalMemoryManager(
-                Runtime.getRuntime().maxMemory() * options.getMaxMemoryPerc() / 100);
+                Runtime.getRuntime().maxMemory() * options.getMaxMemoryPerc() / 100,
+                options.getMaxMemoryWaitMs());
         this.props = options.getProps(defaultProps);
         this.queryOptimizer = new QueryOptimizer(this);
     }
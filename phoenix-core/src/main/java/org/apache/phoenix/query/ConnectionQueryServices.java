@@ -154,6 +154,12 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
     public User getUser();
 
     public QueryLoggerDisruptor getQueryDisruptor();
+
+    /**
+     * @return the tracker of metadata changes made by other clients, used to decide whether
+     * cached tables may be used without checking with the server.
+     */
+    public MetaDataChangeTracker getMetaDataChangeTracker();
     
     public PhoenixTransactionClient initTransactionClient(TransactionFactory.Provider provider);
 }
\ No newline at end of file
@@ -200,11 +200,10 @@ import org.apache.phoenix.schema.NewerTableAlreadyExistsException;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PColumnFamily;
 import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PConcurrentMetaData;
 import org.apache.phoenix.schema.PMetaData;
-import org.apache.phoenix.schema.PMetaDataImpl;
 import org.apache.phoenix.schema.PName;
 import org.apache.phoenix.schema.PNameFactory;
-import org.apache.phoenix.schema.PSynchronizedMetaData;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTableKey;
 import org.apache.phoenix.schema.PTableType;
@@ -278,6 +277,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     private final User user;
     private final ConcurrentHashMap<ImmutableBytesWritable,ConnectionQueryServices> childServices;
     private final GuidePostsCache tableStatsCache;
+    private final MetaDataChangeTracker metaDataChangeTracker;
 
     // Cache the latest meta data here for future connections
     // writes guarded by "latestMetaDataLock"
@@ -349,7 +349,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     private QueryLoggerDisruptor queryDisruptor;
 
     private PMetaData newEmptyMetaData() {
-        return new PSynchronizedMetaData(new PMetaDataImpl(INITIAL_META_DATA_TABLE_CAPACITY, getProps()));
+        return new PConcurrentMetaData(INITIAL_META_DATA_TABLE_CAPACITY, getProps());
     }
 
     /**
@@ -404,6 +404,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         connectionQueues = ImmutableList.copyOf(list);
         // A little bit of a smell to leak `this` here, but should not be a problem
         this.tableStatsCache = new GuidePostsCache(this, config);
+        this.metaDataChangeTracker = new MetaDataChangeTracker(this, props);
         this.isAutoUpgradeEnabled = config.getBoolean(AUTO_UPGRADE_ENABLED, QueryServicesOptions.DEFAULT_AUTO_UPGRADE_ENABLED);
         this.maxConnectionsAllowed = config.getInt(QueryServices.CLIENT_CONNECTION_MAX_ALLOWED_CONNECTIONS,
             QueryServicesOptions.DEFAULT_CLIENT_CONNECTION_MAX_ALLOWED_CONNECTIONS);
@@ -514,6 +515,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                         if (renewLeaseExecutor != null) {
                             renewLeaseExecutor.shutdownNow();
                         }
+                        metaDataChangeTracker.close();
                         // shut down the tx client service if we created one to support transactions
                         for (PhoenixTransactionClient client : txClients) {
                             if (client != null) {
@@ -2597,6 +2599,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                                 }
                             }
                             scheduleRenewLeaseTasks();
+                            metaDataChangeTracker.start();
                             success = true;
                         } catch (RetriableUpgradeException e) {
                             // Set success to true and don't set the exception as an initializationException,
@@ -4651,6 +4654,11 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         return config;
     }
 
+    @Override
+    public MetaDataChangeTracker getMetaDataChangeTracker() {
+        return metaDataChangeTracker;
+    }
+
     @Override
     public QueryLoggerDisruptor getQueryDisruptor() {
         return this.queryDisruptor;
@@ -117,6 +117,7 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
     private volatile SQLException initializationException;
     private final Map<String, List<HRegionLocation>> tableSplits = Maps.newHashMap();
     private final GuidePostsCache guidePostsCache;
+    private final MetaDataChangeTracker metaDataChangeTracker;
     private final Configuration config;
 
     private User user;
@@ -149,6 +150,8 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
         // set replication required parameter
         ConfigUtil.setReplicationConfigIfAbsent(this.config);
         this.props = new ReadOnlyProps(this.config.iterator());
+        // Never started, as there is no server to publish changes
+        this.metaDataChangeTracker = new MetaDataChangeTracker(this, props);
     }
 
     private PMetaData newEmptyMetaData() {
@@ -716,6 +719,11 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
     public QueryLoggerDisruptor getQueryDisruptor() {
         return null;
     }
+
+    @Override
+    public MetaDataChangeTracker getMetaDataChangeTracker() {
+        return metaDataChangeTracker;
+    }
     
     @Override
     public PhoenixTransactionClient initTransactionClient(Provider provider) {
@@ -366,6 +366,11 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
         return getDelegate().getQueryDisruptor();
     }
     
+    @Override
+    public MetaDataChangeTracker getMetaDataChangeTracker() {
+        return getDelegate().getMetaDataChangeTracker();
+    }
+
     @Override
     public PhoenixTransactionClient initTransactionClient(Provider provider) {
         return getDelegate().initTransactionClient(provider);
@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.apache.phoenix.parse.PSchema;
+import org.apache.phoenix.schema.PName;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.PTableRef;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+/**
+ * Client-side subscriber to metadata changes. Every DDL operation processed by the
+ * MetaDataEndpointImpl is written to SYSTEM.CATALOG (or SYSTEM.FUNCTION for functions) with
+ * the server timestamp of the change, so these tables are scanned incrementally by time range
+ * as a change log. Tables, functions and schemas touched since the last poll are dropped from
+ * the global client cache, and their change time is remembered so that {@link PTableRef}s
+ * already copied into open connections can be recognized as stale.
+ *
+ * While the tracker is enabled and healthy, a cached table is considered current until a change
+ * to it is observed, which lets clients skip the getTable RPC regardless of the table's
+ * UPDATE_CACHE_FREQUENCY. Staleness is bounded by the poll interval.
+ *
+ * Each poll reads only the cells written since the previous one, so HBase skips the store files
+ * older than that. The rows read per poll are further bounded by the number of tracked changes:
+ * past that, every cached table is considered stale, as when too many changes are tracked.
+ */
+public class MetaDataChangeTracker implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MetaDataChangeTracker.class);
+    private static final String THREAD_NAME = "PHOENIX-METADATA-CHANGE-POLLER";
+
+    private final ConnectionQueryServices queryServices;
+    private final long pollIntervalMs;
+    private final long maxClockSkewMs;
+    private final int maxTrackedChanges;
+
+    // Latest observed change per entity, used both to de-duplicate changes seen by overlapping
+    // scans and to detect stale references held by open connections.
+    private final ConcurrentMap<PTableKey, Change> tableChanges = new ConcurrentHashMap<PTableKey, Change>();
+    private final ConcurrentMap<PTableKey, Change> functionChanges = new ConcurrentHashMap<PTableKey, Change>();
+    private final ConcurrentMap<PTableKey, Change> schemaChanges = new ConcurrentHashMap<PTableKey, Change>();
+
+    // Any reference created before this time is treated as stale
+    private volatile long invalidateAllBefore;
+    // Lower bound (server time) of the next change log scan
+    private volatile long minChangeTimestamp;
+    private volatile boolean healthy;
+    private ScheduledExecutorService executor;
+
+    private static class PendingChange {
+        private final PName tenantId;
+        private final String name;
+        private final long changeTimestamp;
+        private final boolean isSchema;
+
+        private PendingChange(PName tenantId, String name, long changeTimestamp, boolean isSchema) {
+            this.tenantId = tenantId;
+            this.name = name;
+            this.changeTimestamp = changeTimestamp;
+            this.isSchema = isSchema;
+        }
+    }
+
+    private static class Change {
+        private final long changeTimestamp;
+        private final long detectedTime;
+
+        private Change(long changeTimestamp, long detectedTime) {
+            this.changeTimestamp = changeTimestamp;
+            this.detectedTime = detectedTime;
+        }
+    }
+
+    public MetaDataChangeTracker(ConnectionQueryServices queryServices, ReadOnlyProps props) {
+        this.queryServices = queryServices;
+        this.pollIntervalMs = props.getLong(QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB,
+                QueryServicesOptions.DEFAULT_METADATA_CHANGE_POLL_INTERVAL_MS);
+        this.maxClockSkewMs = props.getLong(QueryServices.METADATA_CHANGE_MAX_CLOCK_SKEW_MS_ATTRIB,
+                QueryServicesOptions.DEFAULT_METADATA_CHANGE_MAX_CLOCK_SKEW_MS);
+        this.maxTrackedChanges = props.getInt(QueryServices.METADATA_CHANGE_MAX_TRACKED_ATTRIB,
+                QueryServicesOptions.DEFAULT_METADATA_CHANGE_MAX_TRACKED);
+    }
+
+    public boolean isEnabled() {
+        return pollIntervalMs > 0;
+    }
+
+    /**
+     * Starts polling the change log. Must only be called once the system tables exist.
+     */
+    public synchronized void start() {
+        if (!isEnabled() || executor != null) {
+            return;
+        }
+        long now = EnvironmentEdgeManager.currentTimeMillis();
+        // Nothing is cached yet, so there is no need to look further back than the clock skew
+        this.minChangeTimestamp = now - maxClockSkewMs;
+        this.invalidateAllBefore = now;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, THREAD_NAME);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        healthy = false;
+    }
+
+    /**
+     * @return true if the given cached table reference reflects every change to the table, its
+     * indexes and its parent seen so far, in which case the server need not be consulted.
+     */
+    public boolean isCurrent(PTableRef tableRef) {
+        if (!healthy) {
+            return false;
+        }
+        long createTime = tableRef.getCreateTime();
+        if (createTime < invalidateAllBefore) {
+            return false;
+        }
+        PTable table = tableRef.getTable();
+        if (isChangedSince(table.getKey(), createTime)) {
+            return false;
+        }
+        for (PTable index : table.getIndexes()) {
+            if (isChangedSince(index.getKey(), createTime)) {
+                return false;
+            }
+        }
+        PName parentName = table.getParentName();
+        if (parentName != null) {
+            if (isChangedSince(new PTableKey(table.getTenantId(), parentName.getString()), createTime)
+                    || (table.getTenantId() != null
+                            && isChangedSince(new PTableKey(null, parentName.getString()), createTime))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isChangedSince(PTableKey key, long time) {
+        Change change = tableChanges.get(key);
+        return change != null && change.detectedTime >= time;
+    }
+
+    @VisibleForTesting
+    void poll() {
+        long pollStartTime = EnvironmentEdgeManager.currentTimeMillis();
+        long minTimestamp = minChangeTimestamp;
+        try {
+            List<PendingChange> tableChanges = Lists.newArrayList();
+            List<PendingChange> functionChanges = Lists.newArrayList();
+            boolean isComplete = scanChanges(PhoenixDatabaseMetaData.SYSTEM_CATALOG_NAME_BYTES, minTimestamp,
+                    false, tableChanges)
+                    && scanChanges(PhoenixDatabaseMetaData.SYSTEM_FUNCTION_NAME_BYTES, minTimestamp, true,
+                            functionChanges);
+            // A reference cached while the scans ran may predate a change they found, so the
+            // changes are only considered detected once the scans are done
+            long detectedTime = EnvironmentEdgeManager.currentTimeMillis();
+            if (isComplete) {
+                for (PendingChange change : tableChanges) {
+                    if (change.isSchema) {
+                        schemaChanged(change.name, change.changeTimestamp, detectedTime);
+                    } else {
+                        tableChanged(change.tenantId, change.name, change.changeTimestamp, detectedTime);
+                    }
+                }
+                for (PendingChange change : functionChanges) {
+                    functionChanged(change.tenantId, change.name, change.changeTimestamp, detectedTime);
+                }
+            } else {
+                invalidateAll(detectedTime);
+            }
+            // Overlap consecutive scans by the clock skew, as the server may lag behind us
+            minChangeTimestamp = Math.max(minTimestamp, pollStartTime - maxClockSkewMs);
+            pruneChanges(this.tableChanges);
+            pruneChanges(this.functionChanges);
+            pruneChanges(this.schemaChanges);
+            healthy = true;
+        } catch (Throwable t) {
+            // Fall back to UPDATE_CACHE_FREQUENCY until the next successful poll covers the gap
+            healthy = false;
+            logger.warn("Unable to read metadata changes since " + minTimestamp, t);
+        }
+    }
+
+    /**
+     * Reads the changes made since the given time into the given list.
+     * @return false if there were more changes than are tracked, in which case the scan stopped
+     */
+    private boolean scanChanges(byte[] tableName, long minTimestamp, boolean isFunction,
+            List<PendingChange> changes) throws SQLException, IOException {
+        Scan scan = new Scan();
+        // Raw scan, so that dropped tables and columns are seen through their delete markers
+        scan.setRaw(true);
+        scan.setTimeRange(minTimestamp, HConstants.LATEST_TIMESTAMP);
+        scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new PageFilter(maxTrackedChanges + 1)));
+        scan.setCaching(Math.min(1000, maxTrackedChanges + 1));
+        byte[][] rowKeyMetaData = new byte[3][];
+        int rowCount = 0;
+        HTableInterface htable = queryServices.getTable(
+                SchemaUtil.getPhysicalName(tableName, queryServices.getProps()).getName());
+        try {
+            ResultScanner scanner = htable.getScanner(scan);
+            try {
+                for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                    if (++rowCount > maxTrackedChanges) {
+                        return false;
+                    }
+                    Cell cell = result.rawCells()[0];
+                    rowKeyMetaData[0] = rowKeyMetaData[1] = rowKeyMetaData[2] = null;
+                    SchemaUtil.getVarChars(result.getRow(), isFunction ? 2 : 3, rowKeyMetaData);
+                    PName tenantId = rowKeyMetaData[0] == null || rowKeyMetaData[0].length == 0
+                            ? null : PNameFactory.newName(rowKeyMetaData[0]);
+                    PendingChange change = null;
+                    if (isFunction) {
+                        if (rowKeyMetaData[1] != null) {
+                            change = new PendingChange(tenantId, PNameFactory.newName(rowKeyMetaData[1]).getString(),
+                                    cell.getTimestamp(), false);
+                        }
+                    } else if (rowKeyMetaData[2] == null || rowKeyMetaData[2].length == 0) {
+                        if (rowKeyMetaData[1] != null && rowKeyMetaData[1].length > 0) {
+                            change = new PendingChange(null, PNameFactory.newName(rowKeyMetaData[1]).getString(),
+                                    cell.getTimestamp(), true);
+                        }
+                    } else {
+                        change = new PendingChange(tenantId, SchemaUtil.getTableName(
+                                rowKeyMetaData[1] == null ? ByteUtil.EMPTY_BYTE_ARRAY : rowKeyMetaData[1],
+                                rowKeyMetaData[2]), cell.getTimestamp(), false);
+                    }
+                    if (change != null) {
+                        PendingChange last = changes.isEmpty() ? null : changes.get(changes.size() - 1);
+                        // The rows of the columns of a table follow each other
+                        if (last != null && last.isSchema == change.isSchema && last.name.equals(change.name)
+                                && (last.tenantId == null ? change.tenantId == null : last.tenantId.equals(change.tenantId))) {
+                            if (change.changeTimestamp > last.changeTimestamp) {
+                                changes.set(changes.size() - 1, change);
+                            }
+                        } else {
+                            changes.add(change);
+                        }
+                    }
+                }
+            } finally {
+                scanner.close();
+            }
+        } catch (TableNotFoundException e) {
+            // SYSTEM.FUNCTION is only created on demand
+        } finally {
+            htable.close();
+        }
+        return true;
+    }
+
+    @VisibleForTesting
+    void tableChanged(PName tenantId, String fullTableName, long changeTimestamp, long detectedTime)
+            throws SQLException {
+        if (recordChange(tableChanges, new PTableKey(tenantId, fullTableName), changeTimestamp, detectedTime)) {
+            queryServices.removeTable(tenantId, fullTableName, null, HConstants.LATEST_TIMESTAMP);
+        }
+    }
+
+    private void functionChanged(PName tenantId, String functionName, long changeTimestamp, long detectedTime)
+            throws SQLException {
+        if (recordChange(functionChanges, new PTableKey(tenantId, functionName), changeTimestamp, detectedTime)) {
+            queryServices.removeFunction(tenantId, functionName, HConstants.LATEST_TIMESTAMP);
+        }
+    }
+
+    private void schemaChanged(String schemaName, long changeTimestamp, long detectedTime) {
+        if (recordChange(schemaChanges, new PTableKey(null, schemaName), changeTimestamp, detectedTime)) {
+            queryServices.removeSchema(new PSchema(SchemaUtil.getEscapedArgument(schemaName)),
+                    HConstants.LATEST_TIMESTAMP);
+        }
+    }
+
+    /**
+     * Records a change unless an equal or newer one was already seen by a previous, overlapping scan.
+     * @return true if the change had not been seen before
+     */
+    private static boolean recordChange(ConcurrentMap<PTableKey, Change> changes, PTableKey key,
+            long changeTimestamp, long detectedTime) {
+        Change previous = changes.get(key);
+        if (previous != null && previous.changeTimestamp >= changeTimestamp) {
+            return false;
+        }
+        changes.put(key, new Change(changeTimestamp, detectedTime));
+        return true;
+    }
+
+    /**
+     * Bounds the memory used for tracking by forgetting all changes once too many are tracked.
+     * References created before the last forgotten change are then treated as stale.
+     */
+    private void pruneChanges(ConcurrentMap<PTableKey, Change> changes) {
+        if (changes.size() <= maxTrackedChanges) {
+            return;
+        }
+        long maxDetectedTime = invalidateAllBefore;
+        for (Map.Entry<PTableKey, Change> entry : changes.entrySet()) {
+            maxDetectedTime = Math.max(maxDetectedTime, entry.getValue().detectedTime + 1);
+        }
+        invalidateAllBefore = maxDetectedTime;
+        changes.clear();
+    }
+
+    /**
+     * Treats every reference created up to the given time as stale, when the changes made since
+     * the last poll were too many to be read.
+     */
+    private void invalidateAll(long detectedTime) {
+        invalidateAllBefore = Math.max(invalidateAllBefore, detectedTime + 1);
+        tableChanges.clear();
+        functionChanges.clear();
+        schemaChanges.clear();
+    }
+}
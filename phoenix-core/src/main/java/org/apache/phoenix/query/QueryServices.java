@@ -42,6 +42,14 @@ public interface QueryServices extends SQLCloseable {
     public static final String KEEP_ALIVE_MS_ATTRIB = "phoenix.query.keepAliveMs";
     public static final String THREAD_POOL_SIZE_ATTRIB = "phoenix.query.threadPoolSize";
     public static final String QUEUE_SIZE_ATTRIB = "phoenix.query.queueSize";
+    // Number of tasks beyond the queue size that only queries with few queued tasks may queue
+    public static final String RESERVED_QUEUE_SIZE_ATTRIB = "phoenix.query.reservedQueueSize";
+    // Number of queued tasks below which a query is small, and has its tasks run ahead of others
+    public static final String SMALL_QUERY_TASK_THRESHOLD_ATTRIB = "phoenix.query.smallQueryTaskThreshold";
+    // Whether to run client side tasks on virtual threads, when the runtime supports them
+    public static final String VIRTUAL_THREADS_ENABLED_ATTRIB = "phoenix.query.virtualThreadsEnabled";
+    // Maximum number of tasks running at once on virtual threads, used instead of the thread pool size
+    public static final String VIRTUAL_THREAD_POOL_SIZE_ATTRIB = "phoenix.query.virtualThreadPoolSize";
     public static final String THREAD_TIMEOUT_MS_ATTRIB = "phoenix.query.timeoutMs";
     public static final String SPOOL_THRESHOLD_BYTES_ATTRIB = "phoenix.query.spoolThresholdBytes";
     public static final String HBASE_CLIENT_KEYTAB = "hbase.myclient.keytab";
@@ -68,6 +76,9 @@ public interface QueryServices extends SQLCloseable {
 	 */
 	public static final String MAX_SPOOL_TO_DISK_BYTES_ATTRIB = "phoenix.query.maxSpoolToDiskBytes";
 
+    // Whether to Snappy compress the blocks of spool files
+    public static final String SPOOL_COMPRESSION_ENABLED_ATTRIB = "phoenix.query.spoolCompressionEnabled";
+
     /**
      * Number of records to read per chunk when streaming records of a basic scan.
      */
@@ -75,6 +86,7 @@ public interface QueryServices extends SQLCloseable {
 
     public static final String MAX_MEMORY_PERC_ATTRIB = "phoenix.query.maxGlobalMemoryPercentage";
     public static final String MAX_TENANT_MEMORY_PERC_ATTRIB = "phoenix.query.maxTenantMemoryPercentage";
+    public static final String MAX_MEMORY_WAIT_MS_ATTRIB = "phoenix.query.maxGlobalMemoryWaitMs";
     public static final String MAX_SERVER_CACHE_SIZE_ATTRIB = "phoenix.query.maxServerCacheBytes";
     public static final String DATE_FORMAT_TIMEZONE_ATTRIB = "phoenix.query.dateFormatTimeZone";
     public static final String DATE_FORMAT_ATTRIB = "phoenix.query.dateFormat";
@@ -298,16 +310,43 @@ public interface QueryServices extends SQLCloseable {
     public static final String PHOENIX_QUERY_SERVER_ZK_ACL_PASSWORD = "phoenix.queryserver.zookeeper.acl.password";
     public static final String STATS_COLLECTION_ENABLED = "phoenix.stats.collection.enabled";
     public static final String USE_STATS_FOR_PARALLELIZATION = "phoenix.use.stats.parallelization";
+    // Whether to collect value histograms and distinct value sketches of key value columns along with guideposts
+    public static final String STATS_COLUMN_COLLECTION_ENABLED_ATTRIB = "phoenix.stats.column.collection.enabled";
+    // Maximum number of key value columns per column family to collect value statistics for
+    public static final String STATS_COLUMN_MAX_COLUMNS_ATTRIB = "phoenix.stats.column.maxColumns";
+    // Whether to collect the min/max values of key value columns for each guidepost chunk
+    public static final String STATS_ZONE_MAP_COLLECTION_ENABLED_ATTRIB = "phoenix.stats.zonemap.collection.enabled";
+    // Whether to skip the data of guidepost chunks whose min/max values can't match the WHERE clause.
+    // Only safe if no rows are written with timestamps older than the stats, such as through a
+    // CurrentSCN connection or bulk loaded HFiles, and no rows are upserted partially.
+    public static final String USE_STATS_ZONE_MAPS_ATTRIB = "phoenix.use.stats.zonemaps";
 
     // whether to enable server side RS -> RS calls for upsert select statements
     public static final String ENABLE_SERVER_UPSERT_SELECT ="phoenix.client.enable.server.upsert.select";
 
     //Update Cache Frequency default config attribute
     public static final String DEFAULT_UPDATE_CACHE_FREQUENCY_ATRRIB  = "phoenix.default.update.cache.frequency";
+    // Interval at which clients poll SYSTEM.CATALOG for metadata changes. Disabled if not positive.
+    public static final String METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB = "phoenix.metadata.change.poll.intervalMs";
+    public static final String METADATA_CHANGE_MAX_CLOCK_SKEW_MS_ATTRIB = "phoenix.metadata.change.maxClockSkewMs";
+    public static final String METADATA_CHANGE_MAX_TRACKED_ATTRIB = "phoenix.metadata.change.maxTracked";
 
     // Whether to enable cost-based-decision in the query optimizer
     public static final String COST_BASED_OPTIMIZER_ENABLED = "phoenix.costbased.optimizer.enabled";
     public static final String SMALL_SCAN_THRESHOLD_ATTRIB = "phoenix.query.smallScanThreshold";
+    // Whether to fetch the next batch of rows of a scan in the background while the current one is processed
+    public static final String SCAN_PREFETCH_ENABLED_ATTRIB = "phoenix.query.scanPrefetchEnabled";
+    // Whether to size scan RPCs by the target number of bytes rather than by the scan cache size alone
+    public static final String SCAN_SIZING_ENABLED_ATTRIB = "phoenix.query.scanSizingEnabled";
+    // Target number of bytes returned by each sized scan RPC and held by each prefetched batch
+    public static final String SCAN_TARGET_RESULT_BYTES_ATTRIB = "phoenix.query.scanTargetResultBytes";
+    // Whether to buffer the results of ordered region scans in memory while they are merged, spooling only on overflow
+    public static final String STREAMING_MERGE_ENABLED_ATTRIB = "phoenix.query.streamingMergeEnabled";
+    // Number of scans to launch at first for a query with a LIMIT whose results are concatenated, doubled
+    // each time more are needed. All of them are launched at once if not positive.
+    public static final String LIMIT_INITIAL_SCAN_COUNT_ATTRIB = "phoenix.query.limitInitialScanCount";
+    // Whether to pass the sort key known to be reached by the LIMIT of an ORDER BY to the region scans not yet opened
+    public static final String TOPN_THRESHOLD_PUSHDOWN_ENABLED_ATTRIB = "phoenix.query.topNThresholdPushdownEnabled";
     public static final String LOG_LEVEL = "phoenix.log.level";
     public static final String LOG_BUFFER_SIZE = "phoenix.log.buffer.size";
     public static final String LOG_BUFFER_WAIT_STRATEGY = "phoenix.log.wait.strategy";
@@ -57,6 +57,7 @@ import static org.apache.phoenix.query.QueryServices.MAX_SERVER_CACHE_SIZE_ATTRI
 import static org.apache.phoenix.query.QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_SERVER_METADATA_CACHE_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.MAX_MEMORY_WAIT_MS_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_TENANT_MEMORY_PERC_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MIN_STATS_UPDATE_FREQ_MS_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_ATTRIB;
@@ -68,6 +69,10 @@ import static org.apache.phoenix.query.QueryServices.PHOENIX_QUERY_SERVER_SERVIC
 import static org.apache.phoenix.query.QueryServices.PHOENIX_QUERY_SERVER_ZK_ACL_PASSWORD;
 import static org.apache.phoenix.query.QueryServices.PHOENIX_QUERY_SERVER_ZK_ACL_USERNAME;
 import static org.apache.phoenix.query.QueryServices.QUEUE_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.RESERVED_QUEUE_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.SMALL_QUERY_TASK_THRESHOLD_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.VIRTUAL_THREADS_ENABLED_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.VIRTUAL_THREAD_POOL_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.REGIONSERVER_INFO_PORT_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.RENEW_LEASE_ENABLED;
 import static org.apache.phoenix.query.QueryServices.RENEW_LEASE_THREAD_POOL_SIZE;
@@ -131,11 +136,17 @@ public class QueryServicesOptions {
 	public static final int DEFAULT_KEEP_ALIVE_MS = 60000;
 	public static final int DEFAULT_THREAD_POOL_SIZE = 128;
 	public static final int DEFAULT_QUEUE_SIZE = 5000;
+	public static final int DEFAULT_RESERVED_QUEUE_SIZE = 500;
+	public static final int DEFAULT_SMALL_QUERY_TASK_THRESHOLD = 8;
+	public static final boolean DEFAULT_VIRTUAL_THREADS_ENABLED = false;
+	public static final int DEFAULT_VIRTUAL_THREAD_POOL_SIZE = 1024;
 	public static final int DEFAULT_THREAD_TIMEOUT_MS = 600000; // 10min
 	public static final int DEFAULT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
     public static final String DEFAULT_SPOOL_DIRECTORY = System.getProperty("java.io.tmpdir");
 	public static final int DEFAULT_MAX_MEMORY_PERC = 15; // 15% of heap
 	public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
+	// Fail right away when the pool is full, unless requests are configured to wait their turn
+	public static final int DEFAULT_MAX_MEMORY_WAIT_MS = 0;
 	public static final long DEFAULT_MAX_SERVER_CACHE_SIZE = 1024*1024*100;  // 100 Mb
     public static final int DEFAULT_TARGET_QUERY_CONCURRENCY = 32;
     public static final int DEFAULT_MAX_QUERY_CONCURRENCY = 64;
@@ -165,6 +176,7 @@ public class QueryServicesOptions {
     public static final int DEFAULT_AGGREGATE_CHUNK_SIZE_INCREASE = 1024 * 1024 * 1; // 1 Mb
     public static final int DEFAULT_INDEX_MUTATE_BATCH_SIZE_THRESHOLD = 3;
     public static final long DEFAULT_MAX_SPOOL_TO_DISK_BYTES = 1024000000;
+    public static final boolean DEFAULT_SPOOL_COMPRESSION_ENABLED = false;
     // Only the first chunked batches are fetched in parallel, so this default
     // should be on the relatively bigger side of things. Bigger means more
     // latency and client-side spooling/buffering. Smaller means less initial
@@ -329,13 +341,29 @@ public class QueryServicesOptions {
     public static final int DEFAULT_CLIENT_CONNECTION_MAX_ALLOWED_CONNECTIONS = 0;
     public static final boolean DEFAULT_STATS_COLLECTION_ENABLED = true;
     public static final boolean DEFAULT_USE_STATS_FOR_PARALLELIZATION = true;
+    public static final boolean DEFAULT_STATS_COLUMN_COLLECTION_ENABLED = false;
+    public static final int DEFAULT_STATS_COLUMN_MAX_COLUMNS = 64;
+    public static final boolean DEFAULT_STATS_ZONE_MAP_COLLECTION_ENABLED = false;
+    public static final boolean DEFAULT_USE_STATS_ZONE_MAPS = false;
     
     //Security defaults
     public static final boolean DEFAULT_PHOENIX_ACLS_ENABLED = false;
 
     //default update cache frequency
     public static final int DEFAULT_UPDATE_CACHE_FREQUENCY = 0;
+    // metadata change tracking is disabled by default
+    public static final long DEFAULT_METADATA_CHANGE_POLL_INTERVAL_MS = -1;
+    public static final long DEFAULT_METADATA_CHANGE_MAX_CLOCK_SKEW_MS = 30000;
+    public static final int DEFAULT_METADATA_CHANGE_MAX_TRACKED = 100000;
     public static final int DEFAULT_SMALL_SCAN_THRESHOLD = 100;
+    // prefetching takes a pool thread per scan, so it is opt-in
+    public static final boolean DEFAULT_SCAN_PREFETCH_ENABLED = false;
+    // sizing scans overrides the scan cache size, so it is opt-in
+    public static final boolean DEFAULT_SCAN_SIZING_ENABLED = false;
+    public static final long DEFAULT_SCAN_TARGET_RESULT_BYTES = 2 * 1024 * 1024; // Same as HBase's max result size
+    public static final boolean DEFAULT_STREAMING_MERGE_ENABLED = true;
+    public static final int DEFAULT_LIMIT_INITIAL_SCAN_COUNT = 4;
+    public static final boolean DEFAULT_TOPN_THRESHOLD_PUSHDOWN_ENABLED = true;
 
     @SuppressWarnings("serial")
     public static final Set<String> DEFAULT_QUERY_SERVER_SKIP_WORDS = new HashSet<String>() {
@@ -385,11 +413,16 @@ public class QueryServicesOptions {
             .setIfUnset(KEEP_ALIVE_MS_ATTRIB, DEFAULT_KEEP_ALIVE_MS)
             .setIfUnset(THREAD_POOL_SIZE_ATTRIB, DEFAULT_THREAD_POOL_SIZE)
             .setIfUnset(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE)
+            .setIfUnset(RESERVED_QUEUE_SIZE_ATTRIB, DEFAULT_RESERVED_QUEUE_SIZE)
+            .setIfUnset(SMALL_QUERY_TASK_THRESHOLD_ATTRIB, DEFAULT_SMALL_QUERY_TASK_THRESHOLD)
+            .setIfUnset(VIRTUAL_THREADS_ENABLED_ATTRIB, DEFAULT_VIRTUAL_THREADS_ENABLED)
+            .setIfUnset(VIRTUAL_THREAD_POOL_SIZE_ATTRIB, DEFAULT_VIRTUAL_THREAD_POOL_SIZE)
             .setIfUnset(THREAD_TIMEOUT_MS_ATTRIB, DEFAULT_THREAD_TIMEOUT_MS)
             .setIfUnset(SPOOL_THRESHOLD_BYTES_ATTRIB, DEFAULT_SPOOL_THRESHOLD_BYTES)
             .setIfUnset(SPOOL_DIRECTORY, DEFAULT_SPOOL_DIRECTORY)
             .setIfUnset(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC)
             .setIfUnset(MAX_TENANT_MEMORY_PERC_ATTRIB, DEFAULT_MAX_TENANT_MEMORY_PERC)
+            .setIfUnset(MAX_MEMORY_WAIT_MS_ATTRIB, DEFAULT_MAX_MEMORY_WAIT_MS)
             .setIfUnset(MAX_SERVER_CACHE_SIZE_ATTRIB, DEFAULT_MAX_SERVER_CACHE_SIZE)
             .setIfUnset(SCAN_CACHE_SIZE_ATTRIB, DEFAULT_SCAN_CACHE_SIZE)
             .setIfUnset(DATE_FORMAT_ATTRIB, DEFAULT_DATE_FORMAT)
@@ -493,6 +526,22 @@ public class QueryServicesOptions {
         return this;
     }
 
+    public QueryServicesOptions setReservedQueueSize(int reservedQueueSize) {
+        return set(RESERVED_QUEUE_SIZE_ATTRIB, reservedQueueSize);
+    }
+
+    public QueryServicesOptions setSmallQueryTaskThreshold(int smallQueryTaskThreshold) {
+        return set(SMALL_QUERY_TASK_THRESHOLD_ATTRIB, smallQueryTaskThreshold);
+    }
+
+    public QueryServicesOptions setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        return set(VIRTUAL_THREADS_ENABLED_ATTRIB, virtualThreadsEnabled);
+    }
+
+    public QueryServicesOptions setVirtualThreadPoolSize(int virtualThreadPoolSize) {
+        return set(VIRTUAL_THREAD_POOL_SIZE_ATTRIB, virtualThreadPoolSize);
+    }
+
     public QueryServicesOptions setThreadTimeoutMs(int threadTimeoutMs) {
         return set(THREAD_TIMEOUT_MS_ATTRIB, threadTimeoutMs);
     }
@@ -509,6 +558,10 @@ public class QueryServicesOptions {
         return set(MAX_MEMORY_PERC_ATTRIB, maxMemoryPerc);
     }
 
+    public QueryServicesOptions setMaxMemoryWaitMs(int maxMemoryWaitMs) {
+        return set(MAX_MEMORY_WAIT_MS_ATTRIB, maxMemoryWaitMs);
+    }
+
     public QueryServicesOptions setMaxTenantMemoryPerc(int maxTenantMemoryPerc) {
         return set(MAX_TENANT_MEMORY_PERC_ATTRIB, maxTenantMemoryPerc);
     }
@@ -594,10 +647,30 @@ public class QueryServicesOptions {
         return config.getInt(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE);
     }
 
+    public int getReservedQueueSize() {
+        return config.getInt(RESERVED_QUEUE_SIZE_ATTRIB, DEFAULT_RESERVED_QUEUE_SIZE);
+    }
+
+    public int getSmallQueryTaskThreshold() {
+        return config.getInt(SMALL_QUERY_TASK_THRESHOLD_ATTRIB, DEFAULT_SMALL_QUERY_TASK_THRESHOLD);
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return config.getBoolean(VIRTUAL_THREADS_ENABLED_ATTRIB, DEFAULT_VIRTUAL_THREADS_ENABLED);
+    }
+
+    public int getVirtualThreadPoolSize() {
+        return config.getInt(VIRTUAL_THREAD_POOL_SIZE_ATTRIB, DEFAULT_VIRTUAL_THREAD_POOL_SIZE);
+    }
+
     public int getMaxMemoryPerc() {
         return config.getInt(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC);
     }
 
+    public int getMaxMemoryWaitMs() {
+        return config.getInt(MAX_MEMORY_WAIT_MS_ATTRIB, DEFAULT_MAX_MEMORY_WAIT_MS);
+    }
+
     public int getMaxMutateSize() {
         return config.getInt(MAX_MUTATION_SIZE_ATTRIB, DEFAULT_MAX_MUTATION_SIZE);
     }
@@ -597,9 +597,11 @@ public class MetaDataClient {
         // 1. table is a system table
         // 2. table was already resolved as of that timestamp
         // 3. table does not have a ROW_TIMESTAMP column and age is less then UPDATE_CACHE_FREQUENCY
+        //    or no change to the table has been published since it was cached
         if (table != null && !alwaysHitServer
                 && (systemTable || resolvedTimestamp == tableResolvedTimestamp || 
-                (table.getRowTimestampColPos() == -1 && connection.getMetaDataCache().getAge(tableRef) < table.getUpdateCacheFrequency() ))) {
+                (table.getRowTimestampColPos() == -1 && (connection.getMetaDataCache().getAge(tableRef) < table.getUpdateCacheFrequency()
+                        || connection.getQueryServices().getMetaDataChangeTracker().isCurrent(tableRef))))) {
             return new MetaDataMutationResult(MutationCode.TABLE_ALREADY_EXISTS, QueryConstants.UNSET_TIMESTAMP, table);
         }
 
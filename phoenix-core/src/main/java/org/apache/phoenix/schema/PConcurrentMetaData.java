@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.phoenix.parse.PFunction;
+import org.apache.phoenix.parse.PSchema;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.TimeKeeper;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MinMaxPriorityQueue;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
+
+/**
+ * Client-side cache of MetaData that is safe to share across threads. Reads never block: tables,
+ * functions and schemas are kept in concurrent maps and only the access time of the entry read is
+ * updated. Writers are serialized and only replace the entries they modify, rather than cloning
+ * the whole cache. When the estimated size of the cached tables grows beyond the max size, the
+ * least recently accessed tables are evicted until the cache fits again.
+ */
+public class PConcurrentMetaData implements PMetaData {
+    private static final Comparator<EvictionCandidate> COMPARATOR = new Comparator<EvictionCandidate>() {
+        @Override
+        public int compare(EvictionCandidate candidate1, EvictionCandidate candidate2) {
+            return Longs.compare(candidate1.lastAccessTime, candidate2.lastAccessTime);
+        }
+    };
+
+    /**
+     * A table considered for eviction, along with its access time when eviction started, since
+     * concurrent reads keep updating the access time of the table ref itself.
+     */
+    private static class EvictionCandidate {
+        private final PTableRef tableRef;
+        private final long lastAccessTime;
+
+        private EvictionCandidate(PTableRef tableRef) {
+            this.tableRef = tableRef;
+            this.lastAccessTime = tableRef.getLastAccessTime();
+        }
+    }
+
+    private final long maxByteSize;
+    private final TimeKeeper timeKeeper;
+    private final PTableRefFactory tableRefFactory;
+
+    private final ConcurrentMap<PTableKey,PTableRef> tables;
+    private final ConcurrentMap<PTableKey,PFunction> functions;
+    private final ConcurrentMap<PTableKey,PSchema> schemas;
+    @GuardedBy("this")
+    private volatile long currentByteSize;
+
+    public PConcurrentMetaData(int initialCapacity, ReadOnlyProps props) {
+        this(initialCapacity, TimeKeeper.SYSTEM, props);
+    }
+
+    public PConcurrentMetaData(int initialCapacity, TimeKeeper timeKeeper, ReadOnlyProps props) {
+        this.maxByteSize = props.getLong(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB,
+                QueryServicesOptions.DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE);
+        this.timeKeeper = timeKeeper;
+        this.tableRefFactory = PTableRefFactory.getFactory(props);
+        this.tables = new ConcurrentHashMap<PTableKey,PTableRef>(initialCapacity);
+        this.functions = new ConcurrentHashMap<PTableKey,PFunction>(initialCapacity);
+        this.schemas = new ConcurrentHashMap<PTableKey,PSchema>(initialCapacity);
+    }
+
+    private PConcurrentMetaData(PConcurrentMetaData toClone) {
+        this.maxByteSize = toClone.maxByteSize;
+        this.timeKeeper = toClone.timeKeeper;
+        this.tableRefFactory = toClone.tableRefFactory;
+        this.tables = new ConcurrentHashMap<PTableKey,PTableRef>(Math.max(16, toClone.tables.size()));
+        this.functions = new ConcurrentHashMap<PTableKey,PFunction>(toClone.functions);
+        this.schemas = new ConcurrentHashMap<PTableKey,PSchema>(toClone.schemas);
+        long byteSize = 0;
+        for (PTableRef tableRef : toClone.tables.values()) {
+            // Copy value so that access time isn't changing anymore
+            PTableRef newTableRef = tableRefFactory.makePTableRef(tableRef);
+            this.tables.put(tableRef.getTable().getKey(), newTableRef);
+            byteSize += newTableRef.getEstimatedSize();
+        }
+        this.currentByteSize = byteSize;
+    }
+
+    @Override
+    public PConcurrentMetaData clone() {
+        synchronized (this) {
+            return new PConcurrentMetaData(this);
+        }
+    }
+
+    @Override
+    public PTableRef getTableRef(PTableKey key) throws TableNotFoundException {
+        PTableRef ref = tables.get(key);
+        if (ref == null) {
+            throw new TableNotFoundException(key.getName());
+        }
+        ref.setLastAccessTime(timeKeeper.getCurrentTime());
+        return ref;
+    }
+
+    @Override
+    public PFunction getFunction(PTableKey key) throws FunctionNotFoundException {
+        PFunction function = functions.get(key);
+        if (function == null) {
+            throw new FunctionNotFoundException(key.getName());
+        }
+        return function;
+    }
+
+    @Override
+    public PSchema getSchema(PTableKey key) throws SchemaNotFoundException {
+        PSchema schema = schemas.get(key);
+        if (schema == null) {
+            throw new SchemaNotFoundException(key.getName());
+        }
+        return schema;
+    }
+
+    @Override
+    public int size() {
+        return tables.size();
+    }
+
+    @Override
+    public long getAge(PTableRef ref) {
+        return timeKeeper.getCurrentTime() - ref.getCreateTime();
+    }
+
+    @Override
+    public Iterator<PTable> iterator() {
+        return Iterators.unmodifiableIterator(Iterators.transform(tables.values().iterator(),
+                new Function<PTableRef, PTable>() {
+                    @Override
+                    public PTable apply(PTableRef tableRef) {
+                        return tableRef.getTable();
+                    }
+                }));
+    }
+
+    @GuardedBy("this")
+    private void put(PTableKey key, PTableRef ref) {
+        PTableRef oldRef = tables.put(key, ref);
+        currentByteSize += ref.getEstimatedSize() - (oldRef == null ? 0 : oldRef.getEstimatedSize());
+    }
+
+    @GuardedBy("this")
+    private PTable remove(PTableKey key) {
+        PTableRef oldRef = tables.remove(key);
+        if (oldRef == null) {
+            return null;
+        }
+        currentByteSize -= oldRef.getEstimatedSize();
+        return oldRef.getTable();
+    }
+
+    /**
+     * Removes the least recently used tables, other than the ones just added, until the
+     * cache fits within its max size again.
+     */
+    @GuardedBy("this")
+    private void evict(Set<PTableKey> addedKeys) {
+        long overage = currentByteSize - maxByteSize;
+        if (overage <= 0) {
+            return;
+        }
+        MinMaxPriorityQueue<EvictionCandidate> toRemove = MinMaxPriorityQueue.orderedBy(COMPARATOR).create();
+        long toRemoveBytes = 0;
+        for (PTableRef tableRef : tables.values()) {
+            if (addedKeys.contains(tableRef.getTable().getKey())) {
+                continue;
+            }
+            toRemove.add(new EvictionCandidate(tableRef));
+            toRemoveBytes += tableRef.getEstimatedSize();
+            // Only keep as many of the oldest entries as needed to cover the overage
+            while (toRemoveBytes - toRemove.peekLast().tableRef.getEstimatedSize() >= overage) {
+                toRemoveBytes -= toRemove.removeLast().tableRef.getEstimatedSize();
+            }
+        }
+        for (EvictionCandidate candidate : toRemove) {
+            remove(candidate.tableRef.getTable().getKey());
+        }
+    }
+
+    @Override
+    public synchronized void updateResolvedTimestamp(PTable table, long resolvedTimestamp) throws SQLException {
+        put(table.getKey(), tableRefFactory.makePTableRef(table, timeKeeper.getCurrentTime(), resolvedTimestamp));
+    }
+
+    @Override
+    public synchronized void addTable(PTable table, long resolvedTime) throws SQLException {
+        long currentTime = timeKeeper.getCurrentTime();
+        Set<PTableKey> addedKeys = Sets.newHashSetWithExpectedSize(table.getIndexes().size() + 2);
+        if (table.getType() == PTableType.INDEX) { // Upsert new index table into parent data table list
+            PTableRef oldParentRef = tables.get(new PTableKey(table.getTenantId(), table.getParentName().getString()));
+            // If parentTable isn't cached, that's ok we can skip this
+            if (oldParentRef != null) {
+                List<PTable> oldIndexes = oldParentRef.getTable().getIndexes();
+                List<PTable> newIndexes = Lists.newArrayListWithExpectedSize(oldIndexes.size() + 1);
+                for (PTable index : oldIndexes) {
+                    if (!index.getName().equals(table.getName())) {
+                        newIndexes.add(index);
+                    }
+                }
+                newIndexes.add(table);
+                PTable newParentTable = PTableImpl.makePTable(oldParentRef.getTable(), table.getTimeStamp(), newIndexes);
+                put(newParentTable.getKey(), tableRefFactory.makePTableRef(newParentTable, currentTime, resolvedTime));
+                addedKeys.add(newParentTable.getKey());
+            }
+        }
+        put(table.getKey(), tableRefFactory.makePTableRef(table, currentTime, resolvedTime));
+        addedKeys.add(table.getKey());
+        for (PTable index : table.getIndexes()) {
+            put(index.getKey(), tableRefFactory.makePTableRef(index, currentTime, resolvedTime));
+            addedKeys.add(index.getKey());
+        }
+        evict(addedKeys);
+    }
+
+    @Override
+    public synchronized void removeTable(PName tenantId, String tableName, String parentTableName, long tableTimeStamp) throws SQLException {
+        PTableRef parentTableRef = null;
+        PTable table = remove(new PTableKey(tenantId, tableName));
+        if (table == null) {
+            if (parentTableName != null) {
+                parentTableRef = tables.get(new PTableKey(tenantId, parentTableName));
+            }
+            if (parentTableRef == null) {
+                return;
+            }
+        } else {
+            for (PTable index : table.getIndexes()) {
+                remove(index.getKey());
+            }
+            if (table.getParentName() != null) {
+                parentTableRef = tables.get(new PTableKey(tenantId, table.getParentName().getString()));
+            }
+        }
+        // also remove its reference from parent table
+        if (parentTableRef != null) {
+            List<PTable> oldIndexes = parentTableRef.getTable().getIndexes();
+            if (oldIndexes != null && !oldIndexes.isEmpty()) {
+                List<PTable> newIndexes = Lists.newArrayList(oldIndexes);
+                for (int i = 0; i < newIndexes.size(); i++) {
+                    PTable index = newIndexes.get(i);
+                    if (index.getName().getString().equals(tableName)) {
+                        newIndexes.remove(i);
+                        PTable parentTable = PTableImpl.makePTable(
+                                parentTableRef.getTable(),
+                                tableTimeStamp == HConstants.LATEST_TIMESTAMP ? parentTableRef.getTable().getTimeStamp() : tableTimeStamp,
+                                newIndexes);
+                        put(parentTable.getKey(), tableRefFactory.makePTableRef(parentTable, timeKeeper.getCurrentTime(), parentTableRef.getResolvedTimeStamp()));
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void removeColumn(PName tenantId, String tableName, List<PColumn> columnsToRemove, long tableTimeStamp, long tableSeqNum, long resolvedTime) throws SQLException {
+        PTableRef tableRef = tables.get(new PTableKey(tenantId, tableName));
+        if (tableRef == null) {
+            return;
+        }
+        PTable table = tableRef.getTable();
+        for (PColumn columnToRemove : columnsToRemove) {
+            PColumn column;
+            String familyName = columnToRemove.getFamilyName().getString();
+            if (familyName == null) {
+                column = table.getPKColumn(columnToRemove.getName().getString());
+            } else {
+                column = table.getColumnFamily(familyName).getPColumnForColumnName(columnToRemove.getName().getString());
+            }
+            int positionOffset = 0;
+            int position = column.getPosition();
+            List<PColumn> oldColumns = table.getColumns();
+            if (table.getBucketNum() != null) {
+                position--;
+                positionOffset = 1;
+                oldColumns = oldColumns.subList(positionOffset, oldColumns.size());
+            }
+            List<PColumn> columns = Lists.newArrayListWithExpectedSize(oldColumns.size() - 1);
+            columns.addAll(oldColumns.subList(0, position));
+            // Update position of columns that follow removed column
+            for (int i = position+1; i < oldColumns.size(); i++) {
+                PColumn oldColumn = oldColumns.get(i);
+                PColumn newColumn = new PColumnImpl(oldColumn.getName(), oldColumn.getFamilyName(), oldColumn.getDataType(), oldColumn.getMaxLength(), oldColumn.getScale(), oldColumn.isNullable(), i-1+positionOffset, oldColumn.getSortOrder(), oldColumn.getArraySize(), oldColumn.getViewConstant(), oldColumn.isViewReferenced(), oldColumn.getExpressionStr(), oldColumn.isRowTimestamp(), oldColumn.isDynamic(), oldColumn.getColumnQualifierBytes());
+                columns.add(newColumn);
+            }
+            table = PTableImpl.makePTable(table, tableTimeStamp, tableSeqNum, columns);
+        }
+        put(table.getKey(), tableRefFactory.makePTableRef(table, timeKeeper.getCurrentTime(), resolvedTime));
+    }
+
+    @Override
+    public synchronized void pruneTables(Pruner pruner) {
+        for (PTableRef tableRef : tables.values()) {
+            PTable table = tableRef.getTable();
+            if (pruner.prune(table)) {
+                remove(table.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void addFunction(PFunction function) throws SQLException {
+        functions.put(function.getKey(), function);
+    }
+
+    @Override
+    public void removeFunction(PName tenantId, String function, long functionTimeStamp) throws SQLException {
+        functions.remove(new PTableKey(tenantId, function));
+    }
+
+    @Override
+    public void pruneFunctions(Pruner pruner) {
+        for (PFunction function : functions.values()) {
+            if (pruner.prune(function)) {
+                functions.remove(function.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void addSchema(PSchema schema) throws SQLException {
+        schemas.put(schema.getSchemaKey(), schema);
+    }
+
+    @Override
+    public void removeSchema(PSchema schema, long schemaTimeStamp) {
+        schemas.remove(schema.getSchemaKey());
+    }
+}
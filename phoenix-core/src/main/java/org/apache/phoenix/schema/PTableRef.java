@@ -30,6 +30,14 @@ public abstract class PTableRef {
         this.resolvedTimeStamp = resolvedTime;
         this.createTime = lastAccessTime;
     }
+
+    protected PTableRef(PTableRef tableRef) {
+        // Keep the original create time, as the copy reflects the same version of the table
+        this.lastAccessTime = tableRef.getLastAccessTime();
+        this.estSize = tableRef.getEstimatedSize();
+        this.resolvedTimeStamp = tableRef.getResolvedTimeStamp();
+        this.createTime = tableRef.getCreateTime();
+    }
     
     /**
      * Tracks how long this entry has been in the cache
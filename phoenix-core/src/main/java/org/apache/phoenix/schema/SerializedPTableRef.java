@@ -18,30 +18,66 @@
 package org.apache.phoenix.schema;
 
 import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
 
 import org.apache.phoenix.coprocessor.generated.PTableProtos;
+import org.iq80.snappy.Snappy;
 
+/**
+ * Holds a table as Snappy compressed protobuf bytes. The table is only materialized when
+ * accessed and is then kept through a soft reference, so frequently used tables are not
+ * deserialized on every access while the memory of rarely used ones may be reclaimed. Only the
+ * compressed bytes are accounted for in the client cache, as the materialized table is given
+ * back to the garbage collector when memory runs low.
+ */
 public class SerializedPTableRef extends PTableRef {
 
     private final byte[] tableBytes;
+    private volatile SoftReference<PTable> tableCache;
 
     public SerializedPTableRef(byte[] tableBytes, long lastAccessTime, long resolvedTime, int estimatedSize) {
-        super(lastAccessTime, resolvedTime, tableBytes.length);
-        this.tableBytes = tableBytes;
+        this(compress(tableBytes), null, lastAccessTime, resolvedTime);
+    }
+
+    SerializedPTableRef(PTable table, long lastAccessTime, long resolvedTime) {
+        this(compress(PTableImpl.toProto(table).toByteArray()), table, lastAccessTime, resolvedTime);
+    }
+
+    private SerializedPTableRef(byte[] compressedBytes, PTable table, long lastAccessTime, long resolvedTime) {
+        super(lastAccessTime, resolvedTime, compressedBytes.length);
+        this.tableBytes = compressedBytes;
+        this.tableCache = table == null ? null : new SoftReference<PTable>(table);
     }
 
     public SerializedPTableRef(PTableRef tableRef) {
-        super(tableRef.getLastAccessTime(), tableRef.getResolvedTimeStamp(), tableRef.getEstimatedSize());
+        super(tableRef);
         this.tableBytes = ((SerializedPTableRef)tableRef).tableBytes;
+        this.tableCache = ((SerializedPTableRef)tableRef).tableCache;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        byte[] compressed = new byte[Snappy.maxCompressedLength(bytes.length)];
+        int compressedSize = Snappy.compress(bytes, 0, bytes.length, compressed, 0);
+        return Arrays.copyOf(compressed, compressedSize);
     }
 
     @Override
     public PTable getTable() {
+        SoftReference<PTable> cache = tableCache;
+        PTable table = cache == null ? null : cache.get();
+        if (table != null) {
+            return table;
+        }
         try {
-            return PTableImpl.createFromProto(PTableProtos.PTable.parseFrom(tableBytes));
+            byte[] bytes = new byte[Snappy.getUncompressedLength(tableBytes, 0)];
+            Snappy.uncompress(tableBytes, 0, tableBytes.length, bytes, 0);
+            table = PTableImpl.createFromProto(PTableProtos.PTable.parseFrom(bytes));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        tableCache = new SoftReference<PTable>(table);
+        return table;
     }
 
 }
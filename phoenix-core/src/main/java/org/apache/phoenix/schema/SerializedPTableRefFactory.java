@@ -20,8 +20,7 @@ package org.apache.phoenix.schema;
 class SerializedPTableRefFactory extends PTableRefFactory {
     @Override
     public PTableRef makePTableRef(PTable table, long lastAccessTime, long resolvedTime) {
-        byte[] serializedBytes = PTableImpl.toProto(table).toByteArray();
-        return new SerializedPTableRef(serializedBytes, lastAccessTime, resolvedTime, table.getEstimatedSize());
+        return new SerializedPTableRef(table, lastAccessTime, resolvedTime);
     }
     
     @Override
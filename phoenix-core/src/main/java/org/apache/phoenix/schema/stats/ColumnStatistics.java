@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.util.EquiDepthStreamHistogram.Bucket;
+import org.apache.phoenix.util.SizedUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+
+/**
+ * Value distribution of a single key value column, collected along with the guideposts of a
+ * column family. Holds the number of rows and non null values seen, the value range, a
+ * HyperLogLog sketch of the number of distinct values and an equi-depth histogram over the
+ * serialized values. Statistics of different regions are combined through
+ * {@link #combine(ColumnStatistics)} when they are read for a table.
+ *
+ * Values are compared by their serialized bytes, which matches the value ordering for every
+ * type Phoenix stores in ascending order.
+ */
+public class ColumnStatistics {
+    private static final byte VERSION = 1;
+    // Precisions of the distinct value sketch, giving roughly a 1.6% error in 3KB
+    static final int NDV_PRECISION = 12;
+    static final int NDV_SPARSE_PRECISION = 20;
+    // Upper bound on the buckets kept once the histograms of several regions are combined
+    static final int MAX_COMBINED_BUCKETS = 256;
+    private static final Comparator<Bucket> BUCKET_COMPARATOR = new Comparator<Bucket>() {
+        @Override
+        public int compare(Bucket o1, Bucket o2) {
+            return Bytes.compareTo(o1.getLeftBoundInclusive(), o2.getLeftBoundInclusive());
+        }
+    };
+
+    private final long rowCount;
+    private final long nonNullCount;
+    private final byte[] minValue;
+    private final byte[] maxValue;
+    private final HyperLogLogPlus distinctValues;
+    private final List<Bucket> histogram;
+    private final long distinctCount;
+    private final int estimatedSize;
+
+    /**
+     * @param rowCount number of rows of the column family the column belongs to
+     * @param nonNullCount number of rows with a value for the column
+     * @param minValue smallest value
+     * @param maxValue largest value
+     * @param distinctValues sketch of the distinct values
+     * @param histogram equi-depth buckets ordered by their left bound, the last right bound being inclusive
+     */
+    public ColumnStatistics(long rowCount, long nonNullCount, byte[] minValue, byte[] maxValue,
+            HyperLogLogPlus distinctValues, List<Bucket> histogram) {
+        this.rowCount = rowCount;
+        this.nonNullCount = nonNullCount;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.distinctValues = distinctValues;
+        this.histogram = Collections.unmodifiableList(histogram);
+        this.distinctCount = Math.max(1, Math.min(nonNullCount, distinctValues.cardinality()));
+        int estimatedSize = SizedUtil.OBJECT_SIZE + 3 * SizedUtil.LONG_SIZE + SizedUtil.INT_SIZE
+                + 2 * SizedUtil.ARRAY_SIZE + minValue.length + maxValue.length
+                + SizedUtil.OBJECT_SIZE + distinctValues.sizeof()
+                + SizedUtil.sizeOfArrayList(histogram.size());
+        for (Bucket bucket : histogram) {
+            estimatedSize += SizedUtil.OBJECT_SIZE + SizedUtil.LONG_SIZE + 2 * SizedUtil.ARRAY_SIZE
+                    + bucket.getLeftBoundInclusive().length + bucket.getRightBoundExclusive().length;
+        }
+        this.estimatedSize = estimatedSize;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getNonNullCount() {
+        return nonNullCount;
+    }
+
+    public byte[] getMinValue() {
+        return minValue;
+    }
+
+    public byte[] getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @return the estimated number of distinct non null values, at least one
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public List<Bucket> getHistogram() {
+        return histogram;
+    }
+
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /**
+     * @return the fraction of rows for which the column is null
+     */
+    public double getNullFraction() {
+        return rowCount == 0 ? 0 : 1 - (double) nonNullCount / rowCount;
+    }
+
+    /**
+     * @return the estimated fraction of rows for which the column equals the given value
+     */
+    public double estimateEqualsFraction(byte[] value, int offset, int length) {
+        if (rowCount == 0 || Bytes.compareTo(value, offset, length, minValue, 0, minValue.length) < 0
+                || Bytes.compareTo(value, offset, length, maxValue, 0, maxValue.length) > 0) {
+            return 0;
+        }
+        return (double) nonNullCount / rowCount / distinctCount;
+    }
+
+    /**
+     * @return the estimated fraction of rows for which the column is smaller than the given value,
+     *         or smaller than or equal to it if inclusive is true
+     */
+    public double estimateLessThanFraction(byte[] value, int offset, int length, boolean inclusive) {
+        if (rowCount == 0 || histogram.isEmpty()) {
+            return 0;
+        }
+        byte[] v = value;
+        if (offset != 0 || length != value.length) {
+            v = Bytes.copy(value, offset, length);
+        }
+        double below = 0;
+        long total = 0;
+        for (Bucket bucket : histogram) {
+            long count = bucket.getCountEstimate();
+            total += count;
+            byte[] left = bucket.getLeftBoundInclusive();
+            byte[] right = bucket.getRightBoundExclusive();
+            if (Bytes.compareTo(right, v) <= 0) {
+                below += count;
+            } else if (Bytes.compareTo(left, v) < 0) {
+                below += count * interpolate(left, right, v);
+            }
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double fraction = below / total * nonNullCount / rowCount;
+        if (inclusive) {
+            fraction += estimateEqualsFraction(v, 0, v.length);
+        }
+        return Math.min(fraction, (double) nonNullCount / rowCount);
+    }
+
+    /**
+     * Estimates the relative position of a value between two bounds by interpreting the first
+     * eight bytes following their common prefix as an unsigned number.
+     */
+    static double interpolate(byte[] left, byte[] right, byte[] value) {
+        int prefix = 0;
+        int maxPrefix = Math.min(left.length, right.length);
+        while (prefix < maxPrefix && left[prefix] == right[prefix]) {
+            prefix++;
+        }
+        double lo = toDouble(left, prefix);
+        double hi = toDouble(right, prefix);
+        if (hi <= lo) {
+            return 0.5;
+        }
+        double position = (toDouble(value, prefix) - lo) / (hi - lo);
+        return Math.max(0, Math.min(1, position));
+    }
+
+    private static double toDouble(byte[] b, int offset) {
+        double d = 0;
+        for (int i = offset; i < offset + Bytes.SIZEOF_LONG; i++) {
+            d = d * 256 + (i < b.length ? b[i] & 0xff : 0);
+        }
+        return d;
+    }
+
+    /**
+     * Combine the statistics of two regions of the same column family.
+     */
+    public ColumnStatistics combine(ColumnStatistics other) {
+        HyperLogLogPlus distinctValues;
+        try {
+            distinctValues = (HyperLogLogPlus) this.distinctValues.merge(other.distinctValues);
+        } catch (CardinalityMergeException e) {
+            throw new IllegalStateException(e);
+        }
+        List<Bucket> histogram = new ArrayList<Bucket>(this.histogram.size() + other.histogram.size());
+        histogram.addAll(this.histogram);
+        histogram.addAll(other.histogram);
+        Collections.sort(histogram, BUCKET_COMPARATOR);
+        while (histogram.size() > MAX_COMBINED_BUCKETS) {
+            histogram = mergeAdjacentBuckets(histogram);
+        }
+        return new ColumnStatistics(rowCount + other.rowCount, nonNullCount + other.nonNullCount,
+                Bytes.compareTo(minValue, other.minValue) <= 0 ? minValue : other.minValue,
+                Bytes.compareTo(maxValue, other.maxValue) >= 0 ? maxValue : other.maxValue,
+                distinctValues, histogram);
+    }
+
+    private static List<Bucket> mergeAdjacentBuckets(List<Bucket> histogram) {
+        List<Bucket> merged = new ArrayList<Bucket>((histogram.size() + 1) / 2);
+        for (int i = 0; i < histogram.size(); i += 2) {
+            Bucket first = histogram.get(i);
+            if (i + 1 == histogram.size()) {
+                merged.add(first);
+                break;
+            }
+            Bucket second = histogram.get(i + 1);
+            byte[] right = Bytes.compareTo(first.getRightBoundExclusive(), second.getRightBoundExclusive()) >= 0
+                    ? first.getRightBoundExclusive() : second.getRightBoundExclusive();
+            Bucket bucket = new Bucket(first.getLeftBoundInclusive(), right);
+            bucket.incrementCountEstimate(first.getCountEstimate() + second.getCountEstimate());
+            merged.add(bucket);
+        }
+        return merged;
+    }
+
+    public byte[] toBytes() throws IOException {
+        TrustedByteArrayOutputStream stream = new TrustedByteArrayOutputStream(estimatedSize);
+        try (DataOutputStream output = new DataOutputStream(stream)) {
+            output.writeByte(VERSION);
+            WritableUtils.writeVLong(output, rowCount);
+            WritableUtils.writeVLong(output, nonNullCount);
+            Bytes.writeByteArray(output, minValue);
+            Bytes.writeByteArray(output, maxValue);
+            Bytes.writeByteArray(output, distinctValues.getBytes());
+            WritableUtils.writeVInt(output, histogram.size());
+            for (Bucket bucket : histogram) {
+                Bytes.writeByteArray(output, bucket.getLeftBoundInclusive());
+                Bytes.writeByteArray(output, bucket.getRightBoundExclusive());
+                WritableUtils.writeVLong(output, bucket.getCountEstimate());
+            }
+        }
+        return stream.toByteArray();
+    }
+
+    public static ColumnStatistics fromBytes(byte[] b, int offset, int length) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(b, offset, length))) {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unknown column statistics version " + version);
+            }
+            long rowCount = WritableUtils.readVLong(input);
+            long nonNullCount = WritableUtils.readVLong(input);
+            byte[] minValue = Bytes.readByteArray(input);
+            byte[] maxValue = Bytes.readByteArray(input);
+            HyperLogLogPlus distinctValues = HyperLogLogPlus.Builder.build(Bytes.readByteArray(input));
+            int bucketCount = WritableUtils.readVInt(input);
+            List<Bucket> histogram = new ArrayList<Bucket>(bucketCount);
+            for (int i = 0; i < bucketCount; i++) {
+                Bucket bucket = new Bucket(Bytes.readByteArray(input), Bytes.readByteArray(input));
+                bucket.incrementCountEstimate(WritableUtils.readVLong(input));
+                histogram.add(bucket);
+            }
+            return new ColumnStatistics(rowCount, nonNullCount, minValue, maxValue, distinctValues, histogram);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.util.EquiDepthStreamHistogram;
+import org.apache.phoenix.util.EquiDepthStreamHistogram.Bucket;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/*
+ * Builder to help in streaming the values of a column through the distinct value sketch and
+ * histogram while collecting stats for a region.
+ */
+public class ColumnStatisticsBuilder {
+    static final int HISTOGRAM_BUCKETS = 32;
+    // Spreads short values such as fixed width numbers better than the sketch's own hash
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final HyperLogLogPlus distinctValues = new HyperLogLogPlus(ColumnStatistics.NDV_PRECISION,
+            ColumnStatistics.NDV_SPARSE_PRECISION);
+    private final EquiDepthStreamHistogram histogram = new EquiDepthStreamHistogram(HISTOGRAM_BUCKETS);
+    private long nonNullCount;
+    private byte[] minValue;
+    private byte[] maxValue;
+
+    public void addValue(byte[] b, int offset, int length) {
+        byte[] value = Bytes.copy(b, offset, length);
+        distinctValues.offerHashed(HASH_FUNCTION.hashBytes(value).asLong());
+        histogram.addValue(value);
+        if (minValue == null || Bytes.compareTo(value, minValue) < 0) {
+            minValue = value;
+        }
+        if (maxValue == null || Bytes.compareTo(value, maxValue) > 0) {
+            maxValue = value;
+        }
+        nonNullCount++;
+    }
+
+    public boolean isEmpty() {
+        return nonNullCount == 0;
+    }
+
+    /**
+     * @param rowCount number of rows of the column family traversed
+     */
+    public ColumnStatistics build(long rowCount) {
+        List<Bucket> buckets;
+        try {
+            buckets = histogram.computeBuckets();
+        } catch (IllegalStateException e) {
+            // Too few distinct values to split into buckets, so describe the range as a whole
+            Bucket bucket = new Bucket(minValue, maxValue);
+            bucket.incrementCountEstimate(nonNullCount);
+            buckets = Collections.singletonList(bucket);
+        }
+        return new ColumnStatistics(Math.max(rowCount, nonNullCount), nonNullCount, minValue, maxValue,
+                distinctValues, buckets);
+    }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,6 +30,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.client.Get;
@@ -45,6 +47,7 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.coprocessor.MetaDataProtocol;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PName;
@@ -85,9 +88,16 @@ class DefaultStatisticsCollector implements StatisticsCollector {
     private final long clientTimeStamp;
     private final String tableName;
     private final boolean isViewIndexTable;
+    private final boolean collectColumnStats;
+    private final int maxColumnStats;
+    private final Map<ImmutableBytesPtr, Map<ImmutableBytesPtr, ColumnStatisticsBuilder>> columnStatsBuilders = Maps.newHashMap();
+    private Cell lastColumnCell;
+    private final boolean collectZoneMaps;
+    private final long zoneMapCutoff;
+    private final Map<ImmutableBytesPtr, ZoneMapTracker> zoneMapTrackers = Maps.newHashMap();
 
     DefaultStatisticsCollector(RegionCoprocessorEnvironment env, String tableName, long clientTimeStamp, byte[] family,
-            byte[] gp_width_bytes, byte[] gp_per_region_bytes) throws IOException {
+            byte[] gp_width_bytes, byte[] gp_per_region_bytes, long zoneMapCutoff) throws IOException {
         this.env = env;
         this.guidePostWidthBytes = gp_width_bytes;
         this.guidePostPerRegionBytes = gp_per_region_bytes;
@@ -110,6 +120,18 @@ class DefaultStatisticsCollector implements StatisticsCollector {
             isViewIndexTable = false;
         }
         ptableKey = SchemaUtil.getTableKeyFromFullName(pName);
+        this.collectColumnStats = env.getConfiguration().getBoolean(
+                QueryServices.STATS_COLUMN_COLLECTION_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_STATS_COLUMN_COLLECTION_ENABLED);
+        this.maxColumnStats = env.getConfiguration().getInt(
+                QueryServices.STATS_COLUMN_MAX_COLUMNS_ATTRIB,
+                QueryServicesOptions.DEFAULT_STATS_COLUMN_MAX_COLUMNS);
+        // Without a cutoff, as in a compaction, which doesn't see the cells of the memstore,
+        // there is no bound on the timestamps of the cells the zone maps would miss
+        this.collectZoneMaps = zoneMapCutoff != NO_TIMESTAMP && env.getConfiguration().getBoolean(
+                QueryServices.STATS_ZONE_MAP_COLLECTION_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_STATS_ZONE_MAP_COLLECTION_ENABLED);
+        this.zoneMapCutoff = zoneMapCutoff;
         this.clientTimeStamp = clientTimeStamp;
         this.tableName = tableName;
         // in a compaction we know the one family ahead of time
@@ -272,6 +294,7 @@ class DefaultStatisticsCollector implements StatisticsCollector {
                 // If we've disabled stats, don't write any, just delete them
                 if (this.guidePostDepth > 0) {
                     statsWriter.addStats(this, fam, mutations);
+                    statsWriter.addColumnStats(region, this, fam, mutations);
                 }
             }
         } catch (IOException e) {
@@ -334,6 +357,14 @@ class DefaultStatisticsCollector implements StatisticsCollector {
                     incrementRow = false;
                 }
             }
+            if (collectColumnStats) {
+                collectColumnStatistics(kv);
+            }
+            ZoneMapTracker zoneMapTracker = null;
+            if (collectZoneMaps) {
+                zoneMapTracker = getZoneMapTracker(kv);
+                zoneMapTracker.addValue(row, kv);
+            }
             int kvLength = kv.getLength();
             long byteCount = gps.getFirst() + kvLength;
             gps.setFirst(byteCount);
@@ -341,11 +372,101 @@ class DefaultStatisticsCollector implements StatisticsCollector {
                 if (gps.getSecond().addGuidePostOnCollection(row, byteCount, gps.getSecond().getRowCount())) {
                     gps.setFirst(0l);
                     gps.getSecond().resetRowCount();
+                    if (zoneMapTracker != null) {
+                        zoneMapTracker.endChunk(row);
+                    }
                 }
             }
         }
     }
 
+    private void collectColumnStatistics(KeyValue kv) {
+        if (kv.getTypeByte() != KeyValue.Type.Put.getCode() || kv.getValueLength() == 0
+                || CellUtil.matchingQualifier(kv, QueryConstants.EMPTY_COLUMN_BYTES)
+                || CellUtil.matchingQualifier(kv, QueryConstants.ENCODED_EMPTY_COLUMN_BYTES)) {
+            return;
+        }
+        // Only the latest version of a column contributes to the row
+        if (lastColumnCell != null && CellUtil.matchingRow(lastColumnCell, kv)
+                && CellUtil.matchingColumn(lastColumnCell, kv)) {
+            return;
+        }
+        lastColumnCell = kv;
+        ImmutableBytesPtr cfKey = new ImmutableBytesPtr(kv.getFamilyArray(), kv.getFamilyOffset(),
+                kv.getFamilyLength());
+        Map<ImmutableBytesPtr, ColumnStatisticsBuilder> builders = columnStatsBuilders.get(cfKey);
+        if (builders == null) {
+            builders = Maps.newHashMap();
+            columnStatsBuilders.put(new ImmutableBytesPtr(CellUtil.cloneFamily(kv)), builders);
+        }
+        ImmutableBytesPtr qualifier = new ImmutableBytesPtr(kv.getQualifierArray(), kv.getQualifierOffset(),
+                kv.getQualifierLength());
+        ColumnStatisticsBuilder builder = builders.get(qualifier);
+        if (builder == null) {
+            if (builders.size() >= maxColumnStats) {
+                return;
+            }
+            builder = new ColumnStatisticsBuilder();
+            builders.put(new ImmutableBytesPtr(CellUtil.cloneQualifier(kv)), builder);
+        }
+        builder.addValue(kv.getValueArray(), kv.getValueOffset(), kv.getValueLength());
+    }
+
+    private ZoneMapTracker getZoneMapTracker(KeyValue kv) {
+        ImmutableBytesPtr cfKey = new ImmutableBytesPtr(kv.getFamilyArray(), kv.getFamilyOffset(),
+                kv.getFamilyLength());
+        ZoneMapTracker tracker = zoneMapTrackers.get(cfKey);
+        if (tracker == null) {
+            tracker = new ZoneMapTracker(env.getRegion().getRegionInfo().getStartKey(), maxColumnStats,
+                    zoneMapCutoff);
+            zoneMapTrackers.put(new ImmutableBytesPtr(CellUtil.cloneFamily(kv)), tracker);
+        }
+        return tracker;
+    }
+
+    /**
+     * Tracks the zone maps of the chunks ending at each guidepost of a column family. As the scan
+     * of a chunk starts at the guidepost ending the previous chunk, the row of a guidepost is
+     * tracked by the zone maps of both chunks.
+     */
+    private static class ZoneMapTracker {
+        private final List<ZoneMap> zoneMaps = new ArrayList<ZoneMap>();
+        private final ZoneMap.Builder chunkValues;
+        private final ZoneMap.Builder rowValues;
+        private final long cutoffTimestamp;
+        private byte[] chunkStartRow;
+        private ImmutableBytesWritable currentRow;
+
+        private ZoneMapTracker(byte[] regionStartKey, int maxColumns, long cutoffTimestamp) {
+            this.chunkStartRow = regionStartKey;
+            this.cutoffTimestamp = cutoffTimestamp;
+            this.chunkValues = new ZoneMap.Builder(maxColumns);
+            this.rowValues = new ZoneMap.Builder(maxColumns);
+        }
+
+        private void addValue(ImmutableBytesWritable row, KeyValue kv) {
+            if (!row.equals(currentRow)) {
+                currentRow = row;
+                rowValues.clear();
+            }
+            // Any version of a column may be visible to a query, so all of them are tracked
+            if (kv.getTypeByte() != KeyValue.Type.Put.getCode() || kv.getValueLength() == 0
+                    || CellUtil.matchingQualifier(kv, QueryConstants.EMPTY_COLUMN_BYTES)
+                    || CellUtil.matchingQualifier(kv, QueryConstants.ENCODED_EMPTY_COLUMN_BYTES)) {
+                return;
+            }
+            chunkValues.addValue(kv);
+            rowValues.addValue(kv);
+        }
+
+        private void endChunk(ImmutableBytesWritable guidePostRow) {
+            zoneMaps.add(chunkValues.build(chunkStartRow, cutoffTimestamp));
+            chunkValues.clear();
+            chunkValues.addAll(rowValues);
+            chunkStartRow = guidePostRow.copyBytes();
+        }
+    }
+
     @Override
     public InternalScanner createCompactionScanner(RegionCoprocessorEnvironment env, Store store,
             InternalScanner s) throws IOException {
@@ -380,6 +501,30 @@ class DefaultStatisticsCollector implements StatisticsCollector {
         return null;
     }
 
+    @Override
+    public Map<ImmutableBytesPtr, ColumnStatistics> getColumnStatistics(ImmutableBytesPtr fam) {
+        Map<ImmutableBytesPtr, ColumnStatisticsBuilder> builders = columnStatsBuilders.get(fam);
+        Pair<Long, GuidePostsInfoBuilder> pair = guidePostsInfoWriterMap.get(fam);
+        if (builders == null || pair == null) {
+            return Collections.emptyMap();
+        }
+        long rowCount = pair.getSecond().getRowCount();
+        for (Long guidePostRowCount : pair.getSecond().getRowCounts()) {
+            rowCount += guidePostRowCount;
+        }
+        Map<ImmutableBytesPtr, ColumnStatistics> columnStats = Maps.newHashMapWithExpectedSize(builders.size());
+        for (Map.Entry<ImmutableBytesPtr, ColumnStatisticsBuilder> entry : builders.entrySet()) {
+            columnStats.put(entry.getKey(), entry.getValue().build(rowCount));
+        }
+        return columnStats;
+    }
+
+    @Override
+    public List<ZoneMap> getZoneMaps(ImmutableBytesPtr fam) {
+        ZoneMapTracker tracker = zoneMapTrackers.get(fam);
+        return tracker == null ? Collections.<ZoneMap>emptyList() : tracker.zoneMaps;
+    }
+
     @VisibleForTesting // Don't call this method anywhere else
     public long getGuidePostDepth() {
         return guidePostDepth;
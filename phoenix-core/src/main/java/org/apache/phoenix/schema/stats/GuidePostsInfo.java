@@ -19,9 +19,11 @@ package org.apache.phoenix.schema.stats;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.SizedUtil;
 
@@ -71,6 +73,14 @@ public class GuidePostsInfo {
      * The timestamps at which guideposts were created/updated
      */
     private final long[] gpTimestamps;
+    /**
+     * The statistics of the key value columns keyed by column qualifier
+     */
+    private final Map<ImmutableBytesPtr, ColumnStatistics> columnStats;
+    /**
+     * The zone maps of the chunks ending at each guidePost, or null if none were collected
+     */
+    private final ZoneMap[] zoneMaps;
 
     /**
      * Constructor that creates GuidePostsInfo per region
@@ -90,6 +100,18 @@ public class GuidePostsInfo {
      */
     public GuidePostsInfo(List<Long> byteCounts, ImmutableBytesWritable guidePosts, List<Long> rowCounts, int maxLength,
             int guidePostsCount, List<Long> updateTimes) {
+        this(byteCounts, guidePosts, rowCounts, maxLength, guidePostsCount, updateTimes, null);
+    }
+
+    /**
+     * Constructor that creates GuidePostsInfo per region along with the zone maps of its chunks
+     * 
+     * @param zoneMaps
+     *            The zone maps of the chunks ending at each guidePost, with null for the chunks
+     *            without one, or null if none were collected
+     */
+    public GuidePostsInfo(List<Long> byteCounts, ImmutableBytesWritable guidePosts, List<Long> rowCounts, int maxLength,
+            int guidePostsCount, List<Long> updateTimes, List<ZoneMap> zoneMaps) {
         this.guidePosts = new ImmutableBytesWritable(guidePosts);
         this.maxLength = maxLength;
         this.guidePostsCount = guidePostsCount;
@@ -102,8 +124,44 @@ public class GuidePostsInfo {
                 + SizedUtil.ARRAY_SIZE + this.rowCounts.length * SizedUtil.LONG_SIZE // rowCounts
                 + SizedUtil.ARRAY_SIZE + this.byteCounts.length * SizedUtil.LONG_SIZE // byteCounts
                 + SizedUtil.INT_SIZE; // estimatedSize
+        if (zoneMaps != null) {
+            this.zoneMaps = zoneMaps.toArray(new ZoneMap[zoneMaps.size()]);
+            estimatedSize += SizedUtil.ARRAY_SIZE + this.zoneMaps.length * SizedUtil.POINTER_SIZE;
+            for (ZoneMap zoneMap : this.zoneMaps) {
+                if (zoneMap != null) {
+                    estimatedSize += zoneMap.getEstimatedSize();
+                }
+            }
+        } else {
+            this.zoneMaps = null;
+        }
         this.estimatedSize = estimatedSize;
         this.gpTimestamps = Longs.toArray(updateTimes);
+        this.columnStats = Collections.emptyMap();
+    }
+
+    private GuidePostsInfo(GuidePostsInfo guidePostsInfo, Map<ImmutableBytesPtr, ColumnStatistics> columnStats) {
+        this.guidePosts = guidePostsInfo.guidePosts;
+        this.maxLength = guidePostsInfo.maxLength;
+        this.guidePostsCount = guidePostsInfo.guidePostsCount;
+        this.rowCounts = guidePostsInfo.rowCounts;
+        this.byteCounts = guidePostsInfo.byteCounts;
+        this.gpTimestamps = guidePostsInfo.gpTimestamps;
+        this.zoneMaps = guidePostsInfo.zoneMaps;
+        this.columnStats = Collections.unmodifiableMap(columnStats);
+        int estimatedSize = guidePostsInfo.estimatedSize + (int) SizedUtil.sizeOfMap(columnStats.size());
+        for (Map.Entry<ImmutableBytesPtr, ColumnStatistics> entry : columnStats.entrySet()) {
+            estimatedSize += SizedUtil.IMMUTABLE_BYTES_PTR_SIZE + entry.getKey().getLength()
+                    + entry.getValue().getEstimatedSize();
+        }
+        this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * @return a copy of this instance carrying the given column statistics
+     */
+    public GuidePostsInfo withColumnStatistics(Map<ImmutableBytesPtr, ColumnStatistics> columnStats) {
+        return new GuidePostsInfo(this, columnStats);
     }
     
     public ImmutableBytesWritable getGuidePosts() {
@@ -134,6 +192,21 @@ public class GuidePostsInfo {
         return estimatedSize;
     }
 
+    /**
+     * @return the statistics of the key value column with the given qualifier, or null if none were collected
+     */
+    public ColumnStatistics getColumnStatistics(byte[] columnQualifier) {
+        return columnStats.isEmpty() ? null : columnStats.get(new ImmutableBytesPtr(columnQualifier));
+    }
+
+    /**
+     * @return the zone map of the chunk ending at the guidePost with the given index, or null if
+     *         none was collected
+     */
+    public ZoneMap getZoneMap(int guideIndex) {
+        return zoneMaps == null || guideIndex >= zoneMaps.length ? null : zoneMaps[guideIndex];
+    }
+
     public boolean isEmptyGuidePost() {
         return guidePosts.equals(EMPTY_GUIDEPOST_KEY) && guidePostsCount == 0
                 && byteCounts.length == 1 && gpTimestamps.length == 1;
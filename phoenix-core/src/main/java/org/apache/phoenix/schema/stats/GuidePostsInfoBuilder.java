@@ -51,6 +51,8 @@ public class GuidePostsInfoBuilder {
     private List<Long> rowCounts = new ArrayList<Long>();
     private List<Long> byteCounts = new ArrayList<Long>();
     private List<Long> guidePostsTimestamps = new ArrayList<Long>();
+    private List<ZoneMap> zoneMaps = new ArrayList<ZoneMap>();
+    private boolean hasZoneMaps;
 
     public boolean isEmpty() {
         return rowCounts.size() == 0;
@@ -97,12 +99,23 @@ public class GuidePostsInfoBuilder {
      */
     public boolean trackGuidePost(ImmutableBytesWritable row, long byteCount, long rowCount,
             long updateTimestamp) {
+        return trackGuidePost(row, byteCount, rowCount, updateTimestamp, null);
+    }
+
+    /**
+     * Track a new guide post along with the zone map of the chunk it ends
+     * @param zoneMap the zone map of the chunk, or null if none was collected
+     */
+    public boolean trackGuidePost(ImmutableBytesWritable row, long byteCount, long rowCount,
+            long updateTimestamp, ZoneMap zoneMap) {
         if (row.getLength() != 0 && lastRow.compareTo(row) < 0) {
             try {
                 encoder.encode(output, row.get(), row.getOffset(), row.getLength());
                 rowCounts.add(rowCount);
                 byteCounts.add(byteCount);
                 guidePostsTimestamps.add(updateTimestamp);
+                zoneMaps.add(zoneMap);
+                hasZoneMaps |= zoneMap != null;
                 this.guidePostsCount++;
                 this.maxLength = encoder.getMaxLength();
                 lastRow = row;
@@ -117,7 +130,8 @@ public class GuidePostsInfoBuilder {
     public GuidePostsInfo build() {
         this.guidePosts.set(stream.getBuffer(), 0, stream.size());
         GuidePostsInfo guidePostsInfo = new GuidePostsInfo(this.byteCounts, this.guidePosts, this.rowCounts,
-                this.maxLength, this.guidePostsCount, this.guidePostsTimestamps);
+                this.maxLength, this.guidePostsCount, this.guidePostsTimestamps,
+                hasZoneMaps ? this.zoneMaps : null);
         return guidePostsInfo;
     }
 
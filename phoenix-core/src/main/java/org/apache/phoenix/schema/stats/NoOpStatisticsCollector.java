@@ -18,7 +18,9 @@
 package org.apache.phoenix.schema.stats;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Scan;
@@ -68,4 +70,14 @@ public class NoOpStatisticsCollector implements StatisticsCollector {
     @Override public GuidePostsInfo getGuidePosts(ImmutableBytesPtr fam) {
         return null;
     }
+
+    @Override
+    public Map<ImmutableBytesPtr, ColumnStatistics> getColumnStatistics(ImmutableBytesPtr fam) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public List<ZoneMap> getZoneMaps(ImmutableBytesPtr fam) {
+        return Collections.emptyList();
+    }
 }
@@ -20,6 +20,7 @@ package org.apache.phoenix.schema.stats;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Scan;
@@ -70,4 +71,16 @@ public interface StatisticsCollector extends Closeable {
      * Retrieve the calculated guide post info for the given column family.
      */
     GuidePostsInfo getGuidePosts(ImmutableBytesPtr fam);
+
+    /**
+     * Retrieve the calculated statistics of the key value columns of the given column family,
+     * keyed by column qualifier.
+     */
+    Map<ImmutableBytesPtr, ColumnStatistics> getColumnStatistics(ImmutableBytesPtr fam);
+
+    /**
+     * Retrieve the zone maps of the chunks ending at each calculated guide post of the given
+     * column family, or an empty list if none were collected.
+     */
+    List<ZoneMap> getZoneMaps(ImmutableBytesPtr fam);
 }
@@ -37,6 +37,18 @@ public class StatisticsCollectorFactory {
         return createStatisticsCollector(env, tableName, clientTimeStamp, null, guidepostWidthBytes, guidepostsPerRegionBytes);
     }
 
+    /**
+     * @param zoneMapCutoff time taken on the region server before the scan collecting the stats
+     *            was opened. Zone maps are only collected when it is known, as cells written
+     *            during the scan may be missed by it.
+     */
+    public static StatisticsCollector createStatisticsCollector(RegionCoprocessorEnvironment env,
+            String tableName, long clientTimeStamp, byte[] guidepostWidthBytes,
+            byte[] guidepostsPerRegionBytes, long zoneMapCutoff) throws IOException {
+        return createStatisticsCollector(env, tableName, clientTimeStamp, null, guidepostWidthBytes,
+                guidepostsPerRegionBytes, zoneMapCutoff);
+    }
+
     public static StatisticsCollector createStatisticsCollector(
             RegionCoprocessorEnvironment env, String tableName, long clientTimeStamp,
             byte[] storeName) throws IOException {
@@ -47,9 +59,17 @@ public class StatisticsCollectorFactory {
             RegionCoprocessorEnvironment env, String tableName, long clientTimeStamp,
             byte[] storeName, byte[] guidepostWidthBytes,
             byte[] guidepostsPerRegionBytes) throws IOException {
+        return createStatisticsCollector(env, tableName, clientTimeStamp, storeName, guidepostWidthBytes,
+                guidepostsPerRegionBytes, StatisticsCollector.NO_TIMESTAMP);
+    }
+
+    private static StatisticsCollector createStatisticsCollector(
+            RegionCoprocessorEnvironment env, String tableName, long clientTimeStamp,
+            byte[] storeName, byte[] guidepostWidthBytes,
+            byte[] guidepostsPerRegionBytes, long zoneMapCutoff) throws IOException {
         if (statisticsEnabled(env)) {
             return new DefaultStatisticsCollector(env, tableName, clientTimeStamp, storeName,
-                    guidepostWidthBytes, guidepostsPerRegionBytes);
+                    guidepostWidthBytes, guidepostsPerRegionBytes, zoneMapCutoff);
         } else {
             return new NoOpStatisticsCollector();
         }
@@ -159,6 +159,7 @@ public class StatisticsScanner implements InternalScanner {
                             + " as part of major compaction");
                 }
                 getStatisticsWriter().addStats(tracker, family, mutations);
+                getStatisticsWriter().addColumnStats(region, tracker, family, mutations);
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Committing new stats for the region " + regionInfo.getRegionNameAsString()
                             + " as part of major compaction");
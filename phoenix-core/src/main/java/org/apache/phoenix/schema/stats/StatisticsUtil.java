@@ -19,6 +19,7 @@ package org.apache.phoenix.schema.stats;
 import static org.apache.phoenix.util.SchemaUtil.getVarCharLength;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.hadoop.hbase.Cell;
@@ -33,6 +34,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.coprocessor.MetaDataProtocol;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.schema.SortOrder;
@@ -41,6 +43,7 @@ import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.MetaDataUtil;
 import org.apache.phoenix.util.SchemaUtil;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
@@ -75,6 +78,12 @@ public class StatisticsUtil {
 
     /** Number of parts in our complex key */
     protected static final int NUM_KEY_PARTS = 3;
+
+    /** Prefix of the qualifiers under which the statistics of key value columns are stored */
+    public static final byte[] COLUMN_STATS_QUALIFIER_PREFIX = Bytes.toBytes("COLUMN_STATS:");
+
+    /** Qualifier under which the zone map of the chunk ending at a guidepost is stored */
+    public static final byte[] ZONE_MAP_BYTES = Bytes.toBytes("ZONE_MAP");
     
     public static byte[] getRowKey(byte[] table, ImmutableBytesWritable fam, byte[] guidePostStartKey) {
         return getRowKey(table, fam, new ImmutableBytesWritable(guidePostStartKey,0,guidePostStartKey.length));
@@ -98,6 +107,25 @@ public class StatisticsUtil {
         return rowKey;
     }
 
+    /**
+     * Row key of the column statistics of a region, which sorts within the region's guideposts
+     * but never matches the row of the empty guidepost.
+     */
+    public static byte[] getColumnStatsRowKey(byte[] table, ImmutableBytesWritable fam, byte[] regionStartKey) {
+        return ByteUtil.concat(getKey(table, fam, true), regionStartKey);
+    }
+
+    public static byte[] getColumnStatsQualifier(ImmutableBytesWritable columnQualifier) {
+        return ByteUtil.concat(COLUMN_STATS_QUALIFIER_PREFIX, ByteUtil.copyKeyBytesIfNecessary(columnQualifier));
+    }
+
+    private static boolean isColumnStatsQualifier(Cell cell) {
+        return cell.getQualifierLength() >= COLUMN_STATS_QUALIFIER_PREFIX.length
+                && Bytes.equals(cell.getQualifierArray(), cell.getQualifierOffset(),
+                        COLUMN_STATS_QUALIFIER_PREFIX.length, COLUMN_STATS_QUALIFIER_PREFIX, 0,
+                        COLUMN_STATS_QUALIFIER_PREFIX.length);
+    }
+
     private static byte[] getStartKey(byte[] table, ImmutableBytesWritable fam) {
         return getKey(table, fam, false);
     }
@@ -142,10 +170,9 @@ public class StatisticsUtil {
         byte[] startKey = getStartKey(tableNameBytes, ptr);
         byte[] endKey = getEndKey(tableNameBytes, ptr);
         Scan s = MetaDataUtil.newTableRowsScan(startKey, endKey, MetaDataProtocol.MIN_TABLE_TIMESTAMP, clientTimeStamp);
-        s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES);
-        s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES);
-        s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES);
+        s.addFamily(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
         GuidePostsInfoBuilder guidePostsInfoBuilder = new GuidePostsInfoBuilder();
+        Map<ImmutableBytesPtr, ColumnStatistics> columnStats = Maps.newHashMap();
         Cell current = null;
         GuidePostsInfo emptyGuidePost = null;
         try (ResultScanner scanner = statsHTable.getScanner(s)) {
@@ -154,8 +181,28 @@ public class StatisticsUtil {
                 CellScanner cellScanner = result.cellScanner();
                 long rowCount = 0;
                 long byteCount = 0;
+                boolean isGuidePost = false;
+                ZoneMap zoneMap = null;
                  while (cellScanner.advance()) {
-                    current = cellScanner.current();
+                    Cell cell = cellScanner.current();
+                    if (isColumnStatsQualifier(cell)) {
+                        ImmutableBytesPtr qualifier = new ImmutableBytesPtr(Bytes.copy(cell.getQualifierArray(),
+                                cell.getQualifierOffset() + COLUMN_STATS_QUALIFIER_PREFIX.length,
+                                cell.getQualifierLength() - COLUMN_STATS_QUALIFIER_PREFIX.length));
+                        ColumnStatistics stats = ColumnStatistics.fromBytes(cell.getValueArray(),
+                                cell.getValueOffset(), cell.getValueLength());
+                        ColumnStatistics otherStats = columnStats.get(qualifier);
+                        columnStats.put(qualifier, otherStats == null ? stats : otherStats.combine(stats));
+                        continue;
+                    }
+                    if (Bytes.equals(cell.getQualifierArray(), cell.getQualifierOffset(),
+                            cell.getQualifierLength(), ZONE_MAP_BYTES, 0, ZONE_MAP_BYTES.length)) {
+                        zoneMap = ZoneMap.fromBytes(cell.getValueArray(), cell.getValueOffset(),
+                                cell.getValueLength());
+                        continue;
+                    }
+                    isGuidePost = true;
+                    current = cell;
                     if (Bytes.equals(current.getQualifierArray(), current.getQualifierOffset(),
                             current.getQualifierLength(), PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES, 0,
                             PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES.length)) {
@@ -168,7 +215,7 @@ public class StatisticsUtil {
                                 current.getValueOffset(), SortOrder.getDefault());
                     }
                 }
-                if (current != null) {
+                if (isGuidePost) {
                     int tableNameLength = tableNameBytes.length + 1;
                     int cfOffset = current.getRowOffset() + tableNameLength;
                     int cfLength = getVarCharLength(current.getRowArray(), cfOffset,
@@ -186,14 +233,18 @@ public class StatisticsUtil {
                     } else {
                         guidePostsInfoBuilder.trackGuidePost(
                             new ImmutableBytesWritable(newGPStartKey), byteCount, rowCount,
-                            guidePostUpdateTime);
+                            guidePostUpdateTime, zoneMap);
                     }
                 }
             }
         }
         // We write a row with an empty KeyValue in the case that stats were generated but without enough data
         // for any guideposts. If we have no rows, it means stats were never generated.
-        return current == null ? GuidePostsInfo.NO_GUIDEPOST : guidePostsInfoBuilder.isEmpty() ? emptyGuidePost : guidePostsInfoBuilder.build();
+        if (current == null) {
+            return GuidePostsInfo.NO_GUIDEPOST;
+        }
+        GuidePostsInfo guidePostsInfo = guidePostsInfoBuilder.isEmpty() ? emptyGuidePost : guidePostsInfoBuilder.build();
+        return columnStats.isEmpty() ? guidePostsInfo : guidePostsInfo.withColumnStatistics(columnStats);
     }
 
     public static long getGuidePostDepth(int guidepostPerRegion, long guidepostWidth, HTableDescriptor tableDesc) {
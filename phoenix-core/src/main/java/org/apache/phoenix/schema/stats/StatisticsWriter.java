@@ -29,6 +29,7 @@ import java.security.PrivilegedExceptionAction;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HConstants;
@@ -40,6 +41,7 @@ import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcChannel;
 import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
@@ -144,6 +146,7 @@ public class StatisticsWriter implements Closeable {
             mutations.add(getLastStatsUpdatedTimePut(timeStamp));
         }
         GuidePostsInfo gps = tracker.getGuidePosts(cfKey);
+        List<ZoneMap> zoneMaps = tracker.getZoneMaps(cfKey);
         if (gps != null) {
             long[] byteCounts = gps.getByteCounts();
             long[] rowCounts = gps.getRowCounts();
@@ -156,7 +159,11 @@ public class StatisticsWriter implements Closeable {
                     PrefixByteDecoder decoder = new PrefixByteDecoder(gps.getMaxLength());
                     do {
                         ImmutableBytesWritable ptr = decoder.decode(input);
-                        addGuidepost(cfKey, mutations, ptr, byteCounts[guidePostCount], rowCounts[guidePostCount], timeStamp);
+                        Put put = addGuidepost(cfKey, mutations, ptr, byteCounts[guidePostCount], rowCounts[guidePostCount], timeStamp);
+                        if (guidePostCount < zoneMaps.size()) {
+                            put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, StatisticsUtil.ZONE_MAP_BYTES,
+                                    timeStamp, zoneMaps.get(guidePostCount).toBytes());
+                        }
                         guidePostCount++;
                     } while (decoder != null);
                 } catch (EOFException e) { // Ignore as this signifies we're done
@@ -184,8 +191,40 @@ public class StatisticsWriter implements Closeable {
         }
     }
     
+    /**
+     * Add the statistics collected for the key value columns of a column family. They're kept in a
+     * single row per region keyed by the region start key, which is replaced together with the
+     * guideposts of the region.
+     * 
+     * @param region
+     *            - the region for which the stats were collected
+     * @param tracker
+     *            - the statistics tracker
+     * @param cfKey
+     *            - the family for which the stats is getting collected.
+     * @param mutations
+     *            - list of mutations that collects all the mutations to commit in a batch
+     * @throws IOException
+     *             if the statistics cannot be serialized
+     */
+    public void addColumnStats(Region region, StatisticsCollector tracker, ImmutableBytesPtr cfKey,
+            List<Mutation> mutations) throws IOException {
+        if (tracker == null) { return; }
+        Map<ImmutableBytesPtr, ColumnStatistics> columnStats = tracker.getColumnStatistics(cfKey);
+        if (columnStats.isEmpty()) { return; }
+        long timeStamp = clientTimeStamp == DefaultStatisticsCollector.NO_TIMESTAMP
+                ? tracker.getMaxTimeStamp() : clientTimeStamp;
+        Put put = new Put(StatisticsUtil.getColumnStatsRowKey(tableName, cfKey,
+                region.getRegionInfo().getStartKey()));
+        for (Map.Entry<ImmutableBytesPtr, ColumnStatistics> entry : columnStats.entrySet()) {
+            put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+                    StatisticsUtil.getColumnStatsQualifier(entry.getKey()), timeStamp, entry.getValue().toBytes());
+        }
+        mutations.add(put);
+    }
+
     @SuppressWarnings("deprecation")
-    private void addGuidepost(ImmutableBytesPtr cfKey, List<Mutation> mutations, ImmutableBytesWritable ptr, long byteCount, long rowCount, long timeStamp) {
+    private Put addGuidepost(ImmutableBytesPtr cfKey, List<Mutation> mutations, ImmutableBytesWritable ptr, long byteCount, long rowCount, long timeStamp) {
         byte[] prefix = StatisticsUtil.getRowKey(tableName, cfKey, ptr);
         Put put = new Put(prefix);
         put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES,
@@ -197,6 +236,7 @@ public class StatisticsWriter implements Closeable {
         put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES, timeStamp,
                 ByteUtil.EMPTY_BYTE_ARRAY);
         mutations.add(put);
+        return put;
     }
 
     private static MutationType getMutationType(Mutation m) throws IOException {
@@ -263,7 +303,9 @@ public class StatisticsWriter implements Closeable {
                 MetaDataUtil.newTableRowsScan(getAdjustedKey(startKey, tableName, fam, false),
                     getAdjustedKey(stopKey, tableName, fam, true),
                     MetaDataProtocol.MIN_TABLE_TIMESTAMP, clientTimeStamp);
-        s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES);
+        // Match the rows of the column statistics too, which have no empty column
+        s.addFamily(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+        s.setFilter(new FirstKeyOnlyFilter());
         try (ResultScanner scanner = statsWriterTable.getScanner(s)) {
             Result result = null;
             while ((result = scanner.next()) != null) {
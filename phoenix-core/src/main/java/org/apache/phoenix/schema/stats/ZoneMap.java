@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.util.SizedUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Range of the values of each key value column of a column family over the rows of a guidepost
+ * chunk, from the start row of the chunk up to and including its guidepost. The values are
+ * ordered by their bytes, which matches the order in which Phoenix compares two values of the
+ * same type. A chunk whose ranges can't satisfy a filter holds no row matching it among the
+ * cells older than the cutoff timestamp, which was taken on the region server before the scan
+ * collecting the statistics was opened.
+ *
+ * @since 4.14
+ */
+public class ZoneMap {
+    private final byte[] startRow;
+    private final long cutoffTimestamp;
+    private final Map<ImmutableBytesPtr, KeyRange> columnRanges;
+
+    public ZoneMap(byte[] startRow, long cutoffTimestamp, Map<ImmutableBytesPtr, KeyRange> columnRanges) {
+        this.startRow = startRow;
+        this.cutoffTimestamp = cutoffTimestamp;
+        this.columnRanges = Collections.unmodifiableMap(columnRanges);
+    }
+
+    /**
+     * @return the first row of the chunk, the empty byte array for the start of the table
+     */
+    public byte[] getStartRow() {
+        return startRow;
+    }
+
+    /**
+     * @return the timestamp before which every cell of the chunk was seen by the scan collecting
+     *         the statistics. Cells written later may have any timestamp from this one on.
+     */
+    public long getCutoffTimestamp() {
+        return cutoffTimestamp;
+    }
+
+    /**
+     * @return the inclusive range of the values of the column with the given qualifier, or null
+     *         if the column had no value or wasn't tracked
+     */
+    public KeyRange getColumnRange(byte[] columnQualifier) {
+        return columnRanges.get(new ImmutableBytesPtr(columnQualifier));
+    }
+
+    public int getEstimatedSize() {
+        int estimatedSize = SizedUtil.OBJECT_SIZE + SizedUtil.ARRAY_SIZE + startRow.length + SizedUtil.LONG_SIZE
+                + (int) SizedUtil.sizeOfMap(columnRanges.size());
+        for (Map.Entry<ImmutableBytesPtr, KeyRange> entry : columnRanges.entrySet()) {
+            KeyRange range = entry.getValue();
+            estimatedSize += SizedUtil.IMMUTABLE_BYTES_PTR_SIZE + entry.getKey().getLength()
+                    + SizedUtil.OBJECT_SIZE + 2 * SizedUtil.ARRAY_SIZE + range.getLowerRange().length
+                    + range.getUpperRange().length;
+        }
+        return estimatedSize;
+    }
+
+    public byte[] toBytes() throws IOException {
+        try (TrustedByteArrayOutputStream stream = new TrustedByteArrayOutputStream(128);
+                DataOutputStream output = new DataOutputStream(stream)) {
+            Bytes.writeByteArray(output, startRow);
+            WritableUtils.writeVLong(output, cutoffTimestamp);
+            WritableUtils.writeVInt(output, columnRanges.size());
+            for (Map.Entry<ImmutableBytesPtr, KeyRange> entry : columnRanges.entrySet()) {
+                ImmutableBytesPtr qualifier = entry.getKey();
+                Bytes.writeByteArray(output, qualifier.get(), qualifier.getOffset(), qualifier.getLength());
+                Bytes.writeByteArray(output, entry.getValue().getLowerRange());
+                Bytes.writeByteArray(output, entry.getValue().getUpperRange());
+            }
+            output.flush();
+            return stream.toByteArray();
+        }
+    }
+
+    public static ZoneMap fromBytes(byte[] b, int offset, int length) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(b, offset, length))) {
+            byte[] startRow = Bytes.readByteArray(input);
+            long cutoffTimestamp = WritableUtils.readVLong(input);
+            int columnCount = WritableUtils.readVInt(input);
+            Map<ImmutableBytesPtr, KeyRange> columnRanges = Maps.newHashMapWithExpectedSize(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                ImmutableBytesPtr qualifier = new ImmutableBytesPtr(Bytes.readByteArray(input));
+                byte[] minValue = Bytes.readByteArray(input);
+                byte[] maxValue = Bytes.readByteArray(input);
+                columnRanges.put(qualifier, KeyRange.getKeyRange(minValue, true, maxValue, true));
+            }
+            return new ZoneMap(startRow, cutoffTimestamp, columnRanges);
+        }
+    }
+
+    /**
+     * Builder tracking the minimum and maximum values of the key value columns while collecting
+     * stats, up to a maximum number of columns.
+     */
+    public static class Builder {
+        private final int maxColumns;
+        private final Map<ImmutableBytesPtr, byte[][]> minMaxValues = Maps.newHashMap();
+
+        public Builder(int maxColumns) {
+            this.maxColumns = maxColumns;
+        }
+
+        public void addValue(Cell cell) {
+            ImmutableBytesPtr qualifier = new ImmutableBytesPtr(cell.getQualifierArray(),
+                    cell.getQualifierOffset(), cell.getQualifierLength());
+            byte[][] minMax = minMaxValues.get(qualifier);
+            if (minMax == null) {
+                if (minMaxValues.size() >= maxColumns) {
+                    return;
+                }
+                byte[] value = Bytes.copy(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                minMaxValues.put(new ImmutableBytesPtr(qualifier.copyBytes()), new byte[][] {value, value});
+                return;
+            }
+            addValue(minMax, cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+        }
+
+        private static void addValue(byte[][] minMax, byte[] b, int offset, int length) {
+            if (Bytes.compareTo(b, offset, length, minMax[0], 0, minMax[0].length) < 0) {
+                minMax[0] = Bytes.copy(b, offset, length);
+            } else if (Bytes.compareTo(b, offset, length, minMax[1], 0, minMax[1].length) > 0) {
+                minMax[1] = Bytes.copy(b, offset, length);
+            }
+        }
+
+        /**
+         * Track the values tracked by another builder as well
+         */
+        public void addAll(Builder other) {
+            for (Map.Entry<ImmutableBytesPtr, byte[][]> entry : other.minMaxValues.entrySet()) {
+                byte[][] minMax = minMaxValues.get(entry.getKey());
+                byte[][] otherMinMax = entry.getValue();
+                if (minMax == null) {
+                    if (minMaxValues.size() < maxColumns) {
+                        minMaxValues.put(entry.getKey(), new byte[][] {otherMinMax[0], otherMinMax[1]});
+                    }
+                } else {
+                    addValue(minMax, otherMinMax[0], 0, otherMinMax[0].length);
+                    addValue(minMax, otherMinMax[1], 0, otherMinMax[1].length);
+                }
+            }
+        }
+
+        public void clear() {
+            minMaxValues.clear();
+        }
+
+        public ZoneMap build(byte[] startRow, long cutoffTimestamp) {
+            Map<ImmutableBytesPtr, KeyRange> columnRanges = Maps.newHashMapWithExpectedSize(minMaxValues.size());
+            for (Map.Entry<ImmutableBytesPtr, byte[][]> entry : minMaxValues.entrySet()) {
+                byte[][] minMax = entry.getValue();
+                columnRanges.put(entry.getKey(), KeyRange.getKeyRange(minMax[0], true, minMax[1], true));
+            }
+            return new ZoneMap(startRow, cutoffTimestamp, columnRanges);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.phoenix.query.QueryConstants.ENCODED_CQ_COUNTER_INITIAL_VALUE;
 import static org.apache.phoenix.query.QueryConstants.ENCODED_EMPTY_COLUMN_NAME;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -62,6 +63,8 @@ public class EncodedColumnQualiferCellsList implements List<Cell> {
     private final Cell[] array;
     private int numNonNullElements;
     private int firstNonNullElementIdx = -1;
+    // Highest index ever set since the last clear, bounding the slots to null out on clear
+    private int lastElementIdx = -1;
     private static final int RESERVED_RANGE_SIZE =
             ENCODED_CQ_COUNTER_INITIAL_VALUE - ENCODED_EMPTY_COLUMN_NAME;
     // Used by iterators to figure out if the list was structurally modified.
@@ -152,6 +155,9 @@ public class EncodedColumnQualiferCellsList implements List<Cell> {
         } else if (idx < firstNonNullElementIdx) {
             firstNonNullElementIdx = idx;
         }
+        if (idx > lastElementIdx) {
+            lastElementIdx = idx;
+        }
         modCount++;
         /*
          * Note that we don't care about equality of the element being added with the element
@@ -265,10 +271,14 @@ public class EncodedColumnQualiferCellsList implements List<Cell> {
 
     @Override
     public void clear() {
-        for (int i = 0; i < array.length; i++) {
-            array[i] = null;
+        // Only the slots that may have been set are cleared, so that the list may be reused
+        // across rows at a cost proportional to the cells of the row rather than the columns
+        // of the table
+        if (firstNonNullElementIdx != -1) {
+            Arrays.fill(array, firstNonNullElementIdx, lastElementIdx + 1, null);
         }
         firstNonNullElementIdx = -1;
+        lastElementIdx = -1;
         numNonNullElements = 0;
         modCount++;
     }
@@ -23,7 +23,6 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.apache.hadoop.hbase.Cell;
-import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.util.EncodedColumnsUtil;
@@ -48,8 +47,8 @@ public class PositionBasedResultTuple extends BaseTuple {
     }
 
     @Override
-    public KeyValue getValue(byte[] family, byte[] qualifier) {
-        return org.apache.hadoop.hbase.KeyValueUtil.ensureKeyValue(cells.getCellForColumnQualifier(qualifier));
+    public Cell getValue(byte[] family, byte[] qualifier) {
+        return cells.getCellForColumnQualifier(qualifier);
     }
 
     @Override
@@ -81,17 +80,17 @@ public class PositionBasedResultTuple extends BaseTuple {
     }
 
     @Override
-    public KeyValue getValue(int index) {
-        return org.apache.hadoop.hbase.KeyValueUtil.ensureKeyValue(index == 0 ? cells.getFirstCell() : cells.get(index));
+    public Cell getValue(int index) {
+        return index == 0 ? cells.getFirstCell() : cells.get(index);
     }
 
     @Override
     public boolean getValue(byte[] family, byte[] qualifier,
             ImmutableBytesWritable ptr) {
-        KeyValue kv = getValue(family, qualifier);
-        if (kv == null)
+        Cell cell = getValue(family, qualifier);
+        if (cell == null)
             return false;
-        ptr.set(kv.getValueArray(), kv.getValueOffset(), kv.getValueLength());
+        ptr.set(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
         return true;
     }
     
@@ -30,6 +30,8 @@ import org.apache.phoenix.util.KeyValueUtil;
 /**
  * 
  * Wrapper around {@link Result} that implements Phoenix's {@link Tuple} interface.
+ * The cells are returned as is rather than copied into {@link KeyValue}s, so that
+ * their values keep pointing into the buffers they were read from.
  *
  */
 public class ResultTuple extends BaseTuple {
@@ -46,7 +48,14 @@ public class ResultTuple extends BaseTuple {
 
     @Override
     public void getKey(ImmutableBytesWritable ptr) {
-        ptr.set(result.getRow());
+        Cell[] cells = result.rawCells();
+        if (cells == null || cells.length == 0) {
+            ptr.set(result.getRow());
+            return;
+        }
+        // Avoids the copy of the row made by Result.getRow()
+        Cell cell = cells[0];
+        ptr.set(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
     }
 
     @Override
@@ -55,10 +64,9 @@ public class ResultTuple extends BaseTuple {
     }
 
     @Override
-    public KeyValue getValue(byte[] family, byte[] qualifier) {
-        Cell cell = KeyValueUtil.getColumnLatest(GenericKeyValueBuilder.INSTANCE, 
+    public Cell getValue(byte[] family, byte[] qualifier) {
+        return KeyValueUtil.getColumnLatest(GenericKeyValueBuilder.INSTANCE, 
           result.rawCells(), family, qualifier);
-        return org.apache.hadoop.hbase.KeyValueUtil.ensureKeyValue(cell);
     }
 
     @Override
@@ -90,18 +98,17 @@ public class ResultTuple extends BaseTuple {
     }
 
     @Override
-    public KeyValue getValue(int index) {
-        return  org.apache.hadoop.hbase.KeyValueUtil.ensureKeyValue(
-          result.rawCells()[index]);
+    public Cell getValue(int index) {
+        return result.rawCells()[index];
     }
 
     @Override
     public boolean getValue(byte[] family, byte[] qualifier,
             ImmutableBytesWritable ptr) {
-        KeyValue kv = getValue(family, qualifier);
-        if (kv == null)
+        Cell cell = getValue(family, qualifier);
+        if (cell == null)
             return false;
-        ptr.set(kv.getValueArray(), kv.getValueOffset(), kv.getValueLength());
+        ptr.set(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
         return true;
     }
 }
\ No newline at end of file
@@ -27,18 +27,26 @@ import static org.apache.phoenix.util.TestUtil.JOIN_SUPPLIER_TABLE_DISPLAY_NAME;
 import static org.apache.phoenix.util.TestUtil.JOIN_SUPPLIER_TABLE_FULL_NAME;
 import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.compile.JoinCompiler.JoinTable;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixStatement;
 import org.apache.phoenix.parse.SQLParser;
 import org.apache.phoenix.parse.SelectStatement;
 import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.ConnectionlessQueryServicesImpl;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.stats.GuidePostsInfo;
+import org.apache.phoenix.schema.stats.GuidePostsInfoBuilder;
+import org.apache.phoenix.schema.stats.GuidePostsKey;
 import org.apache.phoenix.util.PropertiesUtil;
 import org.apache.phoenix.util.QueryUtil;
 import org.junit.BeforeClass;
@@ -161,6 +169,37 @@ public class JoinQueryCompilerTest extends BaseConnectionlessQueryTest {
         assertEquals(1, joinTable.getJoinSpecs().get(1).getJoinTable().getTable().getPreFilters().size());
     }
     
+    @Test
+    public void testOversizedHashTableAvoided() throws Exception {
+        PhoenixConnection pconn = DriverManager.getConnection(getUrl(), PropertiesUtil.deepCopy(TEST_PROPERTIES)).unwrap(PhoenixConnection.class);
+        ConnectionlessQueryServicesImpl services = (ConnectionlessQueryServicesImpl) pconn.getQueryServices();
+        String query = "EXPLAIN SELECT \"order_id\", c.name FROM " + JOIN_ORDER_TABLE_FULL_NAME + " o JOIN "
+                + JOIN_CUSTOMER_TABLE_FULL_NAME + " c ON o.\"customer_id\" = c.\"customer_id\"";
+        GuidePostsKey orderKey = new GuidePostsKey(Bytes.toBytes(JOIN_ORDER_TABLE_DISPLAY_NAME), QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+        GuidePostsKey customerKey = new GuidePostsKey(Bytes.toBytes(JOIN_CUSTOMER_TABLE_DISPLAY_NAME), QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+        try {
+            services.addTableStats(orderKey, newGuidePosts(1000, 100 * 1000));
+            services.addTableStats(customerKey, newGuidePosts(10L * 1000 * 1000, 10L * 1000 * 1000 * 1000));
+            String plan = QueryUtil.getExplainPlan(pconn.createStatement().executeQuery(query));
+            // Customers don't fit into the server cache, so the orders are broadcast instead
+            assertTrue(plan, plan.startsWith("CLIENT PARALLEL 1-WAY FULL SCAN OVER " + JOIN_CUSTOMER_TABLE_DISPLAY_NAME));
+            assertTrue(plan, plan.contains("PARALLEL INNER-JOIN TABLE 0\n        CLIENT PARALLEL 1-WAY FULL SCAN OVER " + JOIN_ORDER_TABLE_DISPLAY_NAME));
+
+            services.addTableStats(customerKey, newGuidePosts(1000, 100 * 1000));
+            plan = QueryUtil.getExplainPlan(pconn.createStatement().executeQuery(query));
+            assertTrue(plan, plan.startsWith("CLIENT PARALLEL 1-WAY FULL SCAN OVER " + JOIN_ORDER_TABLE_DISPLAY_NAME));
+        } finally {
+            services.invalidateStats(orderKey);
+            services.invalidateStats(customerKey);
+        }
+    }
+
+    private static GuidePostsInfo newGuidePosts(long rowCount, long byteCount) {
+        GuidePostsInfoBuilder builder = new GuidePostsInfoBuilder();
+        builder.trackGuidePost(new ImmutableBytesWritable(Bytes.toBytes("5")), byteCount, rowCount, 0);
+        return builder.build();
+    }
+
     private static JoinTable getJoinTable(String query, PhoenixConnection connection) throws SQLException {
         SQLParser parser = new SQLParser(query);
         SelectStatement select = SubselectRewriter.flatten(parser.parseQuery(), connection);
@@ -48,6 +48,7 @@ import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
@@ -76,6 +77,7 @@ import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixPreparedStatement;
 import org.apache.phoenix.jdbc.PhoenixStatement;
 import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.ConnectionlessQueryServicesImpl;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.schema.AmbiguousColumnException;
@@ -87,6 +89,8 @@ import org.apache.phoenix.schema.PTableKey;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TableRef;
+import org.apache.phoenix.schema.stats.GuidePostsInfoBuilder;
+import org.apache.phoenix.schema.stats.GuidePostsKey;
 import org.apache.phoenix.schema.types.PChar;
 import org.apache.phoenix.schema.types.PDecimal;
 import org.apache.phoenix.schema.types.PInteger;
@@ -4960,4 +4964,123 @@ public class QueryCompilerTest extends BaseConnectionlessQueryTest {
             }
         }
     }
+
+    @Test
+    public void testMinMaxOfLeadingRowKeyColumnLimitedToOneRowPerScan() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k1 INTEGER NOT NULL, k2 INTEGER NOT NULL, k3 VARCHAR, v INTEGER"
+                    + " CONSTRAINT pk PRIMARY KEY (k1, k2 DESC, k3))");
+            String plan = getExplainPlan(conn, "SELECT MIN(k1) FROM " + tableName);
+            assertTrue(plan, plan.contains("SERVER 1 ROW LIMIT"));
+            assertFalse(plan, plan.contains("REVERSE"));
+            plan = getExplainPlan(conn, "SELECT MAX(k1) FROM " + tableName + " WHERE v > 5");
+            assertTrue(plan, plan.contains("SERVER 1 ROW LIMIT"));
+            assertTrue(plan, plan.contains("REVERSE"));
+            // Descending column
+            plan = getExplainPlan(conn, "SELECT MAX(k2), MAX(k2) + 1 FROM " + tableName + " WHERE k1 = 5");
+            assertTrue(plan, plan.contains("SERVER 1 ROW LIMIT"));
+            assertFalse(plan, plan.contains("REVERSE"));
+            // Nulls come first
+            plan = getExplainPlan(conn, "SELECT MAX(k3) FROM " + tableName + " WHERE k1 = 5 AND k2 = 3");
+            assertTrue(plan, plan.contains("SERVER 1 ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT MIN(k3) FROM " + tableName + " WHERE k1 = 5 AND k2 = 3");
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            // Not the leading column of the scan
+            plan = getExplainPlan(conn, "SELECT MAX(k2) FROM " + tableName + " WHERE k1 > 5");
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT MIN(k1), MAX(k1) FROM " + tableName);
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT MAX(k1), COUNT(*) FROM " + tableName);
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT MAX(v) FROM " + tableName);
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT MAX(k1) FROM " + tableName + " GROUP BY k2");
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+        }
+    }
+
+    @Test
+    public void testMinMaxNotReversedWhereReverseScanDisallowed() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k1 INTEGER NOT NULL, k2 INTEGER NOT NULL, k3 VARCHAR, v INTEGER CONSTRAINT pk PRIMARY KEY (k1, k2, k3))");
+            // The skip scan only seeks forward
+            String plan = getExplainPlan(conn, "SELECT MAX(k1) FROM " + tableName + " WHERE k1 IN (1, 5, 7) AND k2 > 3");
+            assertTrue(plan, plan.contains("SKIP SCAN"));
+            assertFalse(plan, plan.contains("REVERSE"));
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT MAX(k2) FROM " + tableName + " WHERE k1 = 1 AND k2 IN (1, 5, 7)");
+            assertTrue(plan, plan.contains("SKIP SCAN ON 3 KEYS"));
+            assertFalse(plan, plan.contains("REVERSE"));
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            // Still limited when the scan doesn't need to be reversed
+            plan = getExplainPlan(conn, "SELECT MIN(k2) FROM " + tableName + " WHERE k1 = 1 AND k2 IN (1, 5, 7)");
+            assertTrue(plan, plan.contains("SERVER 1 ROW LIMIT"));
+            plan = getExplainPlan(conn, "SELECT /*+ FORWARD_SCAN */ MAX(k1) FROM " + tableName);
+            assertFalse(plan, plan.contains("REVERSE"));
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            // Rows filtered by the join after the limit
+            plan = getExplainPlan(conn, "SELECT MAX(t1.k1) FROM " + tableName + " t1 JOIN " + tableName
+                    + " t2 ON t1.k1 = t2.k2");
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+            // Aggregated over the results of a subquery
+            plan = getExplainPlan(conn, "SELECT MAX(k1) FROM (SELECT k1 FROM " + tableName + " LIMIT 10)");
+            assertFalse(plan, plan.contains("REVERSE"));
+            assertFalse(plan, plan.contains(" 1 ROW LIMIT"));
+        }
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.USE_REVERSE_SCAN_ATTRIB, Boolean.FALSE.toString());
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            String plan = getExplainPlan(conn, "SELECT MAX(k1) FROM " + tableName);
+            assertFalse(plan, plan.contains("REVERSE"));
+            assertFalse(plan, plan.contains("ROW LIMIT"));
+        }
+    }
+
+    @Test
+    public void testApproximateCountFromStatistics() throws Exception {
+        String tableName = generateUniqueName();
+        PhoenixConnection pconn = DriverManager.getConnection(getUrl(), PropertiesUtil.deepCopy(TEST_PROPERTIES)).unwrap(PhoenixConnection.class);
+        ConnectionlessQueryServicesImpl services = (ConnectionlessQueryServicesImpl) pconn.getQueryServices();
+        pconn.createStatement().execute("CREATE TABLE " + tableName + " (k VARCHAR PRIMARY KEY, v INTEGER)");
+        String query = "SELECT /*+ APPROXIMATE_COUNT */ COUNT(*), COUNT(1) FROM " + tableName;
+        String explainStep = "CLIENT APPROXIMATE ROW COUNT FROM STATISTICS OVER " + tableName;
+        // Without statistics the rows are counted
+        assertFalse(getExplainPlan(pconn, query).contains(explainStep));
+        GuidePostsKey key = new GuidePostsKey(Bytes.toBytes(tableName), QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+        try {
+            GuidePostsInfoBuilder builder = new GuidePostsInfoBuilder();
+            builder.trackGuidePost(new ImmutableBytesWritable(Bytes.toBytes("5")), 10000, 300, 1000);
+            builder.trackGuidePost(new ImmutableBytesWritable(Bytes.toBytes("7")), 10000, 200, 1000);
+            services.addTableStats(key, builder.build());
+            assertTrue(getExplainPlan(pconn, query).contains(explainStep));
+            ResultSet rs = pconn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals(500, rs.getLong(1));
+            assertEquals(500, rs.getLong(2));
+            assertFalse(rs.next());
+            rs = pconn.createStatement().executeQuery(
+                    "SELECT /*+ APPROXIMATE_COUNT */ COUNT(*) FROM " + tableName + " WHERE k >= '6'");
+            assertTrue(rs.next());
+            assertEquals(200, rs.getLong(1));
+
+            assertFalse(getExplainPlan(pconn, "SELECT COUNT(*) FROM " + tableName).contains(explainStep));
+            assertFalse(getExplainPlan(pconn, "SELECT /*+ APPROXIMATE_COUNT */ COUNT(*) FROM " + tableName
+                    + " WHERE v > 5").contains(explainStep));
+            assertFalse(getExplainPlan(pconn, "SELECT /*+ APPROXIMATE_COUNT */ COUNT(v) FROM " + tableName)
+                    .contains(explainStep));
+            assertFalse(getExplainPlan(pconn, "SELECT /*+ APPROXIMATE_COUNT */ COUNT(*) FROM " + tableName
+                    + " GROUP BY v").contains(explainStep));
+        } finally {
+            services.invalidateStats(key);
+            pconn.close();
+        }
+    }
+
+    private static String getExplainPlan(Connection conn, String query) throws SQLException {
+        return QueryUtil.getExplainPlan(conn.createStatement().executeQuery("EXPLAIN " + query));
+    }
 }
@@ -816,6 +816,27 @@ public class QueryOptimizerTest extends BaseConnectionlessQueryTest {
         assertQualifierRanges(rs, ENCODED_EMPTY_COLUMN_NAME, ENCODED_CQ_COUNTER_INITIAL_VALUE + 1);
     }
     
+    @Test
+    public void testSuffixLikeUsesReverseIndex() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE LOGS (k VARCHAR NOT NULL PRIMARY KEY, v VARCHAR)");
+        conn.createStatement().execute("CREATE INDEX LOGS_IDX ON LOGS(REVERSE(v))");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = stmt.optimizeQuery("SELECT k FROM LOGS WHERE v LIKE '%abc'");
+        assertEquals("LOGS_IDX", plan.getTableRef().getTable().getTableName().getString());
+        assertEquals("cba", Bytes.toString(plan.getContext().getScan().getStartRow()));
+        assertEquals("cbb", Bytes.toString(plan.getContext().getScan().getStopRow()));
+        // Escaped wildcards stay escaped once reversed
+        plan = stmt.optimizeQuery("SELECT k FROM LOGS WHERE v LIKE '%a\\_c'");
+        assertEquals("LOGS_IDX", plan.getTableRef().getTable().getTableName().getString());
+        assertEquals("c_a", Bytes.toString(plan.getContext().getScan().getStartRow()));
+        // Wildcards other than the leading ones don't make a suffix
+        plan = stmt.optimizeQuery("SELECT k FROM LOGS WHERE v LIKE '%a_c'");
+        assertEquals(0, plan.getContext().getScan().getStartRow().length);
+        plan = stmt.optimizeQuery("SELECT k FROM LOGS WHERE v LIKE '%abc%'");
+        assertEquals(0, plan.getContext().getScan().getStartRow().length);
+    }
+
     @Test
     public void testMinMaxQualifierRangeWithNoOrderBy() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.DriverManager;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.MemoizedExpression;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class RowProjectorTest extends BaseConnectionlessQueryTest {
+
+    private static QueryPlan compilePlan(String select) throws Exception {
+        String tableName = generateUniqueName();
+        try (PhoenixConnection conn = DriverManager.getConnection(getUrl()).unwrap(PhoenixConnection.class)) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k VARCHAR PRIMARY KEY, v VARCHAR, w VARCHAR) COLUMN_ENCODED_BYTES=0");
+            return conn.createStatement().unwrap(PhoenixStatement.class)
+                    .optimizeQuery("SELECT " + select + " FROM " + tableName);
+        }
+    }
+
+    private static RowProjector compileProjector(String select) throws Exception {
+        return compilePlan(select).getProjector();
+    }
+
+    /**
+     * @return the row as projected by the region scan
+     */
+    private static Tuple newRow(QueryPlan plan, String v) {
+        Cell cell = new KeyValue(Bytes.toBytes("r"), QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+                Bytes.toBytes("V"), Bytes.toBytes(v));
+        TupleProjector tupleProjector = TupleProjector.deserializeProjectorFromScan(plan.getContext().getScan());
+        return tupleProjector.projectResults(new ResultTuple(Result.create(Collections.singletonList(cell))));
+    }
+
+    @Test
+    public void testCommonSubexpressionsShared() throws Exception {
+        RowProjector projector = compileProjector("SUBSTR(v, 2, 3), SUBSTR(v, 2, 3) || 'x', LENGTH(SUBSTR(v, 2, 3)), w");
+        RowProjector clone = projector.cloneIfNecessary();
+        assertNotSame(projector, clone);
+        Expression substr = clone.getColumnProjector(0).getExpression();
+        assertTrue(substr instanceof MemoizedExpression);
+        assertSame(substr, clone.getColumnProjector(1).getExpression().getChildren().get(0));
+        assertSame(substr, clone.getColumnProjector(2).getExpression().getChildren().get(0));
+        assertFalse(clone.getColumnProjector(3).getExpression() instanceof MemoizedExpression);
+        // Each result set gets its own values
+        assertNotSame(substr, projector.cloneIfNecessary().getColumnProjector(0).getExpression());
+    }
+
+    @Test
+    public void testCommonSubexpressionsReset() throws Exception {
+        QueryPlan plan = compilePlan("SUBSTR(v, 2, 3), SUBSTR(v, 2, 3) || 'x', LENGTH(SUBSTR(v, 2, 3))");
+        RowProjector clone = plan.getProjector().cloneIfNecessary();
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        Tuple row = newRow(plan, "abcdef");
+        assertEquals("bcdx", clone.getColumnProjector(1).getValue(row, PVarchar.INSTANCE, ptr));
+        assertEquals("bcd", clone.getColumnProjector(0).getValue(row, PVarchar.INSTANCE, ptr));
+        assertEquals(3, clone.getColumnProjector(2).getValue(row, PInteger.INSTANCE, ptr));
+        clone.reset();
+        row = newRow(plan, "xy");
+        assertEquals("y", clone.getColumnProjector(0).getValue(row, PVarchar.INSTANCE, ptr));
+        assertEquals("yx", clone.getColumnProjector(1).getValue(row, PVarchar.INSTANCE, ptr));
+        assertEquals(1, clone.getColumnProjector(2).getValue(row, PInteger.INSTANCE, ptr));
+        clone.reset();
+        row = newRow(plan, "x");
+        assertNull(clone.getColumnProjector(0).getValue(row, PVarchar.INSTANCE, ptr));
+        assertEquals("x", clone.getColumnProjector(1).getValue(row, PVarchar.INSTANCE, ptr));
+        assertNull(clone.getColumnProjector(2).getValue(row, PInteger.INSTANCE, ptr));
+    }
+
+    @Test
+    public void testNoCommonSubexpressions() throws Exception {
+        RowProjector clone = compileProjector("SUBSTR(v, 2, 3), SUBSTR(w, 2, 3), v").cloneIfNecessary();
+        for (ColumnProjector columnProjector : clone.getColumnProjectors()) {
+            Expression expression = columnProjector.getExpression();
+            assertFalse(expression instanceof MemoizedExpression);
+            for (Expression child : expression.getChildren()) {
+                assertFalse(child instanceof MemoizedExpression);
+            }
+        }
+    }
+
+    @Test
+    public void testSubexpressionsDifferingInStateNotShared() throws Exception {
+        QueryPlan plan = compilePlan("v IS NULL, v IS NOT NULL, SUBSTR(v, 2) IS NULL, SUBSTR(v, 2) IS NOT NULL,"
+                + " v LIKE 'A%', v ILIKE 'A%'");
+        RowProjector clone = plan.getProjector().cloneIfNecessary();
+        // Equal children, but negated or not, and case sensitive or not
+        assertNotSame(clone.getColumnProjector(0).getExpression(), clone.getColumnProjector(1).getExpression());
+        assertNotSame(clone.getColumnProjector(4).getExpression(), clone.getColumnProjector(5).getExpression());
+        Expression substr = clone.getColumnProjector(2).getExpression().getChildren().get(0);
+        assertTrue(substr instanceof MemoizedExpression);
+        assertSame(substr, clone.getColumnProjector(3).getExpression().getChildren().get(0));
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        Tuple row = newRow(plan, "abc");
+        assertEquals(false, clone.getColumnProjector(0).getValue(row, PBoolean.INSTANCE, ptr));
+        assertEquals(true, clone.getColumnProjector(1).getValue(row, PBoolean.INSTANCE, ptr));
+        assertEquals(false, clone.getColumnProjector(2).getValue(row, PBoolean.INSTANCE, ptr));
+        assertEquals(true, clone.getColumnProjector(3).getValue(row, PBoolean.INSTANCE, ptr));
+        assertEquals(false, clone.getColumnProjector(4).getValue(row, PBoolean.INSTANCE, ptr));
+        assertEquals(true, clone.getColumnProjector(5).getValue(row, PBoolean.INSTANCE, ptr));
+        clone.reset();
+        row = newRow(plan, "a");
+        assertEquals(true, clone.getColumnProjector(2).getValue(row, PBoolean.INSTANCE, ptr));
+        assertEquals(false, clone.getColumnProjector(3).getValue(row, PBoolean.INSTANCE, ptr));
+    }
+}
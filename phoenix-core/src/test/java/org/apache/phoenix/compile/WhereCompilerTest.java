@@ -32,6 +32,7 @@ import static org.apache.phoenix.util.TestUtil.or;
 import static org.apache.phoenix.util.TestUtil.singleKVFilter;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -159,6 +160,31 @@ public class WhereCompilerTest extends BaseConnectionlessQueryTest {
                 filter);
     }
 
+    @Test
+    public void testSkipScanWithKeyValueFilterLoadsOtherFamiliesOnDemand() throws Exception {
+        PhoenixConnection pconn = DriverManager.getConnection(getUrl(), PropertiesUtil.deepCopy(TEST_PROPERTIES)).unwrap(PhoenixConnection.class);
+        String tableName = generateUniqueName();
+        pconn.createStatement().execute("create table " + tableName + "(k varchar primary key, a.x varchar, b.y varchar)");
+        byte[] familyA = Bytes.toBytes("A");
+        byte[] familyB = Bytes.toBytes("B");
+
+        Filter filter = newPreparedStatement(pconn, "select * from " + tableName + " where k in ('k1','k2') and x = 'c'")
+                .optimizeQuery().getContext().getScan().getFilter();
+        assertTrue(filter.isFamilyEssential(familyA));
+        assertFalse(filter.isFamilyEssential(familyB));
+        SkipScanFilter skipScanFilter = (SkipScanFilter)((FilterList)filter).getFilters().get(0);
+        assertFalse(SkipScanFilter.parseFrom(skipScanFilter.toByteArray()).isFamilyEssential(familyA));
+        assertFalse(skipScanFilter.intersect(ByteUtil.EMPTY_BYTE_ARRAY, ByteUtil.EMPTY_BYTE_ARRAY).isFamilyEssential(familyA));
+
+        // Rows without any value for x pass the filter
+        filter = newPreparedStatement(pconn, "select * from " + tableName + " where k in ('k1','k2') and x is null")
+                .optimizeQuery().getContext().getScan().getFilter();
+        assertTrue(filter.isFamilyEssential(familyB));
+        filter = newPreparedStatement(pconn, "select * from " + tableName + " where k in ('k1','k2')")
+                .optimizeQuery().getContext().getScan().getFilter();
+        assertTrue(filter.isFamilyEssential(familyB));
+    }
+
     @Test
     public void testSingleFixedFullPkSalted() throws SQLException {
         PhoenixConnection pconn = DriverManager.getConnection(getUrl(), PropertiesUtil.deepCopy(TEST_PROPERTIES)).unwrap(PhoenixConnection.class);
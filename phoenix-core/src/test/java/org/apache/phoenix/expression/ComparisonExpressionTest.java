@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class ComparisonExpressionTest {
+
+    private static boolean evaluate(ComparisonExpression expression) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        assertTrue(expression.evaluate(null, ptr));
+        return (Boolean)PBoolean.INSTANCE.toObject(ptr);
+    }
+
+    private static ComparisonExpression readBack(ComparisonExpression expression) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        expression.write(new DataOutputStream(stream));
+        ComparisonExpression copy = new ComparisonExpression();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+        return copy;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static void testConstantComparison(PDataType type, Comparable... values) throws Exception {
+        for (SortOrder sortOrder : SortOrder.values()) {
+            for (Comparable lhsValue : values) {
+                for (Comparable rhsValue : values) {
+                    int expected = lhsValue.compareTo(rhsValue);
+                    for (CompareOp op : Arrays.asList(CompareOp.LESS, CompareOp.LESS_OR_EQUAL, CompareOp.EQUAL,
+                            CompareOp.NOT_EQUAL, CompareOp.GREATER_OR_EQUAL, CompareOp.GREATER)) {
+                        ComparisonExpression expression = new ComparisonExpression(Arrays.<Expression>asList(
+                                LiteralExpression.newConstant(lhsValue, type, sortOrder),
+                                LiteralExpression.newConstant(rhsValue, type, sortOrder)), op);
+                        String message = lhsValue + " " + op + " " + rhsValue + " " + sortOrder;
+                        boolean result = evaluate(expression);
+                        switch (op) {
+                        case LESS: assertEquals(message, expected < 0, result); break;
+                        case LESS_OR_EQUAL: assertEquals(message, expected <= 0, result); break;
+                        case EQUAL: assertEquals(message, expected == 0, result); break;
+                        case NOT_EQUAL: assertEquals(message, expected != 0, result); break;
+                        case GREATER_OR_EQUAL: assertEquals(message, expected >= 0, result); break;
+                        default: assertEquals(message, expected > 0, result); break;
+                        }
+                        assertEquals(message, result, evaluate(readBack(expression)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConstantComparisons() throws Exception {
+        testConstantComparison(PVarchar.INSTANCE, "a", "ab", "b", "ba");
+        testConstantComparison(PChar.INSTANCE, "a", "ab", "b");
+        testConstantComparison(PInteger.INSTANCE, -10, -1, 0, 1, 256);
+        testConstantComparison(PDecimal.INSTANCE, new BigDecimal("-1.5"), BigDecimal.ZERO, new BigDecimal("0.25"),
+                BigDecimal.TEN);
+    }
+
+    @Test
+    public void testPaddedCharComparison() throws Exception {
+        ComparisonExpression expression = new ComparisonExpression(Arrays.<Expression>asList(
+                LiteralExpression.newConstant("ab", PChar.INSTANCE, 5, null),
+                LiteralExpression.newConstant("ab", PChar.INSTANCE, 3, null)), CompareOp.EQUAL);
+        assertTrue(evaluate(expression));
+        assertTrue(evaluate(readBack(expression)));
+    }
+}
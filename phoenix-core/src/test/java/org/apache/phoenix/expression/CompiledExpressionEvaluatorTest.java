@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class CompiledExpressionEvaluatorTest {
+    private static final byte[] ROW = Bytes.toBytes("row");
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+    private static final Expression A = column("A", PVarchar.INSTANCE, null);
+    private static final Expression B = column("B", PInteger.INSTANCE, null);
+    private static final Expression C = column("C", PChar.INSTANCE, 3);
+    private static final Expression D = column("D", PVarchar.INSTANCE, null);
+    private static final Object[] A_VALUES = { null, "a", "b" };
+    private static final Object[] B_VALUES = { null, -1, 11 };
+    private static final Object[] C_VALUES = { null, "ab", "abc" };
+    private static final Object[] D_VALUES = { null, "b" };
+
+    private static Expression column(String name, PDataType type, Integer maxLength) {
+        return new KeyValueColumnExpression(new PColumnImpl(PNameFactory.newName(name), PNameFactory.newName(FAMILY),
+                type, maxLength, null, true, 0, SortOrder.getDefault(), 0, null, false, null, false, false,
+                Bytes.toBytes(name)));
+    }
+
+    private static Expression compare(Expression lhs, CompareOp op, Expression rhs) {
+        return new ComparisonExpression(Arrays.asList(lhs, rhs), op);
+    }
+
+    private static Expression and(Expression... children) {
+        return new AndExpression(Arrays.asList(children));
+    }
+
+    private static Expression or(Expression... children) {
+        return new OrExpression(Arrays.asList(children));
+    }
+
+    private static Expression readBack(Expression expression) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(stream);
+        WritableUtils.writeVInt(output, ExpressionType.valueOf(expression).ordinal());
+        expression.write(output);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(stream.toByteArray()));
+        Expression copy = ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
+        copy.readFields(input);
+        copy.reset();
+        return copy;
+    }
+
+    private static Tuple tuple(Object... values) {
+        List<Cell> cells = new ArrayList<Cell>();
+        Expression[] columns = { A, B, C, D };
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                KeyValueColumnExpression column = (KeyValueColumnExpression)columns[i];
+                cells.add(new KeyValue(ROW, FAMILY, column.getColumnQualifier(),
+                        column.getDataType().toBytes(values[i])));
+            }
+        }
+        Collections.sort(cells, KeyValue.COMPARATOR);
+        return new MultiKeyValueTuple(cells);
+    }
+
+    private static String evaluate(Expression expression, Tuple tuple) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        return expression.evaluate(tuple, ptr) ? Bytes.toStringBinary(ptr.copyBytes()) : "unknown";
+    }
+
+    private static String evaluate(CompiledExpressionEvaluator evaluator, Tuple tuple) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        return evaluator.evaluate(tuple, ptr) ? Bytes.toStringBinary(ptr.copyBytes()) : "unknown";
+    }
+
+    /**
+     * Evaluates an interpreted and a compiled copy of the expression against every combination
+     * of column values, first against the tuple with only column A, as a filter does while the
+     * cells of a row arrive, and then against the full tuple.
+     */
+    private static void assertSameResults(Expression expression) throws Exception {
+        Expression interpreted = readBack(expression);
+        Expression compiledExpression = readBack(expression);
+        CompiledExpressionEvaluator compiled = CompiledExpressionEvaluator.getEvaluator(compiledExpression);
+        assertNotNull(expression.toString(), compiled);
+        for (Object a : A_VALUES) {
+            for (Object b : B_VALUES) {
+                for (Object c : C_VALUES) {
+                    for (Object d : D_VALUES) {
+                        String message = expression + " with " + Arrays.asList(a, b, c, d);
+                        interpreted.reset();
+                        compiledExpression.reset();
+                        Tuple partial = tuple(a);
+                        assertEquals(message, evaluate(interpreted, partial), evaluate(compiled, partial));
+                        Tuple full = tuple(a, b, c, d);
+                        assertEquals(message, evaluate(interpreted, full), evaluate(compiled, full));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testComparisons() throws Exception {
+        for (CompareOp op : Arrays.asList(CompareOp.LESS, CompareOp.LESS_OR_EQUAL, CompareOp.EQUAL,
+                CompareOp.NOT_EQUAL, CompareOp.GREATER_OR_EQUAL, CompareOp.GREATER)) {
+            assertSameResults(compare(A, op, LiteralExpression.newConstant("a", PVarchar.INSTANCE)));
+            assertSameResults(compare(B, op, LiteralExpression.newConstant(10, PInteger.INSTANCE)));
+            assertSameResults(compare(C, op, LiteralExpression.newConstant("ab", PChar.INSTANCE, 3, null)));
+            assertSameResults(compare(A, op, D));
+            assertSameResults(compare(LiteralExpression.newConstant("b", PVarchar.INSTANCE), op, A));
+            assertSameResults(compare(A, op, LiteralExpression.newConstant(null, PVarchar.INSTANCE)));
+        }
+    }
+
+    @Test
+    public void testAndOr() throws Exception {
+        Expression aIsB = compare(A, CompareOp.EQUAL, LiteralExpression.newConstant("b", PVarchar.INSTANCE));
+        Expression bAbove10 = compare(B, CompareOp.GREATER, LiteralExpression.newConstant(10, PInteger.INSTANCE));
+        Expression cIsAbc = compare(C, CompareOp.EQUAL, LiteralExpression.newConstant("abc", PChar.INSTANCE));
+        assertSameResults(and(aIsB, bAbove10));
+        assertSameResults(or(aIsB, bAbove10));
+        assertSameResults(and(or(aIsB, cIsAbc), bAbove10));
+        assertSameResults(or(and(aIsB, cIsAbc), compare(A, CompareOp.NOT_EQUAL, D)));
+    }
+
+    @Test
+    public void testInterpretedChildren() throws Exception {
+        Expression aIsB = compare(A, CompareOp.EQUAL, LiteralExpression.newConstant("b", PVarchar.INSTANCE));
+        Expression notBAbove10 = new NotExpression(
+                compare(B, CompareOp.GREATER, LiteralExpression.newConstant(10, PInteger.INSTANCE)));
+        assertSameResults(and(aIsB, notBAbove10));
+        assertSameResults(or(notBAbove10, and(aIsB, new NotExpression(
+                compare(C, CompareOp.EQUAL, LiteralExpression.newConstant("ab", PChar.INSTANCE, 3, null))))));
+        // Nothing to compile at the root
+        assertNull(CompiledExpressionEvaluator.getEvaluator(readBack(notBAbove10)));
+    }
+
+    @Test
+    public void testSharedEvaluatorsKeepSeparateState() throws Exception {
+        Expression expression = and(
+                compare(A, CompareOp.EQUAL, LiteralExpression.newConstant("b", PVarchar.INSTANCE)),
+                compare(B, CompareOp.GREATER, LiteralExpression.newConstant(10, PInteger.INSTANCE)));
+        Expression first = readBack(expression);
+        Expression second = readBack(expression);
+        CompiledExpressionEvaluator firstEvaluator = CompiledExpressionEvaluator.getEvaluator(first);
+        CompiledExpressionEvaluator secondEvaluator = CompiledExpressionEvaluator.getEvaluator(second);
+        assertTrue(firstEvaluator.getExpression() == first);
+        assertTrue(secondEvaluator.getExpression() == second);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        // Each one remembers the child it saw for the rest of the row
+        assertFalse(firstEvaluator.evaluate(tuple("b"), ptr));
+        assertFalse(secondEvaluator.evaluate(tuple(null, 11), ptr));
+        assertEquals(evaluate(expression, tuple("b", 11)), evaluate(firstEvaluator, tuple(null, 11)));
+        assertEquals(evaluate(expression, tuple("b", 11)), evaluate(secondEvaluator, tuple("b")));
+    }
+}
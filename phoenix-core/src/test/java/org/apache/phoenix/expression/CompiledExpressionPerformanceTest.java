@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+/**
+ * Compares the filter throughput of interpreted and compiled evaluation of typical WHERE clauses.
+ */
+public class CompiledExpressionPerformanceTest {
+
+    static private class Timer {
+        private long startTimeStamp;
+
+        public void reset() {
+            startTimeStamp = System.currentTimeMillis();
+        }
+
+        public double currentTime() {
+            return (System.currentTimeMillis() - startTimeStamp) / 1000.0;
+        }
+
+        public void printTime(String hint) {
+            System.out.println(hint + " Time=" + currentTime());
+        }
+    }
+
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+    private final Expression host = column("HOST", PVarchar.INSTANCE);
+    private final Expression status = column("STATUS", PInteger.INSTANCE);
+    private final Expression latency = column("LATENCY", PInteger.INSTANCE);
+    private final Tuple[] rows = new Tuple[] { row("h1", 200, 12), row("h2", 500, 140), row("h3", 404, 3) };
+    private final ImmutableBytesWritable resultPtr = new ImmutableBytesWritable();
+    private int maxTimes = 10000000;
+    private Timer timer = new Timer();
+
+    private static Expression column(String name, PDataType type) {
+        return new KeyValueColumnExpression(new PColumnImpl(PNameFactory.newName(name), PNameFactory.newName(FAMILY),
+                type, null, null, true, 0, SortOrder.getDefault(), 0, null, false, null, false, false,
+                Bytes.toBytes(name)));
+    }
+
+    private static Tuple row(String host, int status, int latency) {
+        List<Cell> cells = new ArrayList<Cell>();
+        byte[] row = Bytes.toBytes(host);
+        cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("HOST"), PVarchar.INSTANCE.toBytes(host)));
+        cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("STATUS"), PInteger.INSTANCE.toBytes(status)));
+        cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("LATENCY"), PInteger.INSTANCE.toBytes(latency)));
+        Collections.sort(cells, KeyValue.COMPARATOR);
+        return new MultiKeyValueTuple(cells);
+    }
+
+    private static Expression compare(Expression lhs, CompareOp op, Object value) throws SQLException {
+        return new ComparisonExpression(Arrays.asList(lhs,
+                LiteralExpression.newConstant(value, lhs.getDataType())), op);
+    }
+
+    private void testInterpreted(Expression expression, String name) {
+        timer.reset();
+        for (int i = 0; i < maxTimes; ++i) {
+            expression.reset();
+            expression.evaluate(rows[i % 3], resultPtr);
+        }
+        timer.printTime(name);
+    }
+
+    private void testCompiled(Expression expression, String name) {
+        CompiledExpressionEvaluator evaluator = CompiledExpressionEvaluator.getEvaluator(expression);
+        timer.reset();
+        for (int i = 0; i < maxTimes; ++i) {
+            expression.reset();
+            evaluator.evaluate(rows[i % 3], resultPtr);
+        }
+        timer.printTime(name);
+    }
+
+    public void testComparison() throws SQLException {
+        Expression expression = compare(status, CompareOp.GREATER_OR_EQUAL, 500);
+        expression.reset();
+        testInterpreted(expression, "Interpreted comparison");
+        testCompiled(expression, "Compiled comparison");
+    }
+
+    public void testConjunction() throws SQLException {
+        Expression expression = new AndExpression(Arrays.asList(
+                compare(host, CompareOp.EQUAL, "h2"),
+                compare(status, CompareOp.GREATER_OR_EQUAL, 500),
+                compare(latency, CompareOp.GREATER, 100)));
+        expression.reset();
+        testInterpreted(expression, "Interpreted conjunction");
+        testCompiled(expression, "Compiled conjunction");
+    }
+
+    public void testDisjunction() throws SQLException {
+        Expression expression = new OrExpression(Arrays.asList(
+                new AndExpression(Arrays.asList(
+                        compare(status, CompareOp.GREATER_OR_EQUAL, 500),
+                        compare(latency, CompareOp.GREATER, 100))),
+                compare(host, CompareOp.EQUAL, "h3")));
+        expression.reset();
+        testInterpreted(expression, "Interpreted disjunction");
+        testCompiled(expression, "Compiled disjunction");
+    }
+
+    @Test
+    public void test() throws Exception {
+        // testComparison();
+        // testConjunction();
+        // testDisjunction();
+    }
+}
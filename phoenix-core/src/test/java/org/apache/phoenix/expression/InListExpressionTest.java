@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class InListExpressionTest {
+
+    private static boolean evaluate(Expression expression) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        expression.evaluate(null, ptr);
+        return (Boolean)PBoolean.INSTANCE.toObject(ptr);
+    }
+
+    private static InListExpression readBack(InListExpression expression) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        expression.write(new DataOutputStream(stream));
+        InListExpression copy = new InListExpression();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+        return copy;
+    }
+
+    private static void testInList(PDataType type, SortOrder sortOrder, Object[] values, Object[] probes)
+            throws Exception {
+        List<Object> valueList = Arrays.asList(values);
+        for (Object probe : probes) {
+            List<Expression> children = new ArrayList<Expression>();
+            children.add(LiteralExpression.newConstant(probe, type, sortOrder));
+            for (Object value : values) {
+                children.add(LiteralExpression.newConstant(value, type, sortOrder));
+            }
+            InListExpression expression = new InListExpression(children, true);
+            boolean expected = valueList.contains(probe);
+            assertEquals(probe + " " + sortOrder, expected, evaluate(expression));
+            InListExpression copy = readBack(expression);
+            assertEquals(probe + " " + sortOrder, expected, evaluate(copy));
+            assertEquals(expression.getMinKey(), copy.getMinKey());
+            assertEquals(expression.getMaxKey(), copy.getMaxKey());
+            assertEquals(expression, copy);
+        }
+    }
+
+    @Test
+    public void testDenseIntegers() throws Exception {
+        for (SortOrder sortOrder : SortOrder.values()) {
+            testInList(PInteger.INSTANCE, sortOrder, new Object[] {-3, -1, 0, 2, 5, 64, 65, 200},
+                    new Object[] {-4, -3, -2, 0, 1, 5, 63, 64, 65, 66, 200, 201, Integer.MIN_VALUE, Integer.MAX_VALUE});
+        }
+    }
+
+    @Test
+    public void testSparseLongs() throws Exception {
+        for (SortOrder sortOrder : SortOrder.values()) {
+            testInList(PLong.INSTANCE, sortOrder, new Object[] {Long.MIN_VALUE, -100000000000L, 7L, 1L << 40, Long.MAX_VALUE},
+                    new Object[] {Long.MIN_VALUE, Long.MIN_VALUE + 1, -100000000000L, 0L, 7L, 8L, 1L << 40, Long.MAX_VALUE - 1,
+                            Long.MAX_VALUE});
+        }
+    }
+
+    @Test
+    public void testFullRangeLongs() throws Exception {
+        // The span of the values doesn't fit in a signed long
+        testInList(PLong.INSTANCE, SortOrder.ASC, new Object[] {Long.MIN_VALUE, Long.MAX_VALUE},
+                new Object[] {Long.MIN_VALUE, 0L, Long.MAX_VALUE});
+    }
+
+    @Test
+    public void testFixedWidthStrings() throws Exception {
+        testInList(PChar.INSTANCE, SortOrder.ASC, new Object[] {"abcdefghij", "abcdefghik", "zzzzzzzzzz"},
+                new Object[] {"abcdefghij", "abcdefghii", "zzzzzzzzzz", "aaaaaaaaaa"});
+    }
+
+    @Test
+    public void testVariableWidthStrings() throws Exception {
+        testInList(PVarchar.INSTANCE, SortOrder.ASC, new Object[] {"a", "bc", "def"},
+                new Object[] {"a", "b", "bc", "def", "defg"});
+    }
+}
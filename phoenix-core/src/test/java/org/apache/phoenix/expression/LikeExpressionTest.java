@@ -95,4 +95,23 @@ public class LikeExpressionTest {
         assertEquals(Boolean.TRUE, testExpression ("AA\nA", "AA%A"));
         assertEquals(Boolean.FALSE, testExpression ("AA\nA", "AA_"));
     }
- }
+ 
+    @Test
+    public void testLiteralWithWildcardsAroundIt() throws Exception {
+        assertEquals(Boolean.TRUE, testExpression ("abcabd", "abc%"));
+        assertEquals(Boolean.FALSE, testExpression ("abcabd", "abd%"));
+        assertEquals(Boolean.TRUE, testExpression ("abcabd", "%abd"));
+        assertEquals(Boolean.FALSE, testExpression ("abcabd", "%abc"));
+        assertEquals(Boolean.TRUE, testExpression ("abcabd", "%cab%"));
+        assertEquals(Boolean.TRUE, testExpression ("aababc", "%%ababc%%"));
+        assertEquals(Boolean.FALSE, testExpression ("abcabd", "%abe%"));
+        assertEquals(Boolean.TRUE, testExpression ("\u00e9t\u00e9", "%t\u00e9"));
+        assertEquals(Boolean.FALSE, testExpression ("\u00e9t\u00e9", "%t\u00e8"));
+        // Escaped wildcards are part of the literal
+        assertEquals(Boolean.TRUE, testExpression ("ab%", "%b\\%"));
+        assertEquals(Boolean.FALSE, testExpression ("abc", "%b\\%"));
+        assertEquals(Boolean.TRUE, testExpression ("a_b", "a\\_%"));
+        assertEquals(Boolean.FALSE, testExpression ("acb", "a\\_%"));
+        assertEquals(Boolean.TRUE, testExpression ("a\\b", "%\\\\%"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.util.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.joni.Option;
+import org.junit.Test;
+
+public class LiteralLikePatternTest {
+
+    private static boolean matches(AbstractBasePattern pattern, String value) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(PVarchar.INSTANCE.toBytes(value));
+        pattern.matches(ptr);
+        return (Boolean) PBoolean.INSTANCE.toObject(ptr);
+    }
+
+    private static List<String> allStrings(int maxLength) {
+        List<String> strings = new ArrayList<String>();
+        strings.add("");
+        for (int i = 0; i < strings.size(); i++) {
+            String s = strings.get(i);
+            if (s.length() < maxLength) {
+                strings.add(s + "a");
+                strings.add(s + "b");
+            }
+        }
+        return strings;
+    }
+
+    @Test
+    public void testSameMatchesAsRegex() {
+        for (String literal : new String[] {"", "a", "ab", "aab", "abab", "abaab", "bbb"}) {
+            for (int anchors = 0; anchors < 4; anchors++) {
+                boolean isStartAnchored = (anchors & 1) != 0;
+                boolean isEndAnchored = (anchors & 2) != 0;
+                String regex = (isStartAnchored ? "" : "\\Q\\E.*") + "\\Q" + literal + "\\E"
+                        + (isEndAnchored ? "" : ".*\\Q\\E");
+                LiteralLikePattern pattern = new LiteralLikePattern(regex, literal, isStartAnchored, isEndAnchored);
+                JONIPattern joniPattern = new JONIPattern(regex, Option.MULTILINE);
+                for (String value : allStrings(7)) {
+                    assertEquals(regex + " on " + value, matches(joniPattern, value), matches(pattern, value));
+                }
+                assertEquals(regex, pattern.pattern());
+            }
+        }
+    }
+
+    private static Object replaceAll(AbstractBasePattern pattern, String value) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(PVarchar.INSTANCE.toBytes(value));
+        byte[] replacement = PVarchar.INSTANCE.toBytes("x");
+        pattern.replaceAll(ptr, replacement, 0, replacement.length);
+        return PVarchar.INSTANCE.toObject(ptr);
+    }
+
+    private static Object substr(AbstractBasePattern pattern, String value, int offset) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(PVarchar.INSTANCE.toBytes(value));
+        pattern.substr(ptr, offset);
+        return PVarchar.INSTANCE.toObject(ptr);
+    }
+
+    @Test
+    public void testSameReplacementsAndSubstringsAsRegex() {
+        for (String literal : new String[] {"", "a", "ab", "aab", "abab", "bbb"}) {
+            for (int anchors = 0; anchors < 4; anchors++) {
+                boolean isStartAnchored = (anchors & 1) != 0;
+                boolean isEndAnchored = (anchors & 2) != 0;
+                String regex = (isStartAnchored ? "" : "\\Q\\E.*") + "\\Q" + literal + "\\E"
+                        + (isEndAnchored ? "" : ".*\\Q\\E");
+                LiteralLikePattern pattern = new LiteralLikePattern(regex, literal, isStartAnchored, isEndAnchored);
+                JavaPattern javaPattern = new JavaPattern(regex, Pattern.DOTALL);
+                for (String value : allStrings(5)) {
+                    assertEquals(regex + " on " + value, replaceAll(javaPattern, value), replaceAll(pattern, value));
+                    for (int offset = -6; offset <= 6; offset++) {
+                        assertEquals(regex + " on " + value + " from " + offset,
+                                substr(javaPattern, value, offset), substr(pattern, value, offset));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCachedPatterns() {
+        JONIPattern joniPattern = PatternCache.getJONIPattern("a+b", Option.MULTILINE);
+        assertSame(joniPattern, PatternCache.getJONIPattern("a+b", Option.MULTILINE));
+        assertNotSame(joniPattern, PatternCache.getJONIPattern("a+b", Option.DEFAULT));
+        JavaPattern javaPattern = PatternCache.getJavaPattern("a+b", Pattern.DOTALL);
+        assertSame(javaPattern, PatternCache.getJavaPattern("a+b", Pattern.DOTALL));
+        assertTrue(matches(javaPattern, "aab"));
+        assertFalse(matches(javaPattern, "ba"));
+    }
+}
@@ -103,6 +103,13 @@ public class PatternPerformanceTest {
         testLike(new JONIPattern(patternString), "JONI Like");
     }
 
+    public void testLiteralLike() {
+        patternString = "\\Q\\E.*\\QHU\\E.*\\Q\\E";
+        testLike(new JavaPattern(patternString), "Java Literal Like");
+        testLike(new JONIPattern(patternString), "JONI Literal Like");
+        testLike(new LiteralLikePattern(patternString, "HU", false, false), "Literal Like");
+    }
+
     private void testSubstr(AbstractBasePattern pattern, String name) {
         timer.reset();
         for (int i = 0; i < maxTimes; ++i) {
@@ -145,6 +152,7 @@ public class PatternPerformanceTest {
     @Test
     public void test() throws Exception {
         // testLike();
+        // testLiteralLike();
         // testReplaceAll();
         // testSubstr();
         // testSplit();
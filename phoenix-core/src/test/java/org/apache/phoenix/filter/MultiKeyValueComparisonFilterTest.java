@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.DriverManager;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiKeyValueComparisonFilterTest extends BaseConnectionlessQueryTest {
+    private static final byte[] ROW = Bytes.toBytes("r");
+    private static final byte[] FAMILY = QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES;
+
+    private MultiKeyValueComparisonFilter filter;
+
+    @Before
+    public void compileFilter() throws Exception {
+        String tableName = generateUniqueName();
+        try (PhoenixConnection conn = DriverManager.getConnection(getUrl()).unwrap(PhoenixConnection.class)) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k VARCHAR PRIMARY KEY, a VARCHAR, b VARCHAR, c VARCHAR, d VARCHAR) COLUMN_ENCODED_BYTES=0");
+            filter = (MultiKeyValueComparisonFilter) conn.createStatement().unwrap(PhoenixStatement.class)
+                    .optimizeQuery("SELECT * FROM " + tableName + " WHERE a = 'x' AND c = 'z'")
+                    .getContext().getScan().getFilter();
+        }
+    }
+
+    private static KeyValue newCell(String qualifier, String value) {
+        return new KeyValue(ROW, FAMILY, Bytes.toBytes(qualifier), Bytes.toBytes(value));
+    }
+
+    @Test
+    public void testMatchingRow() {
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("A", "x")));
+        // Not referenced by the expression
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("B", "y")));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("C", "z")));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("D", "w")));
+        assertFalse(filter.filterRow());
+    }
+
+    @Test
+    public void testRowsAfterReset() {
+        // Can't match whatever the other column is
+        assertEquals(ReturnCode.NEXT_ROW, filter.filterKeyValue(newCell("A", "y")));
+        assertTrue(filter.filterRow());
+        filter.reset();
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("A", "x")));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("C", "z")));
+        assertFalse(filter.filterRow());
+    }
+
+    @Test
+    public void testOlderVersionSkipped() {
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("A", "x")));
+        assertEquals(ReturnCode.NEXT_COL, filter.filterKeyValue(newCell("A", "y")));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("C", "z")));
+        assertFalse(filter.filterRow());
+    }
+
+    @Test
+    public void testColumnsOutOfOrder() {
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("D", "w")));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("C", "z")));
+        assertEquals(ReturnCode.INCLUDE_AND_NEXT_COL, filter.filterKeyValue(newCell("A", "x")));
+        assertFalse(filter.filterRow());
+    }
+}
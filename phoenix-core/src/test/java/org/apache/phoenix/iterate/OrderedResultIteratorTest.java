@@ -16,11 +16,22 @@
  */
 package org.apache.phoenix.iterate;
 
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.expression.RowKeyExpression;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.AssertResults;
 import org.junit.Test;
 
 /**
@@ -38,4 +49,23 @@ public class OrderedResultIteratorTest {
       iterator.close();
   }
 
+  private static Tuple newRow(int key) {
+      return new SingleKeyValueTuple(new KeyValue(Bytes.toBytes(key), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1)));
+  }
+
+  @Test
+  public void testThresholdSkipsRows() throws Exception {
+      List<Tuple> rows = new ArrayList<Tuple>();
+      for (int key : new int[] {7, 2, 9, 0, 3, 5, 1}) {
+          rows.add(newRow(key));
+      }
+      List<OrderByExpression> orderByExpressions =
+              Collections.singletonList(new OrderByExpression(RowKeyExpression.INSTANCE, false, true));
+      ImmutableBytesWritable[] thresholdSortKeys = new ImmutableBytesWritable[] {new ImmutableBytesWritable(Bytes.toBytes(2))};
+      OrderedResultIterator iterator = new OrderedResultIterator(new MaterializedResultIterator(rows),
+              orderByExpressions, Integer.MAX_VALUE, 5, null, 0, thresholdSortKeys);
+      // Rows sorting after the threshold are skipped, but not the ones equal to it
+      AssertResults.assertResults(iterator, new Tuple[] {newRow(0), newRow(1), newRow(2)});
+  }
+
 }
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.monitoring.ScanMetricsHolder;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.schema.TableRef;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ParallelIteratorsLimitTest extends BaseConnectionlessQueryTest {
+
+    /**
+     * Counts the scans launched, each of them returning a single row
+     */
+    private static class CountingTableResultIteratorFactory implements TableResultIteratorFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public TableResultIterator newIterator(MutationState mutationState, TableRef tableRef, Scan scan,
+                ScanMetricsHolder scanMetricsHolder, long renewLeaseThreshold, QueryPlan plan,
+                ParallelScanGrouper scanGrouper, Map<ImmutableBytesPtr, ServerCache> caches) throws SQLException {
+            TableResultIterator iterator = mock(TableResultIterator.class);
+            Tuple tuple = new SingleKeyValueTuple(new KeyValue(Bytes.toBytes("k" + count.incrementAndGet()),
+                    SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1)));
+            when(iterator.next()).thenReturn(tuple, (Tuple) null);
+            return iterator;
+        }
+    }
+
+    /**
+     * Scans that block, once the given number of them was launched, until released
+     */
+    private static class BlockingTableResultIteratorFactory implements TableResultIteratorFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final int unblockedCount;
+
+        private BlockingTableResultIteratorFactory(int unblockedCount) {
+            this.unblockedCount = unblockedCount;
+        }
+
+        @Override
+        public TableResultIterator newIterator(MutationState mutationState, TableRef tableRef, Scan scan,
+                ScanMetricsHolder scanMetricsHolder, long renewLeaseThreshold, QueryPlan plan,
+                ParallelScanGrouper scanGrouper, Map<ImmutableBytesPtr, ServerCache> caches) throws SQLException {
+            TableResultIterator iterator = mock(TableResultIterator.class);
+            final boolean blocked = count.incrementAndGet() > unblockedCount;
+            final Tuple tuple = new SingleKeyValueTuple(new KeyValue(Bytes.toBytes("k" + count.get()),
+                    SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1)));
+            when(iterator.next()).thenAnswer(new Answer<Tuple>() {
+                private boolean read;
+
+                @Override
+                public Tuple answer(InvocationOnMock invocation) throws Throwable {
+                    if (blocked) {
+                        released.await(3, TimeUnit.SECONDS);
+                    }
+                    Tuple next = read ? null : tuple;
+                    read = true;
+                    return next;
+                }
+            });
+            return iterator;
+        }
+    }
+
+    private static int countLaunchedScans(String query, int rowCount) throws Exception {
+        PhoenixConnection conn = DriverManager.getConnection(getUrl()).unwrap(PhoenixConnection.class);
+        try {
+            CountingTableResultIteratorFactory factory = new CountingTableResultIteratorFactory();
+            conn.setTableResultIteratorFactory(factory);
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            for (int i = 0; i < rowCount; i++) {
+                assertTrue(rs.next());
+            }
+            assertFalse(rs.next());
+            return factory.count.get();
+        } finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testScansLaunchedProgressively() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName + " (k VARCHAR PRIMARY KEY, v VARCHAR)"
+                    + " SPLIT ON ('b','c','d','e','f','g','h','i','j')");
+        }
+        // With a filter, a limited query can't be run serially
+        String query = "SELECT k FROM " + tableName + " WHERE v = 'a'";
+        // Satisfied by the first scans, so the rest are never launched
+        assertEquals(4, countLaunchedScans(query + " LIMIT 2", 2));
+        // Launches twice as many scans once more results are needed
+        assertEquals(10, countLaunchedScans(query + " LIMIT 6", 6));
+        // All the scans are launched up front without a limit
+        assertEquals(10, countLaunchedScans(query, 10));
+    }
+
+    @Test
+    public void testLaunchedScanTimesOut() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName + " (k VARCHAR PRIMARY KEY, v VARCHAR)"
+                    + " SPLIT ON ('b','c','d','e','f','g','h','i','j')");
+        }
+        PhoenixConnection conn = DriverManager.getConnection(getUrl()).unwrap(PhoenixConnection.class);
+        BlockingTableResultIteratorFactory factory = new BlockingTableResultIteratorFactory(4);
+        try {
+            conn.setTableResultIteratorFactory(factory);
+            Statement stmt = conn.createStatement();
+            stmt.setQueryTimeout(1);
+            ResultSet rs = stmt.executeQuery("SELECT k FROM " + tableName + " WHERE v = 'a' LIMIT 6");
+            for (int i = 0; i < 4; i++) {
+                assertTrue(rs.next());
+            }
+            // The scans launched once the first ones are read don't complete in time
+            try {
+                rs.next();
+                fail();
+            } catch (SQLException e) {
+                assertEquals(SQLExceptionCode.OPERATION_TIMED_OUT.getErrorCode(), e.getErrorCode());
+            }
+        } finally {
+            factory.released.countDown();
+            conn.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.job.JobManager;
+import org.apache.phoenix.log.LogLevel;
+import org.apache.phoenix.monitoring.ReadMetricQueue;
+import org.apache.phoenix.monitoring.ScanMetricsHolder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.junit.Test;
+
+public class ScanningResultIteratorTest {
+    private static final int ROW_COUNT = 100;
+
+    private static class RowScanner extends AbstractClientScanner {
+        private int row;
+        private boolean closed;
+
+        @Override
+        public Result next() {
+            if (closed || row == ROW_COUNT) {
+                return null;
+            }
+            KeyValue kv = new KeyValue(Bytes.toBytes(row++), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, new byte[10]);
+            return Result.create(Collections.<Cell>singletonList(kv));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean renewLease() {
+            return true;
+        }
+    }
+
+    private static ScanMetricsHolder newScanMetricsHolder(Scan scan) {
+        ScanMetricsHolder scanMetricsHolder =
+                ScanMetricsHolder.getInstance(new ReadMetricQueue(true, LogLevel.OFF), "T", scan, LogLevel.OFF);
+        // There are no HBase scan metrics to collect without a region server
+        scan.setScanMetricsEnabled(false);
+        return scanMetricsHolder;
+    }
+
+    private static void assertAllRows(ScanningResultIterator iterator) throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Tuple tuple = iterator.next();
+            tuple.getKey(ptr);
+            assertEquals(i, Bytes.toInt(ptr.get(), ptr.getOffset(), ptr.getLength()));
+        }
+        assertNull(iterator.next());
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        ExecutorService executor = JobManager.createThreadPoolExec(1000, 1, 10, true);
+        try {
+            Scan scan = new Scan();
+            RowScanner scanner = new RowScanner();
+            long rowBytes = Result.getTotalSizeOfCells(scanner.next());
+            scanner.row = 0;
+            ScanningResultIterator iterator = new ScanningResultIterator(scanner, scan, newScanMetricsHolder(scan),
+                    executor, rowBytes * 7);
+            assertAllRows(iterator);
+            assertEquals(rowBytes, iterator.getAverageRowBytes());
+            assertTrue(scanner.closed);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchStall() throws Exception {
+        // Never runs the prefetched batches, so each of them is fetched when needed
+        ExecutorService executor = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        };
+        Scan scan = new Scan();
+        scan.setCaching(10);
+        ScanMetricsHolder scanMetricsHolder = newScanMetricsHolder(scan);
+        ScanningResultIterator iterator = new ScanningResultIterator(new RowScanner(), scan, scanMetricsHolder,
+                executor, Long.MAX_VALUE);
+        assertAllRows(iterator);
+        // Batches are limited to the number of rows per RPC, and the first one isn't prefetched
+        assertEquals(ROW_COUNT / 10, scanMetricsHolder.getCountOfPrefetchStalls().getValue());
+    }
+
+    @Test
+    public void testSizeScan() {
+        Scan scan = new Scan();
+        scan.setCaching(100);
+        ScanningResultIterator.sizeScan(scan, 1000, 50, false);
+        assertEquals(1000, scan.getMaxResultSize());
+        assertEquals(100, scan.getCaching());
+        ScanningResultIterator.sizeScan(scan, 1000, 2, false);
+        assertEquals(500, scan.getCaching());
+
+        // The fetch size set by the user is kept
+        scan = new Scan();
+        scan.setCaching(100);
+        ScanningResultIterator.sizeScan(scan, 1000, 2, true);
+        assertEquals(1000, scan.getMaxResultSize());
+        assertEquals(100, scan.getCaching());
+
+        scan = new Scan();
+        scan.setCaching(100);
+        scan.setSmall(true);
+        ScanningResultIterator.sizeScan(scan, 1000, 2, false);
+        assertEquals(100, scan.getCaching());
+    }
+}
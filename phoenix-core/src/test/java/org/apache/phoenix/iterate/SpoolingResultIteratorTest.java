@@ -20,7 +20,12 @@ package org.apache.phoenix.iterate;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -35,7 +40,9 @@ import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.AssertResults;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 
 
@@ -43,6 +50,9 @@ public class SpoolingResultIteratorTest {
     private final static byte[] A = Bytes.toBytes("a");
     private final static byte[] B = Bytes.toBytes("b");
 
+    @Rule
+    public TemporaryFolder spoolDirectory = new TemporaryFolder();
+
     private void testSpooling(int threshold, long maxSizeSpool) throws Throwable {
         Tuple[] results = new Tuple[] {
                 new SingleKeyValueTuple(new KeyValue(A, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))),
@@ -76,4 +86,37 @@ public class SpoolingResultIteratorTest {
     public void testFailToSpool() throws Throwable{
     		testSpooling(1, 0L);
     }
+
+    private void testSpoolingBlocks(boolean compress) throws Throwable {
+        // Spans several blocks of the spool file
+        List<Tuple> results = new ArrayList<Tuple>();
+        for (int i = 0; i < 10000; i++) {
+            results.add(new SingleKeyValueTuple(new KeyValue(Bytes.toBytes(i), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, new byte[20])));
+        }
+        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(1024));
+        SpoolingMetricsHolder spoolMetrics = new SpoolingMetricsHolder(new ReadMetricQueue(true, LogLevel.OFF), "");
+        ResultIterator scanner = new SpoolingResultIterator(spoolMetrics,
+                new MemoryMetricsHolder(new ReadMetricQueue(false,LogLevel.OFF), ""),
+                new MaterializedResultIterator(results), memoryManager, 1024,
+                QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, spoolDirectory.getRoot().getPath(), compress);
+        assertEquals(1, spoolMetrics.getNumSpoolFileMetric().getValue());
+        long spoolFileSize = spoolMetrics.getSpoolFileSizeMetric().getValue();
+        AssertResults.assertResults(scanner, results.toArray(new Tuple[results.size()]));
+        assertEquals(1, spoolMetrics.getNumSpoolFileDeletedMetric().getValue());
+        assertEquals(0, spoolDirectory.getRoot().listFiles().length);
+        if (compress) {
+            // The zeroed values compress well
+            assertTrue(spoolFileSize < 10000 * 20);
+        }
+    }
+
+    @Test
+    public void testOnDiskSpoolingBlocks() throws Throwable {
+        testSpoolingBlocks(false);
+    }
+
+    @Test
+    public void testOnDiskSpoolingCompressedBlocks() throws Throwable {
+        testSpoolingBlocks(true);
+    }
 }
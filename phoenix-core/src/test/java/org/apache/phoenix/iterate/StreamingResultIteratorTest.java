@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.job.JobManager;
+import org.apache.phoenix.log.LogLevel;
+import org.apache.phoenix.memory.DelegatingMemoryManager;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.monitoring.MemoryMetricsHolder;
+import org.apache.phoenix.monitoring.ReadMetricQueue;
+import org.apache.phoenix.monitoring.SpoolingMetricsHolder;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.AssertResults;
+import org.junit.Test;
+
+public class StreamingResultIteratorTest {
+    private static final int ROW_COUNT = 5;
+
+    private static class RowIterator extends MaterializedResultIterator {
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private RowIterator(List<Tuple> results) {
+            super(results);
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    private static List<Tuple> newRows() {
+        List<Tuple> rows = new ArrayList<Tuple>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            rows.add(new SingleKeyValueTuple(
+                    new KeyValue(Bytes.toBytes(i), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))));
+        }
+        return rows;
+    }
+
+    private static int rowBytes() {
+        return (int) KeyValueUtil.length(newRows().get(0).getValue(0));
+    }
+
+    private static StreamingResultIterator newIterator(ResultIterator scanner, ExecutorService executor,
+            int thresholdBytes) throws SQLException {
+        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(1024 * 1024));
+        return new StreamingResultIterator(SpoolingMetricsHolder.NO_OP_INSTANCE,
+                new MemoryMetricsHolder(new ReadMetricQueue(false, LogLevel.OFF), ""), scanner, executor,
+                memoryManager, thresholdBytes, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, "/tmp", false);
+    }
+
+    private void testStreaming(int thresholdBytes) throws Exception {
+        ExecutorService executor = JobManager.createThreadPoolExec(1000, 1, 10, true);
+        try {
+            RowIterator scanner = new RowIterator(newRows());
+            StreamingResultIterator iterator = newIterator(scanner, executor, thresholdBytes);
+            // Let the scan be read in full before consuming any of it
+            assertTrue(scanner.closed.await(10, TimeUnit.SECONDS));
+            AssertResults.assertResults(iterator, newRows().toArray(new Tuple[ROW_COUNT]));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        testStreaming(1024 * 1024);
+    }
+
+    @Test
+    public void testOverflowToDisk() throws Exception {
+        testStreaming(rowBytes() * 2);
+    }
+
+    @Test
+    public void testReadByConsumer() throws Exception {
+        // Never runs the reading of the scan, so each result is read when needed
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        ExecutorService executor = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        };
+        RowIterator scanner = new RowIterator(newRows());
+        StreamingResultIterator iterator = newIterator(scanner, executor, rowBytes());
+        AssertResults.assertResults(iterator, newRows().toArray(new Tuple[ROW_COUNT]));
+        assertEquals(0, scanner.closed.getCount());
+        // The reader queued up front stays the only one, rather than one per result read
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        assertNull(iterator.next());
+        iterator.close();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.coprocessor.ScanRegionObserver;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.expression.RowKeyExpression;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.junit.Test;
+
+public class TopNThresholdTest {
+
+    private static ResultIterator newRegion(int... keys) {
+        Tuple[] rows = new Tuple[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = new SingleKeyValueTuple(
+                    new KeyValue(Bytes.toBytes(keys[i]), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1)));
+        }
+        return new MaterializedResultIterator(Arrays.asList(rows));
+    }
+
+    private static void readRegion(ParallelIteratorFactory factory, ResultIterator region, Scan scan) throws Exception {
+        PeekingResultIterator iterator = factory.newIterator(null, region, scan, "T", null);
+        while (iterator.next() != null) {
+        }
+    }
+
+    private static byte[] serializedThreshold(int key) {
+        Scan scan = new Scan();
+        ScanRegionObserver.serializeTopNThresholdIntoScan(scan,
+                new ImmutableBytesWritable[] {new ImmutableBytesWritable(Bytes.toBytes(key))});
+        return scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD);
+    }
+
+    @Test
+    public void testThresholdPassedToLaterScans() throws Exception {
+        List<OrderByExpression> orderByExpressions =
+                Collections.singletonList(new OrderByExpression(RowKeyExpression.INSTANCE, false, true));
+        ParallelIteratorFactory factory = new TopNThreshold.TopNThresholdIteratorFactory(
+                ParallelIteratorFactory.NOOP_FACTORY, orderByExpressions, 2);
+        // Fewer rows than the limit, so nothing is known yet
+        Scan scan = new Scan();
+        readRegion(factory, newRegion(1), scan);
+        assertNull(scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD));
+        scan = new Scan();
+        readRegion(factory, newRegion(5, 8), scan);
+        assertNull(scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD));
+        scan = new Scan();
+        readRegion(factory, newRegion(3, 4), scan);
+        assertArrayEquals(serializedThreshold(8), scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD));
+        // Only lowered by a row sorting before it
+        scan = new Scan();
+        readRegion(factory, newRegion(6, 9), scan);
+        assertArrayEquals(serializedThreshold(4), scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD));
+        scan = new Scan();
+        readRegion(factory, newRegion(0), scan);
+        assertArrayEquals(serializedThreshold(4), scan.getAttribute(BaseScannerRegionObserver.TOPN_THRESHOLD));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.coprocessor.UngroupedAggregateRegionObserver;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.stats.ZoneMap;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.EnvironmentEdge;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.ScanUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ZoneMapPrunerTest extends BaseConnectionlessQueryTest {
+    private static final long CUTOFF_TIMESTAMP = 1000;
+    private static String tableName;
+
+    @BeforeClass
+    public static void createTable() throws Exception {
+        tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k VARCHAR PRIMARY KEY, v INTEGER, w INTEGER) IMMUTABLE_ROWS=true,"
+                    + " IMMUTABLE_STORAGE_SCHEME=ONE_CELL_PER_COLUMN, COLUMN_ENCODED_BYTES=0");
+        }
+    }
+
+    private static ZoneMap newZoneMap(String startRow, int minV, int maxV) {
+        ZoneMap.Builder builder = new ZoneMap.Builder(10);
+        for (int v : new int[] {maxV, minV, (minV + maxV) / 2}) {
+            builder.addValue(new KeyValue(Bytes.toBytes("r"), QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+                    Bytes.toBytes("V"), PInteger.INSTANCE.toBytes(v)));
+        }
+        return builder.build(Bytes.toBytes(startRow), CUTOFF_TIMESTAMP);
+    }
+
+    private static Scan prune(String where, ZoneMap zoneMap) throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            Scan scan = conn.createStatement().unwrap(PhoenixStatement.class)
+                    .optimizeQuery("SELECT k FROM " + tableName + " WHERE " + where).getContext().getScan();
+            ZoneMapPruner pruner = ZoneMapPruner.newPruner(scan, QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES);
+            Scan chunkScan = ScanUtil.newScan(scan);
+            chunkScan.setStartRow(Bytes.toBytes("b"));
+            chunkScan.setStopRow(Bytes.toBytes("c"));
+            boolean pruned = pruner != null && pruner.prune(chunkScan, zoneMap);
+            assertEquals(pruned, chunkScan.getTimeRange().getMin() == (zoneMap == null ? -1 : zoneMap.getCutoffTimestamp()));
+            return pruned ? chunkScan : null;
+        }
+    }
+
+    private static boolean isPruned(String where) throws Exception {
+        return prune(where, newZoneMap("a", 10, 20)) != null;
+    }
+
+    @Test
+    public void testComparisons() throws Exception {
+        assertTrue(isPruned("v = 5"));
+        assertTrue(isPruned("v > 20"));
+        assertTrue(isPruned("v >= 21"));
+        assertTrue(isPruned("v < 10"));
+        assertTrue(isPruned("v <= 9"));
+        assertFalse(isPruned("v = 15"));
+        assertFalse(isPruned("v >= 20"));
+        assertFalse(isPruned("v <= 10"));
+        assertFalse(isPruned("v != 5"));
+        assertTrue(prune("v != 5", newZoneMap("a", 5, 5)) != null);
+        // No zone was tracked for w
+        assertFalse(isPruned("w = 5"));
+        assertFalse(isPruned("v IS NULL"));
+    }
+
+    @Test
+    public void testCombinations() throws Exception {
+        assertTrue(isPruned("v = 5 AND w = 5"));
+        assertTrue(isPruned("k = 'b' AND v > 30"));
+        assertFalse(isPruned("v = 5 OR w = 5"));
+        assertTrue(isPruned("v = 5 OR v > 20"));
+        assertFalse(isPruned("v = 5 OR v = 15"));
+        assertTrue(isPruned("v IN (1, 2, 25)"));
+        assertFalse(isPruned("v IN (1, 12, 25)"));
+    }
+
+    @Test
+    public void testChunkStartingBeforeZoneMap() throws Exception {
+        assertNull(prune("v = 5", newZoneMap("bb", 10, 20)));
+        assertNull(prune("v = 5", null));
+    }
+
+    @Test
+    public void testRestrictedToLaterCells() throws Exception {
+        Scan scan = prune("v = 5", newZoneMap("", 10, 20));
+        assertEquals(CUTOFF_TIMESTAMP, scan.getTimeRange().getMin());
+        assertEquals(Long.MAX_VALUE, scan.getTimeRange().getMax());
+    }
+
+    private static class ManualEnvironmentEdge extends EnvironmentEdge {
+        private long time;
+
+        @Override
+        public long currentTime() {
+            return time;
+        }
+    }
+
+    @Test
+    public void testRowWrittenAfterCollectionWithOlderTimestamp() throws Exception {
+        // UPDATE STATISTICS scans up to the client time, which is ahead of the region server clock
+        long clientTimestamp = 2000;
+        long regionServerTimestamp = 1500;
+        Scan statsScan = new Scan();
+        statsScan.setTimeRange(0, clientTimestamp);
+        statsScan.setAttribute(BaseScannerRegionObserver.ANALYZE_TABLE, PDataType.TRUE_BYTES);
+        ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+        edge.time = regionServerTimestamp;
+        EnvironmentEdgeManager.injectEdge(edge);
+        try {
+            new UngroupedAggregateRegionObserver().preScannerOpen(null, statsScan, null);
+        } finally {
+            EnvironmentEdgeManager.reset();
+        }
+        long cutoff = Bytes.toLong(statsScan.getAttribute(BaseScannerRegionObserver.ZONE_MAP_CUTOFF));
+        assertEquals(regionServerTimestamp, cutoff);
+
+        // A row written by the region server after the stats were collected, but older than them
+        long rowTimestamp = regionServerTimestamp + 100;
+        ZoneMap.Builder builder = new ZoneMap.Builder(10);
+        builder.addValue(new KeyValue(Bytes.toBytes("r"), QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+                Bytes.toBytes("V"), PInteger.INSTANCE.toBytes(10)));
+        Scan scan = prune("v = 5", builder.build(HConstants.EMPTY_START_ROW, cutoff));
+        assertTrue(scan.getTimeRange().withinTimeRange(rowTimestamp));
+        assertFalse(scan.getTimeRange().withinTimeRange(cutoff - 1));
+
+        // The time range of the stats scan caps the cutoff when the region server clock is ahead
+        statsScan = new Scan();
+        statsScan.setTimeRange(0, clientTimestamp);
+        statsScan.setAttribute(BaseScannerRegionObserver.ANALYZE_TABLE, PDataType.TRUE_BYTES);
+        new UngroupedAggregateRegionObserver().preScannerOpen(null, statsScan, null);
+        assertEquals(clientTimestamp, Bytes.toLong(statsScan.getAttribute(BaseScannerRegionObserver.ZONE_MAP_CUTOFF)));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ZoneMap zoneMap = newZoneMap("a", -3, 20);
+        ZoneMap deserialized = ZoneMap.fromBytes(zoneMap.toBytes(), 0, zoneMap.toBytes().length);
+        assertArrayEquals(Bytes.toBytes("a"), deserialized.getStartRow());
+        assertEquals(CUTOFF_TIMESTAMP, deserialized.getCutoffTimestamp());
+        KeyRange range = deserialized.getColumnRange(Bytes.toBytes("V"));
+        assertArrayEquals(PInteger.INSTANCE.toBytes(-3), range.getLowerRange());
+        assertArrayEquals(PInteger.INSTANCE.toBytes(20), range.getUpperRange());
+        assertNull(deserialized.getColumnRange(Bytes.toBytes("W")));
+    }
+
+    private static boolean canPrune(String tableOptions, String rowTimestamp) throws Exception {
+        String name = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + name
+                    + " (k DATE NOT NULL, v INTEGER CONSTRAINT pk PRIMARY KEY (k" + rowTimestamp + ")) " + tableOptions);
+            return ZoneMapPruner.canPrune(PhoenixRuntime.getTable(conn.unwrap(PhoenixConnection.class), name));
+        }
+    }
+
+    @Test
+    public void testPrunableTables() throws Exception {
+        String oneCellPerColumn = "IMMUTABLE_ROWS=true, IMMUTABLE_STORAGE_SCHEME=ONE_CELL_PER_COLUMN";
+        assertTrue(canPrune(oneCellPerColumn, ""));
+        // Rows are written with timestamps older than the stats
+        assertFalse(canPrune(oneCellPerColumn, " ROW_TIMESTAMP"));
+        // No zone maps for columns packed into a single cell, the default for immutable rows
+        assertFalse(canPrune("IMMUTABLE_ROWS=true", ""));
+        assertFalse(canPrune("", ""));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.jdbc.ColumnBatch.BytesColumnVector;
+import org.apache.phoenix.jdbc.ColumnBatch.DoubleColumnVector;
+import org.apache.phoenix.jdbc.ColumnBatch.LongColumnVector;
+import org.apache.phoenix.jdbc.ColumnBatch.ObjectColumnVector;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.junit.Test;
+
+public class PhoenixResultSetTest extends BaseConnectionlessQueryTest {
+
+    @Test
+    public void testPrimitiveGetters() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        ResultSet rs = conn.createStatement().executeQuery(
+                "SELECT CAST(-3 AS BIGINT), CAST(7 AS TINYINT), 2.5e0, CAST(null AS INTEGER), 1.5");
+        assertTrue(rs.next());
+        assertEquals(-3L, rs.getLong(1));
+        assertEquals(-3, rs.getInt(1));
+        assertEquals((short) -3, rs.getShort(1));
+        assertEquals((byte) -3, rs.getByte(1));
+        assertEquals(-3d, rs.getDouble(1), 0);
+        assertEquals(-3f, rs.getFloat(1), 0);
+        assertFalse(rs.wasNull());
+
+        assertEquals(7L, rs.getLong(2));
+        assertEquals(7d, rs.getDouble(2), 0);
+
+        assertEquals(2.5d, rs.getDouble(3), 0);
+        assertEquals(2.5f, rs.getFloat(3), 0);
+        assertEquals(2L, rs.getLong(3));
+
+        assertEquals(0, rs.getInt(4));
+        assertTrue(rs.wasNull());
+        assertEquals(0L, rs.getLong(4));
+        assertTrue(rs.wasNull());
+
+        // Decimals are still converted through their object representation
+        assertEquals(1.5d, rs.getDouble(5), 0);
+        assertFalse(rs.wasNull());
+        assertFalse(rs.next());
+    }
+
+    @Test
+    public void testPrimitiveGetterOverflow() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        ResultSet rs = conn.createStatement().executeQuery("SELECT CAST(" + Long.MAX_VALUE + " AS BIGINT)");
+        assertTrue(rs.next());
+        assertEquals(Long.MAX_VALUE, rs.getLong(1));
+        try {
+            rs.getInt(1);
+            fail();
+        } catch (SQLException e) {
+            assertEquals(SQLExceptionCode.ILLEGAL_DATA.getErrorCode(), e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testNextBatch() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        ResultSet rs = conn.createStatement().executeQuery(
+                "SELECT CAST(1 AS BIGINT), 'a', 1.5e0, CAST(null AS VARCHAR), 2.5\n"
+                + "UNION ALL SELECT CAST(null AS BIGINT), 'bc', 2e0, 'd', 3.5\n"
+                + "UNION ALL SELECT CAST(-3 AS BIGINT), 'g', 3e0, 'ef', CAST(null AS DECIMAL)");
+        ColumnBatch batch = rs.unwrap(PhoenixResultSet.class).nextBatch(2);
+        assertEquals(2, batch.getRowCount());
+        assertEquals(5, batch.getColumnCount());
+        LongColumnVector longs = (LongColumnVector) batch.getColumn(1);
+        assertEquals(1L, longs.getLong(0));
+        assertFalse(longs.isNull(0));
+        assertTrue(longs.isNull(1));
+        assertEquals(1, longs.getNullCount());
+        BytesColumnVector strings = (BytesColumnVector) batch.getColumn(2);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        strings.getBytes(1, ptr);
+        assertEquals("bc", Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength()));
+        assertEquals(3, strings.getOffsetBuffer()[2]);
+        DoubleColumnVector doubles = (DoubleColumnVector) batch.getColumn(3);
+        assertEquals(2d, doubles.getDouble(1), 0);
+        BytesColumnVector nullable = (BytesColumnVector) batch.getColumn(4);
+        assertTrue(nullable.isNull(0));
+        nullable.getBytes(1, ptr);
+        assertEquals("d", Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength()));
+        ObjectColumnVector decimals = (ObjectColumnVector) batch.getColumn(5);
+        assertEquals(0, new BigDecimal("3.5").compareTo((BigDecimal) decimals.getObject(1)));
+        // Positioned on the last row read
+        assertEquals("bc", rs.getString(2));
+
+        batch = rs.unwrap(PhoenixResultSet.class).nextBatch(2);
+        assertEquals(1, batch.getRowCount());
+        assertEquals(-3L, ((LongColumnVector) batch.getColumn(1)).getLong(0));
+        assertTrue(batch.getColumn(5).isNull(0));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.job.JobManager.JobFutureTask;
+import org.apache.phoenix.job.JobManager.JobRunnable;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.junit.Test;
+
+public class JobManagerTest {
+
+    private static JobFutureTask<Void> newTask(final Object jobId) {
+        return new JobFutureTask<Void>(new JobRunnable<Void>() {
+            @Override
+            public void run() {
+            }
+
+            @Override
+            public Object getJobId() {
+                return jobId;
+            }
+
+            @Override
+            public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                return null;
+            }
+        }, null);
+    }
+
+    @Test
+    public void testReservedSizeForSmallJobs() {
+        JobManager<Runnable> queue = new JobManager<Runnable>(4, 2, 2);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(newTask("large")));
+        }
+        assertFalse(queue.offer(newTask("large")));
+        assertTrue(queue.offer(newTask("small")));
+        assertTrue(queue.offer(newTask("small")));
+        // No longer small
+        assertFalse(queue.offer(newTask("small")));
+        // The reserved size is used up
+        assertFalse(queue.offer(newTask("other")));
+        assertEquals(6, queue.size());
+    }
+
+    @Test
+    public void testSmallJobsFirst() {
+        JobManager<Runnable> queue = new JobManager<Runnable>(10, 0, 2);
+        JobFutureTask<Void> small = newTask("small");
+        queue.offer(small);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(newTask("large"));
+        }
+        // New jobs go to the front of the round robin, but the small job is run first
+        assertSame(small, queue.poll());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("large", ((JobFutureTask<?>)queue.poll()).getJobId());
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testWaitingForElements() throws Exception {
+        final JobManager<Runnable> queue = new JobManager<Runnable>(1);
+        final JobFutureTask<Void> task = newTask("job");
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.offer(task);
+            }
+        });
+        producer.start();
+        assertSame(task, queue.poll(60, TimeUnit.SECONDS));
+        producer.join();
+        assertEquals(null, queue.poll(1, TimeUnit.MILLISECONDS));
+
+        assertTrue(queue.offer(newTask("job")));
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        consumer.start();
+        // Full until the consumer takes the first task
+        assertTrue(queue.offer(task, 60, TimeUnit.SECONDS));
+        consumer.join();
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testCancelRemovesQueuedTask() throws Exception {
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 1, 10, 0, 0, false, false);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Runnable noop = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            Future<?> first = executor.submit(noop);
+            Future<?> second = executor.submit(noop);
+            assertEquals(2, executor.getQueue().size());
+            assertTrue(first.cancel(false));
+            assertEquals(1, executor.getQueue().size());
+            latch.countDown();
+            second.get();
+            assertEquals(0, executor.getQueue().size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        // Falls back to platform threads on runtimes without virtual threads
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 1000, 10, 0, 0, true, true);
+        try {
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertTrue(thread.isDaemon());
+            assertEquals(JobManager.class.getClassLoader(), thread.getContextClassLoader());
+            assertEquals(JobManager.isVirtualThreadSupported(), thread.getName().contains("-vthread-"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.apache.phoenix.memory;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.spy;
@@ -28,6 +30,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.phoenix.coprocessor.GroupedAggregateRegionObserver;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.memory.MemoryManager.RevocableMemoryChunk;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.junit.Test;
 
 /**
@@ -179,6 +183,173 @@ public class MemoryManagerTest {
         assertTrue(gmm.getAvailableMemory() == gmm.getMaxMemory());
     }
 
+    private static Thread allocateInBackground(final MemoryManager mm, final long nBytes,
+            final List<MemoryChunk> allocated) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MemoryChunk chunk = mm.allocate(nBytes);
+                synchronized (allocated) {
+                    allocated.add(chunk);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void waitForWaiters(GlobalMemoryManager gmm, int count) throws InterruptedException {
+        while (gmm.getWaitingRequestCount() < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testWaitForMemory() throws Exception {
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100, 60000);
+        MemoryChunk c1 = gmm.allocate(80);
+        List<MemoryChunk> allocated = new ArrayList<>();
+        Thread big = allocateInBackground(gmm, 50, allocated);
+        waitForWaiters(gmm, 1);
+        // Fits, but must not get ahead of the waiting request
+        Thread small = allocateInBackground(gmm, 10, allocated);
+        waitForWaiters(gmm, 2);
+        c1.close();
+        big.join();
+        small.join();
+        assertEquals(2, allocated.size());
+        assertEquals(2, gmm.getTotalWaitCount());
+        assertEquals(40, gmm.getAvailableMemory());
+        for (MemoryChunk chunk : allocated) {
+            chunk.close();
+        }
+        assertEquals(gmm.getMaxMemory(), gmm.getAvailableMemory());
+    }
+
+    @Test
+    public void testFailFastByDefault() throws Exception {
+        assertEquals(0, QueryServicesOptions.withDefaults().getMaxMemoryWaitMs());
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100,
+                QueryServicesOptions.withDefaults().getMaxMemoryWaitMs());
+        MemoryChunk c1 = gmm.allocate(80);
+        try {
+            gmm.allocate(30);
+            fail();
+        } catch (InsufficientMemoryException e) { // expected
+        }
+        assertEquals(0, gmm.getTotalWaitCount());
+        c1.close();
+    }
+
+    @Test
+    public void testRevocableMemoryWithoutWaiting() throws Exception {
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100,
+                QueryServicesOptions.withDefaults().getMaxMemoryWaitMs());
+        ChildMemoryManager rmm = new ChildMemoryManager(gmm, 100);
+        RevocableMemoryChunk c1 = rmm.allocateRevocable(60, 60);
+        RevocableMemoryChunk c2 = rmm.allocateRevocable(20, 20);
+        // Growing a revocable chunk fails without taking memory from the other one
+        try {
+            c2.resize(50);
+            fail();
+        } catch (InsufficientMemoryException e) { // expected
+        }
+        assertFalse(c1.isRevokeRequested());
+        // The failed request has the largest chunk give memory back for the next one
+        try {
+            gmm.allocate(50);
+            fail();
+        } catch (InsufficientMemoryException e) { // expected
+        }
+        assertTrue(c1.isRevokeRequested());
+        assertFalse(c2.isRevokeRequested());
+        c1.resize(20);
+        assertFalse(c1.isRevokeRequested());
+        MemoryChunk c3 = gmm.allocate(50);
+        assertEquals(0, gmm.getTotalWaitCount());
+        c1.close();
+        c2.close();
+        c3.close();
+        assertEquals(rmm.getMaxMemory(), rmm.getAvailableMemory());
+        assertEquals(gmm.getMaxMemory(), gmm.getAvailableMemory());
+    }
+
+    @Test
+    public void testRevocableAllocationWaitsItsTurn() throws Exception {
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100, 60000);
+        final ChildMemoryManager rmm = new ChildMemoryManager(gmm, 100);
+        MemoryChunk c1 = gmm.allocate(80);
+        final List<MemoryChunk> allocated = new ArrayList<>();
+        Thread big = allocateInBackground(gmm, 50, allocated);
+        waitForWaiters(gmm, 1);
+        // Memory is free, but the revocable chunk waits behind the request already waiting
+        // rather than failing
+        Thread revocable = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MemoryChunk chunk = rmm.allocateRevocable(10, 30);
+                synchronized (allocated) {
+                    allocated.add(chunk);
+                }
+            }
+        });
+        revocable.start();
+        waitForWaiters(gmm, 2);
+        c1.close();
+        big.join();
+        revocable.join();
+        assertEquals(2, allocated.size());
+        assertEquals(2, gmm.getTotalWaitCount());
+        for (MemoryChunk chunk : allocated) {
+            chunk.close();
+        }
+        assertEquals(rmm.getMaxMemory(), rmm.getAvailableMemory());
+        assertEquals(gmm.getMaxMemory(), gmm.getAvailableMemory());
+    }
+
+    @Test
+    public void testWaitTimeout() throws Exception {
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100, 10);
+        MemoryChunk c1 = gmm.allocate(80);
+        try {
+            gmm.allocate(30);
+            fail();
+        } catch (InsufficientMemoryException e) { // expected
+        }
+        assertEquals(0, gmm.getWaitingRequestCount());
+        assertTrue(gmm.getTotalWaitTimeMs() >= 10);
+        c1.close();
+        assertEquals(gmm.getMaxMemory(), gmm.getAvailableMemory());
+    }
+
+    @Test
+    public void testRevocableMemory() throws Exception {
+        GlobalMemoryManager gmm = new GlobalMemoryManager(100, 60000);
+        ChildMemoryManager rmm = new ChildMemoryManager(gmm, 100);
+        RevocableMemoryChunk c1 = rmm.allocateRevocable(60, 60);
+        MemoryChunk c2 = gmm.allocate(20);
+        assertFalse(c1.isRevokeRequested());
+        List<MemoryChunk> allocated = new ArrayList<>();
+        Thread waiter = allocateInBackground(gmm, 50, allocated);
+        waitForWaiters(gmm, 1);
+        assertTrue(c1.isRevokeRequested());
+        // Revocable chunks don't compete with waiting requests
+        try {
+            c1.resize(65);
+            fail();
+        } catch (InsufficientMemoryException e) { // expected
+        }
+        c1.resize(30);
+        assertFalse(c1.isRevokeRequested());
+        waiter.join();
+        assertEquals(50, allocated.get(0).getSize());
+        allocated.get(0).close();
+        c1.close();
+        c2.close();
+        assertEquals(rmm.getMaxMemory(), rmm.getAvailableMemory());
+        assertEquals(gmm.getMaxMemory(), gmm.getAvailableMemory());
+    }
+
     /**
      * Test for SpillableGroupByCache which is using MemoryManager to allocate chunks for GroupBy execution
      * @throws Exception
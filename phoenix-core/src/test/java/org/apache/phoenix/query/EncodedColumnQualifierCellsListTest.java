@@ -235,6 +235,26 @@ public class EncodedColumnQualifierCellsListTest {
         assertEquals(0, list.size());
     }
     
+    @Test
+    public void testReuseAfterClear() throws Exception {
+        EncodedColumnQualiferCellsList list = new EncodedColumnQualiferCellsList(11, 16, FOUR_BYTE_QUALIFIERS);
+        populateList(list);
+        list.remove(list.getFirstCell());
+        list.clear();
+        for (int qualifier : new int[] {0, 5, 10, 11, 12, 14, 16}) {
+            assertEquals(null, list.getCellForColumnQualifier(FOUR_BYTE_QUALIFIERS.encode(qualifier)));
+        }
+        Cell cell = KeyValue.createFirstOnRow(row, cf, FOUR_BYTE_QUALIFIERS.encode(14));
+        list.add(cell);
+        assertEquals(1, list.size());
+        assertEquals(cell, list.getFirstCell());
+        assertEquals(cell, list.getCellForColumnQualifier(FOUR_BYTE_QUALIFIERS.encode(14)));
+        assertEquals(null, list.getCellForColumnQualifier(FOUR_BYTE_QUALIFIERS.encode(16)));
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertFalse(list.iterator().hasNext());
+    }
+    
     @Test
     public void testGetIndex() throws Exception {
         EncodedColumnQualiferCellsList list = new EncodedColumnQualiferCellsList(11, 16, FOUR_BYTE_QUALIFIERS);
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.schema.PName;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.PTableRef;
+import org.apache.phoenix.schema.PTableRefImpl;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.EnvironmentEdge;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableMap;
+
+public class MetaDataChangeTrackerTest {
+    private ConnectionQueryServices services;
+    private ResultScanner scanner;
+
+    @Before
+    public void setup() throws Exception {
+        services = mock(ConnectionQueryServices.class);
+        HTableInterface htable = mock(HTableInterface.class);
+        scanner = mock(ResultScanner.class);
+        when(htable.getScanner(any(Scan.class))).thenReturn(scanner);
+        when(services.getProps()).thenReturn(ReadOnlyProps.EMPTY_PROPS);
+        when(services.getTable(any(byte[].class))).thenReturn(htable);
+    }
+
+    private MetaDataChangeTracker newTracker(Map<String, String> overrides) {
+        return new MetaDataChangeTracker(services, new ReadOnlyProps(overrides));
+    }
+
+    private static PTableRef newTableRef(String name, PName parentName, long createTime, PTable... indexes) {
+        PTable table = mock(PTable.class);
+        when(table.getKey()).thenReturn(new PTableKey(null, name));
+        when(table.getParentName()).thenReturn(parentName);
+        when(table.getIndexes()).thenReturn(indexes.length == 0
+                ? Collections.<PTable>emptyList() : Arrays.asList(indexes));
+        return new PTableRefImpl(table, createTime, createTime, 0);
+    }
+
+    private static PTable newIndex(String name) {
+        PTable index = mock(PTable.class);
+        when(index.getKey()).thenReturn(new PTableKey(null, name));
+        return index;
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        MetaDataChangeTracker tracker = newTracker(Collections.<String, String>emptyMap());
+        assertFalse(tracker.isEnabled());
+        tracker.poll();
+        // A tracker that was never started never vouches for cached tables
+        tracker.close();
+        assertFalse(tracker.isCurrent(newTableRef("T", null, Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testTableChangeInvalidatesOlderReferences() throws Exception {
+        MetaDataChangeTracker tracker = newTracker(ImmutableMap.of(
+                QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB, "1000"));
+        assertTrue(tracker.isEnabled());
+        tracker.poll();
+        PTableRef before = newTableRef("T", null, 100);
+        PTableRef after = newTableRef("T", null, 300);
+        PTableRef other = newTableRef("U", null, 100);
+        assertTrue(tracker.isCurrent(before));
+
+        tracker.tableChanged(null, "T", 150, 200);
+        assertFalse(tracker.isCurrent(before));
+        assertTrue(tracker.isCurrent(after));
+        assertTrue(tracker.isCurrent(other));
+        verify(services, times(1)).removeTable(eq((PName)null), eq("T"), eq((String)null), anyLong());
+
+        // The same change seen again by an overlapping scan is ignored
+        tracker.tableChanged(null, "T", 150, 400);
+        assertTrue(tracker.isCurrent(after));
+        verify(services, times(1)).removeTable(eq((PName)null), eq("T"), eq((String)null), anyLong());
+    }
+
+    @Test
+    public void testIndexAndParentChangesInvalidateTable() throws Exception {
+        MetaDataChangeTracker tracker = newTracker(ImmutableMap.of(
+                QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB, "1000"));
+        tracker.poll();
+        PTableRef table = newTableRef("T", null, 100, newIndex("I"));
+        PTableRef view = newTableRef("V", PNameFactory.newName("T"), 100);
+        assertTrue(tracker.isCurrent(table));
+        assertTrue(tracker.isCurrent(view));
+
+        tracker.tableChanged(null, "I", 150, 200);
+        assertFalse(tracker.isCurrent(table));
+        assertTrue(tracker.isCurrent(view));
+        tracker.tableChanged(null, "T", 150, 200);
+        assertFalse(tracker.isCurrent(view));
+    }
+
+    @Test
+    public void testFailedPollFallsBack() throws Exception {
+        MetaDataChangeTracker tracker = newTracker(ImmutableMap.of(
+                QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB, "1000"));
+        tracker.poll();
+        PTableRef ref = newTableRef("T", null, Long.MAX_VALUE);
+        assertTrue(tracker.isCurrent(ref));
+        HTableInterface failing = mock(HTableInterface.class);
+        when(failing.getScanner(any(Scan.class))).thenThrow(new IOException());
+        when(services.getTable(any(byte[].class))).thenReturn(failing);
+        tracker.poll();
+        assertFalse(tracker.isCurrent(ref));
+    }
+
+    @Test
+    public void testTooManyChangesInvalidatesAll() throws Exception {
+        MetaDataChangeTracker tracker = newTracker(ImmutableMap.of(
+                QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB, "1000",
+                QueryServices.METADATA_CHANGE_MAX_TRACKED_ATTRIB, "1"));
+        tracker.poll();
+        PTableRef ref = newTableRef("T", null, 100);
+        tracker.tableChanged(null, "A", 150, 200);
+        tracker.tableChanged(null, "B", 150, 200);
+        assertTrue(tracker.isCurrent(ref));
+        tracker.poll();
+        assertFalse(tracker.isCurrent(ref));
+    }
+
+    private static Result newCatalogRow(String tableName, long timestamp) {
+        byte[] row = SchemaUtil.getTableKey(null, null, tableName);
+        return Result.create(new Cell[] {new KeyValue(row, QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+                QueryConstants.EMPTY_COLUMN_BYTES, timestamp, ByteUtil.EMPTY_BYTE_ARRAY)});
+    }
+
+    private static class ManualEnvironmentEdge extends EnvironmentEdge {
+        private long time;
+
+        @Override
+        public long currentTime() {
+            return time;
+        }
+    }
+
+    @Test
+    public void testChangeDetectedWhenScanCompletes() throws Exception {
+        final ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+        edge.time = 100;
+        EnvironmentEdgeManager.injectEdge(edge);
+        try {
+            MetaDataChangeTracker tracker = newTracker(ImmutableMap.of(
+                    QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB, "1000"));
+            // The table is cached while the scan runs, before the change is committed
+            when(scanner.next()).thenAnswer(new Answer<Result>() {
+                @Override
+                public Result answer(InvocationOnMock invocation) {
+                    edge.time = 500;
+                    return newCatalogRow("T", 400);
+                }
+            }).thenReturn(null);
+            tracker.poll();
+            assertFalse(tracker.isCurrent(newTableRef("T", null, 300)));
+            assertTrue(tracker.isCurrent(newTableRef("T", null, 600)));
+            verify(services, times(1)).removeTable(eq((PName)null), eq("T"), eq((String)null), anyLong());
+        } finally {
+            EnvironmentEdgeManager.reset();
+        }
+    }
+
+    @Test
+    public void testTooManyRowsStopsScan() throws Exception {
+        MetaDataChangeTracker tracker = newTracker(ImmutableMap.of(
+                QueryServices.METADATA_CHANGE_POLL_INTERVAL_MS_ATTRIB, "1000",
+                QueryServices.METADATA_CHANGE_MAX_TRACKED_ATTRIB, "2"));
+        when(scanner.next()).thenReturn(newCatalogRow("A", 150), newCatalogRow("A", 160),
+                newCatalogRow("B", 150), newCatalogRow("C", 150), null);
+        PTableRef ref = newTableRef("T", null, 100);
+        tracker.poll();
+        assertFalse(tracker.isCurrent(ref));
+        verify(scanner, times(3)).next();
+        verify(services, times(0)).removeTable(any(PName.class), any(String.class), any(String.class), anyLong());
+        assertTrue(tracker.isCurrent(newTableRef("T", null, Long.MAX_VALUE)));
+    }
+}
@@ -19,12 +19,19 @@ package org.apache.phoenix.schema;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.phoenix.parse.PSchema;
@@ -32,11 +39,32 @@ import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.TimeKeeper;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+@RunWith(Parameterized.class)
 public class PMetaDataImplTest {
+
+    private final boolean concurrent;
+
+    public PMetaDataImplTest(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    @Parameters(name="PMetaDataImplTest_concurrent={0}") // name is used by failsafe as file name in reports
+    public static List<Object[]> data() {
+        return Arrays.asList(new Object[][] { { false }, { true } });
+    }
+
+    private PMetaData newMetaData(int initialCapacity, TimeKeeper timeKeeper, ReadOnlyProps props) {
+        return concurrent ? new PConcurrentMetaData(initialCapacity, timeKeeper, props)
+                : new PMetaDataImpl(initialCapacity, timeKeeper, props);
+    }
     
     private static void addToTable(PMetaData metaData, String name, int size, TestTimeKeeper timeKeeper) throws SQLException {
         PTable table = new PSizedTable(new PTableKey(null,name), size);
@@ -83,7 +111,7 @@ public class PMetaDataImplTest {
         Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
         props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "10");
         props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
-        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        PMetaData metaData = newMetaData(5, timeKeeper,  new ReadOnlyProps(props));
         addToTable(metaData, "a", 5, timeKeeper);
         assertEquals(1, metaData.size());
         addToTable(metaData, "b", 4, timeKeeper);
@@ -129,7 +157,7 @@ public class PMetaDataImplTest {
         Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
         props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "5");
         props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
-        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        PMetaData metaData = newMetaData(5, timeKeeper,  new ReadOnlyProps(props));
         addToTable(metaData, "a", 1, timeKeeper);
         assertEquals(1, metaData.size());
         addToTable(metaData, "b", 1, timeKeeper);
@@ -151,7 +179,7 @@ public class PMetaDataImplTest {
         Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
         props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "5");
         props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
-        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        PMetaData metaData = newMetaData(5, timeKeeper,  new ReadOnlyProps(props));
         addToTable(metaData, "a", 1, timeKeeper);
         assertEquals(1, metaData.size());
         addToTable(metaData, "b", 1, timeKeeper);
@@ -174,7 +202,7 @@ public class PMetaDataImplTest {
         Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
         props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "0");
         props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
-        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        PMetaData metaData = newMetaData(5, timeKeeper,  new ReadOnlyProps(props));
         addToTable(metaData, "a", 1, timeKeeper);
         assertEquals(1, metaData.size());
         addToTable(metaData, "b", 1, timeKeeper);
@@ -197,7 +225,7 @@ public class PMetaDataImplTest {
         Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
         props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "10");
         props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
-        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        PMetaData metaData = newMetaData(5, timeKeeper,  new ReadOnlyProps(props));
         String tableName = "a";
         addToTable(metaData, tableName, 1, timeKeeper);
         PTableRef aTableRef = metaData.getTableRef(new PTableKey(null,tableName));
@@ -214,7 +242,7 @@ public class PMetaDataImplTest {
     @Test
     public void testSchema() throws Exception {
         TestTimeKeeper timeKeeper = new TestTimeKeeper();
-        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,
+        PMetaData metaData = newMetaData(5, timeKeeper,
             new ReadOnlyProps(Collections.EMPTY_MAP));
         PSchema schema = new PSchema("testSchema");
         metaData.addSchema(schema);
@@ -227,6 +255,58 @@ public class PMetaDataImplTest {
         }
     }
 
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        if (!concurrent) {
+            return;
+        }
+        final TestTimeKeeper timeKeeper = new TestTimeKeeper();
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "50");
+        props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
+        final PMetaData metaData = newMetaData(5, timeKeeper, new ReadOnlyProps(props));
+        int nThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<Void>> futures = Lists.newArrayListWithExpectedSize(nThreads);
+            for (int i = 0; i < nThreads; i++) {
+                final String prefix = "t" + i + "_";
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < 1000; j++) {
+                            String name = prefix + (j % 20);
+                            metaData.addTable(new PSizedTable(new PTableKey(null, name), 1), 0);
+                            try {
+                                metaData.getTableRef(new PTableKey(null, name));
+                            } catch (TableNotFoundException e) {
+                                // evicted by another thread
+                            }
+                            if (j % 7 == 0) {
+                                metaData.removeTable(null, name, null, HConstants.LATEST_TIMESTAMP);
+                            }
+                            for (PTable table : metaData) {
+                                assertNotNull(table);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(metaData.size() <= 50);
+        int size = 0;
+        for (PTable table : metaData) {
+            size += table.getEstimatedSize();
+        }
+        assertEquals(metaData.size(), size);
+    }
+
     private static class PSizedTable extends PTableImpl {
         private final int size;
         private final PTableKey key;
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.phoenix.coprocessor.generated.PTableProtos;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class SerializedPTableRefTest extends BaseConnectionlessQueryTest {
+
+    @Test
+    public void testMaterializedOnceAndCompressed() throws Exception {
+        PTable table = ATABLE;
+        PTableRef ref = SerializedPTableRefFactory.getFactory().makePTableRef(table, 1, 2);
+        PTableProtos.PTable proto = PTableImpl.toProto(table);
+        // Only the compressed bytes are accounted for
+        int compressedSize = ref.getEstimatedSize();
+        assertTrue(compressedSize > 0 && compressedSize < proto.toByteArray().length);
+        // The table used to create the reference is kept until memory is needed
+        assertSame(table, ref.getTable());
+
+        PTableRef copy = SerializedPTableRefFactory.getFactory().makePTableRef(ref);
+        assertEquals(ref.getCreateTime(), copy.getCreateTime());
+        assertSame(table, copy.getTable());
+    }
+
+    @Test
+    public void testDeserialize() throws Exception {
+        PTable table = ATABLE;
+        PTableRef ref = new SerializedPTableRef(PTableImpl.toProto(table).toByteArray(), 1, 2,
+                table.getEstimatedSize());
+        assertTrue(ref.getEstimatedSize() < table.getEstimatedSize());
+        PTable deserialized = ref.getTable();
+        assertEquals(table.getName(), deserialized.getName());
+        assertEquals(table.getColumns().size(), deserialized.getColumns().size());
+        assertEquals(table.getPKColumns().size(), deserialized.getPKColumns().size());
+        assertSame(deserialized, ref.getTable());
+    }
+
+    private static int countCachedTables(List<PTable> tables, long maxByteSize, String encoding) throws SQLException {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, Long.toString(maxByteSize));
+        props.put(QueryServices.CLIENT_CACHE_ENCODING, encoding);
+        PMetaData metaData = new PMetaDataImpl(tables.size(), new ReadOnlyProps(props));
+        for (PTable table : tables) {
+            metaData.addTable(table, 0);
+        }
+        return metaData.size();
+    }
+
+    @Test
+    public void testMoreTablesCachedThanObjects() throws Exception {
+        List<PTable> tables = Lists.newArrayList();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            for (int i = 0; i < 30; i++) {
+                String tableName = generateUniqueName();
+                conn.createStatement().execute("CREATE TABLE " + tableName
+                        + " (k VARCHAR PRIMARY KEY, a VARCHAR, b INTEGER, c DATE, d DECIMAL, e BIGINT)");
+                tables.add(PhoenixRuntime.getTable(conn, tableName));
+            }
+        }
+        long maxByteSize = 5L * tables.get(0).getEstimatedSize();
+        int objectCount = countCachedTables(tables, maxByteSize, "object");
+        int protobufCount = countCachedTables(tables, maxByteSize, "protobuf");
+        assertTrue(objectCount + " objects and " + protobufCount + " serialized tables",
+                protobufCount > 2 * objectCount);
+    }
+}
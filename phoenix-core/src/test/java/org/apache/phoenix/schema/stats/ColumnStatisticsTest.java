@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.phoenix.schema.types.PInteger;
+import org.junit.Test;
+
+public class ColumnStatisticsTest {
+
+    private static ColumnStatistics newStatistics(int from, int to, int duplicates, long rowCount) {
+        ColumnStatisticsBuilder builder = new ColumnStatisticsBuilder();
+        for (int i = from; i < to; i++) {
+            byte[] value = PInteger.INSTANCE.toBytes(i);
+            for (int j = 0; j < duplicates; j++) {
+                builder.addValue(value, 0, value.length);
+            }
+        }
+        return builder.build(rowCount);
+    }
+
+    private static double lessThan(ColumnStatistics stats, int value) {
+        byte[] b = PInteger.INSTANCE.toBytes(value);
+        return stats.estimateLessThanFraction(b, 0, b.length, false);
+    }
+
+    @Test
+    public void testEstimates() {
+        ColumnStatistics stats = newStatistics(0, 10000, 2, 40000);
+        assertEquals(40000, stats.getRowCount());
+        assertEquals(20000, stats.getNonNullCount());
+        assertEquals(0.5, stats.getNullFraction(), 0);
+        assertEquals(10000, stats.getDistinctCount(), 10000 * 0.05);
+        assertArrayEquals(PInteger.INSTANCE.toBytes(0), stats.getMinValue());
+        assertArrayEquals(PInteger.INSTANCE.toBytes(9999), stats.getMaxValue());
+
+        assertEquals(0.25, lessThan(stats, 5000), 0.05);
+        assertEquals(0.05, lessThan(stats, 1000), 0.05);
+        assertEquals(0, lessThan(stats, -1), 0);
+        assertEquals(0.5, lessThan(stats, 20000), 0);
+        byte[] b = PInteger.INSTANCE.toBytes(42);
+        assertEquals(0.5 / 10000, stats.estimateEqualsFraction(b, 0, b.length), 0.5 / 10000 * 0.1);
+        b = PInteger.INSTANCE.toBytes(20000);
+        assertEquals(0, stats.estimateEqualsFraction(b, 0, b.length), 0);
+    }
+
+    @Test
+    public void testFewValues() {
+        ColumnStatistics stats = newStatistics(0, 2, 3, 6);
+        assertEquals(2, stats.getDistinctCount());
+        assertEquals(1, stats.getHistogram().size());
+        assertTrue(lessThan(stats, 1) > 0);
+    }
+
+    @Test
+    public void testSerializeAndCombine() throws Exception {
+        ColumnStatistics first = newStatistics(0, 5000, 1, 5000);
+        ColumnStatistics second = newStatistics(2500, 7500, 1, 10000);
+        byte[] b = second.toBytes();
+        ColumnStatistics deserialized = ColumnStatistics.fromBytes(b, 0, b.length);
+        assertEquals(second.getRowCount(), deserialized.getRowCount());
+        assertEquals(second.getNonNullCount(), deserialized.getNonNullCount());
+        assertEquals(second.getDistinctCount(), deserialized.getDistinctCount());
+        assertEquals(second.getHistogram(), deserialized.getHistogram());
+
+        ColumnStatistics combined = first.combine(deserialized);
+        assertEquals(15000, combined.getRowCount());
+        assertEquals(10000, combined.getNonNullCount());
+        assertEquals(7500, combined.getDistinctCount(), 7500 * 0.05);
+        assertArrayEquals(PInteger.INSTANCE.toBytes(0), combined.getMinValue());
+        assertArrayEquals(PInteger.INSTANCE.toBytes(7499), combined.getMaxValue());
+        // Only values of the first region are below 2500
+        assertEquals(2500 / 15000.0, lessThan(combined, 2500), 0.05);
+    }
+
+    @Test
+    public void testCombineBoundsBuckets() {
+        ColumnStatistics stats = newStatistics(0, 1000, 1, 1000);
+        for (int i = 1; i < 20; i++) {
+            stats = stats.combine(newStatistics(i * 1000, (i + 1) * 1000, 1, 1000));
+        }
+        assertTrue(stats.getHistogram().size() <= ColumnStatistics.MAX_COMBINED_BUCKETS);
+        assertEquals(20000, stats.getNonNullCount());
+        assertEquals(0.5, lessThan(stats, 10000), 0.05);
+    }
+}